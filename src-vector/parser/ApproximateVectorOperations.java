@@ -0,0 +1,65 @@
+package parser;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD-Näherungen für die Vorschau (siehe {@link ApproximateOperations})
+ * Wird wie {@link VectorOperations} nur geladen, wenn jdk.incubator.vector
+ * vorhanden ist
+ *
+ * Die elementaren Funktionen rechnet {@link VectorOperations} bereits exakt
+ * und schnell; genähert wird nur die Potenz, für die es keine
+ * Vektoroperation gibt, über exp(b · ln a)
+ */
+final class ApproximateVectorOperations implements ArrayOperations {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    // Bis hierhin bleibt der relative Fehler von exp(b · ln a) klein
+    private static final double POW_FAST_LIMIT = 700;
+
+    @Override
+    public boolean apply(Operator op, double[] values, int length) {
+        return false;
+    }
+
+    @Override
+    public boolean apply(Operator op, double[] left, double[] right, int length) {
+        if (op != Operator.POW) {
+            return false;
+        }
+
+        int bound = SPECIES.loopBound(length);
+        int step = SPECIES.length();
+        for (int i = 0; i < bound; i += step) {
+            DoubleVector a = DoubleVector.fromArray(SPECIES, left, i);
+            DoubleVector b = DoubleVector.fromArray(SPECIES, right, i);
+            DoubleVector y = a.lanewise(VectorOperators.LOG).mul(b);
+            y.lanewise(VectorOperators.EXP).intoArray(left, i);
+
+            // Nicht-positive oder unendliche Basis, Sonderwerte und sehr große
+            // Ergebnisse skalar nachrechnen
+            VectorMask<Double> fast = a.compare(VectorOperators.GE, Double.MIN_NORMAL)
+                    .and(a.compare(VectorOperators.LE, Double.MAX_VALUE))
+                    .and(y.abs().compare(VectorOperators.LE, POW_FAST_LIMIT));
+            if (!fast.allTrue()) {
+                for (int lane = 0; lane < step; lane++) {
+                    if (!fast.laneIsSet(lane)) {
+                        left[i + lane] = pow(a.lane(lane), b.lane(lane));
+                    }
+                }
+            }
+        }
+        for (int i = bound; i < length; i++) {
+            left[i] = pow(left[i], right[i]);
+        }
+        return true;
+    }
+
+    private static double pow(double a, double b) {
+        // Math.pow(NaN, 0) wäre 1 - Fehler sollen aber erhalten bleiben
+        return Double.isNaN(a) || Double.isNaN(b) ? Double.NaN : ApproximateMath.pow(a, b);
+    }
+}
@@ -0,0 +1,204 @@
+package parser;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD-Implementierung der Array-Operatoren auf Basis von jdk.incubator.vector
+ * Wird nur geladen, wenn das Incubator-Modul zur Laufzeit vorhanden ist
+ * (siehe {@link VectorSupport}); Ergebnisse transzendenter Funktionen können
+ * in der letzten Stelle von Math.* abweichen
+ */
+final class VectorOperations implements ArrayOperations {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public boolean apply(Operator op, double[] values, int length) {
+        int bound = SPECIES.loopBound(length);
+        int step = SPECIES.length();
+
+        // Jeder Fall hat eine eigene Schleife mit konstanter Operation, damit
+        // HotSpot die Vektoroperation als Intrinsic übersetzt
+        switch (op) {
+            case NEG:
+                for (int i = 0; i < bound; i += step)
+                    DoubleVector.fromArray(SPECIES, values, i).neg().intoArray(values, i);
+                break;
+            case SIN:
+                for (int i = 0; i < bound; i += step)
+                    DoubleVector.fromArray(SPECIES, values, i).lanewise(VectorOperators.SIN).intoArray(values, i);
+                break;
+            case COS:
+                for (int i = 0; i < bound; i += step)
+                    DoubleVector.fromArray(SPECIES, values, i).lanewise(VectorOperators.COS).intoArray(values, i);
+                break;
+            case TAN:
+                for (int i = 0; i < bound; i += step)
+                    DoubleVector.fromArray(SPECIES, values, i).lanewise(VectorOperators.TAN).intoArray(values, i);
+                break;
+            case ASIN:
+                for (int i = 0; i < bound; i += step)
+                    DoubleVector.fromArray(SPECIES, values, i).lanewise(VectorOperators.ASIN).intoArray(values, i);
+                break;
+            case ACOS:
+                for (int i = 0; i < bound; i += step)
+                    DoubleVector.fromArray(SPECIES, values, i).lanewise(VectorOperators.ACOS).intoArray(values, i);
+                break;
+            case ATAN:
+                for (int i = 0; i < bound; i += step)
+                    DoubleVector.fromArray(SPECIES, values, i).lanewise(VectorOperators.ATAN).intoArray(values, i);
+                break;
+            case SINH:
+                for (int i = 0; i < bound; i += step)
+                    DoubleVector.fromArray(SPECIES, values, i).lanewise(VectorOperators.SINH).intoArray(values, i);
+                break;
+            case COSH:
+                for (int i = 0; i < bound; i += step)
+                    DoubleVector.fromArray(SPECIES, values, i).lanewise(VectorOperators.COSH).intoArray(values, i);
+                break;
+            case TANH:
+                for (int i = 0; i < bound; i += step)
+                    DoubleVector.fromArray(SPECIES, values, i).lanewise(VectorOperators.TANH).intoArray(values, i);
+                break;
+            case SQRT:
+                for (int i = 0; i < bound; i += step)
+                    DoubleVector.fromArray(SPECIES, values, i).lanewise(VectorOperators.SQRT).intoArray(values, i);
+                break;
+            case CBRT:
+                for (int i = 0; i < bound; i += step)
+                    DoubleVector.fromArray(SPECIES, values, i).lanewise(VectorOperators.CBRT).intoArray(values, i);
+                break;
+            case EXP:
+                for (int i = 0; i < bound; i += step)
+                    DoubleVector.fromArray(SPECIES, values, i).lanewise(VectorOperators.EXP).intoArray(values, i);
+                break;
+            case ABS:
+                for (int i = 0; i < bound; i += step)
+                    DoubleVector.fromArray(SPECIES, values, i).abs().intoArray(values, i);
+                break;
+            case DEGREES:
+                for (int i = 0; i < bound; i += step)
+                    DoubleVector.fromArray(SPECIES, values, i).mul(Math.toDegrees(1.0)).intoArray(values, i);
+                break;
+            case RADIANS:
+                for (int i = 0; i < bound; i += step)
+                    DoubleVector.fromArray(SPECIES, values, i).mul(Math.toRadians(1.0)).intoArray(values, i);
+                break;
+            case LOG10:
+                // Nicht-positive Argumente ergeben NaN
+                for (int i = 0; i < bound; i += step) {
+                    DoubleVector v = DoubleVector.fromArray(SPECIES, values, i);
+                    v.lanewise(VectorOperators.LOG10).blend(Double.NaN, v.compare(VectorOperators.LE, 0.0))
+                            .intoArray(values, i);
+                }
+                break;
+            case LN:
+                // Nicht-positive Argumente ergeben NaN
+                for (int i = 0; i < bound; i += step) {
+                    DoubleVector v = DoubleVector.fromArray(SPECIES, values, i);
+                    v.lanewise(VectorOperators.LOG).blend(Double.NaN, v.compare(VectorOperators.LE, 0.0))
+                            .intoArray(values, i);
+                }
+                break;
+            case LOG2:
+                // Nicht-positive Argumente ergeben NaN
+                for (int i = 0; i < bound; i += step) {
+                    DoubleVector v = DoubleVector.fromArray(SPECIES, values, i);
+                    v.lanewise(VectorOperators.LOG).mul(1.0 / Math.log(2)).blend(Double.NaN, v.compare(VectorOperators.LE, 0.0))
+                            .intoArray(values, i);
+                }
+                break;
+            default:
+                // FLOOR, CEIL und ROUND bietet die Vector API nicht an
+                return false;
+        }
+
+        if (bound < length) {
+            double[] tail = tail(values, bound, length);
+            apply(op, tail, tail.length);
+            System.arraycopy(tail, 0, values, bound, length - bound);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean apply(Operator op, double[] left, double[] right, int length) {
+        int bound = SPECIES.loopBound(length);
+        int step = SPECIES.length();
+
+        switch (op) {
+            case ADD:
+                for (int i = 0; i < bound; i += step) {
+                    DoubleVector a = DoubleVector.fromArray(SPECIES, left, i);
+                    DoubleVector b = DoubleVector.fromArray(SPECIES, right, i);
+                    a.add(b).intoArray(left, i);
+                }
+                break;
+            case SUB:
+                for (int i = 0; i < bound; i += step) {
+                    DoubleVector a = DoubleVector.fromArray(SPECIES, left, i);
+                    DoubleVector b = DoubleVector.fromArray(SPECIES, right, i);
+                    a.sub(b).intoArray(left, i);
+                }
+                break;
+            case MUL:
+                for (int i = 0; i < bound; i += step) {
+                    DoubleVector a = DoubleVector.fromArray(SPECIES, left, i);
+                    DoubleVector b = DoubleVector.fromArray(SPECIES, right, i);
+                    a.mul(b).intoArray(left, i);
+                }
+                break;
+            case MAX:
+                for (int i = 0; i < bound; i += step) {
+                    DoubleVector a = DoubleVector.fromArray(SPECIES, left, i);
+                    DoubleVector b = DoubleVector.fromArray(SPECIES, right, i);
+                    a.max(b).intoArray(left, i);
+                }
+                break;
+            case MIN:
+                for (int i = 0; i < bound; i += step) {
+                    DoubleVector a = DoubleVector.fromArray(SPECIES, left, i);
+                    DoubleVector b = DoubleVector.fromArray(SPECIES, right, i);
+                    a.min(b).intoArray(left, i);
+                }
+                break;
+            case ATAN2:
+                for (int i = 0; i < bound; i += step) {
+                    DoubleVector a = DoubleVector.fromArray(SPECIES, left, i);
+                    DoubleVector b = DoubleVector.fromArray(SPECIES, right, i);
+                    a.lanewise(VectorOperators.ATAN2, b).intoArray(left, i);
+                }
+                break;
+            case DIV:
+                // Divisoren nahe Null ergeben NaN
+                for (int i = 0; i < bound; i += step) {
+                    DoubleVector a = DoubleVector.fromArray(SPECIES, left, i);
+                    DoubleVector b = DoubleVector.fromArray(SPECIES, right, i);
+                    a.div(b).blend(Double.NaN, b.abs().compare(VectorOperators.LT, 1e-10)).intoArray(left, i);
+                }
+                break;
+            default:
+                // POW bleibt skalar: Math.pow behandelt ganzzahlige Exponenten
+                // (x^2, x^3) deutlich schneller als die vektorisierte Variante
+                return false;
+        }
+
+        if (bound < length) {
+            double[] leftTail = tail(left, bound, length);
+            apply(op, leftTail, tail(right, bound, length), leftTail.length);
+            System.arraycopy(leftTail, 0, left, bound, length - bound);
+        }
+        return true;
+    }
+
+    /**
+     * Kopiert den Rest hinter der letzten vollen Vektorbreite in ein Array mit
+     * genau einer Vektorbreite, damit auch er ohne Masken berechnet werden kann
+     */
+    private static double[] tail(double[] values, int from, int to) {
+        double[] tail = new double[SPECIES.length()];
+        System.arraycopy(values, from, tail, 0, to - from);
+        return tail;
+    }
+}
@@ -0,0 +1,473 @@
+package core;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import parser.ExpressionParser;
+import parser.UserDefinitions;
+
+/**
+ * Taschenrechner ohne Oberfläche für die Stapelverarbeitung
+ * Liest Ausdrücke zeilenweise aus einer Datei oder von der Standardeingabe,
+ * wertet sie auf allen Prozessorkernen aus und schreibt die Ergebnisse in der
+ * Reihenfolge der Eingabe als Text oder CSV. Swing wird dabei nicht gestartet.
+ *
+ * Eingabeformat, eine Zeile je Ausdruck:
+ * <pre>
+ * 2*pi                              einzelner Wert
+ * sin(x)^2 ; x=0:1:11               x von 0 bis 1 in 11 Schritten
+ * x*y ; x=0:1:3 ; y=-1:1:5          Gitter, y läuft innerhalb von x
+ * a = 2.5                           Definition (siehe UserDefinitions)
+ * # Kommentar
+ * </pre>
+ * Statt from:to:count kann auch ein einzelner Wert angegeben werden (x=2).
+ * Definitionen gelten für alle folgenden Zeilen; davor begonnene Zeilen
+ * werden vorher abgeschlossen.
+ *
+ * Der Speicherbedarf ist beschränkt: große Abtastungen werden in Blöcke
+ * zerlegt, und das Einlesen wartet, solange zu viele Blöcke noch nicht
+ * geschrieben sind.
+ *
+ * Aufruf: java --add-modules jdk.incubator.vector -cp GrafischerTaschenrechner.jar
+ * core.BatchCalculator [--csv] [--threads N] [--output DATEI] [EINGABEDATEI]
+ */
+public final class BatchCalculator {
+    // Punkte je Auswertungsblock
+    private static final int CHUNK_SIZE = 4096;
+
+    // Noch nicht geschriebene Blöcke je Thread, bevor das Einlesen wartet
+    private static final int PENDING_PER_THREAD = 4;
+
+    private static final String CSV_HEADER = "zeile,ausdruck,x,y,wert,fehler";
+
+    // Markiert das Ende der Ergebnisse für den Schreib-Thread
+    private static final CompletableFuture<String> END = CompletableFuture.completedFuture(null);
+
+    private final int threads;
+    private final boolean csv;
+
+    /**
+     * Erstellt einen Stapelrechner
+     *
+     * @param threads Anzahl der Rechen-Threads
+     * @param csv     true für CSV-Ausgabe, false für Text
+     */
+    public BatchCalculator(int threads, boolean csv) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Mindestens ein Thread erforderlich");
+        }
+        this.threads = threads;
+        this.csv = csv;
+    }
+
+    /**
+     * Hauptmethode für die Kommandozeile
+     */
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean csv = false;
+        String input = null;
+        String output = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--csv":
+                        csv = true;
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(optionValue(args, ++i));
+                        break;
+                    case "-o":
+                    case "--output":
+                        output = optionValue(args, ++i);
+                        break;
+                    case "-h":
+                    case "--help":
+                        printUsage();
+                        return;
+                    default:
+                        if (input != null || (args[i].startsWith("-") && !args[i].equals("-"))) {
+                            throw new IllegalArgumentException("Unbekanntes Argument: " + args[i]);
+                        }
+                        input = args[i];
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            printUsage();
+            System.exit(2);
+        }
+
+        try (BufferedReader in = input == null || input.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(input), StandardCharsets.UTF_8);
+                Writer out = output == null
+                        ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                        : Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8)) {
+            int errors = new BatchCalculator(threads, csv).run(in, out);
+            out.flush();
+            System.exit(errors == 0 ? 0 : 1);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Fehler: " + e.getMessage());
+            System.exit(2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.exit(2);
+        }
+    }
+
+    private static String optionValue(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Fehlender Wert für " + args[index - 1]);
+        }
+        return args[index];
+    }
+
+    private static void printUsage() {
+        System.err.println("Aufruf: core.BatchCalculator [--csv] [--threads N] [--output DATEI] [EINGABEDATEI]");
+        System.err.println("Ohne Eingabedatei (oder mit -) wird von der Standardeingabe gelesen.");
+        System.err.println("Zeilenformat: ausdruck [; x=von:bis:anzahl] [; y=von:bis:anzahl] oder name = wert");
+    }
+
+    /**
+     * Wertet alle Zeilen der Eingabe aus und schreibt die Ergebnisse
+     *
+     * @return Anzahl der Zeilen mit Fehlern
+     * @throws IOException beim Lesen oder Schreiben
+     */
+    public int run(BufferedReader in, Writer out) throws IOException, InterruptedException {
+        BlockingQueue<CompletableFuture<String>> pending = new ArrayBlockingQueue<>(threads * PENDING_PER_THREAD);
+        ResultWriter writer = new ResultWriter(pending, out);
+        Thread writerThread = new Thread(writer, "Stapel-Ausgabe");
+        writerThread.start();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Stapel-Auswertung");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Begonnene Aufgaben, damit Definitionen auf sie warten können
+        Deque<CompletableFuture<String>> running = new ArrayDeque<>();
+        AtomicInteger errors = new AtomicInteger();
+        try {
+            if (csv) {
+                submit(CompletableFuture.completedFuture(CSV_HEADER + "\n"), pending, running);
+            }
+            String line;
+            int lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                String text = line.trim();
+                if (text.isEmpty() || text.startsWith("#")) {
+                    continue;
+                }
+                if (UserDefinitions.isDefinition(text)) {
+                    awaitAll(running);
+                    String result;
+                    try {
+                        result = define(lineNumber, text);
+                    } catch (RuntimeException e) {
+                        result = errorRow(lineNumber, text, e);
+                        errors.incrementAndGet();
+                    }
+                    submit(CompletableFuture.completedFuture(result), pending, running);
+                    continue;
+                }
+
+                Job job;
+                try {
+                    job = new Job(lineNumber, text, errors);
+                } catch (IllegalArgumentException | ArithmeticException e) {
+                    submit(CompletableFuture.completedFuture(errorRow(lineNumber, text, e)), pending, running);
+                    errors.incrementAndGet();
+                    continue;
+                }
+                if (job.isEmptySampling()) {
+                    continue;
+                }
+                CompletableFuture<ExpressionParser> parsed = CompletableFuture.supplyAsync(job::parse, executor);
+                for (long start = 0; start < job.points; start += CHUNK_SIZE) {
+                    long chunkStart = start;
+                    int length = (int) Math.min(CHUNK_SIZE, job.points - start);
+                    submit(parsed.thenApplyAsync(parser -> job.evaluate(parser, chunkStart, length), executor),
+                            pending, running);
+                }
+            }
+        } finally {
+            pending.put(END);
+            writerThread.join();
+            executor.shutdownNow();
+        }
+        writer.rethrow();
+        return errors.get() + writer.failedChunks;
+    }
+
+    private void submit(CompletableFuture<String> result, BlockingQueue<CompletableFuture<String>> pending,
+            Deque<CompletableFuture<String>> running) throws InterruptedException {
+        pending.put(result);
+        running.addLast(result);
+        // Abgeschlossene Aufgaben vom Anfang entfernen, damit die Liste nicht
+        // über die Größe der Warteschlange hinaus wächst
+        while (!running.isEmpty() && running.peekFirst().isDone()) {
+            running.removeFirst();
+        }
+    }
+
+    /**
+     * Wartet, bis alle begonnenen Aufgaben abgeschlossen sind
+     */
+    private static void awaitAll(Deque<CompletableFuture<String>> running) throws InterruptedException {
+        while (!running.isEmpty()) {
+            try {
+                running.removeFirst().get();
+            } catch (ExecutionException e) {
+                // Wird vom Schreib-Thread als Fehlerzeile ausgegeben
+            }
+        }
+    }
+
+    private String define(int lineNumber, String text) {
+        String name = UserDefinitions.define(text);
+        if (UserDefinitions.isFunction(name)) {
+            String definition = UserDefinitions.getDefinition(name);
+            return csv ? csvRow(lineNumber, definition, "", "", "", "") : definition + "\n";
+        }
+        String value = Double.toString(UserDefinitions.getValue(name));
+        return csv ? csvRow(lineNumber, text, "", "", value, "") : name + " = " + value + "\n";
+    }
+
+    private String errorRow(int lineNumber, String text, Exception e) {
+        String message = e.getMessage() != null ? e.getMessage() : e.toString();
+        return csv ? csvRow(lineNumber, text, "", "", "", message) : text + ": Fehler: " + message + "\n";
+    }
+
+    private static String csvRow(int lineNumber, String expression, String x, String y, String value,
+            String error) {
+        return lineNumber + "," + csvField(expression) + "," + x + "," + y + "," + value + "," + csvField(error)
+                + "\n";
+    }
+
+    private static String csvField(String text) {
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Eine Eingabezeile: Ausdruck und Abtastung seiner Variablen
+     * Die Punkte werden zeilenweise durchnummeriert; die zweite Variable läuft
+     * innerhalb der ersten
+     */
+    private final class Job {
+        final int lineNumber;
+        final String expression;
+        final String[] names;
+        final double[] from;
+        final double[] to;
+        final long[] counts;
+        final long points;
+        final AtomicInteger errors;
+
+        Job(int lineNumber, String text, AtomicInteger errors) {
+            this.lineNumber = lineNumber;
+            this.errors = errors;
+            String[] parts = text.split(";");
+            expression = parts[0].trim();
+            int variables = parts.length - 1;
+            if (variables > ExpressionParser.MAX_VARIABLES) {
+                throw new IllegalArgumentException("Höchstens " + ExpressionParser.MAX_VARIABLES + " Variablen möglich");
+            }
+            names = new String[variables];
+            from = new double[variables];
+            to = new double[variables];
+            counts = new long[variables];
+            long total = 1;
+            for (int i = 0; i < variables; i++) {
+                parseSampling(parts[i + 1].trim(), i);
+                total = Math.multiplyExact(total, counts[i]);
+            }
+            points = total;
+        }
+
+        private void parseSampling(String spec, int index) {
+            int equals = spec.indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException("Erwarte name=von:bis:anzahl: " + spec);
+            }
+            names[index] = spec.substring(0, equals).trim().toLowerCase();
+            if (!names[index].matches("[a-z][a-z0-9]*")) {
+                throw new IllegalArgumentException("Ungültiger Variablenname: " + names[index]);
+            }
+            for (int i = 0; i < index; i++) {
+                if (names[i].equals(names[index])) {
+                    throw new IllegalArgumentException("Doppelte Variable: " + names[index]);
+                }
+            }
+            String[] range = spec.substring(equals + 1).split(":");
+            try {
+                if (range.length == 1) {
+                    from[index] = Double.parseDouble(range[0].trim());
+                    to[index] = from[index];
+                    counts[index] = 1;
+                } else if (range.length == 3) {
+                    from[index] = Double.parseDouble(range[0].trim());
+                    to[index] = Double.parseDouble(range[1].trim());
+                    counts[index] = Long.parseLong(range[2].trim());
+                } else {
+                    throw new IllegalArgumentException("Erwarte name=von:bis:anzahl: " + spec);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Ungültige Zahl in " + spec);
+            }
+            if (counts[index] < 0) {
+                throw new IllegalArgumentException("Negative Anzahl in " + spec);
+            }
+        }
+
+        boolean isEmptySampling() {
+            return points == 0;
+        }
+
+        ExpressionParser parse() {
+            return new ExpressionParser(expression, names);
+        }
+
+        /**
+         * Wertet einen Block von Punkten aus und formatiert ihn
+         */
+        String evaluate(ExpressionParser parser, long start, int length) {
+            if (!parser.isValid()) {
+                // Der Fehler wird nur einmal je Zeile ausgegeben
+                if (start > 0) {
+                    return "";
+                }
+                errors.incrementAndGet();
+                return errorRow(lineNumber, expression, errorOf(parser));
+            }
+            double[][] values = new double[names.length][length];
+            for (int p = 0; p < length; p++) {
+                long point = start + p;
+                for (int i = names.length - 1; i >= 0; i--) {
+                    long step = point % counts[i];
+                    point /= counts[i];
+                    values[i][p] = counts[i] == 1 ? from[i] : from[i] + (to[i] - from[i]) * step / (counts[i] - 1);
+                }
+            }
+
+            double[] out = new double[length];
+            if (names.length == 0) {
+                try {
+                    out[0] = parser.evaluateAt();
+                } catch (RuntimeException e) {
+                    errors.incrementAndGet();
+                    return errorRow(lineNumber, expression, e);
+                }
+            } else {
+                parser.evaluate(values, out, length);
+            }
+
+            StringBuilder sb = new StringBuilder(length * 48);
+            for (int p = 0; p < length; p++) {
+                String x = names.length > 0 ? Double.toString(values[0][p]) : "";
+                String y = names.length > 1 ? Double.toString(values[1][p]) : "";
+                String value = Double.toString(out[p]);
+                if (csv) {
+                    sb.append(csvRow(lineNumber, expression, x, y, value, ""));
+                } else {
+                    sb.append(expression);
+                    if (names.length > 0) {
+                        sb.append(" [").append(names[0]).append('=').append(x);
+                        if (names.length > 1) {
+                            sb.append(", ").append(names[1]).append('=').append(y);
+                        }
+                        sb.append(']');
+                    }
+                    sb.append(" = ").append(value).append('\n');
+                }
+            }
+            return sb.toString();
+        }
+
+        private RuntimeException errorOf(ExpressionParser parser) {
+            try {
+                parser.getCompiledExpression();
+                return new IllegalStateException("Ungültiger Ausdruck");
+            } catch (RuntimeException e) {
+                return e;
+            }
+        }
+    }
+
+    /**
+     * Schreibt die Ergebnisse in der Reihenfolge, in der sie eingereiht wurden
+     * Ein Schreibfehler beendet die Ausgabe; die Warteschlange wird trotzdem
+     * weiter geleert, damit das Einlesen nicht blockiert
+     */
+    private static final class ResultWriter implements Runnable {
+        private final BlockingQueue<CompletableFuture<String>> pending;
+        private final Writer out;
+        private IOException failure;
+        private int failedChunks;
+
+        ResultWriter(BlockingQueue<CompletableFuture<String>> pending, Writer out) {
+            this.pending = pending;
+            this.out = out;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    CompletableFuture<String> result = pending.take();
+                    if (result == END) {
+                        break;
+                    }
+                    String text;
+                    try {
+                        text = result.get();
+                    } catch (ExecutionException e) {
+                        failedChunks++;
+                        text = "Fehler: " + e.getCause() + "\n";
+                    }
+                    if (failure == null && !text.isEmpty()) {
+                        try {
+                            out.write(text);
+                        } catch (IOException e) {
+                            failure = e;
+                        }
+                    }
+                }
+                if (failure == null) {
+                    out.flush();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        void rethrow() throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
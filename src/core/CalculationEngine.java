@@ -1,11 +1,13 @@
 package core;
 
-import java.util.ArrayList;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
 
+import parser.KeypadParser;
+import parser.UserDefinitions;
+
 /**
  * Rechen-Engine für mathematische Berechnungen im Taschenrechner
  */
@@ -33,11 +35,18 @@ public class CalculationEngine {
                 return;
             }
 
-            calculator.debug("Originale Formel: " + formel);
+            calculator.debug(() -> "Originale Formel: " + formel);
+
+            // Definition einer Variablen oder Funktion (z.B. "a = 2.5")
+            if (UserDefinitions.isDefinition(formel)) {
+                definiere(formel);
+                return;
+            }
 
-            // Prüfe, ob die Formel eine Funktion sein könnte
-            if (checkIfFunction(formel)) {
-                calculator.debug("Mögliche Funktion erkannt: " + formel);
+            // Prüfe, ob die Formel eine Funktion sein könnte; Ausdrücke, die nur
+            // über benutzerdefinierte Variablen konstant sind, werden direkt berechnet
+            if (checkIfFunction(formel) && !UserDefinitions.isDefinedConstant(formel)) {
+                calculator.debug(() -> "Mögliche Funktion erkannt: " + formel);
                 // Frage den Benutzer, ob er die Funktion plotten möchte
                 askToPlotFunction(formel);
                 return;
@@ -45,44 +54,57 @@ public class CalculationEngine {
 
             // Einfache Vorverarbeitung – behandelt korrekt doppelte Operatoren
             // "--3" wird zu "+3", "+-3" bleibt "-3"
-            formel = formel.replace("--", "+");
-            formel = formel.replaceAll("\\+\\+", "+");
-            formel = formel.replace("+-", "-");
-
             // Behandle implizite Multiplikationen (z.B. 2(5+5) wird zu 2*(5+5))
-            formel = ergaenzeImpliziteMultiplikationen(formel);
+            String vorverarbeitet = ergaenzeImpliziteMultiplikationen(
+                    formel.replace("--", "+").replaceAll("\\+\\+", "+").replace("+-", "-"));
 
-            calculator.debug("Vorverarbeitete Formel: " + formel);
+            calculator.debug(() -> "Vorverarbeitete Formel: " + vorverarbeitet);
 
             // Berechne das Ergebnis
-            double ergebnis = berechneAusdruck(formel);
-            calculator.debug("Berechnetes Ergebnis: " + ergebnis);
+            double ergebnis = berechneAusdruck(vorverarbeitet);
+            calculator.debug(() -> "Berechnetes Ergebnis: " + ergebnis);
 
             // Formatiere das Ergebnis
             String ergebnisText;
             if (ergebnis == (int) ergebnis) {
                 ergebnisText = String.valueOf((int) ergebnis);
                 calculator.setDisplayText(ergebnisText);
-                calculator.debug("Formatiertes Ergebnis (int): " + ergebnisText);
+                calculator.debug(() -> "Formatiertes Ergebnis (int): " + ergebnisText);
             } else {
                 ergebnisText = String.valueOf(ergebnis);
                 calculator.setDisplayText(ergebnisText);
-                calculator.debug("Formatiertes Ergebnis (double): " + ergebnisText);
+                calculator.debug(() -> "Formatiertes Ergebnis (double): " + ergebnisText);
             }
 
             // Zur Verlaufsliste hinzufügen
-            calculator.addToHistory(formel, ergebnisText);
+            calculator.addToHistory(vorverarbeitet, ergebnisText);
 
         } catch (Exception e) {
             calculator.setDisplayText("Fehler");
-            calculator.debug("Berechnungsfehler: " + e.getMessage());
-            calculator.debug("Stack: " + e.getStackTrace()[0]);
-            for (int i = 0; i < Math.min(3, e.getStackTrace().length); i++) {
-                calculator.debug("  bei " + e.getStackTrace()[i]);
+            calculator.debug(() -> "Berechnungsfehler: " + e.getMessage());
+            calculator.debug(() -> "Stack: " + e.getStackTrace()[0]);
+            StackTraceElement[] stack = e.getStackTrace();
+            for (int i = 0; i < Math.min(3, stack.length); i++) {
+                StackTraceElement element = stack[i];
+                calculator.debug(() -> "  bei " + element);
             }
         }
     }
 
+    /**
+     * Legt eine benutzerdefinierte Variable oder Funktion an und zeigt ihren
+     * Wert bzw. ihre Definition an
+     */
+    private void definiere(String definition) {
+        String name = UserDefinitions.define(definition);
+        String ergebnisText = UserDefinitions.isFunction(name)
+                ? UserDefinitions.getDefinition(name)
+                : String.valueOf(UserDefinitions.getValue(name));
+        calculator.debug(() -> "Definition gespeichert: " + definition + " -> " + ergebnisText);
+        calculator.setDisplayText(ergebnisText);
+        calculator.addToHistory(definition, ergebnisText);
+    }
+
     /**
      * Prüft, ob eine Formel möglicherweise eine Funktion oder Konstante ist,
      * die im Plotter dargestellt werden kann
@@ -194,7 +216,7 @@ public class CalculationEngine {
      * Überträgt die Funktion zum Plotter
      */
     private void transferToPlotter(String function) {
-        calculator.debug("Übertrage Funktion zum Plotter: " + function);
+        calculator.debug(() -> "Übertrage Funktion zum Plotter: " + function);
 
         // Prüfen, ob eine Instanz von GrafischerTaschenrechner vorliegt
         if (calculator instanceof GrafischerTaschenrechner) {
@@ -209,7 +231,7 @@ public class CalculationEngine {
      * Hilfsmethode zur Behandlung impliziter Multiplikationen
      */
     public String ergaenzeImpliziteMultiplikationen(String formel) {
-        calculator.debug("Prüfe auf implizite Multiplikationen in: " + formel);
+        calculator.debug(() -> "Prüfe auf implizite Multiplikationen in: " + formel);
 
         StringBuilder result = new StringBuilder();
 
@@ -225,14 +247,14 @@ public class CalculationEngine {
                 // einfügen
                 if (Character.isDigit(aktuellesZeichen) && naechstesZeichen == '(') {
                     result.append('*');
-                    calculator.debug("Implizite Multiplikation erkannt: Zahl(" + aktuellesZeichen + ") vor Klammer");
+                    calculator.debug(() -> "Implizite Multiplikation erkannt: Zahl(" + aktuellesZeichen + ") vor Klammer");
                 }
 
                 // Fall 2: Schließende Klammer gefolgt von einer Zahl -> Multiplikationszeichen
                 // einfügen
                 else if (aktuellesZeichen == ')' && Character.isDigit(naechstesZeichen)) {
                     result.append('*');
-                    calculator.debug("Implizite Multiplikation erkannt: Klammer vor Zahl(" + naechstesZeichen + ")");
+                    calculator.debug(() -> "Implizite Multiplikation erkannt: Klammer vor Zahl(" + naechstesZeichen + ")");
                 }
 
                 // Fall 3: Schließende Klammer gefolgt von einer öffnenden Klammer ->
@@ -246,144 +268,32 @@ public class CalculationEngine {
 
         String resultString = result.toString();
         if (!resultString.equals(formel)) {
-            calculator.debug("Implizite Multiplikation umgewandelt: " + formel + " -> " + resultString);
+            calculator.debug(() -> "Implizite Multiplikation umgewandelt: " + formel + " -> " + resultString);
         }
 
         return resultString;
     }
 
     /**
-     * Eigene Implementierung eines einfachen Ausdrucksparsers
+     * Wertet einen Ausdruck der Tastatureingabe aus
+     * Verwendet dieselbe Ausdrucks-Engine wie die Plotter: der Ausdruck wird in
+     * einem Durchlauf geparst und kompiliert (bzw. aus dem Ausdrucks-Cache
+     * übernommen) und direkt mit double-Werten berechnet, ohne Zwischenergebnisse
+     * als Text wieder einzusetzen. Es gelten die Rechenregeln des
+     * Taschenrechners ({@link KeypadParser}): -2^2 = 4, ^ von links, nur exakt
+     * 0 ist als Teiler ungültig
+     *
+     * @throws ArithmeticException bei Division durch Null und anderen
+     *                             Definitionsbereichsfehlern
+     * @throws RuntimeException    wenn der Ausdruck nicht geparst werden kann
      */
     public double berechneAusdruck(String ausdruck) {
-        calculator.debug("Berechne Ausdruck: " + ausdruck);
-
-        // Zuerst Klammern auswerten
-        while (ausdruck.contains("(")) {
-            int offen = ausdruck.lastIndexOf("(");
-            int geschlossen = ausdruck.indexOf(")", offen);
-
-            if (geschlossen == -1) {
-                throw new IllegalArgumentException("Fehlende schließende Klammer");
-            }
-
-            String subAusdruck = ausdruck.substring(offen + 1, geschlossen);
-            calculator.debug("Gefundener Teilausdruck: " + subAusdruck);
-
-            double teilErgebnis = berechneAusdruck(subAusdruck);
-            calculator.debug("Teilausdruck ergibt: " + teilErgebnis);
-
-            ausdruck = ausdruck.substring(0, offen) + teilErgebnis + ausdruck.substring(geschlossen + 1);
-            calculator.debug("Ausdruck nach Klammer-Ersetzung: " + ausdruck);
-        }
-
-        // Addition und Subtraktion
-        ArrayList<Double> zahlen = new ArrayList<>();
-        ArrayList<Character> operatoren = new ArrayList<>();
-
-        // Aufteilen in Zahlen und Operatoren
-        StringBuilder aktuelleZahl = new StringBuilder();
-        boolean istErsteZahl = true;
-        boolean letzteWarOperator = false;
-
-        for (int i = 0; i < ausdruck.length(); i++) {
-            char c = ausdruck.charAt(i);
-
-            if (c == '+' || c == '-') {
-                // Wenn es die erste Zahl ist oder nach einem Operator kommt, ist es ein
-                // Vorzeichen
-                if (istErsteZahl || letzteWarOperator) {
-                    aktuelleZahl.append(c);
-                    letzteWarOperator = false;
-                } else {
-                    if (aktuelleZahl.length() > 0) {
-                        zahlen.add(Double.parseDouble(aktuelleZahl.toString()));
-                        aktuelleZahl = new StringBuilder();
-                    }
-                    operatoren.add(c);
-                    letzteWarOperator = true;
-                }
-                istErsteZahl = false;
-            } else if (c == '*' || c == '/' || c == '^') {
-                if (aktuelleZahl.length() > 0) {
-                    zahlen.add(Double.parseDouble(aktuelleZahl.toString()));
-                    aktuelleZahl = new StringBuilder();
-                }
-                operatoren.add(c);
-                letzteWarOperator = true;
-                istErsteZahl = false;
-            } else if (Character.isDigit(c) || c == '.') {
-                aktuelleZahl.append(c);
-                letzteWarOperator = false;
-                istErsteZahl = false;
-            }
-        }
-
-        if (aktuelleZahl.length() > 0) {
-            zahlen.add(Double.parseDouble(aktuelleZahl.toString()));
-        }
-
-        calculator.debug("Zahlen: " + zahlen);
-        calculator.debug("Operatoren: " + operatoren);
-
-        // Zuerst berechne ^ (Potenz)
-        for (int i = 0; i < operatoren.size(); i++) {
-            if (operatoren.get(i) == '^') {
-                double ergebnis;
-                double basis = zahlen.get(i);
-                double exponent = zahlen.get(i + 1);
-
-                ergebnis = Math.pow(basis, exponent);
-                calculator.debug("Potenz: " + basis + " ^ " + exponent + " = " + ergebnis);
-
-                zahlen.set(i, ergebnis);
-                zahlen.remove(i + 1);
-                operatoren.remove(i);
-                i--;
-            }
-        }
-
-        // Danach berechne * und /
-        for (int i = 0; i < operatoren.size(); i++) {
-            if (operatoren.get(i) == '*' || operatoren.get(i) == '/') {
-                double ergebnis;
-                double a = zahlen.get(i);
-                double b = zahlen.get(i + 1);
-
-                if (operatoren.get(i) == '*') {
-                    ergebnis = a * b;
-                    calculator.debug("Multiplikation: " + a + " * " + b + " = " + ergebnis);
-                } else {
-                    if (b == 0) {
-                        throw new ArithmeticException("Division durch Null");
-                    }
-                    ergebnis = a / b;
-                    calculator.debug("Division: " + a + " / " + b + " = " + ergebnis);
-                }
+        calculator.debug(() -> "Berechne Ausdruck: " + ausdruck);
 
-                zahlen.set(i, ergebnis);
-                zahlen.remove(i + 1);
-                operatoren.remove(i);
-                i--;
-            }
-        }
-
-        // Danach berechne + und -
-        double ergebnis = zahlen.get(0);
-
-        for (int i = 0; i < operatoren.size(); i++) {
-            if (operatoren.get(i) == '+') {
-                ergebnis += zahlen.get(i + 1);
-                calculator.debug(
-                        "Addition: " + ergebnis + " + " + zahlen.get(i + 1) + " = " + (ergebnis + zahlen.get(i + 1)));
-            } else if (operatoren.get(i) == '-') {
-                ergebnis -= zahlen.get(i + 1);
-                calculator.debug("Subtraktion: " + ergebnis + " - " + zahlen.get(i + 1) + " = "
-                        + (ergebnis - zahlen.get(i + 1)));
-            }
-        }
+        KeypadParser parser = new KeypadParser(ausdruck);
+        double ergebnis = parser.evaluate();
 
-        calculator.debug("Endergebnis des Ausdrucks: " + ergebnis);
+        calculator.debug(() -> "Endergebnis des Ausdrucks: " + ergebnis);
         return ergebnis;
     }
 
@@ -445,7 +355,7 @@ public class CalculationEngine {
      * +/- anzeigen)
      */
     public String toggleVorzeichen(String ausdruck) {
-        calculator.debug("Toggle-Vorzeichen für Ausdruck: " + ausdruck);
+        calculator.debug(() -> "Toggle-Vorzeichen für Ausdruck: " + ausdruck);
 
         // Leerer Ausdruck oder nur 0
         if (ausdruck.isEmpty() || ausdruck.equals("0")) {
@@ -0,0 +1,611 @@
+package core;
+
+import java.awt.geom.Point2D;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import parser.Function3DParser;
+import parser.FunctionParser;
+import plugins.plotter2d.intersection.IntersectionFinder;
+
+/**
+ * Lokaler HTTP-Dienst, der die Ausdrucks-Engine als JSON-API bereitstellt
+ * Lauscht nur auf der Loopback-Adresse, so dass andere Programme auf demselben
+ * Rechner den Taschenrechner als Rechendienst nutzen können.
+ *
+ * Endpunkte (GET mit Query-Parametern oder POST mit einem flachen JSON-Objekt):
+ * <pre>
+ * /evaluate  expression, x, y                        → {"value": …}
+ * /sample    expression, from, to, count             → {"x": […], "values": […]}
+ * /grid      expression, xMin, xMax, yMin, yMax, nx, ny
+ *                                                    → {"values": […]} (zeilenweise, y innen)
+ * /roots     expression, from, to                    → {"roots": […]}
+ *            (to - from höchstens {@link #MAX_ROOT_RANGE})
+ * /stats                                             → Latenz-Histogramme je Endpunkt
+ * </pre>
+ * In Query-Parametern muss ein + als %2B kodiert werden. Nicht definierte
+ * Werte (NaN, Unendlich) werden als null geliefert, Fehler als
+ * {"error": …} mit Status 400.
+ *
+ * Kompilierte Ausdrücke werden über den {@link parser.ExpressionCache}
+ * zwischen Anfragen wiederverwendet. Jede Anfrage läuft in einem eigenen
+ * virtuellen Thread, sofern die Laufzeitumgebung sie anbietet (ab Java 21),
+ * sonst in einem Thread-Pool, der Threads bei Bedarf anlegt.
+ *
+ * Aufruf: java --add-modules jdk.incubator.vector -cp GrafischerTaschenrechner.jar
+ * core.EvaluationServer [--port N]
+ */
+public final class EvaluationServer {
+    private static final int DEFAULT_PORT = 8642;
+
+    // Obergrenze der Punkte je Abtastung, damit eine Anfrage den Speicher
+    // nicht erschöpfen kann
+    private static final long MAX_POINTS = 1_000_000;
+
+    // Obergrenze der Bereichsbreite für die Nullstellensuche; der
+    // IntersectionFinder tastet mit Schrittweite 0.1 ab, das entspricht
+    // MAX_POINTS Schritten
+    private static final double MAX_ROOT_RANGE = 100_000;
+
+    // Obergrenze der Größe eines JSON-Körpers
+    private static final int MAX_BODY_SIZE = 64 * 1024;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+
+    /**
+     * Erstellt den Dienst auf der Loopback-Adresse
+     *
+     * @param port Der Port oder 0 für einen freien Port
+     * @throws IOException wenn der Port nicht belegt werden kann
+     */
+    public EvaluationServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        executor = createExecutor();
+        server.setExecutor(executor);
+
+        addEndpoint("/evaluate", this::evaluate);
+        addEndpoint("/sample", this::sample);
+        addEndpoint("/grid", this::grid);
+        addEndpoint("/roots", this::roots);
+        server.createContext("/stats", exchange -> {
+            try {
+                send(exchange, 200, statistics());
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+    /**
+     * Hauptmethode für die Kommandozeile
+     */
+    public static void main(String[] args) {
+        int port = DEFAULT_PORT;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--port") && i + 1 < args.length) {
+                try {
+                    port = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    port = -1;
+                }
+                if (port < 0 || port > 65535) {
+                    System.err.println("Ungültiger Port: " + args[i]);
+                    printUsageAndExit();
+                }
+            } else {
+                printUsageAndExit();
+            }
+        }
+        try {
+            EvaluationServer server = new EvaluationServer(port);
+            server.start();
+            System.out.println("Rechendienst läuft auf http://localhost:" + server.getPort() + "/");
+        } catch (IOException e) {
+            System.err.println("Fehler: " + e.getMessage());
+            System.exit(2);
+        }
+    }
+
+    private static void printUsageAndExit() {
+        System.err.println("Aufruf: core.EvaluationServer [--port N]");
+        System.exit(2);
+    }
+
+    /**
+     * Startet den Dienst
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Beendet den Dienst; laufende Anfragen dürfen bis zu einer Sekunde
+     * abschließen
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    /**
+     * Liefert den tatsächlich belegten Port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Ein Thread je Anfrage: virtuelle Threads, falls vorhanden
+     * Über Reflexion aufgerufen, damit der Quelltext auch mit Java 17 übersetzt
+     * werden kann
+     */
+    private static ExecutorService createExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "Rechendienst");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Berechnung eines Endpunkts; liefert den JSON-Text der Antwort
+     */
+    private interface Endpoint {
+        String handle(Map<String, String> parameters);
+    }
+
+    private void addEndpoint(String path, Endpoint endpoint) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histograms.put(path, histogram);
+        server.createContext(path, exchange -> {
+            long start = System.nanoTime();
+            try {
+                String method = exchange.getRequestMethod();
+                if (!method.equals("GET") && !method.equals("POST")) {
+                    send(exchange, 405, error("Nur GET und POST werden unterstützt"));
+                    return;
+                }
+                String response;
+                int status = 200;
+                try {
+                    response = endpoint.handle(parameters(exchange));
+                } catch (RuntimeException e) {
+                    status = 400;
+                    response = error(e.getMessage() != null ? e.getMessage() : e.toString());
+                }
+                send(exchange, status, response);
+            } finally {
+                exchange.close();
+                histogram.record(System.nanoTime() - start);
+            }
+        });
+    }
+
+    private String evaluate(Map<String, String> parameters) {
+        Function3DParser parser = new Function3DParser(required(parameters, "expression"));
+        double value = parser.evaluateAt(number(parameters, "x", 0), number(parameters, "y", 0));
+        return "{\"value\":" + json(value) + "}";
+    }
+
+    private String sample(Map<String, String> parameters) {
+        FunctionParser parser = new FunctionParser(required(parameters, "expression"));
+        double from = number(parameters, "from", Double.NaN);
+        double to = number(parameters, "to", Double.NaN);
+        int count = count(parameters, "count", MAX_POINTS);
+        parser.getCompiledExpression();
+
+        double[] xs = steps(from, to, count);
+        double[] values = new double[count];
+        parser.evaluate(xs, values);
+        StringBuilder sb = new StringBuilder(count * 40);
+        sb.append("{\"x\":");
+        appendArray(sb, xs);
+        sb.append(",\"values\":");
+        appendArray(sb, values);
+        return sb.append('}').toString();
+    }
+
+    private String grid(Map<String, String> parameters) {
+        Function3DParser parser = new Function3DParser(required(parameters, "expression"));
+        double[] xs = steps(number(parameters, "xMin", Double.NaN), number(parameters, "xMax", Double.NaN),
+                count(parameters, "nx", MAX_POINTS));
+        int ny = count(parameters, "ny", MAX_POINTS / xs.length);
+        double[] ys = steps(number(parameters, "yMin", Double.NaN), number(parameters, "yMax", Double.NaN), ny);
+        parser.getCompiledExpression();
+
+        double[] values = new double[xs.length * ys.length];
+        parser.evaluateGrid(xs, ys, values);
+        StringBuilder sb = new StringBuilder(values.length * 20);
+        sb.append("{\"nx\":").append(xs.length).append(",\"ny\":").append(ys.length).append(",\"values\":");
+        appendArray(sb, values);
+        return sb.append('}').toString();
+    }
+
+    private String roots(Map<String, String> parameters) {
+        FunctionParser parser = new FunctionParser(required(parameters, "expression"));
+        double from = number(parameters, "from", Double.NaN);
+        double to = number(parameters, "to", Double.NaN);
+        if (!(from < to) || Double.isInfinite(from) || Double.isInfinite(to)) {
+            throw new IllegalArgumentException("Erwarte endliche Grenzen mit from < to");
+        }
+        if (to - from > MAX_ROOT_RANGE) {
+            throw new IllegalArgumentException("Bereich für die Nullstellensuche zu groß, höchstens "
+                    + (long) MAX_ROOT_RANGE);
+        }
+        parser.getCompiledExpression();
+
+        List<Point2D.Double> roots = IntersectionFinder.findIntersections(parser, new FunctionParser("0"), from, to);
+        double[] xs = new double[roots.size()];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = roots.get(i).x;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"roots\":");
+        appendArray(sb, xs);
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Liefert die Latenz-Histogramme aller Endpunkte als JSON
+     */
+    String statistics() {
+        StringBuilder sb = new StringBuilder("{");
+        boolean first = true;
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append('"').append(entry.getKey()).append("\":");
+            entry.getValue().appendJson(sb);
+        }
+        return sb.append('}').toString();
+    }
+
+    private static double[] steps(double from, double to, int count) {
+        if (Double.isNaN(from) || Double.isNaN(to) || Double.isInfinite(from) || Double.isInfinite(to)) {
+            throw new IllegalArgumentException("Erwarte endliche Bereichsgrenzen");
+        }
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = count == 1 ? from : from + (to - from) * i / (count - 1);
+        }
+        return values;
+    }
+
+    private static String required(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Parameter fehlt: " + name);
+        }
+        return value;
+    }
+
+    private static double number(Map<String, String> parameters, String name, double defaultValue) {
+        String value = parameters.get(name);
+        if (value == null) {
+            if (Double.isNaN(defaultValue)) {
+                throw new IllegalArgumentException("Parameter fehlt: " + name);
+            }
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Keine Zahl: " + name + "=" + value);
+        }
+    }
+
+    private static int count(Map<String, String> parameters, String name, long max) {
+        String value = required(parameters, name);
+        long count;
+        try {
+            count = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Keine ganze Zahl: " + name + "=" + value);
+        }
+        if (count < 1 || count > max) {
+            throw new IllegalArgumentException(name + " muss zwischen 1 und " + max + " liegen");
+        }
+        return (int) count;
+    }
+
+    /**
+     * Liest die Parameter aus der Query und bei POST zusätzlich aus dem
+     * JSON-Körper
+     */
+    private static Map<String, String> parameters(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int equals = pair.indexOf('=');
+                if (equals > 0) {
+                    parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                            URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        if (exchange.getRequestMethod().equals("POST")) {
+            parameters.putAll(JsonObjectReader.read(readBody(exchange.getRequestBody())));
+        }
+        return parameters;
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        byte[] body = in.readNBytes(MAX_BODY_SIZE + 1);
+        if (body.length > MAX_BODY_SIZE) {
+            throw new IllegalArgumentException("Anfrage zu groß");
+        }
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String error(String message) {
+        StringBuilder sb = new StringBuilder("{\"error\":");
+        appendString(sb, message);
+        return sb.append('}').toString();
+    }
+
+    private static void appendArray(StringBuilder sb, double[] values) {
+        sb.append('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(json(values[i]));
+        }
+        sb.append(']');
+    }
+
+    /**
+     * JSON kennt weder NaN noch Unendlich; beides wird als null geliefert
+     */
+    private static String json(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value) ? "null" : Double.toString(value);
+    }
+
+    private static void appendString(StringBuilder sb, String text) {
+        sb.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * Histogramm der Antwortzeiten mit Zweierpotenz-Klassen in Mikrosekunden
+     * Klasse i enthält Zeiten unter 2^i µs; alle Zähler sind ohne Sperre
+     * threadsicher
+     */
+    static final class LatencyHistogram {
+        private static final int BUCKETS = 32;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            long micros = Math.max(nanos / 1000, 0);
+            int bucket = Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKETS - 1);
+            buckets.incrementAndGet(bucket);
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        /**
+         * Schreibt Anzahl, Mittelwert, Quantile (Obergrenze der Klasse) und
+         * die belegten Klassen
+         */
+        void appendJson(StringBuilder sb) {
+            long[] counts = new long[BUCKETS];
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                count += counts[i];
+            }
+            sb.append("{\"count\":").append(count);
+            sb.append(",\"meanMicros\":").append(count == 0 ? 0 : totalNanos.sum() / 1000 / count);
+            sb.append(",\"maxMicros\":").append(maxNanos.get() / 1000);
+            sb.append(",\"p50Micros\":").append(quantile(counts, count, 0.5));
+            sb.append(",\"p90Micros\":").append(quantile(counts, count, 0.9));
+            sb.append(",\"p99Micros\":").append(quantile(counts, count, 0.99));
+            sb.append(",\"buckets\":{");
+            boolean first = true;
+            for (int i = 0; i < BUCKETS; i++) {
+                if (counts[i] > 0) {
+                    if (!first) {
+                        sb.append(',');
+                    }
+                    first = false;
+                    sb.append("\"<").append(1L << i).append("\":").append(counts[i]);
+                }
+            }
+            sb.append("}}");
+        }
+
+        private static long quantile(long[] counts, long count, double quantile) {
+            long target = (long) Math.ceil(count * quantile);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= target && seen > 0) {
+                    return 1L << i;
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Liest ein flaches JSON-Objekt mit Zeichenketten, Zahlen, Wahrheitswerten
+     * und null; Zahlen werden als Text übernommen
+     */
+    static final class JsonObjectReader {
+        private final String text;
+        private int pos;
+
+        private JsonObjectReader(String text) {
+            this.text = text;
+        }
+
+        static Map<String, String> read(String text) {
+            JsonObjectReader reader = new JsonObjectReader(text);
+            Map<String, String> values = new LinkedHashMap<>();
+            reader.skipWhitespace();
+            if (reader.pos == text.length()) {
+                return values;
+            }
+            reader.expect('{');
+            reader.skipWhitespace();
+            if (!reader.consume('}')) {
+                do {
+                    reader.skipWhitespace();
+                    String key = reader.readString();
+                    reader.skipWhitespace();
+                    reader.expect(':');
+                    reader.skipWhitespace();
+                    String value = reader.readValue();
+                    if (value != null) {
+                        values.put(key, value);
+                    }
+                    reader.skipWhitespace();
+                } while (reader.consume(','));
+                reader.expect('}');
+            }
+            reader.skipWhitespace();
+            if (reader.pos != text.length()) {
+                throw new IllegalArgumentException("Ungültiges JSON nach Position " + reader.pos);
+            }
+            return values;
+        }
+
+        private String readValue() {
+            if (pos < text.length() && text.charAt(pos) == '"') {
+                return readString();
+            }
+            int start = pos;
+            while (pos < text.length() && ",}] \t\r\n".indexOf(text.charAt(pos)) < 0) {
+                pos++;
+            }
+            String literal = text.substring(start, pos);
+            if (literal.equals("null")) {
+                return null;
+            }
+            if (literal.isEmpty() || !(literal.equals("true") || literal.equals("false")
+                    || literal.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?"))) {
+                throw new IllegalArgumentException("Ungültiger JSON-Wert: " + literal);
+            }
+            return literal;
+        }
+
+        private String readString() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) {
+                    break;
+                }
+                char escaped = text.charAt(pos++);
+                switch (escaped) {
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'u':
+                        if (pos + 4 > text.length()) {
+                            throw new IllegalArgumentException("Ungültige Escape-Sequenz in JSON");
+                        }
+                        try {
+                            sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("Ungültige Escape-Sequenz in JSON");
+                        }
+                        pos += 4;
+                        break;
+                    default:
+                        sb.append(escaped);
+                }
+            }
+            throw new IllegalArgumentException("Nicht abgeschlossene Zeichenkette in JSON");
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private boolean consume(char c) {
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            if (!consume(c)) {
+                throw new IllegalArgumentException("Erwarte '" + c + "' an Position " + pos + " im JSON");
+            }
+        }
+    }
+}
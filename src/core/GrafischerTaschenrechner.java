@@ -177,7 +177,7 @@ public class GrafischerTaschenrechner extends Taschenrechner {
         if (expression != null && !expression.isEmpty() && !expression.equals("0")) {
             // Zum Plotter-Tab wechseln
             tabbedPane.setSelectedIndex(2);
-            debug("Ausdruck zum Plotter übertragen: " + expression);
+            debug(() -> "Ausdruck zum Plotter übertragen: " + expression);
 
             // Ausdruck in das Funktionsfeld übertragen
             try {
@@ -195,7 +195,7 @@ public class GrafischerTaschenrechner extends Taschenrechner {
                     }
                 }
             } catch (Exception e) {
-                debug("Fehler beim Übertragen des Ausdrucks: " + e.getMessage());
+                debug(() -> "Fehler beim Übertragen des Ausdrucks: " + e.getMessage());
                 System.err.println("Fehler beim Übertragen des Ausdrucks: " + e.getMessage());
             }
         } else {
@@ -214,7 +214,7 @@ public class GrafischerTaschenrechner extends Taschenrechner {
         if (expression != null && !expression.isEmpty() && !expression.equals("0")) {
             // Zum 3D-Plotter-Tab wechseln
             tabbedPane.setSelectedIndex(3);
-            debug("Ausdruck zum 3D-Plotter übertragen: " + expression);
+            debug(() -> "Ausdruck zum 3D-Plotter übertragen: " + expression);
 
             // Ausdruck in das Funktionsfeld übertragen
             try {
@@ -230,7 +230,7 @@ public class GrafischerTaschenrechner extends Taschenrechner {
                     }
                 }
             } catch (Exception e) {
-                debug("Fehler beim Übertragen des Ausdrucks zum 3D-Plotter: " + e.getMessage());
+                debug(() -> "Fehler beim Übertragen des Ausdrucks zum 3D-Plotter: " + e.getMessage());
                 System.err.println("Fehler beim Übertragen des Ausdrucks zum 3D-Plotter: " + e.getMessage());
             }
         } else {
@@ -345,7 +345,7 @@ public class GrafischerTaschenrechner extends Taschenrechner {
             debug("Basis-Initialisierung erfolgreich aufgerufen");
         } catch (Exception e) {
             // Methode existiert nicht oder konnte nicht aufgerufen werden
-            debug("Keine Basis-Initialisierungsmethode gefunden oder Fehler beim Aufruf: " + e.getMessage());
+            debug(() -> "Keine Basis-Initialisierungsmethode gefunden oder Fehler beim Aufruf: " + e.getMessage());
         }
 
         // Plugins initialisieren und registrieren
@@ -425,7 +425,7 @@ public class GrafischerTaschenrechner extends Taschenrechner {
             converterPanel.clear();
         }
 
-        debug("Alle Eingaben im Tab " + selectedTab + " zurückgesetzt");
+        debug(() -> "Alle Eingaben im Tab " + selectedTab + " zurückgesetzt");
     }
 
     /**
@@ -21,7 +21,7 @@ public class InputHandler implements ActionListener {
         String eingabe = e.getActionCommand();
         String aktuellerText = calculator.getDisplayText();
 
-        calculator.debug("Taste gedrückt: " + eingabe);
+        calculator.debug(() -> "Taste gedrückt: " + eingabe);
 
         // Logik für unterschiedliche Tastenaktionen
         switch (eingabe) {
@@ -38,16 +38,16 @@ public class InputHandler implements ActionListener {
                 // Falls das Display "0" anzeigt oder eine neue Zahl begonnen wird
                 if (aktuellerText.equals("0")) {
                     calculator.setDisplayText(eingabe);
-                    calculator.debug("Null ersetzt durch: " + eingabe);
+                    calculator.debug(() -> "Null ersetzt durch: " + eingabe);
                 } else if (calculator.isNeueZahlBegonnen()) {
                     // Wichtige Korrektur: Ersetze nicht den gesamten Ausdruck,
                     // sondern hänge die neue Zahl an den bestehenden Ausdruck an
                     calculator.setDisplayText(aktuellerText + eingabe);
-                    calculator.debug("Neue Zahl angehängt an Ausdruck: " + aktuellerText + eingabe);
+                    calculator.debug(() -> "Neue Zahl angehängt an Ausdruck: " + aktuellerText + eingabe);
                     calculator.setNeueZahlBegonnen(false);
                 } else {
                     calculator.setDisplayText(aktuellerText + eingabe);
-                    calculator.debug("Ziffer angehängt: " + aktuellerText + eingabe);
+                    calculator.debug(() -> "Ziffer angehängt: " + aktuellerText + eingabe);
                 }
                 break;
 
@@ -61,11 +61,11 @@ public class InputHandler implements ActionListener {
                     // Ersetze den vorherigen Operator durch den neuen
                     String neuerText = aktuellerText.substring(0, aktuellerText.length() - 1) + eingabe;
                     calculator.setDisplayText(neuerText);
-                    calculator.debug("Operator ersetzt: " + aktuellerText + " -> " + neuerText);
+                    calculator.debug(() -> "Operator ersetzt: " + aktuellerText + " -> " + neuerText);
                 } else {
                     // Operator-Taste – nach dem Operator beginnt eine neue Zahl
                     calculator.setDisplayText(aktuellerText + eingabe);
-                    calculator.debug("Operator hinzugefügt: " + aktuellerText + eingabe + ", neue Zahl wird erwartet");
+                    calculator.debug(() -> "Operator hinzugefügt: " + aktuellerText + eingabe + ", neue Zahl wird erwartet");
                 }
                 calculator.setNeueZahlBegonnen(true);
                 break;
@@ -77,10 +77,10 @@ public class InputHandler implements ActionListener {
                     // Ersetze den vorherigen Operator
                     String neuerText = aktuellerText.substring(0, aktuellerText.length() - 1) + "^";
                     calculator.setDisplayText(neuerText);
-                    calculator.debug("Operator ersetzt durch Potenz: " + aktuellerText + " -> " + neuerText);
+                    calculator.debug(() -> "Operator ersetzt durch Potenz: " + aktuellerText + " -> " + neuerText);
                 } else {
                     calculator.setDisplayText(aktuellerText + "^");
-                    calculator.debug("Potenzoperator hinzugefügt: " + aktuellerText + "^");
+                    calculator.debug(() -> "Potenzoperator hinzugefügt: " + aktuellerText + "^");
                 }
                 calculator.setNeueZahlBegonnen(true);
                 break;
@@ -92,9 +92,9 @@ public class InputHandler implements ActionListener {
                     // Ersetze die letzte Zahl durch ihre quadrierte Form
                     String neuerText = engine.ersetzeLetzteZahl(aktuellerText, zahl * zahl);
                     calculator.setDisplayText(neuerText);
-                    calculator.debug("Quadriert: " + zahl + "² = " + (zahl * zahl));
+                    calculator.debug(() -> "Quadriert: " + zahl + "² = " + (zahl * zahl));
                 } catch (Exception ex) {
-                    calculator.debug("Fehler beim Quadrieren: " + ex.getMessage());
+                    calculator.debug(() -> "Fehler beim Quadrieren: " + ex.getMessage());
                 }
                 calculator.setNeueZahlBegonnen(true);
                 break;
@@ -106,9 +106,9 @@ public class InputHandler implements ActionListener {
                     // Ersetze die letzte Zahl durch ihre kubische Form
                     String neuerText = engine.ersetzeLetzteZahl(aktuellerText, zahl * zahl * zahl);
                     calculator.setDisplayText(neuerText);
-                    calculator.debug("Kubiert: " + zahl + "³ = " + (zahl * zahl * zahl));
+                    calculator.debug(() -> "Kubiert: " + zahl + "³ = " + (zahl * zahl * zahl));
                 } catch (Exception ex) {
-                    calculator.debug("Fehler beim Kubieren: " + ex.getMessage());
+                    calculator.debug(() -> "Fehler beim Kubieren: " + ex.getMessage());
                 }
                 calculator.setNeueZahlBegonnen(true);
                 break;
@@ -124,10 +124,10 @@ public class InputHandler implements ActionListener {
                         // Ersetze die letzte Zahl durch ihre Quadratwurzel
                         String neuerText = engine.ersetzeLetzteZahl(aktuellerText, Math.sqrt(zahl));
                         calculator.setDisplayText(neuerText);
-                        calculator.debug("Quadratwurzel: √" + zahl + " = " + Math.sqrt(zahl));
+                        calculator.debug(() -> "Quadratwurzel: √" + zahl + " = " + Math.sqrt(zahl));
                     }
                 } catch (Exception ex) {
-                    calculator.debug("Fehler bei Quadratwurzelberechnung: " + ex.getMessage());
+                    calculator.debug(() -> "Fehler bei Quadratwurzelberechnung: " + ex.getMessage());
                 }
                 calculator.setNeueZahlBegonnen(true);
                 break;
@@ -141,9 +141,9 @@ public class InputHandler implements ActionListener {
                     double kubikwurzel = Math.cbrt(zahl);
                     String neuerText = engine.ersetzeLetzteZahl(aktuellerText, kubikwurzel);
                     calculator.setDisplayText(neuerText);
-                    calculator.debug("Kubikwurzel: ³√" + zahl + " = " + kubikwurzel);
+                    calculator.debug(() -> "Kubikwurzel: ³√" + zahl + " = " + kubikwurzel);
                 } catch (Exception ex) {
-                    calculator.debug("Fehler bei Kubikwurzelberechnung: " + ex.getMessage());
+                    calculator.debug(() -> "Fehler bei Kubikwurzelberechnung: " + ex.getMessage());
                 }
                 calculator.setNeueZahlBegonnen(true);
                 break;
@@ -187,14 +187,14 @@ public class InputHandler implements ActionListener {
                         double ergebnis = Math.pow(x, 1.0 / y);
                         String neuerText = engine.ersetzeLetzteZahl(aktuellerText, ergebnis);
                         calculator.setDisplayText(neuerText);
-                        calculator.debug("Y-te Wurzel: " + y + "√" + x + " = " + ergebnis);
+                        calculator.debug(() -> "Y-te Wurzel: " + y + "√" + x + " = " + ergebnis);
 
                     } catch (NumberFormatException ex) {
                         calculator.setDisplayText("Fehler");
                         calculator.debug("Fehler: Ungültiger Wurzelexponent");
                     }
                 } catch (Exception ex) {
-                    calculator.debug("Fehler bei Wurzelberechnung: " + ex.getMessage());
+                    calculator.debug(() -> "Fehler bei Wurzelberechnung: " + ex.getMessage());
                 }
                 calculator.setNeueZahlBegonnen(true);
                 break;
@@ -208,7 +208,7 @@ public class InputHandler implements ActionListener {
                     calculator.setDisplayText(aktuellerText + eingabe);
                 }
                 calculator.setNeueZahlBegonnen(true);
-                calculator.debug("Klammer hinzugefügt: " + calculator.getDisplayText());
+                calculator.debug(() -> "Klammer hinzugefügt: " + calculator.getDisplayText());
                 break;
 
             case ".":
@@ -216,19 +216,19 @@ public class InputHandler implements ActionListener {
                 if (calculator.isNeueZahlBegonnen()) {
                     calculator.setDisplayText(aktuellerText + "0.");
                     calculator.setNeueZahlBegonnen(false);
-                    calculator.debug("Neue Dezimalzahl begonnen: " + aktuellerText + "0.");
+                    calculator.debug(() -> "Neue Dezimalzahl begonnen: " + aktuellerText + "0.");
                 } else {
                     // Überprüfe, ob die aktuelle Zahl bereits einen Dezimalpunkt enthält
                     String aktuelleZahl = engine.findeAktuelleZahl(aktuellerText);
                     if (!aktuelleZahl.contains(".")) {
                         calculator.setDisplayText(aktuellerText + ".");
-                        calculator.debug("Dezimalpunkt hinzugefügt: " + aktuellerText + ".");
+                        calculator.debug(() -> "Dezimalpunkt hinzugefügt: " + aktuellerText + ".");
                     }
                 }
                 break;
 
             case "=":
-                calculator.debug("Berechne Formel: " + aktuellerText);
+                calculator.debug(() -> "Berechne Formel: " + aktuellerText);
                 engine.berechneFormel();
                 calculator.setNeueZahlBegonnen(true);
                 break;
@@ -237,7 +237,7 @@ public class InputHandler implements ActionListener {
                 // Invertiere das Vorzeichen der aktuellen Zahl
                 String neuerText = engine.toggleVorzeichen(aktuellerText);
                 calculator.setDisplayText(neuerText);
-                calculator.debug("Nach +/- Taste: " + neuerText);
+                calculator.debug(() -> "Nach +/- Taste: " + neuerText);
                 // +/– ändert nicht den Status von isNeueZahlBegonnen
                 break;
 
@@ -259,7 +259,7 @@ public class InputHandler implements ActionListener {
      * Hilfsmethode für die Rücktaste/Backspace-Taste
      */
     private void handleReturnButton(String aktuellerText) {
-        calculator.debug("Return/Backspace-Taste gedrückt für: " + aktuellerText);
+        calculator.debug(() -> "Return/Backspace-Taste gedrückt für: " + aktuellerText);
 
         if (aktuellerText.length() <= 1) {
             // Wenn nur ein Zeichen übrig ist oder der Ausdruck leer ist, auf 0 zurücksetzen
@@ -275,10 +275,10 @@ public class InputHandler implements ActionListener {
             char letzterChar = neuerText.charAt(neuerText.length() - 1);
             if (engine.istOperator(letzterChar)) {
                 calculator.setNeueZahlBegonnen(true);
-                calculator.debug("Letztes Zeichen gelöscht, Operator erkannt: " + neuerText);
+                calculator.debug(() -> "Letztes Zeichen gelöscht, Operator erkannt: " + neuerText);
             } else {
                 calculator.setNeueZahlBegonnen(false);
-                calculator.debug("Letztes Zeichen gelöscht: " + neuerText);
+                calculator.debug(() -> "Letztes Zeichen gelöscht: " + neuerText);
             }
         }
     }
@@ -7,6 +7,7 @@ import util.history.HistoryManager;
 
 import java.awt.*;
 import java.awt.event.*;
+import java.util.function.Supplier;
 
 /**
  * Haupt-Taschenrechner-Klasse mit UI-Komponenten
@@ -99,6 +100,14 @@ public class Taschenrechner extends JFrame {
         debugManager.debug(message);
     }
 
+    /**
+     * Protokolliert eine Debug-Nachricht, die nur gebaut wird, wenn
+     * Debug-Ausgaben aktiv sind
+     */
+    public void debug(Supplier<String> message) {
+        debugManager.debug(message);
+    }
+
     /**
      * Fügt eine Berechnung zum Verlauf hinzu
      */
@@ -1,23 +1,167 @@
 
 package parser;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * Abstrakte Basisklasse für mathematische Ausdrucksparser
- * Bietet gemeinsame Funktionalität für das Parsen von Formeln
+ * Enthält die gemeinsame Grammatik aller Parser; sie unterscheiden sich nur in
+ * den Namen ihrer Variablen (x bei {@link FunctionParser}, x und y bei
+ * {@link Function3DParser}, beliebige bei {@link ExpressionParser}). Die
+ * Variablen werden der Reihe nach auf die beiden Auswertungsplätze (x,y) des
+ * {@link CompiledExpression} abgebildet, so dass Cache, Codeerzeugung, SIMD,
+ * Intervall- und Ableitungsrechnung für alle Parser dieselben sind.
+ * Benannte Parameter sind benutzerdefinierte Variablen ({@link UserDefinitions}).
+ *
+ * Der Ausdruck wird im Konstruktor genau einmal geparst. Der Lesezustand
+ * (pos, ch, nextCh) wird nur dabei verwendet; danach ist ein Parser
+ * unveränderlich und kann von beliebig vielen Threads gleichzeitig ausgewertet
+ * werden. Jede Auswertung legt ihren Zwischenspeicher selbst an.
  */
 public abstract class AbstractExpressionParser {
-    protected String expression;
+    /**
+     * Höchstzahl der Variablen eines Ausdrucks (Auswertungsplätze x und y)
+     */
+    public static final int MAX_VARIABLES = 2;
+
+    protected final String expression;
+
+    // Namen der Variablen; der Index ist der Auswertungsplatz
+    private final String[] variables;
+
+    // Lesezustand, nur während des Parsens im Konstruktor verwendet
     protected int pos;
     protected char ch;
     protected char nextCh; // Speichert das nächste Zeichen für Look-ahead
 
+    // Beim Parsen aufgelöste benutzerdefinierte Namen mit ihren Revisionen
+    private Map<String, Long> definitionRevisions;
+
+    // Ergebnis des einmaligen Parsens (Auswertungsbaum oder Fehler); final, damit
+    // es für andere Threads ohne weitere Synchronisation sichtbar ist
+    private final CompiledExpression compiled;
+    private final RuntimeException compileError;
+    private final Set<String> referencedDefinitions;
+
     /**
      * Konstruktor für den Parser
+     * Parst den Ausdruck einmalig und speichert den Auswertungsbaum; wurde
+     * derselbe Ausdruck schon einmal geparst, wird das Ergebnis aus dem
+     * {@link ExpressionCache} übernommen
+     * Fehler werden gespeichert und erst bei der Auswertung geworfen, damit
+     * sich ungültige Ausdrücke wie bisher verhalten
+     * Unterklassen dürfen daher keine eigenen Instanzfelder für das Parsen
+     * verwenden
      * 
      * @param expression Der zu parsende Ausdruck
+     * @param variables  Die Namen der Variablen (höchstens
+     *                   {@link #MAX_VARIABLES}, Kleinbuchstaben); der erste
+     *                   wird als x, der zweite als y ausgewertet
+     * @throws IllegalArgumentException bei ungültigen Variablennamen
      */
-    public AbstractExpressionParser(String expression) {
+    public AbstractExpressionParser(String expression, String... variables) {
         this.expression = expression.toLowerCase().replaceAll("\\s+", "");
+        this.variables = checkVariables(variables);
+
+        // Dieselben Variablen ergeben denselben Baum, unabhängig von der
+        // Parserklasse; daher gehören nur sie und die Rechenregeln zum Schlüssel
+        String cacheKey = grammar() + String.join(",", this.variables) + ':' + this.expression;
+        ExpressionCache.Entry entry = ExpressionCache.lookup(cacheKey);
+        if (entry == null) {
+            CompiledExpression result = null;
+            RuntimeException error = null;
+            definitionRevisions = new HashMap<>();
+            try {
+                result = compile();
+            } catch (RuntimeException e) {
+                error = e;
+            } catch (StackOverflowError e) {
+                // Extrem tief verschachtelte Ausdrücke wie ungültige behandeln,
+                // statt den aufrufenden Thread abzubrechen
+                error = new RuntimeException("Ausdruck ist zu tief verschachtelt");
+            }
+            entry = ExpressionCache.store(cacheKey,
+                    new ExpressionCache.Entry(result, error, Collections.unmodifiableMap(definitionRevisions)));
+            definitionRevisions = null;
+        }
+        this.compiled = entry.compiled;
+        this.compileError = entry.error;
+        this.referencedDefinitions = entry.definitionRevisions.keySet();
+    }
+
+    /**
+     * Kennung abweichender Rechenregeln für den Ausdrucks-Cache
+     * Unterklassen, die die Grammatik ändern (siehe {@link KeypadParser}),
+     * liefern eine eigene, damit ihre Bäume nicht mit denen der übrigen Parser
+     * geteilt werden. Wird im Konstruktor aufgerufen.
+     */
+    protected String grammar() {
+        return "";
+    }
+
+    /**
+     * Parst den Ausdruck und übersetzt ihn in einen Auswertungsbaum
+     */
+    private CompiledExpression compile() {
+        pos = 0;
+        nextChar();
+        ExpressionNode root = parseExpression();
+
+        if (pos < expression.length()) {
+            throw new RuntimeException("Unerwartetes Zeichen: " + ch);
+        }
+
+        return new CompiledExpression(expression, ExpressionOptimizer.optimize(root));
+    }
+
+    /**
+     * Liefert den kompilierten Ausdruck
+     *
+     * @return Der unveränderliche, threadsichere Auswertungsbaum
+     * @throws RuntimeException wenn der Ausdruck nicht geparst werden konnte
+     */
+    public CompiledExpression getCompiledExpression() {
+        if (compileError != null) {
+            throw compileError;
+        }
+        return compiled;
+    }
+
+    /**
+     * Gibt an, ob der Ausdruck fehlerfrei geparst werden konnte
+     */
+    public boolean isValid() {
+        return compileError == null;
+    }
+
+    /**
+     * Liefert die Namen der benutzerdefinierten Variablen und Funktionen, die
+     * der Ausdruck verwendet (siehe {@link UserDefinitions})
+     * Enthält auch Namen, die beim Parsen noch nicht definiert waren, damit der
+     * Ausdruck nach ihrer Definition neu übersetzt werden kann
+     */
+    public Set<String> getReferencedDefinitions() {
+        return referencedDefinitions;
+    }
+
+    /**
+     * Liefert die Namen der Variablen in der Reihenfolge der Auswertungsplätze
+     */
+    public List<String> getVariables() {
+        return Collections.unmodifiableList(Arrays.asList(variables));
+    }
+
+    /**
+     * Liefert den normalisierten Ausdruck
+     */
+    public String getExpression() {
+        return expression;
     }
 
     /**
@@ -45,112 +189,316 @@ public abstract class AbstractExpressionParser {
     /**
      * Parst einen mathematischen Ausdruck (Addition/Subtraktion)
      */
-    protected double parseExpression() {
-        double result = parseTerm();
+    protected ExpressionNode parseExpression() {
+        ExpressionNode result = parseTerm();
 
         while (true) {
             if (eat('+'))
-                result += parseTerm();
+                result = binary(Operator.ADD, result, parseTerm());
             else if (eat('-'))
-                result -= parseTerm();
+                result = binary(Operator.SUB, result, parseTerm());
             else
                 return result;
         }
     }
 
+    /**
+     * Erzeugt einen zweistelligen Knoten
+     * Konstante Operanden werden sofort verrechnet, so dass z.B. eine lange
+     * Summe von Zahlen als eine einzige Konstante statt als tiefer Baum entsteht
+     */
+    protected ExpressionNode binary(Operator op, ExpressionNode left, ExpressionNode right) {
+        return ExpressionOptimizer.binary(op, left, right);
+    }
+
+    /**
+     * Erzeugt einen einstelligen Knoten (konstante Operanden werden sofort
+     * verrechnet)
+     */
+    protected ExpressionNode unary(Operator op, ExpressionNode operand) {
+        return ExpressionOptimizer.unary(op, operand);
+    }
+
     /**
      * Parst einen Term (Multiplikation/Division)
      */
-    protected abstract double parseTerm();
+    protected ExpressionNode parseTerm() {
+        ExpressionNode result = parseFactor();
+
+        while (true) {
+            if (eat('*'))
+                result = binary(Operator.MUL, result, parseFactor());
+            else if (eat('/'))
+                result = binary(Operator.DIV, result, parseFactor());
+            // Implizite Multiplikation für Fälle wie "2x", "2(x+1)" oder "x(y)"
+            else if (startsFactor())
+                result = binary(Operator.MUL, result, parseFactor());
+            else
+                return result;
+        }
+    }
 
     /**
      * Parst einen Faktor (Zahlen, Variablen, Funktionen, Klammern)
      */
-    protected abstract double parseFactor();
+    protected ExpressionNode parseFactor() {
+        if (eat('+'))
+            return parseFactor();
+        if (eat('-'))
+            return unary(Operator.NEG, parseFactor());
+
+        ExpressionNode result = parsePrimary();
+
+        // Implizite Multiplikation, z.B. "2x", "(x+1)(x-1)" oder "x sin(x)"
+        if (startsFactor()) {
+            result = binary(Operator.MUL, result, parseFactor());
+        }
+
+        // Exponentiation (Potenzen)
+        if (eat('^')) {
+            result = binary(Operator.POW, result, parseFactor());
+        }
+
+        return result;
+    }
+
+    /**
+     * Parst einen Grundbaustein ohne Vorzeichen und Potenz: Klammer, Zahl,
+     * Variable, Funktion oder Konstante
+     */
+    protected ExpressionNode parsePrimary() {
+        ExpressionNode result;
+
+        // Klammern
+        if (eat('(')) {
+            result = parseExpression();
+            eat(')');
+        }
+        // Zahlen
+        else if ((ch >= '0' && ch <= '9') || ch == '.') {
+            StringBuilder sb = new StringBuilder();
+            while ((ch >= '0' && ch <= '9') || ch == '.') {
+                sb.append(ch);
+                nextChar();
+            }
+            result = new ExpressionNode.Constant(Double.parseDouble(sb.toString()));
+        }
+        // Variablen, Funktionen und Konstanten
+        else if (ch >= 'a' && ch <= 'z') {
+            result = parseIdentifier();
+        } else {
+            throw new RuntimeException("Unerwartetes Zeichen: " + ch);
+        }
+        return result;
+    }
+
+    /**
+     * Parst einen Bezeichner: eine Variable, einen Funktionsaufruf, eine
+     * Konstante oder eine benutzerdefinierte Variable
+     * Bezeichner bestehen aus Kleinbuchstaben und Ziffern. Ist ein Bezeichner
+     * unbekannt und beginnt mit einer Variablen (z.B. "xy" oder "xsin"), wird
+     * nur die Variable gelesen und der Rest als nächster Faktor multipliziert
+     */
+    private ExpressionNode parseIdentifier() {
+        int start = pos - 1;
+        StringBuilder sb = new StringBuilder();
+        while ((ch >= 'a' && ch <= 'z') || (ch >= '0' && ch <= '9')) {
+            sb.append(ch);
+            nextChar();
+        }
+        String name = sb.toString();
+
+        int variable = variableIndex(name);
+        if (variable < 0 && !isKnownName(name)) {
+            String prefix = variablePrefix(name);
+            if (prefix != null) {
+                pos = start + prefix.length();
+                nextChar();
+                variable = variableIndex(prefix);
+            }
+        }
+        if (variable >= 0) {
+            return new ExpressionNode.Variable(variable);
+        }
+
+        if (eat('(')) {
+            List<ExpressionNode> arguments = new ArrayList<>();
+            arguments.add(parseExpression());
+            while (eat(',')) {
+                arguments.add(parseExpression());
+            }
+            eat(')');
+            return functionCall(name, arguments);
+        }
+
+        ExpressionNode result = namedValue(name);
+        if (result == null) {
+            throw new RuntimeException("Unbekannter Bezeichner: " + name);
+        }
+        return result;
+    }
+
+    /**
+     * Prüft, ob an der aktuellen Stelle ein Faktor beginnt, der ohne
+     * Operator multipliziert wird
+     */
+    private boolean startsFactor() {
+        return (ch >= 'a' && ch <= 'z') || ch == '(';
+    }
+
+    /**
+     * Liefert den Auswertungsplatz einer Variablen oder -1
+     */
+    private int variableIndex(String name) {
+        for (int i = 0; i < variables.length; i++) {
+            if (variables[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Liefert die längste Variable, mit der der Bezeichner beginnt, oder null
+     */
+    private String variablePrefix(String name) {
+        String prefix = null;
+        for (String variable : variables) {
+            if (name.startsWith(variable) && (prefix == null || variable.length() > prefix.length())) {
+                prefix = variable;
+            }
+        }
+        return prefix;
+    }
+
+    /**
+     * Prüft, ob ein Name eine eingebaute Funktion oder Konstante oder eine
+     * benutzerdefinierte Variable oder Funktion ist
+     */
+    private boolean isKnownName(String name) {
+        return Operator.forFunction(name, 1) != null || Operator.forFunction(name, 2) != null
+                || namedConstant(name) != null || UserDefinitions.isDefined(name, definitionRevisions);
+    }
 
     /**
      * Wertet eine mathematische Funktion aus
      */
     protected double evaluateFunction(String name, double arg) {
-        switch (name) {
-            case "sin":
-                return Math.sin(arg);
-            case "cos":
-                return Math.cos(arg);
-            case "tan":
-                return Math.tan(arg);
-            case "asin":
-                if (arg < -1 || arg > 1)
-                    throw new ArithmeticException("Arcsin-Argument außerhalb des Bereichs [-1, 1]");
-                return Math.asin(arg);
-            case "acos":
-                if (arg < -1 || arg > 1)
-                    throw new ArithmeticException("Arccos-Argument außerhalb des Bereichs [-1, 1]");
-                return Math.acos(arg);
-            case "atan":
-                return Math.atan(arg);
-            case "sinh":
-                return Math.sinh(arg);
-            case "cosh":
-                return Math.cosh(arg);
-            case "tanh":
-                return Math.tanh(arg);
-            case "sqrt":
-                if (arg < 0)
-                    throw new ArithmeticException("Quadratwurzel aus negativer Zahl");
-                return Math.sqrt(arg);
-            case "cbrt":
-                return Math.cbrt(arg);
-            case "log":
-            case "log10":
-                if (arg <= 0)
-                    throw new ArithmeticException("Logarithmus einer nicht-positiven Zahl");
-                return Math.log10(arg);
-            case "log2":
-                if (arg <= 0)
-                    throw new ArithmeticException("Logarithmus einer nicht-positiven Zahl");
-                return Math.log(arg) / Math.log(2);
-            case "ln":
-                if (arg <= 0)
-                    throw new ArithmeticException("Natürlicher Logarithmus einer nicht-positiven Zahl");
-                return Math.log(arg);
-            case "exp":
-                return Math.exp(arg);
-            case "abs":
-                return Math.abs(arg);
-            case "floor":
-                return Math.floor(arg);
-            case "ceil":
-            case "ceiling":
-                return Math.ceil(arg);
-            case "round":
-                return Math.round(arg);
-            case "degrees":
-            case "deg":
-                return Math.toDegrees(arg);
-            case "radians":
-            case "rad":
-                return Math.toRadians(arg);
-            default:
-                throw new RuntimeException("Unbekannte Funktion: " + name);
-        }
+        return functionOperator(name, 1).apply(arg);
     }
 
     /**
      * Wertet eine zweistellige mathematische Funktion aus
      */
     protected double evaluateFunction(String name, double arg1, double arg2) {
+        return functionOperator(name, 2).apply(arg1, arg2);
+    }
+
+    /**
+     * Sucht den Operator zu einem Funktionsnamen
+     *
+     * @throws RuntimeException wenn die Funktion unbekannt ist
+     */
+    protected Operator functionOperator(String name, int arity) {
+        Operator op = Operator.forFunction(name, arity);
+        if (op == null) {
+            throw new RuntimeException("Unbekannte Funktion: " + name);
+        }
+        return op;
+    }
+
+    /**
+     * Erzeugt den Knoten für einen Funktionsaufruf
+     * Eingebaute Funktionen haben Vorrang vor benutzerdefinierten, die genau
+     * ein Argument haben
+     *
+     * @throws RuntimeException wenn die Funktion unbekannt ist oder die Anzahl
+     *                          der Argumente nicht passt
+     */
+    protected ExpressionNode functionCall(String name, List<ExpressionNode> arguments) {
+        Operator op = Operator.forFunction(name, arguments.size());
+        if (op != null) {
+            return arguments.size() == 1 ? unary(op, arguments.get(0))
+                    : binary(op, arguments.get(0), arguments.get(1));
+        }
+        if (arguments.size() == 1) {
+            ExpressionNode result = UserDefinitions.resolveFunction(name, arguments.get(0), definitionRevisions);
+            if (result != null) {
+                return result;
+            }
+        }
+        if (Operator.forFunction(name, 1) != null || Operator.forFunction(name, 2) != null
+                || UserDefinitions.isDefined(name, definitionRevisions)) {
+            throw new RuntimeException("Falsche Anzahl Argumente für Funktion " + name);
+        }
+        throw new RuntimeException("Unbekannte Funktion: " + name);
+    }
+
+    /**
+     * Liefert den Knoten für einen Bezeichner ohne Klammer: eine eingebaute
+     * Konstante oder eine benutzerdefinierte Variable
+     *
+     * @return Der Knoten oder null, wenn der Name unbekannt ist
+     */
+    protected ExpressionNode namedValue(String name) {
+        Double constant = constantValue(name);
+        if (constant != null) {
+            return new ExpressionNode.Constant(constant);
+        }
+        return UserDefinitions.resolveVariable(name, definitionRevisions);
+    }
+
+    /**
+     * Liefert den Wert einer benannten mathematischen Konstante
+     *
+     * @return Der Wert oder null, wenn der Name keine Konstante ist
+     */
+    protected Double constantValue(String name) {
+        return namedConstant(name);
+    }
+
+    private static String[] checkVariables(String[] variables) {
+        if (variables.length > MAX_VARIABLES) {
+            throw new IllegalArgumentException("Höchstens " + MAX_VARIABLES + " Variablen möglich");
+        }
+        for (int i = 0; i < variables.length; i++) {
+            if (!variables[i].matches("[a-z][a-z0-9]*")) {
+                throw new IllegalArgumentException("Ungültiger Variablenname: " + variables[i]);
+            }
+            for (int j = 0; j < i; j++) {
+                if (variables[i].equals(variables[j])) {
+                    throw new IllegalArgumentException("Doppelte Variable: " + variables[i]);
+                }
+            }
+        }
+        return variables.clone();
+    }
+
+    /**
+     * Liefert den Wert einer eingebauten Konstante
+     *
+     * @return Der Wert oder null, wenn der Name keine Konstante ist
+     */
+    static Double namedConstant(String name) {
         switch (name) {
-            case "max":
-                return Math.max(arg1, arg2);
-            case "min":
-                return Math.min(arg1, arg2);
-            case "pow":
-                return Math.pow(arg1, arg2);
-            case "atan2":
-                return Math.atan2(arg1, arg2);
+            case "pi":
+                return Math.PI;
+            case "e":
+                return Math.E;
+            case "phi":
+            case "golden":
+                return (1 + Math.sqrt(5)) / 2; // Goldener Schnitt (≈ 1.618033988749895)
+            case "sqrt2":
+                return Math.sqrt(2);
+            case "sqrt3":
+                return Math.sqrt(3);
+            case "inf":
+            case "infinity":
+                return Double.POSITIVE_INFINITY;
+            case "nan":
+                return Double.NaN;
             default:
-                throw new RuntimeException("Unbekannte Funktion: " + name);
+                return null;
         }
     }
 }
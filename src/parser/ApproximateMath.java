@@ -0,0 +1,221 @@
+package parser;
+
+/**
+ * Schnelle Näherungen für sin, cos, exp, ln und pow
+ * Gedacht für Vorschaubilder während einer Interaktion (Verschieben, Drehen),
+ * bei denen Tempo wichtiger ist als die letzte Stelle; danach wird wieder mit
+ * den exakten Math.*-Funktionen gerechnet
+ *
+ * Die Fehlerschranken gelten im jeweiligen Schnellbereich und sind mit
+ * {@link ApproximateMathBenchmark} nachgeprüft. Außerhalb dieser Bereiche
+ * (sehr große Argumente, Sonderwerte wie NaN, Unendlich, subnormale Zahlen)
+ * wird auf Math.* zurückgegriffen, so dass Sonderfälle dasselbe Ergebnis wie
+ * dort liefern.
+ */
+public final class ApproximateMath {
+    /**
+     * Maximaler absoluter Fehler von {@link #sin(double)} und
+     * {@link #cos(double)}
+     */
+    public static final double SIN_COS_MAX_ERROR = 1e-11;
+
+    /**
+     * Maximaler relativer Fehler von {@link #exp(double)}
+     */
+    public static final double EXP_MAX_RELATIVE_ERROR = 1e-14;
+
+    /**
+     * Maximaler absoluter Fehler von {@link #log(double)}
+     */
+    public static final double LOG_MAX_ERROR = 1e-15;
+
+    /**
+     * Maximaler relativer Fehler von {@link #log(double)}
+     */
+    public static final double LOG_MAX_RELATIVE_ERROR = 1e-13;
+
+    /**
+     * Maximaler relativer Fehler von {@link #pow(double, double)} je Einheit
+     * von |b · ln a|; der Fehler wächst mit dem Betrag des Exponenten
+     */
+    public static final double POW_MAX_RELATIVE_ERROR = 1e-13;
+
+    // Rundet durch Addition auf eine ganze Zahl; die unteren Bits der
+    // Summe enthalten diese Zahl im Zweierkomplement
+    private static final double ROUNDING_MAGIC = 0x1.8p52;
+
+    // Bis hierhin bleibt der Fehler der Argumentreduktion von sin/cos vernachlässigbar
+    private static final double SIN_COS_FAST_LIMIT = 1e5;
+
+    // π/2 in zwei Teilen (fdlibm): q * PIO2_HI ist für |q| < 2^20 exakt
+    private static final double TWO_OVER_PI = 6.36619772367581382433e-01;
+    private static final double PIO2_HI = 1.57079632673412561417e+00;
+    private static final double PIO2_LO = 6.07710050650619224932e-11;
+
+    // Taylor-Koeffizienten für |r| ≤ π/4 (Restglied < 7e-12 bzw. < 4e-13)
+    private static final double S3 = -1.0 / 6;
+    private static final double S5 = 1.0 / 120;
+    private static final double S7 = -1.0 / 5040;
+    private static final double S9 = 1.0 / 362880;
+    private static final double S11 = -1.0 / 39916800;
+    private static final double C2 = -1.0 / 2;
+    private static final double C4 = 1.0 / 24;
+    private static final double C6 = -1.0 / 720;
+    private static final double C8 = 1.0 / 40320;
+    private static final double C10 = -1.0 / 3628800;
+    private static final double C12 = 1.0 / 479001600;
+
+    // exp: x = (32k + j) · ln2/32 + r mit Tabelle 2^(j/32), |r| ≤ ln2/64
+    private static final int EXP_TABLE_BITS = 5;
+    private static final int EXP_TABLE_SIZE = 1 << EXP_TABLE_BITS;
+    private static final double EXP_FAST_LIMIT = 700;
+    private static final double EXP_SCALE = EXP_TABLE_SIZE / Math.log(2);
+
+    // ln 2 in zwei Teilen (fdlibm): n * LN2_HI ist für |n| < 2^20 exakt
+    private static final double LN2_HI = 6.93147180369123816490e-01;
+    private static final double LN2_LO = 1.90821492927058770002e-10;
+    private static final double EXP_STEP_HI = LN2_HI / EXP_TABLE_SIZE;
+    private static final double EXP_STEP_LO = LN2_LO / EXP_TABLE_SIZE;
+    private static final double[] EXP_TABLE = new double[EXP_TABLE_SIZE];
+
+    // ln: Mantisse m ∈ [1, 2) wird auf den nächsten Stützpunkt c = 1 + j/128
+    // bezogen, ln m = ln c + ln(1 + r) mit |r| ≤ 1/256
+    private static final int LOG_TABLE_BITS = 7;
+    private static final int LOG_TABLE_SIZE = 1 << LOG_TABLE_BITS;
+    private static final double[] LOG_CENTER = new double[LOG_TABLE_SIZE];
+    private static final double[] LOG_INVERSE = new double[LOG_TABLE_SIZE];
+    private static final double[] LOG_VALUE = new double[LOG_TABLE_SIZE];
+
+    private static final long MANTISSA_MASK = 0x000FFFFFFFFFFFFFL;
+    private static final long ONE_BITS = 0x3FF0000000000000L;
+    private static final int EXPONENT_BIAS = 1023;
+
+    static {
+        for (int j = 0; j < EXP_TABLE_SIZE; j++) {
+            EXP_TABLE[j] = Math.pow(2, (double) j / EXP_TABLE_SIZE);
+        }
+        for (int j = 0; j < LOG_TABLE_SIZE; j++) {
+            double center = 1 + (double) j / LOG_TABLE_SIZE;
+            LOG_CENTER[j] = center;
+            LOG_INVERSE[j] = 1 / center;
+            LOG_VALUE[j] = Math.log(center);
+        }
+    }
+
+    private ApproximateMath() {
+    }
+
+    /**
+     * Näherung für Math.sin
+     * Absoluter Fehler höchstens {@link #SIN_COS_MAX_ERROR} für |x| ≤ 1e5,
+     * darüber wird Math.sin verwendet
+     */
+    public static double sin(double x) {
+        if (!(Math.abs(x) <= SIN_COS_FAST_LIMIT)) {
+            return Math.sin(x);
+        }
+        double t = x * TWO_OVER_PI + ROUNDING_MAGIC;
+        long quadrant = Double.doubleToRawLongBits(t);
+        double q = t - ROUNDING_MAGIC;
+        double r = (x - q * PIO2_HI) - q * PIO2_LO;
+
+        // Beide Kerne ohne Verzweigung berechnen und passend auswählen
+        double s = sinKernel(r);
+        double c = cosKernel(r);
+        double value = (quadrant & 1) == 0 ? s : c;
+        return (quadrant & 2) == 0 ? value : -value;
+    }
+
+    /**
+     * Näherung für Math.cos
+     * Absoluter Fehler höchstens {@link #SIN_COS_MAX_ERROR} für |x| ≤ 1e5,
+     * darüber wird Math.cos verwendet
+     */
+    public static double cos(double x) {
+        if (!(Math.abs(x) <= SIN_COS_FAST_LIMIT)) {
+            return Math.cos(x);
+        }
+        double t = x * TWO_OVER_PI + ROUNDING_MAGIC;
+        long quadrant = Double.doubleToRawLongBits(t);
+        double q = t - ROUNDING_MAGIC;
+        double r = (x - q * PIO2_HI) - q * PIO2_LO;
+
+        double s = sinKernel(r);
+        double c = cosKernel(r);
+        double value = (quadrant & 1) == 0 ? c : s;
+        return ((quadrant + 1) & 2) == 0 ? value : -value;
+    }
+
+    private static double sinKernel(double r) {
+        double r2 = r * r;
+        return r + r * r2 * (S3 + r2 * (S5 + r2 * (S7 + r2 * (S9 + r2 * S11))));
+    }
+
+    private static double cosKernel(double r) {
+        double r2 = r * r;
+        return 1 + r2 * (C2 + r2 * (C4 + r2 * (C6 + r2 * (C8 + r2 * (C10 + r2 * C12)))));
+    }
+
+    /**
+     * Näherung für Math.exp
+     * Relativer Fehler höchstens {@link #EXP_MAX_RELATIVE_ERROR} für
+     * |x| ≤ 700, darüber (und für NaN) wird Math.exp verwendet
+     */
+    public static double exp(double x) {
+        if (!(Math.abs(x) <= EXP_FAST_LIMIT)) {
+            return Math.exp(x);
+        }
+        double t = x * EXP_SCALE + ROUNDING_MAGIC;
+        int n = (int) Double.doubleToRawLongBits(t);
+        double nd = t - ROUNDING_MAGIC;
+        double r = (x - nd * EXP_STEP_HI) - nd * EXP_STEP_LO;
+        double p = 1 + r * (1 + r * (1.0 / 2 + r * (1.0 / 6 + r * (1.0 / 24 + r * (1.0 / 120)))));
+        double scale = Double.longBitsToDouble((long) ((n >> EXP_TABLE_BITS) + EXPONENT_BIAS) << 52);
+        return scale * (EXP_TABLE[n & (EXP_TABLE_SIZE - 1)] * p);
+    }
+
+    /**
+     * Näherung für Math.log (natürlicher Logarithmus)
+     * Absoluter Fehler höchstens {@link #LOG_MAX_ERROR}, relativer höchstens
+     * {@link #LOG_MAX_RELATIVE_ERROR} für normale positive Zahlen. Für x ≤ 0,
+     * subnormale Zahlen, Unendlich und NaN wird Math.log verwendet
+     */
+    public static double log(double x) {
+        if (!(x >= Double.MIN_NORMAL && x <= Double.MAX_VALUE)) {
+            return Math.log(x);
+        }
+        long bits = Double.doubleToRawLongBits(x);
+        int exponent = (int) (bits >>> 52) - EXPONENT_BIAS;
+        double m = Double.longBitsToDouble((bits & MANTISSA_MASK) | ONE_BITS);
+
+        // Die obersten acht Mantissenbits, auf sieben gerundet; liegt m näher
+        // an 2, wird mit m/2 und c = 1 gerechnet, damit Werte knapp unter 1
+        // ohne Auslöschung genau bleiben
+        int j = ((int) (bits >>> 44 & 0xFF) + 1) >> 1;
+        if (j == LOG_TABLE_SIZE) {
+            exponent++;
+            m *= 0.5;
+            j = 0;
+        }
+        double r = (m - LOG_CENTER[j]) * LOG_INVERSE[j];
+        double p = r - r * r * (1.0 / 2 - r * (1.0 / 3 - r * (1.0 / 4 - r * (1.0 / 5 - r * (1.0 / 6)))));
+        return exponent * LN2_HI + (LOG_VALUE[j] + (exponent * LN2_LO + p));
+    }
+
+    /**
+     * Näherung für Math.pow über exp(b · ln a)
+     * Relativer Fehler höchstens {@link #POW_MAX_RELATIVE_ERROR} · (1 + |b · ln a|)
+     * für endliche a > 0 und b, solange |b · ln a| ≤ 700; alle anderen Fälle
+     * (negative Basis, Null, Sonderwerte) rechnet Math.pow
+     */
+    public static double pow(double a, double b) {
+        if (!(a >= Double.MIN_NORMAL && a <= Double.MAX_VALUE && Math.abs(b) <= Double.MAX_VALUE)) {
+            return Math.pow(a, b);
+        }
+        double y = b * log(a);
+        if (!(Math.abs(y) <= EXP_FAST_LIMIT)) {
+            return Math.pow(a, b);
+        }
+        return exp(y);
+    }
+}
@@ -0,0 +1,159 @@
+package parser;
+
+import java.util.Random;
+
+/**
+ * Vergleicht die Näherungen aus {@link ApproximateMath} mit Math.*
+ * Misst je Funktion die Zeit pro Aufruf (skalar und über die
+ * Array-Auswertung des Vorschau-Modus) und den größten beobachteten Fehler
+ * im Vergleich zur dokumentierten Schranke
+ *
+ * Aufruf: java --add-modules jdk.incubator.vector -cp GrafischerTaschenrechner.jar parser.ApproximateMathBenchmark
+ * (ohne --add-modules wird die Array-Auswertung ohne SIMD gemessen)
+ */
+public final class ApproximateMathBenchmark {
+    private static final int SIZE = 4096;
+    private static final int WARMUP_ROUNDS = 2000;
+    private static final int MEASURED_ROUNDS = 2000;
+
+    // Verhindert, dass der JIT die Schleifen als wirkungslos entfernt
+    private static double sink;
+
+    private ApproximateMathBenchmark() {
+    }
+
+    /**
+     * Eine Funktion mit exakter und genäherter Variante
+     */
+    private interface Kernel {
+        void run(double[] a, double[] b, double[] out, boolean approximate);
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        double[] angles = new double[SIZE];
+        double[] exponents = new double[SIZE];
+        double[] positives = new double[SIZE];
+        double[] powers = new double[SIZE];
+        // Aufsteigende Argumente wie beim Abtasten einer Zeile des Plots
+        for (int i = 0; i < SIZE; i++) {
+            double t = (double) i / (SIZE - 1) * 2 - 1;
+            angles[i] = t * 100;
+            exponents[i] = t * 50;
+            positives[i] = Math.exp(t * 50);
+            powers[i] = (random.nextDouble() * 2 - 1) * 5;
+        }
+
+        System.out.println("SIMD-Array-Operationen: " + (VectorSupport.isAvailable() ? "aktiv" : "nicht aktiv"));
+        System.out.printf("%-6s %12s %12s %8s %12s %12s %8s %12s %12s%n", "", "Math [ns]", "Näherung",
+                "Faktor", "Array exakt", "Vorschau", "Faktor", "Fehler", "Schranke");
+
+        report("sin", angles, null, (a, b, out, approximate) -> {
+            if (approximate)
+                for (int i = 0; i < SIZE; i++)
+                    out[i] = ApproximateMath.sin(a[i]);
+            else
+                for (int i = 0; i < SIZE; i++)
+                    out[i] = Math.sin(a[i]);
+        }, Operator.SIN, false, ApproximateMath.SIN_COS_MAX_ERROR);
+
+        report("cos", angles, null, (a, b, out, approximate) -> {
+            if (approximate)
+                for (int i = 0; i < SIZE; i++)
+                    out[i] = ApproximateMath.cos(a[i]);
+            else
+                for (int i = 0; i < SIZE; i++)
+                    out[i] = Math.cos(a[i]);
+        }, Operator.COS, false, ApproximateMath.SIN_COS_MAX_ERROR);
+
+        report("exp", exponents, null, (a, b, out, approximate) -> {
+            if (approximate)
+                for (int i = 0; i < SIZE; i++)
+                    out[i] = ApproximateMath.exp(a[i]);
+            else
+                for (int i = 0; i < SIZE; i++)
+                    out[i] = Math.exp(a[i]);
+        }, Operator.EXP, true, ApproximateMath.EXP_MAX_RELATIVE_ERROR);
+
+        report("ln", positives, null, (a, b, out, approximate) -> {
+            if (approximate)
+                for (int i = 0; i < SIZE; i++)
+                    out[i] = ApproximateMath.log(a[i]);
+            else
+                for (int i = 0; i < SIZE; i++)
+                    out[i] = Math.log(a[i]);
+        }, Operator.LN, false, ApproximateMath.LOG_MAX_ERROR * 50);
+
+        report("pow", positives, powers, (a, b, out, approximate) -> {
+            if (approximate)
+                for (int i = 0; i < SIZE; i++)
+                    out[i] = ApproximateMath.pow(a[i], b[i]);
+            else
+                for (int i = 0; i < SIZE; i++)
+                    out[i] = Math.pow(a[i], b[i]);
+        }, Operator.POW, true, ApproximateMath.POW_MAX_RELATIVE_ERROR * (1 + 5 * 50));
+
+        System.out.println("Fehler: ln absolut (|ln x| ≤ 50), sin/cos absolut, exp und pow relativ");
+    }
+
+    private static void report(String name, double[] a, double[] b, Kernel kernel, Operator op,
+            boolean relative, double bound) {
+        double[] exact = new double[SIZE];
+        double[] approximate = new double[SIZE];
+        kernel.run(a, b, exact, false);
+        kernel.run(a, b, approximate, true);
+
+        double maxError = 0;
+        for (int i = 0; i < SIZE; i++) {
+            double error = Math.abs(approximate[i] - exact[i]);
+            if (relative) {
+                error /= Math.abs(exact[i]);
+            }
+            maxError = Math.max(maxError, error);
+        }
+
+        double scalarExact = time(() -> kernel.run(a, b, exact, false));
+        double scalarApproximate = time(() -> kernel.run(a, b, approximate, true));
+        double arrayExact = time(() -> applyArray(op, a, b, exact, false));
+        double arrayApproximate = time(() -> applyArray(op, a, b, approximate, true));
+
+        System.out.printf("%-6s %12.2f %12.2f %7.1fx %12.2f %12.2f %7.1fx %12.2e %12.2e%n", name, scalarExact,
+                scalarApproximate, scalarExact / scalarApproximate, arrayExact, arrayApproximate,
+                arrayExact / arrayApproximate, maxError, bound);
+        sink += exact[SIZE / 2] + approximate[SIZE / 3];
+    }
+
+    /**
+     * Wendet den Operator so an, wie es die Array-Auswertung tut
+     */
+    private static void applyArray(Operator op, double[] a, double[] b, double[] out, boolean approximate) {
+        System.arraycopy(a, 0, out, 0, SIZE);
+        if (b == null) {
+            if (approximate) {
+                op.applyApproximate(out, SIZE);
+            } else {
+                op.apply(out, SIZE);
+            }
+        } else if (approximate) {
+            op.applyApproximate(out, b, SIZE);
+        } else {
+            op.apply(out, b, SIZE);
+        }
+    }
+
+    /**
+     * Bestzeit pro Element in Nanosekunden
+     */
+    private static double time(Runnable run) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            run.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            run.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return (double) best / SIZE;
+    }
+}
@@ -0,0 +1,77 @@
+package parser;
+
+/**
+ * Array-Operatoren mit den Näherungen aus {@link ApproximateMath} für die
+ * Vorschau während einer Interaktion
+ * Übernimmt nur Funktionen, bei denen die Näherung schneller ist als der
+ * exakte Weg; alle anderen werden als nicht unterstützt gemeldet und wie
+ * gewohnt exakt berechnet. Mit SIMD-Registern (siehe {@link VectorSupport})
+ * sind die exakten elementaren Funktionen bereits schneller als jede skalare
+ * Näherung, dann wird nur noch die Potenz genähert
+ */
+final class ApproximateOperations implements ArrayOperations {
+    static final ApproximateOperations INSTANCE = new ApproximateOperations(VectorSupport.APPROXIMATE_OPERATIONS);
+
+    private static final double INVERSE_LN10 = 1 / Math.log(10);
+    private static final double INVERSE_LN2 = 1 / Math.log(2);
+
+    // Null ohne SIMD
+    private final ArrayOperations vectorOperations;
+
+    private ApproximateOperations(ArrayOperations vectorOperations) {
+        this.vectorOperations = vectorOperations;
+    }
+
+    @Override
+    public boolean apply(Operator op, double[] values, int length) {
+        if (vectorOperations != null) {
+            return vectorOperations.apply(op, values, length);
+        }
+
+        switch (op) {
+            case SIN:
+                for (int i = 0; i < length; i++)
+                    values[i] = ApproximateMath.sin(values[i]);
+                return true;
+            case COS:
+                for (int i = 0; i < length; i++)
+                    values[i] = ApproximateMath.cos(values[i]);
+                return true;
+            case EXP:
+                for (int i = 0; i < length; i++)
+                    values[i] = ApproximateMath.exp(values[i]);
+                return true;
+            case LN:
+                // Nicht-positive Argumente ergeben NaN
+                for (int i = 0; i < length; i++)
+                    values[i] = values[i] > 0 ? ApproximateMath.log(values[i]) : Double.NaN;
+                return true;
+            case LOG10:
+                for (int i = 0; i < length; i++)
+                    values[i] = values[i] > 0 ? ApproximateMath.log(values[i]) * INVERSE_LN10 : Double.NaN;
+                return true;
+            case LOG2:
+                for (int i = 0; i < length; i++)
+                    values[i] = values[i] > 0 ? ApproximateMath.log(values[i]) * INVERSE_LN2 : Double.NaN;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public boolean apply(Operator op, double[] left, double[] right, int length) {
+        if (vectorOperations != null && vectorOperations.apply(op, left, right, length)) {
+            return true;
+        }
+        if (op != Operator.POW) {
+            return false;
+        }
+
+        // Math.pow(NaN, 0) wäre 1 - Fehler sollen aber erhalten bleiben
+        for (int i = 0; i < length; i++)
+            left[i] = Double.isNaN(left[i]) || Double.isNaN(right[i]) ? Double.NaN
+                    : ApproximateMath.pow(left[i], right[i]);
+        return true;
+    }
+}
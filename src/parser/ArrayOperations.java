@@ -0,0 +1,24 @@
+package parser;
+
+/**
+ * Alternative Implementierung der elementweisen Operatoren für die
+ * Array-Auswertung (z.B. über SIMD-Register)
+ * Die Semantik entspricht {@link Operator#apply(double[], int)} bzw.
+ * {@link Operator#apply(double[], double[], int)}
+ */
+interface ArrayOperations {
+
+    /**
+     * Wendet einen einstelligen Operator in-place an
+     *
+     * @return false, wenn der Operator nicht unterstützt wird
+     */
+    boolean apply(Operator op, double[] values, int length);
+
+    /**
+     * Wendet einen zweistelligen Operator an, das Ergebnis landet im linken Array
+     *
+     * @return false, wenn der Operator nicht unterstützt wird
+     */
+    boolean apply(Operator op, double[] left, double[] right, int length);
+}
@@ -0,0 +1,239 @@
+package parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Array-Auswertung eines (optimierten) Ausdrucks
+ * Jeder Operator wird über das ganze Array angewendet; Teilausdrücke, die im
+ * Graphen mehrfach vorkommen, werden pro Aufruf nur einmal berechnet
+ *
+ * Bei der Gitterauswertung werden Teilausdrücke, die nur von x oder nur von y
+ * abhängen, vorab auf den Achsen berechnet und in jeder Zeile wiederverwendet
+ *
+ * Die Instanz selbst ist unveränderlich; alle Puffer werden pro Aufruf angelegt,
+ * daher ist die Auswertung threadsicher
+ */
+final class BatchEvaluator {
+    private static final int X_MASK = 1;
+    private static final int Y_MASK = 2;
+
+    private final ExpressionNode root;
+
+    // Mehrfach verwendete Teilausdrücke und ihr Index im Puffer-Array
+    private final Map<ExpressionNode, Integer> sharedSlots;
+
+    // Anzahl der Zwischenspeicher für rechte Operanden
+    private final int scratchDepth;
+
+    // Größte Teilausdrücke, die nur von x bzw. nur von y abhängen
+    private final List<ExpressionNode> xOnlyNodes = new ArrayList<>();
+    private final List<ExpressionNode> yOnlyNodes = new ArrayList<>();
+
+    BatchEvaluator(ExpressionNode root) {
+        this.root = root;
+        this.sharedSlots = ExpressionOptimizer.findSharedNodes(root);
+        this.scratchDepth = scratchDepth(root, new IdentityHashMap<>());
+        collectInvariants(root, new IdentityHashMap<>(), new IdentityHashMap<>());
+    }
+
+    /**
+     * Wertet den Ausdruck für viele Punkte aus
+     */
+    void evaluate(double[] xs, double[] ys, double[] out, int length) {
+        Buffers buffers = new Buffers(length);
+        evaluate(root, xs, ys, out, length, buffers, 0);
+    }
+
+    /**
+     * Wertet den Ausdruck zeilenweise auf einem Gitter aus
+     * Reine x-Teilausdrücke werden einmal pro Zeile, reine y-Teilausdrücke
+     * einmal für alle Zeilen berechnet; nur die gemischten Knoten laufen über
+     * jeden Gitterpunkt
+     */
+    void evaluateGrid(double[] xs, double[] ys, double[] outRowMajor) {
+        int rows = xs.length;
+        int columns = ys.length;
+
+        // Stufe 1: Teilausdrücke auf den Achsen auswerten
+        Map<ExpressionNode, double[]> xValues = evaluateOnAxis(xOnlyNodes, xs, rows);
+        Map<ExpressionNode, double[]> yValues = evaluateOnAxis(yOnlyNodes, ys, columns);
+
+        // Stufe 2: gemischte Knoten zeilenweise, mit den Achsenwerten als Blättern
+        Buffers buffers = new Buffers(columns);
+        buffers.xValues = xValues;
+        buffers.yValues = yValues;
+        double[] rowX = new double[columns];
+        double[] row = new double[columns];
+
+        for (int i = 0; i < rows; i++) {
+            Arrays.fill(rowX, xs[i]);
+            buffers.reset();
+            buffers.row = i;
+            evaluate(root, rowX, ys, row, columns, buffers, 0);
+            System.arraycopy(row, 0, outRowMajor, i * columns, columns);
+        }
+    }
+
+    /**
+     * Wertet Teilausdrücke einer einzigen Variablen auf deren Achse aus
+     */
+    private Map<ExpressionNode, double[]> evaluateOnAxis(List<ExpressionNode> nodes, double[] axis, int length) {
+        Map<ExpressionNode, double[]> values = new IdentityHashMap<>();
+        if (nodes.isEmpty()) {
+            return values;
+        }
+        Buffers buffers = new Buffers(length);
+        for (ExpressionNode node : nodes) {
+            double[] out = new double[length];
+            // Die Achse wird für beide Variablen übergeben, der Teilausdruck
+            // verwendet ohnehin nur eine davon
+            evaluate(node, axis, axis, out, length, buffers, 0);
+            values.put(node, out);
+        }
+        return values;
+    }
+
+    private void evaluate(ExpressionNode node, double[] xs, double[] ys, double[] out, int length,
+            Buffers buffers, int level) {
+        if (buffers.xValues != null) {
+            double[] yValues = buffers.yValues.get(node);
+            if (yValues != null) {
+                System.arraycopy(yValues, 0, out, 0, length);
+                return;
+            }
+            double[] xValues = buffers.xValues.get(node);
+            if (xValues != null) {
+                Arrays.fill(out, 0, length, xValues[buffers.row]);
+                return;
+            }
+        }
+
+        Integer slot = sharedSlots.get(node);
+        if (slot != null && buffers.ready[slot]) {
+            System.arraycopy(buffers.shared[slot], 0, out, 0, length);
+            return;
+        }
+
+        if (node instanceof ExpressionNode.Constant) {
+            Arrays.fill(out, 0, length, ((ExpressionNode.Constant) node).getValue());
+        } else if (node instanceof ExpressionNode.Variable) {
+            boolean isX = ((ExpressionNode.Variable) node).getIndex() == ExpressionNode.Variable.X;
+            System.arraycopy(isX ? xs : ys, 0, out, 0, length);
+        } else if (node instanceof ExpressionNode.Unary) {
+            ExpressionNode.Unary unary = (ExpressionNode.Unary) node;
+            evaluate(unary.getOperand(), xs, ys, out, length, buffers, level);
+            unary.getOperator().apply(out, length);
+        } else {
+            ExpressionNode.Binary binary = (ExpressionNode.Binary) node;
+            evaluate(binary.getLeft(), xs, ys, out, length, buffers, level);
+            double[] rightValues = buffers.scratch[level];
+            evaluate(binary.getRight(), xs, ys, rightValues, length, buffers, level + 1);
+            binary.getOperator().apply(out, rightValues, length);
+        }
+
+        if (slot != null) {
+            System.arraycopy(out, 0, buffers.shared[slot], 0, length);
+            buffers.ready[slot] = true;
+        }
+    }
+
+    /**
+     * Sucht die größten inneren Teilausdrücke, die nur von x oder nur von y
+     * abhängen
+     *
+     * @return Bitmaske der Variablen des Teilausdrucks (1 = x, 2 = y)
+     */
+    private int collectInvariants(ExpressionNode node, Map<ExpressionNode, Integer> memo,
+            Map<ExpressionNode, Boolean> collected) {
+        Integer known = memo.get(node);
+        if (known != null) {
+            return known;
+        }
+
+        int mask;
+        if (node instanceof ExpressionNode.Constant) {
+            mask = 0;
+        } else if (node instanceof ExpressionNode.Variable) {
+            mask = ((ExpressionNode.Variable) node).getIndex() == ExpressionNode.Variable.X ? X_MASK : Y_MASK;
+        } else if (node instanceof ExpressionNode.Unary) {
+            mask = collectInvariants(((ExpressionNode.Unary) node).getOperand(), memo, collected);
+        } else {
+            ExpressionNode.Binary binary = (ExpressionNode.Binary) node;
+            int leftMask = collectInvariants(binary.getLeft(), memo, collected);
+            int rightMask = collectInvariants(binary.getRight(), memo, collected);
+            mask = leftMask | rightMask;
+
+            // Nur Operanden gemischter Knoten vormerken, damit jeweils der größte
+            // invariante Teilausdruck verwendet wird
+            if (mask == (X_MASK | Y_MASK)) {
+                addInvariant(binary.getLeft(), leftMask, collected);
+                addInvariant(binary.getRight(), rightMask, collected);
+            }
+        }
+        memo.put(node, mask);
+
+        if (node == root) {
+            addInvariant(node, mask, collected);
+        }
+        return mask;
+    }
+
+    private void addInvariant(ExpressionNode node, int mask, Map<ExpressionNode, Boolean> collected) {
+        // Blätter sind bereits billig genug
+        boolean leaf = node instanceof ExpressionNode.Constant || node instanceof ExpressionNode.Variable;
+        if (leaf || collected.containsKey(node)) {
+            return;
+        }
+        if (mask == X_MASK) {
+            xOnlyNodes.add(node);
+            collected.put(node, Boolean.TRUE);
+        } else if (mask == Y_MASK) {
+            yOnlyNodes.add(node);
+            collected.put(node, Boolean.TRUE);
+        }
+    }
+
+    private static int scratchDepth(ExpressionNode node, Map<ExpressionNode, Integer> memo) {
+        Integer known = memo.get(node);
+        if (known != null) {
+            return known;
+        }
+        int depth = 0;
+        if (node instanceof ExpressionNode.Unary) {
+            depth = scratchDepth(((ExpressionNode.Unary) node).getOperand(), memo);
+        } else if (node instanceof ExpressionNode.Binary) {
+            ExpressionNode.Binary binary = (ExpressionNode.Binary) node;
+            depth = Math.max(scratchDepth(binary.getLeft(), memo), 1 + scratchDepth(binary.getRight(), memo));
+        }
+        memo.put(node, depth);
+        return depth;
+    }
+
+    /**
+     * Puffer für einen einzelnen Aufruf
+     */
+    private final class Buffers {
+        final double[][] scratch;
+        final double[][] shared;
+        final boolean[] ready;
+
+        // Vorab berechnete Achsenwerte bei der Gitterauswertung
+        Map<ExpressionNode, double[]> xValues;
+        Map<ExpressionNode, double[]> yValues;
+        int row;
+
+        Buffers(int length) {
+            scratch = new double[scratchDepth][length];
+            shared = new double[sharedSlots.size()][length];
+            ready = new boolean[sharedSlots.size()];
+        }
+
+        void reset() {
+            Arrays.fill(ready, false);
+        }
+    }
+}
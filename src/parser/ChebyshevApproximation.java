@@ -0,0 +1,460 @@
+package parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stückweise Chebyshev-Näherung einer Funktion f(x) auf einem festen Bereich
+ * Lohnt sich für aufwendige Ausdrücke (z.B. verschachtelte exp/sin/sqrt): ein
+ * Stück kostet bei der Auswertung nur ein Polynom im Clenshaw-Verfahren,
+ * unabhängig davon, wie teuer f selbst ist
+ *
+ * Jedes Stück wird nur übernommen, wenn die Intervallauswertung f dort als
+ * definiert, endlich und stetig nachweist und die Näherung an zusätzlichen
+ * Prüfpunkten höchstens um {@link #TOLERANCE} (relativ zum größten Betrag auf
+ * dem Stück) vom exakten Wert abweicht; sonst wird das Stück halbiert. Stücke,
+ * die auch nach {@link #MAX_DEPTH} Halbierungen nicht passen (Polstellen,
+ * Sprünge, Definitionslücken), werden exakt ausgewertet. Außerhalb des
+ * Bereichs wird ebenfalls exakt gerechnet, so dass sich die Näherung überall
+ * wie der Ausdruck selbst verwenden lässt.
+ *
+ * Die Instanz ist unveränderlich und kann von mehreren Threads gleichzeitig
+ * verwendet werden.
+ */
+public final class ChebyshevApproximation {
+    /**
+     * Zulässige Abweichung relativ zum größten Betrag der Funktion auf einem Stück
+     */
+    public static final double TOLERANCE = 1e-12;
+
+    /**
+     * Maximale Anzahl der Halbierungen eines Stücks
+     */
+    public static final int MAX_DEPTH = 10;
+
+    // Grad der Polynome und Anzahl der Stücke vor dem Halbieren
+    private static final int DEGREE = 16;
+    private static final int NODES = DEGREE + 1;
+    private static final int INITIAL_PIECES = 32;
+    private static final int CHECK_POINTS = 2 * NODES;
+
+    // Mindestaufwand eines Ausdrucks, ab dem sich die Näherung lohnt (eine
+    // transzendente Funktion zählt zehn, eine Grundrechenart eins)
+    private static final int MIN_COST = 20;
+
+    // cos(π · j · (k + 1/2) / NODES) für die Koeffizienten
+    private static final double[][] NODE_COSINES = new double[NODES][NODES];
+
+    static {
+        for (int j = 0; j < NODES; j++) {
+            for (int k = 0; k < NODES; k++) {
+                NODE_COSINES[j][k] = Math.cos(Math.PI * j * (k + 0.5) / NODES);
+            }
+        }
+    }
+
+    private final CompiledExpression expression;
+
+    // Grenzen der Stücke (aufsteigend, ein Element mehr als Stücke)
+    private final double[] breaks;
+
+    // Chebyshev-Koeffizienten je Stück und die ihrer Ableitung; null bei
+    // exakt ausgewerteten Stücken
+    private final double[][] coefficients;
+    private final double[][] derivatives;
+
+    private ChebyshevApproximation(CompiledExpression expression, double[] breaks, double[][] coefficients) {
+        this.expression = expression;
+        this.breaks = breaks;
+        this.coefficients = coefficients;
+        this.derivatives = new double[coefficients.length][];
+        for (int i = 0; i < coefficients.length; i++) {
+            if (coefficients[i] != null) {
+                derivatives[i] = derivative(coefficients[i], breaks[i], breaks[i + 1]);
+            }
+        }
+    }
+
+    /**
+     * Schätzt, ob sich eine Näherung für den Ausdruck lohnt
+     * Zählt die Operationen gewichtet nach ihrem Aufwand; Ausdrücke mit y
+     * werden nicht genähert
+     */
+    public static boolean isWorthwhile(CompiledExpression expression) {
+        EvaluationOrder order = new EvaluationOrder(expression.getRoot());
+        int cost = 0;
+        for (int i = 0; i < order.size(); i++) {
+            switch (order.kinds[i]) {
+                case EvaluationOrder.VARIABLE_Y:
+                    return false;
+                case EvaluationOrder.UNARY:
+                case EvaluationOrder.BINARY:
+                    cost += costOf(order.operators[i]);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return cost >= MIN_COST;
+    }
+
+    private static int costOf(Operator op) {
+        switch (op) {
+            case ADD:
+            case SUB:
+            case MUL:
+            case NEG:
+            case ABS:
+            case MIN:
+            case MAX:
+            case DEGREES:
+            case RADIANS:
+                return 1;
+            case DIV:
+            case SQRT:
+            case POW_HALF:
+            case FLOOR:
+            case CEIL:
+            case ROUND:
+                return 2;
+            default:
+                return 10;
+        }
+    }
+
+    /**
+     * Erstellt die Näherung für den Bereich [from, to]
+     *
+     * @param expression Ein Ausdruck in x
+     */
+    public static ChebyshevApproximation build(CompiledExpression expression, double from, double to) {
+        if (!(from < to) || Double.isInfinite(from) || Double.isInfinite(to)) {
+            throw new IllegalArgumentException("Ungültiger Bereich: [" + from + ", " + to + "]");
+        }
+
+        List<Double> breakList = new ArrayList<>();
+        List<double[]> coefficientList = new ArrayList<>();
+        breakList.add(from);
+        double width = (to - from) / INITIAL_PIECES;
+        for (int i = 0; i < INITIAL_PIECES; i++) {
+            double lo = from + i * width;
+            double hi = i == INITIAL_PIECES - 1 ? to : from + (i + 1) * width;
+            fit(expression, lo, hi, 0, breakList, coefficientList);
+        }
+
+        double[] breaks = new double[breakList.size()];
+        for (int i = 0; i < breaks.length; i++) {
+            breaks[i] = breakList.get(i);
+        }
+        return new ChebyshevApproximation(expression, breaks, coefficientList.toArray(new double[0][]));
+    }
+
+    /**
+     * Nähert f auf [lo, hi] oder halbiert das Stück, bis die Näherung passt
+     */
+    private static void fit(CompiledExpression expression, double lo, double hi, int depth, List<Double> breaks,
+            List<double[]> coefficients) {
+        if (expression.evaluateInterval(lo, hi, 0, 0).isContinuous()) {
+            double[] c = interpolate(expression, lo, hi);
+            if (c != null && isAccurate(expression, c, lo, hi)) {
+                breaks.add(hi);
+                coefficients.add(c);
+                return;
+            }
+        }
+
+        double middle = (lo + hi) / 2;
+        if (depth >= MAX_DEPTH || middle <= lo || middle >= hi) {
+            // Benachbarte exakte Stücke zusammenfassen
+            int last = coefficients.size() - 1;
+            if (last >= 0 && coefficients.get(last) == null) {
+                breaks.set(breaks.size() - 1, hi);
+            } else {
+                breaks.add(hi);
+                coefficients.add(null);
+            }
+            return;
+        }
+        fit(expression, lo, middle, depth + 1, breaks, coefficients);
+        fit(expression, middle, hi, depth + 1, breaks, coefficients);
+    }
+
+    /**
+     * Berechnet die Chebyshev-Koeffizienten aus den Werten an den
+     * Chebyshev-Knoten
+     *
+     * @return Die Koeffizienten oder null, wenn f an einem Knoten nicht
+     *         definiert ist
+     */
+    private static double[] interpolate(CompiledExpression expression, double lo, double hi) {
+        double middle = (lo + hi) / 2;
+        double half = (hi - lo) / 2;
+        double[] xs = new double[NODES];
+        for (int k = 0; k < NODES; k++) {
+            xs[k] = middle + half * NODE_COSINES[1][k];
+        }
+        double[] values = new double[NODES];
+        expression.evaluate(xs, xs, values, NODES);
+
+        double[] c = new double[NODES];
+        for (int j = 0; j < NODES; j++) {
+            double sum = 0;
+            for (int k = 0; k < NODES; k++) {
+                sum += values[k] * NODE_COSINES[j][k];
+            }
+            c[j] = 2 * sum / NODES;
+        }
+        for (double value : c) {
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                return null;
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Vergleicht die Näherung an gleichmäßig verteilten Prüfpunkten (inklusive
+     * der Ränder) mit den exakten Werten
+     */
+    private static boolean isAccurate(CompiledExpression expression, double[] c, double lo, double hi) {
+        double[] xs = new double[CHECK_POINTS];
+        for (int i = 0; i < CHECK_POINTS; i++) {
+            xs[i] = i == CHECK_POINTS - 1 ? hi : lo + (hi - lo) * i / (CHECK_POINTS - 1);
+        }
+        double[] exact = new double[CHECK_POINTS];
+        expression.evaluate(xs, xs, exact, CHECK_POINTS);
+
+        double scale = Double.MIN_NORMAL;
+        double maxError = 0;
+        for (int i = 0; i < CHECK_POINTS; i++) {
+            if (Double.isNaN(exact[i]) || Double.isInfinite(exact[i])) {
+                return false;
+            }
+            scale = Math.max(scale, Math.abs(exact[i]));
+            maxError = Math.max(maxError, Math.abs(clenshaw(c, lo, hi, xs[i]) - exact[i]));
+        }
+        return maxError <= TOLERANCE * scale;
+    }
+
+    /**
+     * Koeffizienten der Ableitung einer Chebyshev-Reihe auf [lo, hi]
+     */
+    private static double[] derivative(double[] c, double lo, double hi) {
+        int n = c.length;
+        double[] d = new double[n];
+        if (n > 1) {
+            d[n - 2] = 2 * (n - 1) * c[n - 1];
+            for (int j = n - 3; j >= 0; j--) {
+                d[j] = d[j + 2] + 2 * (j + 1) * c[j + 1];
+            }
+        }
+        double scale = 2 / (hi - lo);
+        for (int j = 0; j < n; j++) {
+            d[j] *= scale;
+        }
+        return d;
+    }
+
+    /**
+     * Wertet eine Chebyshev-Reihe auf [lo, hi] an der Stelle x aus
+     */
+    private static double clenshaw(double[] c, double lo, double hi, double x) {
+        double t = (2 * x - lo - hi) / (hi - lo);
+        double t2 = 2 * t;
+        double d = 0;
+        double dd = 0;
+        for (int j = c.length - 1; j >= 1; j--) {
+            // c[j] - dd hängt nicht vom vorigen Schritt ab, so dass pro Schritt
+            // nur ein FMA auf dem kritischen Pfad liegt
+            double saved = d;
+            d = Math.fma(t2, d, c[j] - dd);
+            dd = saved;
+        }
+        return t * d - dd + 0.5 * c[0];
+    }
+
+    /**
+     * Index des Stücks, das x enthält, oder -1 außerhalb des Bereichs
+     */
+    private int pieceOf(double x) {
+        if (!(x >= breaks[0] && x <= breaks[breaks.length - 1])) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(breaks, x);
+        if (index < 0) {
+            return -index - 2;
+        }
+        return Math.min(index, coefficients.length - 1);
+    }
+
+    /**
+     * Wertet die Näherung an der Stelle x aus
+     * In exakt ausgewerteten Stücken und außerhalb des Bereichs wird der
+     * Ausdruck selbst berechnet
+     *
+     * @throws ArithmeticException wenn der Ausdruck an dieser Stelle nicht
+     *                             definiert ist
+     */
+    public double evaluate(double x) {
+        int piece = pieceOf(x);
+        if (piece < 0 || coefficients[piece] == null) {
+            return expression.evaluate(x, 0);
+        }
+        return clenshaw(coefficients[piece], breaks[piece], breaks[piece + 1], x);
+    }
+
+    /**
+     * Wertet die Näherung zusammen mit ihrer Ableitung aus
+     *
+     * @throws ArithmeticException wenn der Ausdruck an dieser Stelle nicht
+     *                             definiert ist
+     */
+    public DualNumber evaluateWithDerivative(double x) {
+        int piece = pieceOf(x);
+        if (piece < 0 || coefficients[piece] == null) {
+            return expression.evaluateDual(x, 0);
+        }
+        double lo = breaks[piece];
+        double hi = breaks[piece + 1];
+        return new DualNumber(clenshaw(coefficients[piece], lo, hi, x), clenshaw(derivatives[piece], lo, hi, x), 0);
+    }
+
+    /**
+     * Wertet die Näherung für viele x-Werte aus
+     * Aufeinanderfolgende Werte im selben Stück werden gemeinsam berechnet, so
+     * dass die Clenshaw-Rekursionen der Punkte unabhängig voneinander laufen;
+     * Punkte in exakten Stücken werden gesammelt und mit der
+     * Array-Auswertung des Ausdrucks berechnet. Ungültige Punkte werden als NaN
+     * geliefert
+     */
+    public void evaluate(double[] xs, double[] out, int length) {
+        double[] t = new double[length];
+        double[] d = new double[length];
+        double[] dd = new double[length];
+        int[] exactIndices = new int[length];
+        int exactCount = 0;
+
+        int i = 0;
+        while (i < length) {
+            int piece = pieceOf(xs[i]);
+            if (piece < 0 || coefficients[piece] == null) {
+                exactIndices[exactCount++] = i++;
+                continue;
+            }
+            double lo = breaks[piece];
+            double hi = breaks[piece + 1];
+            int end = i + 1;
+            while (end < length && xs[end] >= lo && xs[end] <= hi) {
+                end++;
+            }
+            clenshaw(coefficients[piece], lo, hi, xs, out, i, end, t, d, dd);
+            i = end;
+        }
+
+        if (exactCount > 0) {
+            double[] exactXs = new double[exactCount];
+            double[] exactValues = new double[exactCount];
+            for (int k = 0; k < exactCount; k++) {
+                exactXs[k] = xs[exactIndices[k]];
+            }
+            expression.evaluate(exactXs, exactXs, exactValues, exactCount);
+            for (int k = 0; k < exactCount; k++) {
+                out[exactIndices[k]] = exactValues[k];
+            }
+        }
+    }
+
+    /**
+     * Clenshaw-Verfahren für die Punkte xs[from] bis xs[to - 1] eines Stücks
+     */
+    private static void clenshaw(double[] c, double lo, double hi, double[] xs, double[] out, int from, int to,
+            double[] t, double[] d, double[] dd) {
+        double scale = 2 / (hi - lo);
+        double shift = (lo + hi) / 2;
+        for (int k = from; k < to; k++) {
+            t[k] = (xs[k] - shift) * scale;
+            d[k] = 0;
+            dd[k] = 0;
+        }
+        for (int j = c.length - 1; j >= 1; j--) {
+            double cj = c[j];
+            for (int k = from; k < to; k++) {
+                double saved = d[k];
+                d[k] = Math.fma(2 * t[k], d[k], cj - dd[k]);
+                dd[k] = saved;
+            }
+        }
+        double c0 = 0.5 * c[0];
+        for (int k = from; k < to; k++) {
+            out[k] = t[k] * d[k] - dd[k] + c0;
+        }
+    }
+
+    /**
+     * Gibt an, ob f auf [x1, x2] nachweislich stetig ist
+     * Das ist der Fall, wenn der Abschnitt ganz in genäherten Stücken liegt;
+     * false bedeutet nur, dass hier keine Aussage möglich ist
+     */
+    public boolean isContinuous(double x1, double x2) {
+        int first = pieceOf(Math.min(x1, x2));
+        int last = pieceOf(Math.max(x1, x2));
+        if (first < 0 || last < 0) {
+            return false;
+        }
+        for (int piece = first; piece <= last; piece++) {
+            if (coefficients[piece] == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gibt an, ob der Bereich [from, to] vollständig abgedeckt ist
+     */
+    public boolean covers(double from, double to) {
+        return from >= breaks[0] && to <= breaks[breaks.length - 1];
+    }
+
+    /**
+     * Liefert den genäherten Ausdruck
+     */
+    public CompiledExpression getExpression() {
+        return expression;
+    }
+
+    /**
+     * Liefert die linke Grenze des Bereichs
+     */
+    public double getFrom() {
+        return breaks[0];
+    }
+
+    /**
+     * Liefert die rechte Grenze des Bereichs
+     */
+    public double getTo() {
+        return breaks[breaks.length - 1];
+    }
+
+    /**
+     * Liefert die Anzahl der Stücke (genähert und exakt)
+     */
+    public int getPieceCount() {
+        return coefficients.length;
+    }
+
+    /**
+     * Liefert die Anzahl der genäherten Stücke
+     */
+    public int getApproximatedPieceCount() {
+        int count = 0;
+        for (double[] c : coefficients) {
+            if (c != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
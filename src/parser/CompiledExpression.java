@@ -0,0 +1,208 @@
+package parser;
+
+import java.util.Arrays;
+
+/**
+ * Einmal geparster Ausdruck in Form eines unveränderlichen Auswertungsbaums
+ * Kann beliebig oft und von mehreren Threads gleichzeitig ausgewertet werden,
+ * ohne den Ausdruck erneut zu parsen
+ */
+public final class CompiledExpression {
+    private final String expression;
+    private final ExpressionNode root;
+    private final ExpressionEvaluator evaluator;
+    private final BatchEvaluator batchEvaluator;
+    private final SeparableForm separableForm;
+    private final Polynomial polynomial;
+    private final DualEvaluator dualEvaluator;
+    private final IntervalEvaluator intervalEvaluator;
+    private final boolean generated;
+
+    // Erst bei Bedarf erzeugte Ableitungen nach x und y
+    private volatile CompiledExpression derivativeX;
+    private volatile CompiledExpression derivativeY;
+
+    // Gemeinsamer Graph beider Ableitungen für die Gradienten auf dem Gitter
+    private volatile ExpressionGraph gradientGraph;
+
+    /**
+     * Erstellt einen kompilierten Ausdruck
+     * Versucht zuerst, den Baum in eine generierte Klasse zu übersetzen, und
+     * fällt auf die Registermaschine zurück, wenn das nicht möglich ist
+     *
+     * @param expression Der normalisierte Quelltext des Ausdrucks
+     * @param root       Die Wurzel des Auswertungsbaums
+     */
+    public CompiledExpression(String expression, ExpressionNode root) {
+        this.expression = expression;
+        this.root = root;
+
+        EvaluationOrder order = new EvaluationOrder(root);
+
+        ExpressionEvaluator generatedEvaluator = ExpressionCodeGenerator.generate(root);
+        this.generated = generatedEvaluator != null;
+        this.evaluator = generated ? generatedEvaluator : new RegisterMachine(order);
+        this.batchEvaluator = new BatchEvaluator(root);
+        this.separableForm = SeparableForm.detect(root);
+        this.polynomial = Polynomial.detect(root);
+
+        this.dualEvaluator = new DualEvaluator(order);
+        this.intervalEvaluator = new IntervalEvaluator(order);
+    }
+
+    /**
+     * Wertet den Ausdruck an der Stelle (x,y) aus
+     */
+    public double evaluate(double x, double y) {
+        return evaluator.eval(x, y);
+    }
+
+    /**
+     * Wertet den Ausdruck an der Stelle (x,y) zusammen mit seinem Gradienten aus
+     * Nutzt duale Zahlen, so dass Wert und beide Ableitungen in einem
+     * Durchlauf entstehen
+     *
+     * @throws ArithmeticException wenn der Ausdruck an dieser Stelle nicht
+     *                             definiert ist
+     */
+    public DualNumber evaluateDual(double x, double y) {
+        return dualEvaluator.evaluate(x, y);
+    }
+
+    /**
+     * Berechnet den Gradienten auf einem Gitter
+     * Beide Ableitungen werden symbolisch gebildet und in einem gemeinsamen
+     * {@link ExpressionGraph} über ganze Arrays ausgewertet, so dass gleiche
+     * Teilausdrücke nur einmal berechnet werden. Punkte, an denen eine
+     * Ableitung nicht definiert ist, werden als NaN geliefert; die Ableitungen
+     * können aber weiter reichen als der Ausdruck selbst (z.B. 1/x für ln(x))
+     *
+     * @param xs    x-Werte der Gitterzeilen
+     * @param ys    y-Werte der Gitterspalten
+     * @param outDx Ableitungen nach x, Index i * ys.length + j
+     * @param outDy Ableitungen nach y, Index i * ys.length + j
+     */
+    public void evaluateGradientGrid(double[] xs, double[] ys, double[] outDx, double[] outDy) {
+        ExpressionGraph graph = gradientGraph;
+        if (graph == null) {
+            graph = new ExpressionGraph(Arrays.asList(derivative(ExpressionNode.Variable.X),
+                    derivative(ExpressionNode.Variable.Y)));
+            gradientGraph = graph;
+        }
+        graph.evaluateGrid(xs, ys, new double[][] { outDx, outDy });
+    }
+
+    /**
+     * Schließt die Werte des Ausdrucks auf dem Bereich [xLo, xHi] × [yLo, yHi]
+     * ein (Intervallarithmetik)
+     * Stellen, an denen der Ausdruck nicht definiert ist, werden ausgenommen;
+     * {@link Interval#isContinuous()} meldet, ob es solche Stellen, Pol- oder
+     * Sprungstellen im Bereich geben kann
+     */
+    public Interval evaluateInterval(double xLo, double xHi, double yLo, double yHi) {
+        return intervalEvaluator.evaluate(xLo, xHi, yLo, yHi);
+    }
+
+    /**
+     * Wertet den Ausdruck für viele Punkte auf einmal aus
+     * Jeder Operator wird über das ganze Array angewendet; ungültige Punkte
+     * (z.B. außerhalb des Definitionsbereichs) werden als NaN geliefert
+     *
+     * @param xs     x-Werte je Punkt
+     * @param ys     y-Werte je Punkt
+     * @param out    Ausgabe
+     * @param length Anzahl der Punkte
+     */
+    public void evaluate(double[] xs, double[] ys, double[] out, int length) {
+        batchEvaluator.evaluate(xs, ys, out, length);
+    }
+
+    /**
+     * Wertet den Ausdruck auf einem Gitter aus
+     * Separierbare Funktionen (g(x) + h(y) bzw. g(x) * h(y)) werden nur auf den
+     * Achsen berechnet und dann kombiniert
+     *
+     * @param xs          x-Werte der Gitterzeilen
+     * @param ys          y-Werte der Gitterspalten
+     * @param outRowMajor Ausgabe mit xs.length * ys.length Elementen,
+     *                    Wert für (xs[i], ys[j]) an Index i * ys.length + j
+     */
+    public void evaluateGrid(double[] xs, double[] ys, double[] outRowMajor) {
+        if (separableForm != null) {
+            separableForm.evaluateGrid(xs, ys, outRowMajor);
+        } else {
+            batchEvaluator.evaluateGrid(xs, ys, outRowMajor);
+        }
+    }
+
+    /**
+     * Liefert die partielle Ableitung nach einer Variablen
+     * Die Ableitung wird beim ersten Aufruf symbolisch gebildet, vereinfacht und
+     * wie jeder andere Ausdruck kompiliert; ihr Quelltext kann wieder geparst
+     * werden
+     *
+     * @param variable {@link ExpressionNode.Variable#X} oder
+     *                 {@link ExpressionNode.Variable#Y}
+     * @return Die kompilierte Ableitung
+     */
+    public CompiledExpression derivative(int variable) {
+        boolean isX = variable == ExpressionNode.Variable.X;
+        CompiledExpression result = isX ? derivativeX : derivativeY;
+        if (result == null) {
+            ExpressionNode derivativeRoot = ExpressionDifferentiator.differentiate(root, variable);
+            result = new CompiledExpression(derivativeRoot.toString(), derivativeRoot);
+            if (isX) {
+                derivativeX = result;
+            } else {
+                derivativeY = result;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gibt an, ob der Ausdruck als generierte Klasse ausgeführt wird
+     *
+     * @return true bei generiertem Code, false beim Interpreter
+     */
+    public boolean isGenerated() {
+        return generated;
+    }
+
+    /**
+     * Liefert die Zerlegung in einen x- und einen y-Teil
+     *
+     * @return Die Zerlegung oder null, wenn der Ausdruck nicht separierbar ist
+     */
+    public SeparableForm getSeparableForm() {
+        return separableForm;
+    }
+
+    /**
+     * Liefert den Ausdruck als Polynom in x (Koeffizienten, Horner-Schema)
+     *
+     * @return Das Polynom oder null, wenn der Ausdruck kein Polynom in x ist
+     */
+    public Polynomial getPolynomial() {
+        return polynomial;
+    }
+
+    /**
+     * Liefert den normalisierten Quelltext des Ausdrucks
+     */
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * Liefert die Wurzel des Auswertungsbaums
+     */
+    public ExpressionNode getRoot() {
+        return root;
+    }
+
+    @Override
+    public String toString() {
+        return root.toString();
+    }
+}
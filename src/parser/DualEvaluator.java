@@ -0,0 +1,190 @@
+package parser;
+
+/**
+ * Auswertung mit dualen Zahlen: berechnet in einem Durchlauf den Funktionswert
+ * und beide partiellen Ableitungen
+ *
+ * Die Knoten werden in der Reihenfolge von {@link EvaluationOrder} berechnet;
+ * jeder Knoten trägt neben seinem Wert die Ableitungen nach x und y, die mit
+ * der Kettenregel aus den Ableitungen der Operanden entstehen. Die Werte
+ * werden mit {@link Operator#apply} berechnet, daher melden Definitions-
+ * bereichsfehler dieselben Exceptions wie die normale Auswertung.
+ */
+final class DualEvaluator {
+    private static final double LN_10 = Math.log(10);
+    private static final double LN_2 = Math.log(2);
+
+    private final EvaluationOrder order;
+
+    DualEvaluator(EvaluationOrder order) {
+        this.order = order;
+    }
+
+    /**
+     * Wertet Funktion und Gradient an der Stelle (x,y) aus
+     *
+     * @throws ArithmeticException bei Definitionsbereichsfehlern
+     */
+    DualNumber evaluate(double x, double y) {
+        Registers registers = new Registers(order.size());
+        evaluate(x, y, registers);
+        int last = order.size() - 1;
+        return new DualNumber(registers.values[last], registers.dx[last], registers.dy[last]);
+    }
+
+    private void evaluate(double x, double y, Registers registers) {
+        double[] values = registers.values;
+        double[] dx = registers.dx;
+        double[] dy = registers.dy;
+        int[] kinds = order.kinds;
+        Operator[] operators = order.operators;
+        int[] left = order.left;
+        int[] right = order.right;
+
+        for (int i = 0; i < kinds.length; i++) {
+            switch (kinds[i]) {
+                case EvaluationOrder.CONSTANT:
+                    values[i] = order.constants[i];
+                    dx[i] = 0;
+                    dy[i] = 0;
+                    break;
+                case EvaluationOrder.VARIABLE_X:
+                    values[i] = x;
+                    dx[i] = 1;
+                    dy[i] = 0;
+                    break;
+                case EvaluationOrder.VARIABLE_Y:
+                    values[i] = y;
+                    dx[i] = 0;
+                    dy[i] = 1;
+                    break;
+                case EvaluationOrder.UNARY: {
+                    int a = left[i];
+                    double value = operators[i].apply(values[a]);
+                    double factor = unaryFactor(operators[i], values[a], value);
+                    values[i] = value;
+                    dx[i] = chain(factor, dx[a]);
+                    dy[i] = chain(factor, dy[a]);
+                    break;
+                }
+                default: {
+                    int a = left[i];
+                    int b = right[i];
+                    Operator op = operators[i];
+                    double value = op.apply(values[a], values[b]);
+                    values[i] = value;
+                    dx[i] = binaryDerivative(op, values[a], values[b], value, dx[a], dx[b]);
+                    dy[i] = binaryDerivative(op, values[a], values[b], value, dy[a], dy[b]);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Produkt aus äußerer Ableitung und innerer Ableitung; eine innere
+     * Ableitung 0 bleibt 0, auch wenn die äußere unendlich ist
+     */
+    private static double chain(double factor, double inner) {
+        return inner == 0 ? 0 : factor * inner;
+    }
+
+    /**
+     * Ableitung f'(a) einer einstelligen Funktion
+     *
+     * @param a      Das Argument
+     * @param result Der bereits berechnete Funktionswert f(a)
+     */
+    private static double unaryFactor(Operator op, double a, double result) {
+        switch (op) {
+            case NEG:
+                return -1;
+            case SIN:
+                return Math.cos(a);
+            case COS:
+                return -Math.sin(a);
+            case TAN:
+                return 1 + result * result;
+            case ASIN:
+                return 1 / Math.sqrt(1 - a * a);
+            case ACOS:
+                return -1 / Math.sqrt(1 - a * a);
+            case ATAN:
+                return 1 / (1 + a * a);
+            case SINH:
+                return Math.cosh(a);
+            case COSH:
+                return Math.sinh(a);
+            case TANH:
+                return 1 - result * result;
+            case SQRT:
+            case POW_HALF:
+                return 0.5 / result;
+            case CBRT:
+                return 1 / (3 * result * result);
+            case EXP:
+                return result;
+            case LN:
+                return 1 / a;
+            case LOG10:
+                return 1 / (a * LN_10);
+            case LOG2:
+                return 1 / (a * LN_2);
+            case ABS:
+                return Math.signum(a);
+            case FLOOR:
+            case CEIL:
+            case ROUND:
+                return 0;
+            case DEGREES:
+                return Math.toDegrees(1);
+            case RADIANS:
+                return Math.toRadians(1);
+            default:
+                throw new IllegalStateException("Kein einstelliger Operator: " + op);
+        }
+    }
+
+    /**
+     * Ableitung eines zweistelligen Operators aus den Ableitungen der Operanden
+     */
+    private static double binaryDerivative(Operator op, double a, double b, double result, double da, double db) {
+        switch (op) {
+            case ADD:
+                return da + db;
+            case SUB:
+                return da - db;
+            case MUL:
+                return chain(b, da) + chain(a, db);
+            case DIV:
+                return (da - chain(result, db)) / b;
+            case POW:
+                // a^b: b * a^(b-1) * a' + a^b * ln(a) * b'
+                return (da == 0 ? 0 : b * Math.pow(a, b - 1) * da)
+                        + (db == 0 ? 0 : result * Math.log(a) * db);
+            case ATAN2:
+                return (chain(b, da) - chain(a, db)) / (a * a + b * b);
+            case MAX:
+                return a >= b ? da : db;
+            case MIN:
+                return a <= b ? da : db;
+            default:
+                throw new IllegalStateException("Kein zweistelliger Operator: " + op);
+        }
+    }
+
+    /**
+     * Arbeitsspeicher für eine Auswertung (Wert und Ableitungen je Knoten)
+     */
+    private static final class Registers {
+        final double[] values;
+        final double[] dx;
+        final double[] dy;
+
+        Registers(int size) {
+            values = new double[size];
+            dx = new double[size];
+            dy = new double[size];
+        }
+    }
+}
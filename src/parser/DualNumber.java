@@ -0,0 +1,44 @@
+package parser;
+
+/**
+ * Funktionswert zusammen mit dem Gradienten an einer Stelle (x,y)
+ * Ergebnis der Auswertung mit dualen Zahlen (Vorwärtsmodus der automatischen
+ * Differentiation)
+ */
+public final class DualNumber {
+    private final double value;
+    private final double dx;
+    private final double dy;
+
+    public DualNumber(double value, double dx, double dy) {
+        this.value = value;
+        this.dx = dx;
+        this.dy = dy;
+    }
+
+    /**
+     * Liefert den Funktionswert f(x,y)
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * Liefert die partielle Ableitung nach x
+     */
+    public double getDx() {
+        return dx;
+    }
+
+    /**
+     * Liefert die partielle Ableitung nach y
+     */
+    public double getDy() {
+        return dy;
+    }
+
+    @Override
+    public String toString() {
+        return value + " (d/dx = " + dx + ", d/dy = " + dy + ")";
+    }
+}
@@ -0,0 +1,101 @@
+package parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ausdrucksgraph als flache Liste von Knoten in Auswertungsreihenfolge
+ * Operanden stehen vor ihren Verwendern, gemeinsame Teilausdrücke nur einmal.
+ * Grundlage für Auswerter, die je Knoten mehr als einen Wert mitführen
+ * (duale Zahlen, Intervalle), und für {@link ExpressionGraph}, der mehrere
+ * Wurzeln in einem Durchlauf berechnet.
+ */
+final class EvaluationOrder {
+    static final int CONSTANT = 0;
+    static final int VARIABLE_X = 1;
+    static final int VARIABLE_Y = 2;
+    static final int UNARY = 3;
+    static final int BINARY = 4;
+
+    final int[] kinds;
+    final Operator[] operators;
+    final int[] left;
+    final int[] right;
+    final double[] constants;
+
+    // Index der Wurzel jedes Ausdrucks
+    final int[] roots;
+
+    EvaluationOrder(ExpressionNode root) {
+        this(Collections.singletonList(root));
+    }
+
+    /**
+     * Ordnet die Knoten mehrerer Ausdrücke in eine gemeinsame Liste ein
+     * Knoten, die in mehreren Ausdrücken dieselbe Instanz sind, erscheinen nur
+     * einmal
+     */
+    EvaluationOrder(List<ExpressionNode> rootNodes) {
+        List<ExpressionNode> order = new ArrayList<>();
+        Map<ExpressionNode, Integer> indices = new IdentityHashMap<>();
+        roots = new int[rootNodes.size()];
+        for (int r = 0; r < roots.length; r++) {
+            collect(rootNodes.get(r), order, indices);
+            roots[r] = indices.get(rootNodes.get(r));
+        }
+
+        int count = order.size();
+        kinds = new int[count];
+        operators = new Operator[count];
+        left = new int[count];
+        right = new int[count];
+        constants = new double[count];
+
+        for (int i = 0; i < count; i++) {
+            ExpressionNode node = order.get(i);
+            if (node instanceof ExpressionNode.Constant) {
+                kinds[i] = CONSTANT;
+                constants[i] = ((ExpressionNode.Constant) node).getValue();
+            } else if (node instanceof ExpressionNode.Variable) {
+                boolean isX = ((ExpressionNode.Variable) node).getIndex() == ExpressionNode.Variable.X;
+                kinds[i] = isX ? VARIABLE_X : VARIABLE_Y;
+            } else if (node instanceof ExpressionNode.Unary) {
+                ExpressionNode.Unary unary = (ExpressionNode.Unary) node;
+                kinds[i] = UNARY;
+                operators[i] = unary.getOperator();
+                left[i] = indices.get(unary.getOperand());
+            } else {
+                ExpressionNode.Binary binary = (ExpressionNode.Binary) node;
+                kinds[i] = BINARY;
+                operators[i] = binary.getOperator();
+                left[i] = indices.get(binary.getLeft());
+                right[i] = indices.get(binary.getRight());
+            }
+        }
+    }
+
+    private static void collect(ExpressionNode node, List<ExpressionNode> order, Map<ExpressionNode, Integer> indices) {
+        if (indices.containsKey(node)) {
+            return;
+        }
+        if (node instanceof ExpressionNode.Unary) {
+            collect(((ExpressionNode.Unary) node).getOperand(), order, indices);
+        } else if (node instanceof ExpressionNode.Binary) {
+            collect(((ExpressionNode.Binary) node).getLeft(), order, indices);
+            collect(((ExpressionNode.Binary) node).getRight(), order, indices);
+        }
+        indices.put(node, order.size());
+        order.add(node);
+    }
+
+    /**
+     * Liefert die Anzahl der Knoten; bei einem einzelnen Ausdruck ist der letzte
+     * die Wurzel
+     */
+    int size() {
+        return kinds.length;
+    }
+}
@@ -0,0 +1,183 @@
+package parser;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Globaler Cache für kompilierte Ausdrücke
+ *
+ * Derselbe Ausdruck wird an vielen Stellen immer wieder geparst (Hinzufügen
+ * einer Funktion, erneutes Zeichnen, Taschenrechner, Schnittpunktberechnung).
+ * Da ein {@link CompiledExpression} unveränderlich ist, kann er von allen
+ * Parsern mit demselben normalisierten Ausdruck gemeinsam verwendet werden.
+ * Auch Parserfehler werden gespeichert, damit ungültige Eingaben nicht bei
+ * jedem Versuch erneut geparst werden.
+ *
+ * Ausdrücke, die benutzerdefinierte Variablen oder Funktionen verwenden
+ * ({@link UserDefinitions}), gelten als veraltet, sobald sich eine davon
+ * ändert, und werden beim nächsten Zugriff neu geparst.
+ *
+ * Der Cache ist beschränkt und verdrängt den am längsten nicht verwendeten
+ * Eintrag (LRU). Alle Zugriffe sind synchronisiert; das Parsen selbst
+ * geschieht außerhalb der Sperre.
+ */
+public final class ExpressionCache {
+    private static final int MAX_CACHE_SIZE = 256;
+
+    // Zähler, geschützt durch die Sperre auf cache
+    private static long hits;
+    private static long misses;
+    private static long evictions;
+
+    private static final Map<String, Entry> cache = new LinkedHashMap<String, Entry>(
+            MAX_CACHE_SIZE + 1, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > MAX_CACHE_SIZE) {
+                evictions++;
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private ExpressionCache() {
+    }
+
+    /**
+     * Sucht das Ergebnis des Parsens für einen Schlüssel
+     *
+     * @return Der gespeicherte Eintrag oder null, wenn der Ausdruck noch nicht
+     *         (oder nicht mehr) im Cache liegt
+     */
+    static Entry lookup(String key) {
+        Entry entry;
+        synchronized (cache) {
+            entry = cache.get(key);
+        }
+        // Außerhalb der Sperre prüfen, da UserDefinitions eine eigene verwendet
+        boolean stale = entry != null && entry.isStale();
+        synchronized (cache) {
+            if (entry != null && !stale) {
+                hits++;
+                return entry;
+            }
+            misses++;
+            return null;
+        }
+    }
+
+    /**
+     * Speichert das Ergebnis des Parsens
+     * Hat ein anderer Thread denselben Ausdruck inzwischen gespeichert, wird
+     * dessen Eintrag geliefert, damit alle Parser dasselbe Objekt verwenden;
+     * ein wegen geänderter Definitionen veralteter Eintrag wird ersetzt
+     */
+    static Entry store(String key, Entry entry) {
+        Entry existing;
+        synchronized (cache) {
+            existing = cache.get(key);
+        }
+        boolean replace = existing == null || existing.isStale();
+        synchronized (cache) {
+            Entry current = cache.get(key);
+            if (current != null && (current != existing || !replace)) {
+                return current;
+            }
+            cache.put(key, entry);
+            return entry;
+        }
+    }
+
+    /**
+     * Liefert die Anzahl der Zugriffe, die aus dem Cache bedient wurden
+     */
+    public static long getHits() {
+        synchronized (cache) {
+            return hits;
+        }
+    }
+
+    /**
+     * Liefert die Anzahl der Zugriffe, bei denen geparst werden musste
+     */
+    public static long getMisses() {
+        synchronized (cache) {
+            return misses;
+        }
+    }
+
+    /**
+     * Liefert die Anzahl der verdrängten Einträge
+     */
+    public static long getEvictions() {
+        synchronized (cache) {
+            return evictions;
+        }
+    }
+
+    /**
+     * Liefert den Anteil der Treffer an allen Zugriffen (0 ohne Zugriffe)
+     */
+    public static double getHitRate() {
+        synchronized (cache) {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+
+    /**
+     * Liefert die Anzahl der gespeicherten Ausdrücke
+     */
+    public static int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Leert den Cache und setzt die Zähler zurück
+     */
+    public static void clear() {
+        synchronized (cache) {
+            cache.clear();
+            hits = 0;
+            misses = 0;
+            evictions = 0;
+        }
+    }
+
+    /**
+     * Liefert die Zähler als lesbaren Text, z.B. für die Debug-Ausgabe
+     */
+    public static String getStatistics() {
+        synchronized (cache) {
+            return String.format("Ausdrucks-Cache: %d Einträge, %d Treffer, %d Fehlschläge, %d verdrängt (Trefferquote %.1f%%)",
+                    cache.size(), hits, misses, evictions, getHitRate() * 100);
+        }
+    }
+
+    /**
+     * Ergebnis des Parsens eines Ausdrucks: Auswertungsbaum oder Fehler
+     */
+    static final class Entry {
+        final CompiledExpression compiled;
+        final RuntimeException error;
+        // Verwendete benutzerdefinierte Namen mit ihren Revisionen beim Parsen
+        final Map<String, Long> definitionRevisions;
+
+        Entry(CompiledExpression compiled, RuntimeException error, Map<String, Long> definitionRevisions) {
+            this.compiled = compiled;
+            this.error = error;
+            this.definitionRevisions = definitionRevisions;
+        }
+
+        /**
+         * Gibt an, ob sich eine der verwendeten Definitionen seit dem Parsen
+         * geändert hat
+         */
+        boolean isStale() {
+            return !UserDefinitions.isCurrent(definitionRevisions);
+        }
+    }
+}
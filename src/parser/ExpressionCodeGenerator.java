@@ -0,0 +1,389 @@
+package parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Übersetzt einen Auswertungsbaum zur Laufzeit in eine versteckte Klasse
+ * (Lookup.defineHiddenClass) mit einer geradlinigen Methode
+ * {@code double eval(double x, double y)}, die HotSpot direkt in Maschinencode
+ * übersetzen und inlinen kann
+ *
+ * Der Bytecode wird ohne externe Bibliotheken erzeugt. Da die Methode keine
+ * Verzweigungen enthält, wird keine StackMapTable benötigt; Definitionsbereichs-
+ * prüfungen laufen über die statischen Hilfsmethoden in {@link Operator}.
+ * Mehrfach verwendete Teilausdrücke werden einmal berechnet und in lokalen
+ * Variablen zwischengespeichert.
+ */
+final class ExpressionCodeGenerator {
+    // Über -Dparser.codegen=false lässt sich die Codegenerierung abschalten
+    private static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("parser.codegen"));
+
+    // Erster freier Slot nach this (0), x (1-2) und y (3-4)
+    private static final int FIRST_SHARED_LOCAL = 5;
+
+    // Maximale Länge einer Methode laut JVM-Spezifikation
+    private static final int MAX_CODE_LENGTH = 65535;
+
+    private static final String CLASS_NAME = "parser/GeneratedExpression";
+    private static final String OPERATOR_CLASS = "parser/Operator";
+    private static final String MATH_CLASS = "java/lang/Math";
+    private static final String UNARY_DESCRIPTOR = "(D)D";
+    private static final String BINARY_DESCRIPTOR = "(DD)D";
+
+    // Opcodes
+    private static final int ALOAD_0 = 0x2a;
+    private static final int DLOAD_1 = 0x27;
+    private static final int DLOAD_3 = 0x29;
+    private static final int DLOAD = 0x18;
+    private static final int DSTORE = 0x39;
+    private static final int DUP2 = 0x5c;
+    private static final int WIDE = 0xc4;
+    private static final int DCONST_0 = 0x0e;
+    private static final int DCONST_1 = 0x0f;
+    private static final int LDC2_W = 0x14;
+    private static final int DADD = 0x63;
+    private static final int DSUB = 0x67;
+    private static final int DMUL = 0x6b;
+    private static final int DNEG = 0x77;
+    private static final int L2D = 0x8a;
+    private static final int DRETURN = 0xaf;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+
+    private ExpressionCodeGenerator() {
+    }
+
+    /**
+     * Versucht, einen Auswertungsbaum in eine generierte Klasse zu übersetzen
+     *
+     * @param root Die Wurzel des Auswertungsbaums
+     * @return Der generierte Evaluator oder null, wenn der Ausdruck nicht
+     *         übersetzt werden kann (Aufrufer fällt dann auf den Interpreter zurück)
+     */
+    static ExpressionEvaluator generate(ExpressionNode root) {
+        if (!ENABLED) {
+            return null;
+        }
+        try {
+            byte[] classBytes = new ClassWriter(root).toByteArray();
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classBytes, true);
+            return (ExpressionEvaluator) lookup.lookupClass().getDeclaredConstructor().newInstance();
+        } catch (UnsupportedOperationException | ReflectiveOperationException | LinkageError
+                | SecurityException | IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Schreibt die Klassendatei für genau einen Ausdruck
+     */
+    private static final class ClassWriter {
+        private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+        private final DataOutputStream pool = new DataOutputStream(poolBytes);
+        private final Map<String, Integer> poolIndex = new HashMap<>();
+        private int poolCount = 1;
+
+        private final ByteArrayOutputStream codeBytes = new ByteArrayOutputStream();
+        private final DataOutputStream code = new DataOutputStream(codeBytes);
+
+        private final ExpressionNode root;
+
+        // Mehrfach verwendete Teilausdrücke werden in lokalen Variablen abgelegt
+        private final Map<ExpressionNode, Integer> sharedSlots;
+        private final Map<ExpressionNode, Integer> storedLocals = new IdentityHashMap<>();
+
+        ClassWriter(ExpressionNode root) {
+            this.root = root;
+            this.sharedSlots = ExpressionOptimizer.findSharedNodes(root);
+        }
+
+        byte[] toByteArray() throws IOException {
+            int thisClass = classRef(CLASS_NAME);
+            int superClass = classRef("java/lang/Object");
+            int evaluatorInterface = classRef("parser/ExpressionEvaluator");
+            int objectInit = methodRef("java/lang/Object", "<init>", "()V");
+            int initName = utf8("<init>");
+            int initDescriptor = utf8("()V");
+            int evalName = utf8("eval");
+            int evalDescriptor = utf8("(DD)D");
+            int codeName = utf8("Code");
+
+            // Rumpf von eval erzeugen (legt dabei die nötigen Konstanten an)
+            int maxStack = emit(root);
+            code.writeByte(DRETURN);
+            code.flush();
+            if (codeBytes.size() > MAX_CODE_LENGTH) {
+                throw new UnsupportedOperationException("Ausdruck zu groß für eine Methode");
+            }
+            pool.flush();
+            if (poolCount > 0xFFFF) {
+                throw new UnsupportedOperationException("Zu viele Konstanten für eine Klasse");
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            DataOutputStream dos = new DataOutputStream(out);
+            dos.writeInt(0xCAFEBABE);
+            dos.writeShort(0); // minor_version
+            dos.writeShort(55); // major_version (Java 11)
+            dos.writeShort(poolCount);
+            poolBytes.writeTo(dos);
+            dos.writeShort(0x0001 | 0x0010 | 0x0020); // ACC_PUBLIC | ACC_FINAL | ACC_SUPER
+            dos.writeShort(thisClass);
+            dos.writeShort(superClass);
+            dos.writeShort(1);
+            dos.writeShort(evaluatorInterface);
+            dos.writeShort(0); // fields_count
+            dos.writeShort(2); // methods_count
+
+            // public <init>()
+            dos.writeShort(0x0001);
+            dos.writeShort(initName);
+            dos.writeShort(initDescriptor);
+            dos.writeShort(1);
+            dos.writeShort(codeName);
+            dos.writeInt(12 + 5);
+            dos.writeShort(1); // max_stack
+            dos.writeShort(1); // max_locals
+            dos.writeInt(5);
+            dos.writeByte(ALOAD_0);
+            dos.writeByte(INVOKESPECIAL);
+            dos.writeShort(objectInit);
+            dos.writeByte(RETURN);
+            dos.writeShort(0); // exception_table_length
+            dos.writeShort(0); // attributes_count
+
+            // public double eval(double x, double y)
+            dos.writeShort(0x0001 | 0x0010);
+            dos.writeShort(evalName);
+            dos.writeShort(evalDescriptor);
+            dos.writeShort(1);
+            dos.writeShort(codeName);
+            dos.writeInt(12 + codeBytes.size());
+            dos.writeShort(maxStack);
+            dos.writeShort(FIRST_SHARED_LOCAL + 2 * sharedSlots.size()); // this, x, y, gemeinsame Teilausdrücke
+            dos.writeInt(codeBytes.size());
+            codeBytes.writeTo(dos);
+            dos.writeShort(0);
+            dos.writeShort(0);
+
+            dos.writeShort(0); // attributes_count
+            dos.flush();
+            return out.toByteArray();
+        }
+
+        /**
+         * Erzeugt den Bytecode für einen Teilbaum (Postorder)
+         *
+         * @return Die maximale Stacktiefe in Slots, die der Teilbaum benötigt
+         */
+        private int emit(ExpressionNode node) throws IOException {
+            Integer slot = sharedSlots.get(node);
+            if (slot == null) {
+                return emitNode(node);
+            }
+
+            // Gemeinsamer Teilausdruck: nur beim ersten Vorkommen berechnen
+            Integer local = storedLocals.get(node);
+            if (local != null) {
+                localInstruction(DLOAD, local);
+                return 2;
+            }
+            int depth = emitNode(node);
+            local = FIRST_SHARED_LOCAL + 2 * slot;
+            code.writeByte(DUP2);
+            localInstruction(DSTORE, local);
+            storedLocals.put(node, local);
+            return Math.max(depth, 4);
+        }
+
+        private int emitNode(ExpressionNode node) throws IOException {
+            if (node instanceof ExpressionNode.Constant) {
+                double value = ((ExpressionNode.Constant) node).getValue();
+                if (Double.doubleToRawLongBits(value) == 0L) {
+                    code.writeByte(DCONST_0);
+                } else if (value == 1.0) {
+                    code.writeByte(DCONST_1);
+                } else {
+                    code.writeByte(LDC2_W);
+                    code.writeShort(doubleConstant(value));
+                }
+                return 2;
+            }
+            if (node instanceof ExpressionNode.Variable) {
+                int index = ((ExpressionNode.Variable) node).getIndex();
+                code.writeByte(index == ExpressionNode.Variable.X ? DLOAD_1 : DLOAD_3);
+                return 2;
+            }
+            if (node instanceof ExpressionNode.Unary) {
+                ExpressionNode.Unary unary = (ExpressionNode.Unary) node;
+                int depth = emit(unary.getOperand());
+                emitUnary(unary.getOperator());
+                return depth;
+            }
+            if (node instanceof ExpressionNode.Binary) {
+                ExpressionNode.Binary binary = (ExpressionNode.Binary) node;
+                int leftDepth = emit(binary.getLeft());
+                int rightDepth = emit(binary.getRight());
+                emitBinary(binary.getOperator());
+                return Math.max(leftDepth, 2 + rightDepth);
+            }
+            throw new UnsupportedOperationException("Unbekannter Knotentyp: " + node.getClass().getName());
+        }
+
+        private void emitUnary(Operator op) throws IOException {
+            switch (op) {
+                case NEG:
+                    code.writeByte(DNEG);
+                    break;
+                case ASIN:
+                case ACOS:
+                case SQRT:
+                case LOG10:
+                case LOG2:
+                case LN:
+                    // Geprüfte Varianten mit Definitionsbereichsfehler
+                    invokeStatic(OPERATOR_CLASS, op.name().toLowerCase(Locale.ROOT), UNARY_DESCRIPTOR);
+                    break;
+                case POW_HALF:
+                    invokeStatic(OPERATOR_CLASS, "powHalf", UNARY_DESCRIPTOR);
+                    break;
+                case SIN:
+                case COS:
+                case TAN:
+                case ATAN:
+                case SINH:
+                case COSH:
+                case TANH:
+                case CBRT:
+                case EXP:
+                case ABS:
+                case FLOOR:
+                case CEIL:
+                    invokeStatic(MATH_CLASS, op.name().toLowerCase(Locale.ROOT), UNARY_DESCRIPTOR);
+                    break;
+                case ROUND:
+                    invokeStatic(MATH_CLASS, "round", "(D)J");
+                    code.writeByte(L2D);
+                    break;
+                case DEGREES:
+                    invokeStatic(MATH_CLASS, "toDegrees", UNARY_DESCRIPTOR);
+                    break;
+                case RADIANS:
+                    invokeStatic(MATH_CLASS, "toRadians", UNARY_DESCRIPTOR);
+                    break;
+                default:
+                    throw new UnsupportedOperationException("Nicht unterstützter Operator: " + op);
+            }
+        }
+
+        private void emitBinary(Operator op) throws IOException {
+            switch (op) {
+                case ADD:
+                    code.writeByte(DADD);
+                    break;
+                case SUB:
+                    code.writeByte(DSUB);
+                    break;
+                case MUL:
+                    code.writeByte(DMUL);
+                    break;
+                case DIV:
+                    invokeStatic(OPERATOR_CLASS, "div", BINARY_DESCRIPTOR);
+                    break;
+                case POW:
+                    invokeStatic(MATH_CLASS, "pow", BINARY_DESCRIPTOR);
+                    break;
+                case MAX:
+                case MIN:
+                case ATAN2:
+                    invokeStatic(MATH_CLASS, op.name().toLowerCase(Locale.ROOT), BINARY_DESCRIPTOR);
+                    break;
+                default:
+                    throw new UnsupportedOperationException("Nicht unterstützter Operator: " + op);
+            }
+        }
+
+        private void localInstruction(int opcode, int local) throws IOException {
+            if (local > 0xFF) {
+                code.writeByte(WIDE);
+                code.writeByte(opcode);
+                code.writeShort(local);
+            } else {
+                code.writeByte(opcode);
+                code.writeByte(local);
+            }
+        }
+
+        private void invokeStatic(String owner, String name, String descriptor) throws IOException {
+            code.writeByte(INVOKESTATIC);
+            code.writeShort(methodRef(owner, name, descriptor));
+        }
+
+        // Konstantenpool
+
+        private int utf8(String value) throws IOException {
+            Integer index = poolIndex.get("U" + value);
+            if (index == null) {
+                pool.writeByte(1);
+                pool.writeUTF(value);
+                index = poolCount++;
+                poolIndex.put("U" + value, index);
+            }
+            return index;
+        }
+
+        private int classRef(String name) throws IOException {
+            Integer index = poolIndex.get("C" + name);
+            if (index == null) {
+                int nameIndex = utf8(name);
+                pool.writeByte(7);
+                pool.writeShort(nameIndex);
+                index = poolCount++;
+                poolIndex.put("C" + name, index);
+            }
+            return index;
+        }
+
+        private int methodRef(String owner, String name, String descriptor) throws IOException {
+            String key = "M" + owner + "." + name + descriptor;
+            Integer index = poolIndex.get(key);
+            if (index == null) {
+                int ownerIndex = classRef(owner);
+                int nameIndex = utf8(name);
+                int descriptorIndex = utf8(descriptor);
+                pool.writeByte(12);
+                pool.writeShort(nameIndex);
+                pool.writeShort(descriptorIndex);
+                int nameAndType = poolCount++;
+                pool.writeByte(10);
+                pool.writeShort(ownerIndex);
+                pool.writeShort(nameAndType);
+                index = poolCount++;
+                poolIndex.put(key, index);
+            }
+            return index;
+        }
+
+        private int doubleConstant(double value) throws IOException {
+            long bits = Double.doubleToRawLongBits(value);
+            String key = "D" + bits;
+            Integer index = poolIndex.get(key);
+            if (index == null) {
+                pool.writeByte(6);
+                pool.writeLong(bits);
+                index = poolCount;
+                poolCount += 2; // double belegt zwei Einträge
+                poolIndex.put(key, index);
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package parser;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Symbolische Ableitung eines Auswertungsbaums nach x oder y
+ *
+ * Die Ableitung wird mit den üblichen Regeln (Summen-, Produkt-, Quotienten-
+ * und Kettenregel) aufgebaut und dabei direkt vereinfacht: Terme mit 0 fallen
+ * weg, Faktoren 1 werden weggelassen. Anschließend faltet
+ * {@link ExpressionOptimizer} Konstanten und fasst gleiche Teilausdrücke
+ * zusammen, so dass z.B. cos(x) in der Ableitung von sin(x)^2 nur einmal
+ * berechnet wird.
+ *
+ * Stückweise konstante Funktionen (floor, ceil, round) haben die Ableitung 0.
+ * Für abs, max und min ist die Ableitung an den Knickstellen nicht definiert
+ * und wird dort als Division durch Null gemeldet.
+ */
+public final class ExpressionDifferentiator {
+    private static final ExpressionNode ZERO = new ExpressionNode.Constant(0);
+    private static final ExpressionNode ONE = new ExpressionNode.Constant(1);
+    private static final ExpressionNode TWO = new ExpressionNode.Constant(2);
+
+    private final int variable;
+
+    // Bereits abgeleitete Knoten (gemeinsame Teilausdrücke nur einmal ableiten)
+    private final Map<ExpressionNode, ExpressionNode> derivatives = new IdentityHashMap<>();
+
+    private ExpressionDifferentiator(int variable) {
+        this.variable = variable;
+    }
+
+    /**
+     * Leitet einen Ausdruck ab
+     *
+     * @param root     Die Wurzel des Ausdrucks
+     * @param variable {@link ExpressionNode.Variable#X} oder
+     *                 {@link ExpressionNode.Variable#Y}
+     * @return Die vereinfachte Ableitung
+     */
+    public static ExpressionNode differentiate(ExpressionNode root, int variable) {
+        if (variable != ExpressionNode.Variable.X && variable != ExpressionNode.Variable.Y) {
+            throw new IllegalArgumentException("Unbekannte Variable: " + variable);
+        }
+        return ExpressionOptimizer.optimize(new ExpressionDifferentiator(variable).derive(root));
+    }
+
+    private ExpressionNode derive(ExpressionNode node) {
+        ExpressionNode known = derivatives.get(node);
+        if (known != null) {
+            return known;
+        }
+
+        ExpressionNode result;
+        if (node instanceof ExpressionNode.Constant) {
+            result = ZERO;
+        } else if (node instanceof ExpressionNode.Variable) {
+            result = ((ExpressionNode.Variable) node).getIndex() == variable ? ONE : ZERO;
+        } else if (node instanceof ExpressionNode.Unary) {
+            ExpressionNode.Unary unary = (ExpressionNode.Unary) node;
+            ExpressionNode inner = derive(unary.getOperand());
+            // Kettenregel: f(g)' = f'(g) * g'
+            result = isZero(inner) ? ZERO : deriveUnary(unary, inner);
+        } else {
+            result = deriveBinary((ExpressionNode.Binary) node);
+        }
+
+        derivatives.put(node, result);
+        return result;
+    }
+
+    /**
+     * Ableitung einer Funktion mit einem Argument a, wobei inner = a' ≠ 0
+     */
+    private ExpressionNode deriveUnary(ExpressionNode.Unary node, ExpressionNode inner) {
+        ExpressionNode a = node.getOperand();
+
+        switch (node.getOperator()) {
+            case NEG:
+                return neg(inner);
+            case SIN:
+                return mul(unary(Operator.COS, a), inner);
+            case COS:
+                return neg(mul(unary(Operator.SIN, a), inner));
+            case TAN:
+                // 1 + tan²(a), verwendet den bereits berechneten Wert tan(a)
+                return mul(add(ONE, mul(node, node)), inner);
+            case ASIN:
+                return div(inner, unary(Operator.SQRT, sub(ONE, mul(a, a))));
+            case ACOS:
+                return neg(div(inner, unary(Operator.SQRT, sub(ONE, mul(a, a)))));
+            case ATAN:
+                return div(inner, add(ONE, mul(a, a)));
+            case SINH:
+                return mul(unary(Operator.COSH, a), inner);
+            case COSH:
+                return mul(unary(Operator.SINH, a), inner);
+            case TANH:
+                return mul(sub(ONE, mul(node, node)), inner);
+            case SQRT:
+            case POW_HALF:
+                return div(inner, mul(TWO, node));
+            case CBRT:
+                return div(inner, mul(new ExpressionNode.Constant(3), mul(node, node)));
+            case EXP:
+                return mul(node, inner);
+            case LN:
+                return div(inner, a);
+            case LOG10:
+                return div(inner, mul(a, new ExpressionNode.Constant(Math.log(10))));
+            case LOG2:
+                return div(inner, mul(a, new ExpressionNode.Constant(Math.log(2))));
+            case ABS:
+                // Vorzeichen von a; bei a = 0 nicht definiert
+                return mul(div(node, a), inner);
+            case FLOOR:
+            case CEIL:
+            case ROUND:
+                return ZERO;
+            case DEGREES:
+            case RADIANS:
+                return unary(node.getOperator(), inner);
+            default:
+                throw new IllegalStateException("Keine Ableitungsregel für " + node.getOperator());
+        }
+    }
+
+    private ExpressionNode deriveBinary(ExpressionNode.Binary node) {
+        ExpressionNode a = node.getLeft();
+        ExpressionNode b = node.getRight();
+        ExpressionNode da = derive(a);
+        ExpressionNode db = derive(b);
+
+        switch (node.getOperator()) {
+            case ADD:
+                return add(da, db);
+            case SUB:
+                return sub(da, db);
+            case MUL:
+                if (a == b) {
+                    // (a*a)' = 2 * a * a' (entsteht z.B. aus a^2)
+                    return mul(TWO, mul(a, da));
+                }
+                return add(mul(da, b), mul(a, db));
+            case DIV:
+                // (a' - (a/b) * b') / b teilt nur durch b, so dass die Ableitung
+                // genau dort definiert ist, wo auch der Quotient definiert ist
+                return div(sub(da, mul(node, db)), b);
+            case POW:
+                return derivePower(node, da, db);
+            case ATAN2: {
+                // atan2(a, b)' = (b * a' - a * b') / (a² + b²)
+                ExpressionNode numerator = sub(mul(b, da), mul(a, db));
+                return div(numerator, add(mul(a, a), mul(b, b)));
+            }
+            case MAX:
+            case MIN: {
+                // max(a,b) = (a + b + |a - b|) / 2, min(a,b) = (a + b - |a - b|) / 2
+                ExpressionNode difference = sub(a, b);
+                ExpressionNode sign = div(unary(Operator.ABS, difference), difference);
+                ExpressionNode kink = mul(sign, sub(da, db));
+                ExpressionNode sum = node.getOperator() == Operator.MAX ? add(add(da, db), kink)
+                        : sub(add(da, db), kink);
+                return div(sum, TWO);
+            }
+            default:
+                throw new IllegalStateException("Keine Ableitungsregel für " + node.getOperator());
+        }
+    }
+
+    /**
+     * Ableitung von a^b
+     */
+    private ExpressionNode derivePower(ExpressionNode.Binary node, ExpressionNode da, ExpressionNode db) {
+        ExpressionNode a = node.getLeft();
+        ExpressionNode b = node.getRight();
+
+        if (isZero(db)) {
+            // Exponent unabhängig von der Variablen: b * a^(b-1) * a'
+            if (isZero(da)) {
+                return ZERO;
+            }
+            return mul(mul(b, binary(Operator.POW, a, sub(b, ONE))), da);
+        }
+        if (isZero(da)) {
+            // Basis unabhängig von der Variablen: a^b * ln(a) * b'
+            return mul(mul(node, unary(Operator.LN, a)), db);
+        }
+        // Allgemein: a^b * (b' * ln(a) + b * a' / a)
+        return mul(node, add(mul(db, unary(Operator.LN, a)), div(mul(b, da), a)));
+    }
+
+    // Aufbau mit einfachen algebraischen Vereinfachungen
+
+    private static boolean isZero(ExpressionNode node) {
+        return node instanceof ExpressionNode.Constant && ((ExpressionNode.Constant) node).getValue() == 0;
+    }
+
+    private static boolean isOne(ExpressionNode node) {
+        return node instanceof ExpressionNode.Constant && ((ExpressionNode.Constant) node).getValue() == 1;
+    }
+
+    private static ExpressionNode add(ExpressionNode a, ExpressionNode b) {
+        if (isZero(a)) {
+            return b;
+        }
+        if (isZero(b)) {
+            return a;
+        }
+        return binary(Operator.ADD, a, b);
+    }
+
+    private static ExpressionNode sub(ExpressionNode a, ExpressionNode b) {
+        if (isZero(b)) {
+            return a;
+        }
+        if (isZero(a)) {
+            return neg(b);
+        }
+        return binary(Operator.SUB, a, b);
+    }
+
+    private static ExpressionNode mul(ExpressionNode a, ExpressionNode b) {
+        if (isZero(a) || isZero(b)) {
+            return ZERO;
+        }
+        if (isOne(a)) {
+            return b;
+        }
+        if (isOne(b)) {
+            return a;
+        }
+        return binary(Operator.MUL, a, b);
+    }
+
+    private static ExpressionNode div(ExpressionNode a, ExpressionNode b) {
+        if (isZero(a)) {
+            return ZERO;
+        }
+        if (isOne(b)) {
+            return a;
+        }
+        return binary(Operator.DIV, a, b);
+    }
+
+    private static ExpressionNode neg(ExpressionNode a) {
+        if (isZero(a)) {
+            return ZERO;
+        }
+        if (a instanceof ExpressionNode.Unary && ((ExpressionNode.Unary) a).getOperator() == Operator.NEG) {
+            return ((ExpressionNode.Unary) a).getOperand();
+        }
+        return unary(Operator.NEG, a);
+    }
+
+    private static ExpressionNode unary(Operator op, ExpressionNode a) {
+        return new ExpressionNode.Unary(op, a);
+    }
+
+    private static ExpressionNode binary(Operator op, ExpressionNode a, ExpressionNode b) {
+        return new ExpressionNode.Binary(op, a, b);
+    }
+}
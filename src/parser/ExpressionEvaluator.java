@@ -0,0 +1,14 @@
+package parser;
+
+/**
+ * Schnittstelle für ausführbare Ausdrücke
+ * Wird sowohl von der Registermaschine als auch von zur Laufzeit generierten
+ * Klassen implementiert
+ */
+public interface ExpressionEvaluator {
+
+    /**
+     * Wertet den Ausdruck an der Stelle (x,y) aus
+     */
+    double eval(double x, double y);
+}
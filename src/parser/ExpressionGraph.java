@@ -0,0 +1,409 @@
+package parser;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gemeinsamer Ausdrucksgraph mehrerer Funktionen (Hash-Consing)
+ *
+ * Die Knoten aller beteiligten Ausdrücke werden über ihre Struktur
+ * zusammengeführt: strukturell gleiche Teilausdrücke sind ein einziger Knoten,
+ * auch über Funktionsgrenzen hinweg. Eine kombinierte Funktion wie
+ * (f1) + (f2) aus dem Interferenz-Dialog verwendet daher dieselben Knoten wie
+ * f1 und f2 selbst. Bei der Auswertung wird jeder Knoten pro Abtastpunkt genau
+ * einmal berechnet und von allen Ausdrücken verwendet, die von ihm abhängen.
+ *
+ * Die Auswertung läuft wie bei {@link BatchEvaluator} über ganze Arrays;
+ * Punkte außerhalb des Definitionsbereichs werden zu NaN. Bei der
+ * Gitterauswertung werden Knoten, die nur von x bzw. nur von y abhängen, auf
+ * der jeweiligen Achse berechnet. Separierbare Ausdrücke ({@link SeparableForm})
+ * werden auf dem Gitter nicht über den Graphen, sondern nur auf den Achsen
+ * berechnet; Knoten, die nur sie benötigen, entfallen dort. Zwischenergebnisse
+ * werden nach ihrer letzten Verwendung für spätere Knoten wiederverwendet.
+ *
+ * Die Instanz ist unveränderlich; alle Puffer werden pro Aufruf angelegt,
+ * daher ist die Auswertung threadsicher.
+ */
+public final class ExpressionGraph {
+    private static final int X_MASK = 1;
+    private static final int Y_MASK = 2;
+    private static final int XY_MASK = X_MASK | Y_MASK;
+
+    // Wird nie freigegeben (Wurzeln)
+    private static final int ALWAYS_LIVE = Integer.MAX_VALUE;
+
+    private final EvaluationOrder order;
+
+    // Variablen, von denen ein Knoten abhängt (Bitmaske)
+    private final int[] masks;
+
+    // Index des letzten Knotens, der diesen Knoten als Operanden liest
+    private final int[] lastUse;
+
+    // Ausdrücke, die auf dem Gitter separiert berechnet werden (sonst null)
+    private final CompiledExpression[] separable;
+
+    // Knoten, die bei der Gitterauswertung berechnet werden, und ihre letzte
+    // Verwendung dort
+    private final boolean[] gridNeeded;
+    private final int[] gridLastUse;
+
+    /**
+     * Führt die Ausdrücke zu einem gemeinsamen Graphen zusammen
+     *
+     * @param expressions Die kompilierten Ausdrücke; die Reihenfolge bestimmt
+     *                    die Reihenfolge der Ergebnisse
+     */
+    public ExpressionGraph(List<CompiledExpression> expressions) {
+        Map<ExpressionNode, ExpressionNode> canonical = new HashMap<>();
+        Map<ExpressionNode, ExpressionNode> interned = new IdentityHashMap<>();
+        List<ExpressionNode> roots = new ArrayList<>(expressions.size());
+        for (CompiledExpression expression : expressions) {
+            roots.add(intern(expression.getRoot(), canonical, interned));
+        }
+        order = new EvaluationOrder(roots);
+
+        int count = order.size();
+        masks = new int[count];
+        lastUse = new int[count];
+        for (int i = 0; i < count; i++) {
+            switch (order.kinds[i]) {
+                case EvaluationOrder.CONSTANT:
+                    masks[i] = 0;
+                    break;
+                case EvaluationOrder.VARIABLE_X:
+                    masks[i] = X_MASK;
+                    break;
+                case EvaluationOrder.VARIABLE_Y:
+                    masks[i] = Y_MASK;
+                    break;
+                case EvaluationOrder.UNARY:
+                    masks[i] = masks[order.left[i]];
+                    lastUse[order.left[i]] = i;
+                    break;
+                default:
+                    masks[i] = masks[order.left[i]] | masks[order.right[i]];
+                    lastUse[order.left[i]] = i;
+                    lastUse[order.right[i]] = i;
+                    break;
+            }
+        }
+        for (int root : order.roots) {
+            lastUse[root] = ALWAYS_LIVE;
+        }
+
+        // Auf dem Gitter werden nur die Knoten der nicht separierbaren
+        // Ausdrücke benötigt
+        separable = new CompiledExpression[expressions.size()];
+        gridNeeded = new boolean[count];
+        gridLastUse = new int[count];
+        for (int r = 0; r < separable.length; r++) {
+            CompiledExpression expression = expressions.get(r);
+            if (expression.getSeparableForm() != null) {
+                separable[r] = expression;
+            } else {
+                gridNeeded[order.roots[r]] = true;
+            }
+        }
+        for (int i = count - 1; i >= 0; i--) {
+            if (gridNeeded[i] && (order.kinds[i] == EvaluationOrder.UNARY || order.kinds[i] == EvaluationOrder.BINARY)) {
+                gridNeeded[order.left[i]] = true;
+                if (order.kinds[i] == EvaluationOrder.BINARY) {
+                    gridNeeded[order.right[i]] = true;
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            if (gridNeeded[i] && (order.kinds[i] == EvaluationOrder.UNARY || order.kinds[i] == EvaluationOrder.BINARY)) {
+                gridLastUse[order.left[i]] = i;
+                if (order.kinds[i] == EvaluationOrder.BINARY) {
+                    gridLastUse[order.right[i]] = i;
+                }
+            }
+        }
+        for (int r = 0; r < separable.length; r++) {
+            if (separable[r] == null) {
+                gridLastUse[order.roots[r]] = ALWAYS_LIVE;
+            }
+        }
+    }
+
+    /**
+     * Liefert die kanonische Instanz eines Teilbaums
+     * Die Kinder werden zuerst zusammengeführt, daher vergleicht die
+     * Strukturgleichheit der Eltern nur noch Referenzen
+     */
+    private static ExpressionNode intern(ExpressionNode node, Map<ExpressionNode, ExpressionNode> canonical,
+            Map<ExpressionNode, ExpressionNode> interned) {
+        ExpressionNode known = interned.get(node);
+        if (known != null) {
+            return known;
+        }
+
+        ExpressionNode candidate = node;
+        if (node instanceof ExpressionNode.Unary) {
+            ExpressionNode.Unary unary = (ExpressionNode.Unary) node;
+            ExpressionNode operand = intern(unary.getOperand(), canonical, interned);
+            if (operand != unary.getOperand()) {
+                candidate = new ExpressionNode.Unary(unary.getOperator(), operand);
+            }
+        } else if (node instanceof ExpressionNode.Binary) {
+            ExpressionNode.Binary binary = (ExpressionNode.Binary) node;
+            ExpressionNode left = intern(binary.getLeft(), canonical, interned);
+            ExpressionNode right = intern(binary.getRight(), canonical, interned);
+            if (left != binary.getLeft() || right != binary.getRight()) {
+                candidate = new ExpressionNode.Binary(binary.getOperator(), left, right);
+            }
+        }
+
+        ExpressionNode existing = canonical.putIfAbsent(candidate, candidate);
+        ExpressionNode result = existing != null ? existing : candidate;
+        interned.put(node, result);
+        return result;
+    }
+
+    /**
+     * Liefert die Anzahl der Ausdrücke
+     */
+    public int getExpressionCount() {
+        return order.roots.length;
+    }
+
+    /**
+     * Liefert die Anzahl der verschiedenen Knoten im gemeinsamen Graphen
+     */
+    public int getNodeCount() {
+        return order.size();
+    }
+
+    /**
+     * Wertet alle Ausdrücke für viele Punkte (x[k], y[k]) aus
+     *
+     * @param outs Ausgabe je Ausdruck, jeweils mindestens length Elemente
+     */
+    public void evaluate(double[] xs, double[] ys, double[][] outs, int length) {
+        evaluate(xs, ys, outs, length, false);
+    }
+
+    /**
+     * Wertet alle Ausdrücke für viele Punkte (x[k], y[k]) aus, wahlweise mit
+     * den Näherungen aus {@link ApproximateMath}
+     *
+     * @param outs        Ausgabe je Ausdruck, jeweils mindestens length Elemente
+     * @param approximate true für die schnellere Vorschau mit genäherten
+     *                    Funktionen, false für exakte Werte
+     */
+    public void evaluate(double[] xs, double[] ys, double[][] outs, int length, boolean approximate) {
+        Pass pass = new Pass(false, length, length, approximate);
+        double[][] values = pass.run(xs, ys);
+        for (int r = 0; r < order.roots.length; r++) {
+            int root = order.roots[r];
+            pass.expand(values[root], effectiveMask(root, false), outs[r], XY_MASK);
+        }
+    }
+
+    /**
+     * Wertet alle Ausdrücke auf einem Gitter aus
+     *
+     * @param outsRowMajor Ausgabe je Ausdruck, Index i * ys.length + j
+     */
+    public void evaluateGrid(double[] xs, double[] ys, double[][] outsRowMajor) {
+        evaluateGrid(xs, ys, outsRowMajor, false);
+    }
+
+    /**
+     * Wertet alle Ausdrücke auf einem Gitter aus, wahlweise mit den Näherungen
+     * aus {@link ApproximateMath}
+     *
+     * @param outsRowMajor Ausgabe je Ausdruck, Index i * ys.length + j
+     * @param approximate  true für die schnellere Vorschau mit genäherten
+     *                     Funktionen, false für exakte Werte
+     */
+    public void evaluateGrid(double[] xs, double[] ys, double[][] outsRowMajor, boolean approximate) {
+        Pass pass = new Pass(true, xs.length, ys.length, approximate);
+        double[][] values = pass.run(xs, ys);
+        for (int r = 0; r < order.roots.length; r++) {
+            if (separable[r] != null) {
+                // Nur auf den Achsen berechnen und kombinieren
+                separable[r].evaluateGrid(xs, ys, outsRowMajor[r]);
+            } else {
+                int root = order.roots[r];
+                pass.expand(values[root], masks[root], outsRowMajor[r], XY_MASK);
+            }
+        }
+    }
+
+    /**
+     * Bei der Auswertung einzelner Punkte hat jeder variable Knoten einen Wert
+     * pro Punkt; nur Konstanten bleiben ein einzelner Wert
+     */
+    private int effectiveMask(int node, boolean grid) {
+        if (grid || masks[node] == 0) {
+            return masks[node];
+        }
+        return XY_MASK;
+    }
+
+    /**
+     * Ein einzelner Auswertungsdurchlauf mit seinen Puffern
+     */
+    private final class Pass {
+        final boolean grid;
+        final int rows;
+        final int columns;
+        final boolean approximate;
+        final int[] lastUses;
+
+        // Freigegebene Puffer je Bitmaske (die Länge hängt nur von ihr ab)
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final ArrayDeque<double[]>[] pool = new ArrayDeque[XY_MASK + 1];
+
+        Pass(boolean grid, int rows, int columns, boolean approximate) {
+            this.grid = grid;
+            this.rows = rows;
+            this.columns = columns;
+            this.approximate = approximate;
+            this.lastUses = grid ? gridLastUse : lastUse;
+            for (int mask = 0; mask <= XY_MASK; mask++) {
+                pool[mask] = new ArrayDeque<>();
+            }
+        }
+
+        /**
+         * Anzahl der Werte eines Knotens mit dieser Bitmaske
+         */
+        int lengthOf(int mask) {
+            switch (mask) {
+                case 0:
+                    return 1;
+                case X_MASK:
+                    return rows;
+                case Y_MASK:
+                    return columns;
+                default:
+                    return grid ? rows * columns : rows;
+            }
+        }
+
+        double[] acquire(int mask) {
+            double[] buffer = pool[mask].poll();
+            return buffer != null ? buffer : new double[lengthOf(mask)];
+        }
+
+        void release(double[] buffer, int mask) {
+            pool[mask].push(buffer);
+        }
+
+        /**
+         * Berechnet alle Knoten in Auswertungsreihenfolge
+         *
+         * @return Die Werte je Knoten; nur die der Wurzeln sind am Ende noch
+         *         gesetzt
+         */
+        double[][] run(double[] xs, double[] ys) {
+            int[] kinds = order.kinds;
+            double[][] values = new double[kinds.length][];
+
+            for (int i = 0; i < kinds.length; i++) {
+                if (grid && !gridNeeded[i]) {
+                    continue;
+                }
+                int mask = effectiveMask(i, grid);
+                int length = lengthOf(mask);
+                double[] out = acquire(mask);
+
+                switch (kinds[i]) {
+                    case EvaluationOrder.CONSTANT:
+                        out[0] = order.constants[i];
+                        break;
+                    case EvaluationOrder.VARIABLE_X:
+                        System.arraycopy(xs, 0, out, 0, length);
+                        break;
+                    case EvaluationOrder.VARIABLE_Y:
+                        System.arraycopy(ys, 0, out, 0, length);
+                        break;
+                    case EvaluationOrder.UNARY: {
+                        int a = order.left[i];
+                        System.arraycopy(values[a], 0, out, 0, length);
+                        apply(order.operators[i], out, length);
+                        break;
+                    }
+                    default: {
+                        int a = order.left[i];
+                        int b = order.right[i];
+                        expand(values[a], effectiveMask(a, grid), out, mask);
+                        int rightMask = effectiveMask(b, grid);
+                        if (rightMask == mask) {
+                            apply(order.operators[i], out, values[b], length);
+                        } else {
+                            double[] right = acquire(mask);
+                            expand(values[b], rightMask, right, mask);
+                            apply(order.operators[i], out, right, length);
+                            release(right, mask);
+                        }
+                        break;
+                    }
+                }
+                values[i] = out;
+
+                // Operanden freigeben, die nach diesem Knoten nicht mehr gelesen werden
+                if (kinds[i] == EvaluationOrder.UNARY || kinds[i] == EvaluationOrder.BINARY) {
+                    freeIfDead(order.left[i], i, values);
+                    if (kinds[i] == EvaluationOrder.BINARY && order.right[i] != order.left[i]) {
+                        freeIfDead(order.right[i], i, values);
+                    }
+                }
+            }
+            return values;
+        }
+
+        private void apply(Operator op, double[] values, int length) {
+            if (approximate) {
+                op.applyApproximate(values, length);
+            } else {
+                op.apply(values, length);
+            }
+        }
+
+        private void apply(Operator op, double[] left, double[] right, int length) {
+            if (approximate) {
+                op.applyApproximate(left, right, length);
+            } else {
+                op.apply(left, right, length);
+            }
+        }
+
+        private void freeIfDead(int node, int current, double[][] values) {
+            if (lastUses[node] == current) {
+                release(values[node], effectiveMask(node, grid));
+                values[node] = null;
+            }
+        }
+
+        /**
+         * Überträgt Werte auf eine Bitmaske mit mindestens denselben Variablen
+         * (z.B. die Werte eines reinen x-Teilausdrucks auf das ganze Gitter)
+         */
+        void expand(double[] source, int sourceMask, double[] target, int targetMask) {
+            int length = lengthOf(targetMask);
+            if (sourceMask == 0) {
+                Arrays.fill(target, 0, length, source[0]);
+            } else if (sourceMask == targetMask || !grid) {
+                System.arraycopy(source, 0, target, 0, length);
+            } else if (sourceMask == X_MASK) {
+                for (int i = 0; i < rows; i++) {
+                    Arrays.fill(target, i * columns, (i + 1) * columns, source[i]);
+                }
+            } else {
+                for (int i = 0; i < rows; i++) {
+                    System.arraycopy(source, 0, target, i * columns, columns);
+                }
+            }
+        }
+    }
+}
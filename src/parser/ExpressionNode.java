@@ -0,0 +1,206 @@
+package parser;
+
+import java.math.BigDecimal;
+
+/**
+ * Knoten eines kompilierten Ausdrucksbaums
+ * Alle Knoten sind unveränderlich und können daher von mehreren Threads
+ * gleichzeitig ausgewertet werden
+ *
+ * Nach der Optimierung ({@link ExpressionOptimizer}) können gleiche Teilbäume
+ * als dieselbe Instanz an mehreren Stellen vorkommen (gerichteter azyklischer
+ * Graph). equals und hashCode vergleichen die Struktur.
+ */
+public abstract class ExpressionNode {
+    private final int hash;
+
+    ExpressionNode(int hash) {
+        this.hash = hash;
+    }
+
+    /**
+     * Wertet den Teilbaum an der Stelle (x,y) aus
+     */
+    public abstract double evaluate(double x, double y);
+
+    @Override
+    public final int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Konstanter Zahlenwert
+     */
+    public static final class Constant extends ExpressionNode {
+        private final double value;
+
+        public Constant(double value) {
+            super(Double.hashCode(value));
+            this.value = value;
+        }
+
+        public double getValue() {
+            return value;
+        }
+
+        @Override
+        public double evaluate(double x, double y) {
+            return value;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Constant
+                    && Double.doubleToLongBits(((Constant) obj).value) == Double.doubleToLongBits(value);
+        }
+
+        @Override
+        public String toString() {
+            // Ohne Exponentenschreibweise, damit der Text wieder geparst werden kann
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                return Double.toString(value);
+            }
+            return BigDecimal.valueOf(value).toPlainString();
+        }
+    }
+
+    /**
+     * Variable x oder y
+     */
+    public static final class Variable extends ExpressionNode {
+        public static final int X = 0;
+        public static final int Y = 1;
+
+        private final int index;
+
+        public Variable(int index) {
+            super(31 + index);
+            this.index = index;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        @Override
+        public double evaluate(double x, double y) {
+            return index == X ? x : y;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Variable && ((Variable) obj).index == index;
+        }
+
+        @Override
+        public String toString() {
+            return index == X ? "x" : "y";
+        }
+    }
+
+    /**
+     * Einstelliger Operator bzw. Funktion mit einem Argument
+     */
+    public static final class Unary extends ExpressionNode {
+        private final Operator operator;
+        private final ExpressionNode operand;
+
+        public Unary(Operator operator, ExpressionNode operand) {
+            super(operator.ordinal() * 31 + operand.hashCode());
+            this.operator = operator;
+            this.operand = operand;
+        }
+
+        public Operator getOperator() {
+            return operator;
+        }
+
+        public ExpressionNode getOperand() {
+            return operand;
+        }
+
+        @Override
+        public double evaluate(double x, double y) {
+            return operator.apply(operand.evaluate(x, y));
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Unary) || obj.hashCode() != hashCode()) {
+                return false;
+            }
+            Unary other = (Unary) obj;
+            return other.operator == operator && other.operand.equals(operand);
+        }
+
+        @Override
+        public String toString() {
+            if (operator == Operator.NEG) {
+                return "(-" + operand + ")";
+            }
+            if (operator == Operator.POW_HALF) {
+                return "(" + operand + "^0.5)";
+            }
+            return operator.getSymbol() + "(" + operand + ")";
+        }
+    }
+
+    /**
+     * Zweistelliger Operator bzw. Funktion mit zwei Argumenten
+     */
+    public static final class Binary extends ExpressionNode {
+        private final Operator operator;
+        private final ExpressionNode left;
+        private final ExpressionNode right;
+
+        public Binary(Operator operator, ExpressionNode left, ExpressionNode right) {
+            super((operator.ordinal() * 31 + left.hashCode()) * 31 + right.hashCode());
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        public Operator getOperator() {
+            return operator;
+        }
+
+        public ExpressionNode getLeft() {
+            return left;
+        }
+
+        public ExpressionNode getRight() {
+            return right;
+        }
+
+        @Override
+        public double evaluate(double x, double y) {
+            double leftValue = left.evaluate(x, y);
+            // Gemeinsamer Operand (z.B. x*x aus x^2) nur einmal auswerten
+            double rightValue = right == left ? leftValue : right.evaluate(x, y);
+            return operator.apply(leftValue, rightValue);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Binary) || obj.hashCode() != hashCode()) {
+                return false;
+            }
+            Binary other = (Binary) obj;
+            return other.operator == operator && other.left.equals(left) && other.right.equals(right);
+        }
+
+        @Override
+        public String toString() {
+            if (operator.ordinal() <= Operator.POW.ordinal()) {
+                return "(" + left + operator.getSymbol() + right + ")";
+            }
+            return operator.getSymbol() + "(" + left + "," + right + ")";
+        }
+    }
+}
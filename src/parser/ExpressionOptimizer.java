@@ -0,0 +1,179 @@
+package parser;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Optimierungsdurchlauf über den Auswertungsbaum
+ *
+ * 1. Konstantenfaltung: Teilbäume ohne Variablen (z.B. 2*pi/3) werden einmalig
+ * berechnet. Würde die Berechnung eine Exception werfen (z.B. sqrt(-1)),
+ * bleibt der Teilbaum erhalten, damit der Fehler wie bisher bei der
+ * Auswertung auftritt.
+ * 2. Operatorvereinfachung: x^2 und x^3 werden zu Multiplikationen, x^0.5 zu
+ * einer Quadratwurzel.
+ * 3. Gemeinsame Teilausdrücke: strukturell gleiche Teilbäume werden zu einer
+ * Instanz zusammengefasst. Codegenerator und Array-Auswertung berechnen sie
+ * dann nur einmal pro Punkt bzw. pro Aufruf.
+ */
+public final class ExpressionOptimizer {
+    // Kanonische Instanzen für die Zusammenfassung gleicher Teilbäume
+    private final Map<ExpressionNode, ExpressionNode> canonical = new HashMap<>();
+
+    private ExpressionOptimizer() {
+    }
+
+    /**
+     * Optimiert einen Auswertungsbaum
+     *
+     * @param root Die Wurzel des ursprünglichen Baums
+     * @return Die Wurzel des optimierten Ausdrucks (gleiche Teilbäume sind
+     *         dieselbe Instanz)
+     */
+    public static ExpressionNode optimize(ExpressionNode root) {
+        return new ExpressionOptimizer().rewrite(root);
+    }
+
+    /**
+     * Ermittelt alle inneren Knoten, die im optimierten Graphen mehr als einmal
+     * referenziert werden, und nummeriert sie fortlaufend
+     */
+    static Map<ExpressionNode, Integer> findSharedNodes(ExpressionNode root) {
+        Map<ExpressionNode, Integer> references = new IdentityHashMap<>();
+        countReferences(root, references);
+
+        Map<ExpressionNode, Integer> slots = new IdentityHashMap<>();
+        for (Map.Entry<ExpressionNode, Integer> entry : references.entrySet()) {
+            ExpressionNode node = entry.getKey();
+            boolean leaf = node instanceof ExpressionNode.Constant || node instanceof ExpressionNode.Variable;
+            if (entry.getValue() > 1 && !leaf) {
+                slots.put(node, slots.size());
+            }
+        }
+        return slots;
+    }
+
+    private static void countReferences(ExpressionNode node, Map<ExpressionNode, Integer> references) {
+        Integer count = references.get(node);
+        references.put(node, count == null ? 1 : count + 1);
+        if (count != null) {
+            return; // Kinder wurden bereits gezählt
+        }
+        if (node instanceof ExpressionNode.Unary) {
+            countReferences(((ExpressionNode.Unary) node).getOperand(), references);
+        } else if (node instanceof ExpressionNode.Binary) {
+            countReferences(((ExpressionNode.Binary) node).getLeft(), references);
+            countReferences(((ExpressionNode.Binary) node).getRight(), references);
+        }
+    }
+
+    /**
+     * Schreibt einen Teilbaum von unten nach oben um
+     */
+    private ExpressionNode rewrite(ExpressionNode node) {
+        if (node instanceof ExpressionNode.Unary) {
+            ExpressionNode.Unary unary = (ExpressionNode.Unary) node;
+            ExpressionNode operand = rewrite(unary.getOperand());
+            return intern(simplifyUnary(unary.getOperator(), operand));
+        }
+        if (node instanceof ExpressionNode.Binary) {
+            ExpressionNode.Binary binary = (ExpressionNode.Binary) node;
+            ExpressionNode left = rewrite(binary.getLeft());
+            ExpressionNode right = rewrite(binary.getRight());
+            return intern(simplifyBinary(binary.getOperator(), left, right));
+        }
+        return intern(node);
+    }
+
+    /**
+     * Erzeugt einen einstelligen Knoten; ist der Operand eine Konstante, wird
+     * das Ergebnis sofort berechnet
+     * Wird auch beim Parsen verwendet, damit lange konstante Ketten (z.B. eine
+     * eingefügte Summe vieler Zahlen) gar nicht erst als tiefer Baum entstehen
+     */
+    static ExpressionNode unary(Operator op, ExpressionNode operand) {
+        if (operand instanceof ExpressionNode.Constant) {
+            Double folded = fold(op, ((ExpressionNode.Constant) operand).getValue());
+            if (folded != null) {
+                return new ExpressionNode.Constant(folded);
+            }
+        }
+        return new ExpressionNode.Unary(op, operand);
+    }
+
+    /**
+     * Erzeugt einen zweistelligen Knoten; sind beide Operanden Konstanten, wird
+     * das Ergebnis sofort berechnet
+     */
+    static ExpressionNode binary(Operator op, ExpressionNode left, ExpressionNode right) {
+        if (left instanceof ExpressionNode.Constant && right instanceof ExpressionNode.Constant) {
+            Double folded = fold(op, ((ExpressionNode.Constant) left).getValue(),
+                    ((ExpressionNode.Constant) right).getValue());
+            if (folded != null) {
+                return new ExpressionNode.Constant(folded);
+            }
+        }
+        return new ExpressionNode.Binary(op, left, right);
+    }
+
+    private ExpressionNode simplifyUnary(Operator op, ExpressionNode operand) {
+        return unary(op, operand);
+    }
+
+    private ExpressionNode simplifyBinary(Operator op, ExpressionNode left, ExpressionNode right) {
+        if (left instanceof ExpressionNode.Constant && right instanceof ExpressionNode.Constant) {
+            return binary(op, left, right);
+        }
+
+        // Potenzen mit kleinen konstanten Exponenten ohne Math.pow
+        if (op == Operator.POW && right instanceof ExpressionNode.Constant) {
+            double exponent = ((ExpressionNode.Constant) right).getValue();
+            if (exponent == 2) {
+                return new ExpressionNode.Binary(Operator.MUL, left, left);
+            }
+            if (exponent == 3) {
+                ExpressionNode square = intern(new ExpressionNode.Binary(Operator.MUL, left, left));
+                return new ExpressionNode.Binary(Operator.MUL, square, left);
+            }
+            if (exponent == 0.5) {
+                return new ExpressionNode.Unary(Operator.POW_HALF, left);
+            }
+        }
+        return new ExpressionNode.Binary(op, left, right);
+    }
+
+    /**
+     * Liefert die kanonische Instanz eines (bereits umgeschriebenen) Teilbaums
+     */
+    private ExpressionNode intern(ExpressionNode node) {
+        ExpressionNode existing = canonical.putIfAbsent(node, node);
+        return existing != null ? existing : node;
+    }
+
+    /**
+     * Berechnet einen einstelligen Operator auf einer Konstanten
+     *
+     * @return Das Ergebnis oder null, wenn die Berechnung einen Fehler wirft
+     */
+    private static Double fold(Operator op, double value) {
+        try {
+            return op.apply(value);
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Berechnet einen zweistelligen Operator auf zwei Konstanten
+     *
+     * @return Das Ergebnis oder null, wenn die Berechnung einen Fehler wirft
+     */
+    private static Double fold(Operator op, double left, double right) {
+        try {
+            return op.apply(left, right);
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+}
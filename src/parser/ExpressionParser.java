@@ -0,0 +1,85 @@
+package parser;
+
+import java.util.Arrays;
+
+/**
+ * Parser für Ausdrücke mit frei benannten Variablen, z.B. t bei einer
+ * Zeitfunktion oder r und t bei Polarkoordinaten
+ * Verwendet dieselbe Grammatik und denselben kompilierten Ausdruck wie
+ * {@link FunctionParser} und {@link Function3DParser}; die Variablen werden
+ * der Reihe nach als x und y ausgewertet. Benannte Parameter werden als
+ * benutzerdefinierte Variablen angelegt ({@link UserDefinitions}).
+ *
+ * Beispiel: {@code new ExpressionParser("a*sin(t)", "t").evaluateAt(0.5)}
+ */
+public class ExpressionParser extends AbstractExpressionParser {
+
+    /**
+     * Erstellt einen neuen Parser
+     *
+     * @param expression Der Ausdruck
+     * @param variables  Die Namen der Variablen, höchstens
+     *                   {@link #MAX_VARIABLES}; ohne Variablen ist der
+     *                   Ausdruck konstant
+     * @throws IllegalArgumentException bei ungültigen Variablennamen
+     */
+    public ExpressionParser(String expression, String... variables) {
+        super(expression, variables);
+    }
+
+    /**
+     * Wertet den Ausdruck aus
+     *
+     * @param values Die Werte der Variablen in der Reihenfolge des Konstruktors
+     * @throws IllegalArgumentException wenn die Anzahl der Werte nicht passt
+     */
+    public double evaluateAt(double... values) {
+        checkValueCount(values.length);
+        return getCompiledExpression().evaluate(valueAt(values, 0), valueAt(values, 1));
+    }
+
+    /**
+     * Wertet den Ausdruck für viele Punkte auf einmal aus
+     * Ungültige Punkte werden als NaN geliefert
+     *
+     * @param values Je Variable ein Array mit den Werten der Punkte
+     * @param out    Ausgabe, mindestens length Elemente
+     * @param length Anzahl der Punkte
+     */
+    public void evaluate(double[][] values, double[] out, int length) {
+        checkValueCount(values.length);
+        if (!isValid()) {
+            Arrays.fill(out, 0, length, Double.NaN);
+            return;
+        }
+        double[] first = values.length > 0 ? values[0] : new double[length];
+        double[] second = values.length > 1 ? values[1] : first;
+        getCompiledExpression().evaluate(first, second, out, length);
+    }
+
+    /**
+     * Liefert die Ableitung nach einer Variablen
+     * Ihr Text ({@link CompiledExpression#getExpression()}) verwendet die
+     * Auswertungsplätze x und y statt der Variablennamen
+     *
+     * @throws IllegalArgumentException wenn der Name keine Variable ist
+     */
+    public CompiledExpression derivative(String variable) {
+        int index = getVariables().indexOf(variable);
+        if (index < 0) {
+            throw new IllegalArgumentException("Keine Variable des Ausdrucks: " + variable);
+        }
+        return getCompiledExpression().derivative(index);
+    }
+
+    private void checkValueCount(int count) {
+        if (count != getVariables().size()) {
+            throw new IllegalArgumentException(
+                    "Erwarte " + getVariables().size() + " Werte, erhalten: " + count);
+        }
+    }
+
+    private static double valueAt(double[] values, int index) {
+        return index < values.length ? values[index] : 0;
+    }
+}
@@ -0,0 +1,89 @@
+package parser;
+
+/**
+ * Einschließung der Werte einer Funktion auf einem Bereich
+ * Ergebnis der Intervallauswertung
+ *
+ * Jeder Funktionswert an einer Stelle des Bereichs, an der die Funktion
+ * definiert ist, liegt garantiert in [lo, hi] (auch unter Berücksichtigung
+ * von Rundungsfehlern). Zusätzlich wird vermerkt, ob die Funktion auf dem
+ * ganzen Bereich definiert, endlich und stetig ist; andernfalls kann der
+ * Bereich eine Polstelle, eine Sprungstelle oder eine Definitionslücke
+ * enthalten.
+ */
+public final class Interval {
+    /**
+     * Die Funktion ist an keiner Stelle des Bereichs definiert
+     */
+    public static final Interval EMPTY = new Interval(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, false);
+
+    private final double lo;
+    private final double hi;
+    private final boolean continuous;
+
+    public Interval(double lo, double hi, boolean continuous) {
+        this.lo = lo;
+        this.hi = hi;
+        this.continuous = continuous;
+    }
+
+    /**
+     * Liefert die untere Grenze
+     */
+    public double getLo() {
+        return lo;
+    }
+
+    /**
+     * Liefert die obere Grenze
+     */
+    public double getHi() {
+        return hi;
+    }
+
+    /**
+     * Gibt an, ob die Funktion auf dem ganzen Bereich definiert, endlich und
+     * stetig ist
+     */
+    public boolean isContinuous() {
+        return continuous;
+    }
+
+    /**
+     * Gibt an, ob die Funktion auf dem Bereich nirgends definiert ist
+     */
+    public boolean isEmpty() {
+        return lo > hi;
+    }
+
+    /**
+     * Prüft, ob ein Wert in der Einschließung liegt
+     */
+    public boolean contains(double value) {
+        return lo <= value && value <= hi;
+    }
+
+    /**
+     * Einschließung der Differenz f - g, wenn dieses Intervall f und other g
+     * einschließt
+     */
+    public Interval minus(Interval other) {
+        if (isEmpty() || other.isEmpty()) {
+            return EMPTY;
+        }
+        double differenceLo = lo - other.hi;
+        double differenceHi = hi - other.lo;
+        return new Interval(
+                Double.isNaN(differenceLo) ? Double.NEGATIVE_INFINITY : Math.nextDown(differenceLo),
+                Double.isNaN(differenceHi) ? Double.POSITIVE_INFINITY : Math.nextUp(differenceHi),
+                continuous && other.continuous);
+    }
+
+    @Override
+    public String toString() {
+        if (isEmpty()) {
+            return "[]";
+        }
+        return "[" + lo + ", " + hi + "]" + (continuous ? "" : " (unstetig)");
+    }
+}
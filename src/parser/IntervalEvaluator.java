@@ -0,0 +1,448 @@
+package parser;
+
+/**
+ * Intervallauswertung: schließt alle Werte eines Ausdrucks auf einem Bereich
+ * x ∈ [xLo, xHi], y ∈ [yLo, yHi] ein
+ *
+ * Jeder Knoten aus {@link EvaluationOrder} trägt ein Intervall und ein Flag,
+ * ob der Teilausdruck auf dem ganzen Bereich definiert, endlich und stetig ist. Die
+ * Definitionsbereiche entsprechen der normalen Auswertung: Stellen, an denen
+ * {@link Operator#apply} eine Exception wirft oder NaN liefert, werden aus der
+ * Einschließung ausgenommen und löschen das Stetigkeits-Flag. Alle Grenzen
+ * werden nach außen gerundet, so dass die Einschließung trotz
+ * Rundungsfehlern garantiert ist.
+ */
+final class IntervalEvaluator {
+    // Zusätzlicher Abstand für die Bibliotheksfunktionen aus Math (≤ 2,5 ulp)
+    private static final int FUNCTION_ULPS = 3;
+
+    // Divisoren mit kleinerem Betrag melden in Operator.div einen Fehler
+    private static final double DIVISION_EPSILON = 1e-10;
+
+    // Ab diesem Betrag lässt sich die Lage der Extrema periodischer Funktionen
+    // nicht mehr zuverlässig bestimmen
+    private static final double PERIODIC_LIMIT = 1e8;
+
+    private static final double HALF_PI = Math.PI / 2;
+    private static final double TWO_PI = 2 * Math.PI;
+
+    private final EvaluationOrder order;
+
+    IntervalEvaluator(EvaluationOrder order) {
+        this.order = order;
+    }
+
+    /**
+     * Schließt die Werte des Ausdrucks auf dem Bereich [xLo, xHi] × [yLo, yHi]
+     * ein
+     */
+    Interval evaluate(double xLo, double xHi, double yLo, double yHi) {
+        int size = order.size();
+        double[] lo = new double[size];
+        double[] hi = new double[size];
+        boolean[] continuous = new boolean[size];
+        int[] kinds = order.kinds;
+        Operator[] operators = order.operators;
+
+        Range result = new Range();
+        for (int i = 0; i < size; i++) {
+            switch (kinds[i]) {
+                case EvaluationOrder.CONSTANT:
+                    if (Double.isNaN(order.constants[i])) {
+                        // NaN kann noch verschwinden, z.B. in pow(nan, 0) = 1
+                        result.set(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, false);
+                    } else {
+                        result.set(order.constants[i], order.constants[i], true);
+                    }
+                    break;
+                case EvaluationOrder.VARIABLE_X:
+                    result.set(xLo, xHi, true);
+                    break;
+                case EvaluationOrder.VARIABLE_Y:
+                    result.set(yLo, yHi, true);
+                    break;
+                case EvaluationOrder.UNARY: {
+                    int a = order.left[i];
+                    if (lo[a] > hi[a]) {
+                        result.setEmpty();
+                    } else {
+                        unary(operators[i], lo[a], hi[a], result);
+                        result.continuous &= continuous[a];
+                    }
+                    break;
+                }
+                default: {
+                    int a = order.left[i];
+                    int b = order.right[i];
+                    if (lo[a] > hi[a] || lo[b] > hi[b]) {
+                        result.setEmpty();
+                    } else if (operators[i] == Operator.MUL && a == b) {
+                        // a * a ist nie negativ (entsteht z.B. aus a^2)
+                        square(lo[a], hi[a], result);
+                        result.continuous &= continuous[a];
+                    } else {
+                        binary(operators[i], lo[a], hi[a], lo[b], hi[b], result);
+                        result.continuous &= continuous[a] && continuous[b];
+                    }
+                    break;
+                }
+            }
+            lo[i] = result.lo;
+            hi[i] = result.hi;
+            // Unendliche Werte (Überlauf, Polstellen) können im weiteren
+            // Verlauf NaN ergeben, z.B. sin(∞) oder ∞ · 0
+            continuous[i] = result.continuous && !Double.isInfinite(result.lo) && !Double.isInfinite(result.hi);
+        }
+
+        int last = size - 1;
+        if (lo[last] > hi[last]) {
+            return Interval.EMPTY;
+        }
+        return new Interval(lo[last], hi[last], continuous[last]);
+    }
+
+    private static void unary(Operator op, double a, double b, Range result) {
+        switch (op) {
+            case NEG:
+                result.set(-b, -a, true);
+                return;
+            case SIN:
+                periodic(a, b, HALF_PI, -HALF_PI, Math.sin(a), Math.sin(b), result);
+                return;
+            case COS:
+                periodic(a, b, 0, Math.PI, Math.cos(a), Math.cos(b), result);
+                return;
+            case TAN:
+                if (Math.abs(a) > PERIODIC_LIMIT || Math.abs(b) > PERIODIC_LIMIT || b - a >= Math.PI
+                        || containsPeriodic(a, b, HALF_PI, Math.PI)) {
+                    // Polstelle im Bereich
+                    result.set(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, false);
+                } else {
+                    result.setWidened(Math.tan(a), Math.tan(b), true, FUNCTION_ULPS);
+                }
+                return;
+            case ASIN:
+            case ACOS:
+                if (b < -1 || a > 1) {
+                    result.setEmpty();
+                    return;
+                }
+                double clippedLo = Math.max(a, -1);
+                double clippedHi = Math.min(b, 1);
+                boolean inside = a >= -1 && b <= 1;
+                if (op == Operator.ASIN) {
+                    result.setWidened(Math.asin(clippedLo), Math.asin(clippedHi), inside, FUNCTION_ULPS);
+                } else {
+                    result.setWidened(Math.acos(clippedHi), Math.acos(clippedLo), inside, FUNCTION_ULPS);
+                }
+                return;
+            case COSH:
+                if (a >= 0) {
+                    result.setWidened(Math.cosh(a), Math.cosh(b), true, FUNCTION_ULPS);
+                } else if (b <= 0) {
+                    result.setWidened(Math.cosh(b), Math.cosh(a), true, FUNCTION_ULPS);
+                } else {
+                    result.setWidened(1, Math.cosh(Math.max(-a, b)), true, FUNCTION_ULPS);
+                }
+                return;
+            case SQRT:
+            case POW_HALF:
+                // sqrt wirft für negative Argumente, pow_half liefert NaN
+                if (b < 0 && !(op == Operator.POW_HALF && a == Double.NEGATIVE_INFINITY)) {
+                    result.setEmpty();
+                    return;
+                }
+                double root = op == Operator.POW_HALF && a == Double.NEGATIVE_INFINITY ? Double.POSITIVE_INFINITY
+                        : Math.sqrt(Math.max(b, 0));
+                result.setWidened(Math.sqrt(Math.max(a, 0)), root, a >= 0, FUNCTION_ULPS);
+                return;
+            case LN:
+            case LOG10:
+            case LOG2:
+                if (b <= 0) {
+                    result.setEmpty();
+                    return;
+                }
+                result.setWidened(a > 0 ? op.apply(a) : Double.NEGATIVE_INFINITY, op.apply(b), a > 0,
+                        FUNCTION_ULPS);
+                return;
+            case ABS:
+                if (a >= 0) {
+                    result.set(a, b, true);
+                } else if (b <= 0) {
+                    result.set(-b, -a, true);
+                } else {
+                    result.set(0, Math.max(-a, b), true);
+                }
+                return;
+            case FLOOR:
+            case CEIL:
+            case ROUND: {
+                // Stückweise konstant: stetig nur ohne Sprungstelle im Bereich
+                double first = op.apply(a);
+                double second = op.apply(b);
+                result.set(first, second, first == second);
+                return;
+            }
+            case ATAN:
+            case SINH:
+            case TANH:
+            case CBRT:
+            case EXP:
+            case DEGREES:
+            case RADIANS:
+                // Monoton steigend
+                result.setWidened(op.apply(a), op.apply(b), true, FUNCTION_ULPS);
+                return;
+            default:
+                throw new IllegalStateException("Kein einstelliger Operator: " + op);
+        }
+    }
+
+    private static void binary(Operator op, double aLo, double aHi, double bLo, double bHi, Range result) {
+        switch (op) {
+            case ADD:
+                result.setWidened(aLo + bLo, aHi + bHi, true, 1);
+                return;
+            case SUB:
+                result.setWidened(aLo - bHi, aHi - bLo, true, 1);
+                return;
+            case MUL:
+                corners(product(aLo, bLo), product(aLo, bHi), product(aHi, bLo), product(aHi, bHi), 1, result);
+                return;
+            case DIV:
+                divide(aLo, aHi, bLo, bHi, result);
+                return;
+            case POW:
+                power(aLo, aHi, bLo, bHi, result);
+                return;
+            case MAX:
+                result.set(Math.max(aLo, bLo), Math.max(aHi, bHi), true);
+                return;
+            case MIN:
+                result.set(Math.min(aLo, bLo), Math.min(aHi, bHi), true);
+                return;
+            case ATAN2:
+                if (aLo <= 0 && aHi >= 0 && bLo <= 0) {
+                    // Der Bereich berührt den Sprung von atan2 auf der negativen Achse
+                    result.setWidened(-Math.PI, Math.PI, false, FUNCTION_ULPS);
+                } else {
+                    // Ohne Ursprung und Sprungstelle liegen die Extrema in den Ecken
+                    corners(Math.atan2(aLo, bLo), Math.atan2(aLo, bHi), Math.atan2(aHi, bLo),
+                            Math.atan2(aHi, bHi), FUNCTION_ULPS, result);
+                }
+                return;
+            default:
+                throw new IllegalStateException("Kein zweistelliger Operator: " + op);
+        }
+    }
+
+    private static void square(double a, double b, Range result) {
+        if (a >= 0) {
+            result.setWidened(a * a, b * b, true, 1);
+        } else if (b <= 0) {
+            result.setWidened(b * b, a * a, true, 1);
+        } else {
+            double max = Math.max(-a, b);
+            result.setWidened(0, max * max, true, 1);
+        }
+        // Quadrate sind exakt nie negativ
+        result.lo = Math.max(result.lo, 0);
+    }
+
+    /**
+     * Division, wobei Divisoren nahe Null wie in {@link Operator#div} nicht
+     * definiert sind
+     */
+    private static void divide(double aLo, double aHi, double bLo, double bHi, Range result) {
+        boolean hasNegative = bLo <= -DIVISION_EPSILON;
+        boolean hasPositive = bHi >= DIVISION_EPSILON;
+        if (!hasNegative && !hasPositive) {
+            result.setEmpty();
+            return;
+        }
+
+        double lo = Double.POSITIVE_INFINITY;
+        double hi = Double.NEGATIVE_INFINITY;
+        if (hasNegative) {
+            double partHi = Math.min(bHi, -DIVISION_EPSILON);
+            lo = Math.min(lo, min(aLo / bLo, aLo / partHi, aHi / bLo, aHi / partHi));
+            hi = Math.max(hi, max(aLo / bLo, aLo / partHi, aHi / bLo, aHi / partHi));
+        }
+        if (hasPositive) {
+            double partLo = Math.max(bLo, DIVISION_EPSILON);
+            lo = Math.min(lo, min(aLo / partLo, aLo / bHi, aHi / partLo, aHi / bHi));
+            hi = Math.max(hi, max(aLo / partLo, aLo / bHi, aHi / partLo, aHi / bHi));
+        }
+        // Ein Divisor, der Null berührt, bedeutet eine Pol- oder Lücke
+        boolean defined = bLo >= DIVISION_EPSILON || bHi <= -DIVISION_EPSILON;
+        result.setWidened(lo, hi, defined, 1);
+    }
+
+    /**
+     * Potenz mit der Semantik von Math.pow; negative Basen sind nur für
+     * ganzzahlige Exponenten definiert
+     */
+    private static void power(double aLo, double aHi, double bLo, double bHi, Range result) {
+        if (bLo == bHi) {
+            powerConstant(aLo, aHi, bLo, result);
+            return;
+        }
+        if (aLo < 0) {
+            result.set(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, false);
+            return;
+        }
+        // Für a ≥ 0 ist a^b in jedem Argument monoton, die Extrema liegen in den
+        // Ecken; bei a = 0 springt 0^b zwischen 0, 1 und ∞
+        corners(Math.pow(aLo, bLo), Math.pow(aLo, bHi), Math.pow(aHi, bLo), Math.pow(aHi, bHi),
+                FUNCTION_ULPS, result);
+        result.continuous = aLo > 0;
+    }
+
+    private static void powerConstant(double aLo, double aHi, double n, Range result) {
+        if (n == 0) {
+            result.set(1, 1, true);
+            return;
+        }
+        if (Double.isInfinite(n)) {
+            // a^±∞ ist 0 oder ∞ (NaN für |a| = 1)
+            result.set(0, Double.POSITIVE_INFINITY, false);
+            return;
+        }
+        boolean integer = n == Math.rint(n) && Math.abs(n) < 0x1p53;
+        if (!integer) {
+            // Negative Basen ergeben NaN (außer -∞), 0 hoch negativ ergibt ∞
+            double atMinusInfinity = aLo == Double.NEGATIVE_INFINITY ? Math.pow(aLo, n) : Double.NaN;
+            if (aHi < 0) {
+                if (Double.isNaN(atMinusInfinity)) {
+                    result.setEmpty();
+                } else {
+                    result.set(atMinusInfinity, atMinusInfinity, false);
+                }
+                return;
+            }
+            double clipped = Math.max(aLo, 0);
+            if (n > 0) {
+                result.setWidened(Math.pow(clipped, n), Math.pow(aHi, n), aLo >= 0, FUNCTION_ULPS);
+            } else {
+                result.setWidened(Math.pow(aHi, n), Math.pow(clipped, n), aLo > 0, FUNCTION_ULPS);
+            }
+            if (!Double.isNaN(atMinusInfinity)) {
+                result.lo = Math.min(result.lo, atMinusInfinity);
+                result.hi = Math.max(result.hi, atMinusInfinity);
+            }
+            return;
+        }
+
+        boolean even = n % 2 == 0;
+        boolean containsZero = aLo <= 0 && aHi >= 0;
+        if (n > 0 || !containsZero) {
+            double first = Math.pow(aLo, n);
+            double second = Math.pow(aHi, n);
+            if (even && containsZero) {
+                result.setWidened(0, Math.max(first, second), true, FUNCTION_ULPS);
+            } else {
+                // Auf jeder Seite der Null monoton
+                result.setWidened(Math.min(first, second), Math.max(first, second), true, FUNCTION_ULPS);
+            }
+            return;
+        }
+
+        // Negativer ganzzahliger Exponent mit Polstelle bei 0
+        if (even) {
+            result.setWidened(Math.pow(Math.max(-aLo, aHi), n), Double.POSITIVE_INFINITY, false, FUNCTION_ULPS);
+        } else {
+            result.set(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, false);
+        }
+    }
+
+    /**
+     * Schließt eine periodische Funktion (Periode 2π) mit Maximum 1 bei
+     * maxAt + 2kπ und Minimum -1 bei minAt + 2kπ ein
+     */
+    private static void periodic(double a, double b, double maxAt, double minAt, double valueA, double valueB,
+            Range result) {
+        if (Math.abs(a) > PERIODIC_LIMIT || Math.abs(b) > PERIODIC_LIMIT || b - a >= TWO_PI) {
+            result.set(-1, 1, true);
+            return;
+        }
+        double hi = containsPeriodic(a, b, maxAt, TWO_PI) ? 1 : Math.max(valueA, valueB);
+        double lo = containsPeriodic(a, b, minAt, TWO_PI) ? -1 : Math.min(valueA, valueB);
+        result.setWidened(lo, hi, true, FUNCTION_ULPS);
+        result.lo = Math.max(result.lo, -1);
+        result.hi = Math.min(result.hi, 1);
+    }
+
+    /**
+     * Prüft, ob ein Punkt offset + k * period in [a, b] liegt
+     * Im Zweifel (Rundung) wird true geliefert
+     */
+    private static boolean containsPeriodic(double a, double b, double offset, double period) {
+        double k = Math.ceil((a - offset) / period - 1e-9);
+        return offset + k * period <= b + 1e-9 * Math.max(1, Math.abs(b));
+    }
+
+    private static double product(double a, double b) {
+        double product = a * b;
+        // 0 · ∞ tritt nur an unbeschränkten Grenzen auf und trägt 0 bei
+        return Double.isNaN(product) ? 0 : product;
+    }
+
+    private static void corners(double c1, double c2, double c3, double c4, int ulps, Range result) {
+        result.setWidened(min(c1, c2, c3, c4), max(c1, c2, c3, c4), true, ulps);
+    }
+
+    // NaN (z.B. ∞/∞) wird wie eine unbeschränkte Grenze behandelt
+    private static double min(double c1, double c2, double c3, double c4) {
+        if (Double.isNaN(c1) || Double.isNaN(c2) || Double.isNaN(c3) || Double.isNaN(c4)) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return Math.min(Math.min(c1, c2), Math.min(c3, c4));
+    }
+
+    private static double max(double c1, double c2, double c3, double c4) {
+        if (Double.isNaN(c1) || Double.isNaN(c2) || Double.isNaN(c3) || Double.isNaN(c4)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Math.max(Math.max(c1, c2), Math.max(c3, c4));
+    }
+
+    /**
+     * Zwischenergebnis eines Knotens
+     */
+    private static final class Range {
+        double lo;
+        double hi;
+        boolean continuous;
+
+        void set(double lo, double hi, boolean continuous) {
+            this.lo = lo;
+            this.hi = hi;
+            this.continuous = continuous;
+        }
+
+        /**
+         * Setzt das Intervall und rundet die Grenzen um ulps Einheiten nach außen
+         */
+        void setWidened(double lo, double hi, boolean continuous, int ulps) {
+            // NaN entsteht nur aus unbeschränkten Grenzen (z.B. ∞ - ∞)
+            if (Double.isNaN(lo)) {
+                lo = Double.NEGATIVE_INFINITY;
+                continuous = false;
+            }
+            if (Double.isNaN(hi)) {
+                hi = Double.POSITIVE_INFINITY;
+                continuous = false;
+            }
+            for (int i = 0; i < ulps; i++) {
+                lo = Math.nextDown(lo);
+                hi = Math.nextUp(hi);
+            }
+            set(lo, hi, continuous);
+        }
+
+        void setEmpty() {
+            set(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, false);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package parser;
+
+/**
+ * Parser für die Tastatureingabe des Taschenrechners
+ * Verwendet die gemeinsame Grammatik, aber mit den Rechenregeln des
+ * Taschenrechners, damit sich dessen Ergebnisse nicht von denen der
+ * Plotter-Grammatik unterscheiden müssen:
+ * <ul>
+ * <li>Vorzeichen binden stärker als ^: -2^2 = 4, 2^-2 = 0.25</li>
+ * <li>^ wird von links ausgewertet: 2^3^2 = 64</li>
+ * <li>Nur eine Division durch exakt 0 ist ein Fehler: 1/1e-11 = 1e11</li>
+ * </ul>
+ * Der Ausdruck hat keine Variablen; benutzerdefinierte Variablen sind
+ * Konstanten, so dass der Ausdruck schon beim Parsen verrechnet wird.
+ * Benutzerdefinierte Funktionen behalten die Regeln ihrer Definition.
+ */
+public class KeypadParser extends AbstractExpressionParser {
+
+    /**
+     * Erstellt einen neuen Parser
+     *
+     * @param expression Der Ausdruck der Tastatureingabe
+     */
+    public KeypadParser(String expression) {
+        super(expression);
+    }
+
+    /**
+     * Wertet den Ausdruck aus
+     *
+     * @throws ArithmeticException bei Division durch Null und anderen
+     *                             Definitionsbereichsfehlern
+     * @throws RuntimeException    wenn der Ausdruck nicht geparst werden kann
+     */
+    public double evaluate() {
+        return getCompiledExpression().evaluate(0, 0);
+    }
+
+    @Override
+    protected String grammar() {
+        return "tastatur;";
+    }
+
+    /**
+     * Parst eine Potenzkette, von links ausgewertet
+     */
+    @Override
+    protected ExpressionNode parseFactor() {
+        ExpressionNode result = parseSignedOperand();
+        while (eat('^')) {
+            result = binary(Operator.POW, result, parseSignedOperand());
+        }
+        return result;
+    }
+
+    /**
+     * Parst einen Grundbaustein mit Vorzeichen; das Vorzeichen gehört zum
+     * Operanden der Potenz
+     */
+    private ExpressionNode parseSignedOperand() {
+        if (eat('+'))
+            return parseSignedOperand();
+        if (eat('-'))
+            return unary(Operator.NEG, parseSignedOperand());
+        return parsePrimary();
+    }
+
+    /**
+     * Verrechnet Divisionen konstanter Operanden selbst, damit nur exakt 0 als
+     * Teiler abgelehnt wird
+     */
+    @Override
+    protected ExpressionNode binary(Operator op, ExpressionNode left, ExpressionNode right) {
+        if (op == Operator.DIV && left instanceof ExpressionNode.Constant
+                && right instanceof ExpressionNode.Constant) {
+            double divisor = ((ExpressionNode.Constant) right).getValue();
+            if (divisor == 0) {
+                throw new ArithmeticException("Division durch Null");
+            }
+            return new ExpressionNode.Constant(((ExpressionNode.Constant) left).getValue() / divisor);
+        }
+        return super.binary(op, left, right);
+    }
+}
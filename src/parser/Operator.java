@@ -0,0 +1,436 @@
+package parser;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Operatoren und Funktionen, die in kompilierten Ausdrücken vorkommen können
+ * Enthält die eigentliche Rechenvorschrift inklusive der Definitionsbereichsprüfungen
+ */
+public enum Operator {
+    // Arithmetische Operatoren
+    ADD("+", 2),
+    SUB("-", 2),
+    MUL("*", 2),
+    DIV("/", 2),
+    POW("^", 2),
+    NEG("-", 1),
+
+    // Einstellige Funktionen
+    SIN("sin", 1),
+    COS("cos", 1),
+    TAN("tan", 1),
+    ASIN("asin", 1),
+    ACOS("acos", 1),
+    ATAN("atan", 1),
+    SINH("sinh", 1),
+    COSH("cosh", 1),
+    TANH("tanh", 1),
+    SQRT("sqrt", 1),
+    CBRT("cbrt", 1),
+    LOG10("log10", 1),
+    LOG2("log2", 1),
+    LN("ln", 1),
+    EXP("exp", 1),
+    ABS("abs", 1),
+    FLOOR("floor", 1),
+    CEIL("ceil", 1),
+    ROUND("round", 1),
+    DEGREES("degrees", 1),
+    RADIANS("radians", 1),
+
+    // Zweistellige Funktionen
+    MAX("max", 2),
+    MIN("min", 2),
+    ATAN2("atan2", 2),
+
+    // Interne Operatoren, die nur vom Optimierer erzeugt werden
+    POW_HALF("pow_half", 1); // x^0.5 mit der Semantik von Math.pow
+
+    // Funktionsnamen (inklusive Aliase) für die Suche beim Parsen
+    private static final Map<String, Operator> UNARY_FUNCTIONS = new HashMap<>();
+    private static final Map<String, Operator> BINARY_FUNCTIONS = new HashMap<>();
+
+    static {
+        for (Operator op : values()) {
+            if (op.ordinal() >= SIN.ordinal() && op.ordinal() <= ATAN2.ordinal()) {
+                (op.arity == 1 ? UNARY_FUNCTIONS : BINARY_FUNCTIONS).put(op.symbol, op);
+            }
+        }
+        UNARY_FUNCTIONS.put("log", LOG10);
+        UNARY_FUNCTIONS.put("ceiling", CEIL);
+        UNARY_FUNCTIONS.put("deg", DEGREES);
+        UNARY_FUNCTIONS.put("rad", RADIANS);
+        BINARY_FUNCTIONS.put("pow", POW);
+    }
+
+    private final String symbol;
+    private final int arity;
+
+    Operator(String symbol, int arity) {
+        this.symbol = symbol;
+        this.arity = arity;
+    }
+
+    /**
+     * Liefert das Symbol bzw. den Funktionsnamen
+     */
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * Liefert die Anzahl der Operanden
+     */
+    public int getArity() {
+        return arity;
+    }
+
+    /**
+     * Sucht eine Funktion anhand ihres Namens und ihrer Stelligkeit
+     *
+     * @param name  Der Funktionsname (z.B. "sin", "log", "pow")
+     * @param arity Anzahl der Argumente (1 oder 2)
+     * @return Der passende Operator oder null, wenn die Funktion unbekannt ist
+     */
+    public static Operator forFunction(String name, int arity) {
+        if (arity == 1) {
+            return UNARY_FUNCTIONS.get(name);
+        }
+        if (arity == 2) {
+            return BINARY_FUNCTIONS.get(name);
+        }
+        return null;
+    }
+
+    /**
+     * Wendet einen einstelligen Operator an
+     */
+    public double apply(double arg) {
+        switch (this) {
+            case NEG:
+                return -arg;
+            case SIN:
+                return Math.sin(arg);
+            case COS:
+                return Math.cos(arg);
+            case TAN:
+                return Math.tan(arg);
+            case ASIN:
+                return asin(arg);
+            case ACOS:
+                return acos(arg);
+            case ATAN:
+                return Math.atan(arg);
+            case SINH:
+                return Math.sinh(arg);
+            case COSH:
+                return Math.cosh(arg);
+            case TANH:
+                return Math.tanh(arg);
+            case SQRT:
+                return sqrt(arg);
+            case CBRT:
+                return Math.cbrt(arg);
+            case LOG10:
+                return log10(arg);
+            case LOG2:
+                return log2(arg);
+            case LN:
+                return ln(arg);
+            case EXP:
+                return Math.exp(arg);
+            case ABS:
+                return Math.abs(arg);
+            case FLOOR:
+                return Math.floor(arg);
+            case CEIL:
+                return Math.ceil(arg);
+            case ROUND:
+                return Math.round(arg);
+            case DEGREES:
+                return Math.toDegrees(arg);
+            case RADIANS:
+                return Math.toRadians(arg);
+            case POW_HALF:
+                return powHalf(arg);
+            default:
+                throw new IllegalStateException("Kein einstelliger Operator: " + this);
+        }
+    }
+
+    /**
+     * Wendet einen zweistelligen Operator an
+     */
+    public double apply(double left, double right) {
+        switch (this) {
+            case ADD:
+                return left + right;
+            case SUB:
+                return left - right;
+            case MUL:
+                return left * right;
+            case DIV:
+                return div(left, right);
+            case POW:
+                return Math.pow(left, right);
+            case MAX:
+                return Math.max(left, right);
+            case MIN:
+                return Math.min(left, right);
+            case ATAN2:
+                return Math.atan2(left, right);
+            default:
+                throw new IllegalStateException("Kein zweistelliger Operator: " + this);
+        }
+    }
+
+    /**
+     * Wendet einen einstelligen Operator elementweise auf ein Array an (in-place)
+     * Nutzt SIMD-Register, wenn jdk.incubator.vector verfügbar ist
+     * Werte außerhalb des Definitionsbereichs werden zu NaN statt eine Exception
+     * zu werfen; NaN-Eingaben bleiben NaN
+     *
+     * @param values Eingabe und Ausgabe
+     * @param length Anzahl der zu berechnenden Elemente
+     */
+    public void apply(double[] values, int length) {
+        ArrayOperations vectorOperations = VectorSupport.OPERATIONS;
+        if (vectorOperations != null && vectorOperations.apply(this, values, length)) {
+            return;
+        }
+
+        switch (this) {
+            case NEG:
+                for (int i = 0; i < length; i++)
+                    values[i] = -values[i];
+                break;
+            case SIN:
+                for (int i = 0; i < length; i++)
+                    values[i] = Math.sin(values[i]);
+                break;
+            case COS:
+                for (int i = 0; i < length; i++)
+                    values[i] = Math.cos(values[i]);
+                break;
+            case TAN:
+                for (int i = 0; i < length; i++)
+                    values[i] = Math.tan(values[i]);
+                break;
+            case ASIN:
+                // Math.asin liefert außerhalb von [-1, 1] bereits NaN
+                for (int i = 0; i < length; i++)
+                    values[i] = Math.asin(values[i]);
+                break;
+            case ACOS:
+                for (int i = 0; i < length; i++)
+                    values[i] = Math.acos(values[i]);
+                break;
+            case ATAN:
+                for (int i = 0; i < length; i++)
+                    values[i] = Math.atan(values[i]);
+                break;
+            case SINH:
+                for (int i = 0; i < length; i++)
+                    values[i] = Math.sinh(values[i]);
+                break;
+            case COSH:
+                for (int i = 0; i < length; i++)
+                    values[i] = Math.cosh(values[i]);
+                break;
+            case TANH:
+                for (int i = 0; i < length; i++)
+                    values[i] = Math.tanh(values[i]);
+                break;
+            case SQRT:
+                // Math.sqrt liefert für negative Werte bereits NaN
+                for (int i = 0; i < length; i++)
+                    values[i] = Math.sqrt(values[i]);
+                break;
+            case CBRT:
+                for (int i = 0; i < length; i++)
+                    values[i] = Math.cbrt(values[i]);
+                break;
+            case LOG10:
+                for (int i = 0; i < length; i++)
+                    values[i] = values[i] > 0 ? Math.log10(values[i]) : Double.NaN;
+                break;
+            case LOG2:
+                for (int i = 0; i < length; i++)
+                    values[i] = values[i] > 0 ? Math.log(values[i]) / Math.log(2) : Double.NaN;
+                break;
+            case LN:
+                for (int i = 0; i < length; i++)
+                    values[i] = values[i] > 0 ? Math.log(values[i]) : Double.NaN;
+                break;
+            case EXP:
+                for (int i = 0; i < length; i++)
+                    values[i] = Math.exp(values[i]);
+                break;
+            case ABS:
+                for (int i = 0; i < length; i++)
+                    values[i] = Math.abs(values[i]);
+                break;
+            case FLOOR:
+                for (int i = 0; i < length; i++)
+                    values[i] = Math.floor(values[i]);
+                break;
+            case CEIL:
+                for (int i = 0; i < length; i++)
+                    values[i] = Math.ceil(values[i]);
+                break;
+            case ROUND:
+                // Math.round(NaN) wäre 0 - Fehler sollen aber erhalten bleiben
+                for (int i = 0; i < length; i++)
+                    values[i] = Double.isNaN(values[i]) ? Double.NaN : Math.round(values[i]);
+                break;
+            case DEGREES:
+                for (int i = 0; i < length; i++)
+                    values[i] = Math.toDegrees(values[i]);
+                break;
+            case RADIANS:
+                for (int i = 0; i < length; i++)
+                    values[i] = Math.toRadians(values[i]);
+                break;
+            case POW_HALF:
+                for (int i = 0; i < length; i++)
+                    values[i] = powHalf(values[i]);
+                break;
+            default:
+                throw new IllegalStateException("Kein einstelliger Operator: " + this);
+        }
+    }
+
+    /**
+     * Wendet einen zweistelligen Operator elementweise auf zwei Arrays an
+     * Nutzt SIMD-Register, wenn jdk.incubator.vector verfügbar ist
+     * Das Ergebnis wird in das linke Array geschrieben; Division durch (fast)
+     * Null ergibt NaN statt einer Exception
+     *
+     * @param left   Linke Operanden und Ausgabe
+     * @param right  Rechte Operanden
+     * @param length Anzahl der zu berechnenden Elemente
+     */
+    public void apply(double[] left, double[] right, int length) {
+        ArrayOperations vectorOperations = VectorSupport.OPERATIONS;
+        if (vectorOperations != null && vectorOperations.apply(this, left, right, length)) {
+            return;
+        }
+
+        switch (this) {
+            case ADD:
+                for (int i = 0; i < length; i++)
+                    left[i] += right[i];
+                break;
+            case SUB:
+                for (int i = 0; i < length; i++)
+                    left[i] -= right[i];
+                break;
+            case MUL:
+                for (int i = 0; i < length; i++)
+                    left[i] *= right[i];
+                break;
+            case DIV:
+                for (int i = 0; i < length; i++)
+                    left[i] = Math.abs(right[i]) < 1e-10 ? Double.NaN : left[i] / right[i];
+                break;
+            case POW:
+                // Math.pow(NaN, 0) wäre 1 - Fehler sollen aber erhalten bleiben
+                for (int i = 0; i < length; i++)
+                    left[i] = Double.isNaN(left[i]) || Double.isNaN(right[i]) ? Double.NaN
+                            : Math.pow(left[i], right[i]);
+                break;
+            case MAX:
+                for (int i = 0; i < length; i++)
+                    left[i] = Math.max(left[i], right[i]);
+                break;
+            case MIN:
+                for (int i = 0; i < length; i++)
+                    left[i] = Math.min(left[i], right[i]);
+                break;
+            case ATAN2:
+                for (int i = 0; i < length; i++)
+                    left[i] = Math.atan2(left[i], right[i]);
+                break;
+            default:
+                throw new IllegalStateException("Kein zweistelliger Operator: " + this);
+        }
+    }
+
+    /**
+     * Wie {@link #apply(double[], int)}, aber mit den schnelleren Näherungen aus
+     * {@link ApproximateMath}, wo es sie gibt (Vorschau während einer
+     * Interaktion)
+     */
+    void applyApproximate(double[] values, int length) {
+        if (!ApproximateOperations.INSTANCE.apply(this, values, length)) {
+            apply(values, length);
+        }
+    }
+
+    /**
+     * Wie {@link #apply(double[], double[], int)}, aber mit den schnelleren
+     * Näherungen aus {@link ApproximateMath}, wo es sie gibt
+     */
+    void applyApproximate(double[] left, double[] right, int length) {
+        if (!ApproximateOperations.INSTANCE.apply(this, left, right, length)) {
+            apply(left, right, length);
+        }
+    }
+
+    // Geprüfte Grundfunktionen, auch vom generierten Code direkt aufgerufen
+
+    static double div(double left, double right) {
+        if (Math.abs(right) < 1e-10) {
+            throw new ArithmeticException("Division durch Null");
+        }
+        return left / right;
+    }
+
+    static double asin(double arg) {
+        if (arg < -1 || arg > 1)
+            throw new ArithmeticException("Arcsin-Argument außerhalb des Bereichs [-1, 1]");
+        return Math.asin(arg);
+    }
+
+    static double acos(double arg) {
+        if (arg < -1 || arg > 1)
+            throw new ArithmeticException("Arccos-Argument außerhalb des Bereichs [-1, 1]");
+        return Math.acos(arg);
+    }
+
+    static double sqrt(double arg) {
+        if (arg < 0)
+            throw new ArithmeticException("Quadratwurzel aus negativer Zahl");
+        return Math.sqrt(arg);
+    }
+
+    static double log10(double arg) {
+        if (arg <= 0)
+            throw new ArithmeticException("Logarithmus einer nicht-positiven Zahl");
+        return Math.log10(arg);
+    }
+
+    static double log2(double arg) {
+        if (arg <= 0)
+            throw new ArithmeticException("Logarithmus einer nicht-positiven Zahl");
+        return Math.log(arg) / Math.log(2);
+    }
+
+    static double ln(double arg) {
+        if (arg <= 0)
+            throw new ArithmeticException("Natürlicher Logarithmus einer nicht-positiven Zahl");
+        return Math.log(arg);
+    }
+
+    /**
+     * Entspricht Math.pow(arg, 0.5), nutzt aber die schnellere Quadratwurzel
+     * (Sonderfälle -0.0 und -∞ wie bei Math.pow)
+     */
+    static double powHalf(double arg) {
+        if (arg == Double.NEGATIVE_INFINITY) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Math.sqrt(arg) + 0.0;
+    }
+}
@@ -0,0 +1,714 @@
+package parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Polynom in x mit Koeffizienten in aufsteigender Reihenfolge
+ * (a0 + a1·x + a2·x² + ...), ausgewertet mit dem Horner-Schema
+ *
+ * {@link #detect} erkennt, ob ein (optimierter) Ausdruck nach der
+ * Konstantenfaltung ein Polynom ist. Für Polynome lassen sich die reellen
+ * Nullstellen direkt bestimmen: bis Grad 4 geschlossen, darüber als
+ * Eigenwerte der Begleitmatrix. Alle Nullstellen werden anschließend mit dem
+ * Newton-Verfahren auf dem Polynom nachgeschärft.
+ */
+public final class Polynomial {
+    // Höchster Grad, der noch als Polynom behandelt wird
+    public static final int MAX_DEGREE = 24;
+
+    private static final int MAX_POLISH_ITERATIONS = 50;
+    private static final int MAX_QR_ITERATIONS = 30;
+    private static final double RADIX = 2.0;
+
+    // Relative Schranke, unter der ein führender Koeffizient als 0 gilt
+    private static final double LEADING_EPSILON = 1e-14;
+
+    // Relative Schranken für fast doppelte Nullstellen bzw. fast reelle Eigenwerte
+    private static final double DISCRIMINANT_EPSILON = 1e-12;
+    private static final double IMAGINARY_EPSILON = 1e-7;
+
+    // Relative Schranke für das Residuum einer gültigen Nullstelle
+    private static final double RESIDUAL_EPSILON = 1e-9;
+
+    private final double[] coefficients;
+
+    /**
+     * Erstellt ein Polynom
+     * Führende Koeffizienten, die gegenüber den übrigen verschwindend klein
+     * sind, werden abgeschnitten
+     *
+     * @param coefficients Koeffizienten, Index = Exponent
+     */
+    public Polynomial(double[] coefficients) {
+        this.coefficients = trim(coefficients);
+    }
+
+    private static double[] trim(double[] coefficients) {
+        double largest = 0;
+        for (double c : coefficients) {
+            largest = Math.max(largest, Math.abs(c));
+        }
+        int degree = coefficients.length - 1;
+        while (degree > 0 && Math.abs(coefficients[degree]) <= LEADING_EPSILON * largest) {
+            degree--;
+        }
+        return Arrays.copyOf(coefficients, Math.max(degree + 1, 1));
+    }
+
+    /**
+     * Erkennt, ob ein Ausdruck ein Polynom in x ist
+     * Erlaubt sind Konstanten, x, Summen, Differenzen, Produkte, Negation,
+     * Division durch Konstanten und Potenzen mit nichtnegativen ganzzahligen
+     * konstanten Exponenten, solange der Grad {@link #MAX_DEGREE} nicht
+     * übersteigt
+     *
+     * @return Das Polynom oder null, wenn der Ausdruck kein Polynom ist
+     */
+    public static Polynomial detect(ExpressionNode root) {
+        double[] coefficients = convert(root, new IdentityHashMap<>());
+        if (coefficients == null) {
+            return null;
+        }
+        for (double c : coefficients) {
+            if (!Double.isFinite(c)) {
+                return null;
+            }
+        }
+        return new Polynomial(coefficients);
+    }
+
+    /**
+     * Wandelt einen Teilausdruck in Koeffizienten um
+     * Gemeinsame Teilausdrücke werden dabei nur einmal umgewandelt
+     */
+    private static double[] convert(ExpressionNode node, Map<ExpressionNode, double[]> memo) {
+        if (memo.containsKey(node)) {
+            return memo.get(node);
+        }
+        double[] result = convertNode(node, memo);
+        memo.put(node, result);
+        return result;
+    }
+
+    private static double[] convertNode(ExpressionNode node, Map<ExpressionNode, double[]> memo) {
+        if (node instanceof ExpressionNode.Constant) {
+            double value = ((ExpressionNode.Constant) node).getValue();
+            return Double.isFinite(value) ? new double[] { value } : null;
+        }
+        if (node instanceof ExpressionNode.Variable) {
+            boolean isX = ((ExpressionNode.Variable) node).getIndex() == ExpressionNode.Variable.X;
+            return isX ? new double[] { 0, 1 } : null;
+        }
+        if (node instanceof ExpressionNode.Unary) {
+            ExpressionNode.Unary unary = (ExpressionNode.Unary) node;
+            if (unary.getOperator() != Operator.NEG) {
+                return null;
+            }
+            double[] operand = convert(unary.getOperand(), memo);
+            return operand == null ? null : scale(operand, -1);
+        }
+
+        ExpressionNode.Binary binary = (ExpressionNode.Binary) node;
+        Operator op = binary.getOperator();
+        double[] left = convert(binary.getLeft(), memo);
+        if (left == null) {
+            return null;
+        }
+
+        if (op == Operator.POW) {
+            return power(left, binary.getRight());
+        }
+
+        double[] right = convert(binary.getRight(), memo);
+        if (right == null) {
+            return null;
+        }
+        switch (op) {
+            case ADD:
+                return add(left, right, 1);
+            case SUB:
+                return add(left, right, -1);
+            case MUL:
+                return multiply(left, right);
+            case DIV:
+                // Nur Division durch eine Konstante, die nicht als Null gilt
+                if (right.length != 1 || Math.abs(right[0]) < 1e-10) {
+                    return null;
+                }
+                return scale(left, 1 / right[0]);
+            default:
+                return null;
+        }
+    }
+
+    private static double[] power(double[] base, ExpressionNode exponentNode) {
+        if (!(exponentNode instanceof ExpressionNode.Constant)) {
+            return null;
+        }
+        double exponent = ((ExpressionNode.Constant) exponentNode).getValue();
+        if (exponent < 0 || exponent != Math.rint(exponent)) {
+            return null;
+        }
+        if (base.length == 1) {
+            return new double[] { Math.pow(base[0], exponent) };
+        }
+        if ((base.length - 1) * exponent > MAX_DEGREE) {
+            return null;
+        }
+        double[] result = { 1 };
+        for (int i = 0; i < (int) exponent; i++) {
+            result = multiply(result, base);
+        }
+        return result;
+    }
+
+    private static double[] add(double[] a, double[] b, double sign) {
+        double[] result = new double[Math.max(a.length, b.length)];
+        for (int i = 0; i < a.length; i++) {
+            result[i] = a[i];
+        }
+        for (int i = 0; i < b.length; i++) {
+            result[i] += sign * b[i];
+        }
+        return result;
+    }
+
+    private static double[] multiply(double[] a, double[] b) {
+        if (a.length + b.length - 2 > MAX_DEGREE) {
+            return null;
+        }
+        double[] result = new double[a.length + b.length - 1];
+        for (int i = 0; i < a.length; i++) {
+            for (int j = 0; j < b.length; j++) {
+                result[i + j] += a[i] * b[j];
+            }
+        }
+        return result;
+    }
+
+    private static double[] scale(double[] a, double factor) {
+        double[] result = new double[a.length];
+        for (int i = 0; i < a.length; i++) {
+            result[i] = a[i] * factor;
+        }
+        return result;
+    }
+
+    /**
+     * Liefert den Grad (0 für Konstanten, auch für das Nullpolynom)
+     */
+    public int getDegree() {
+        return coefficients.length - 1;
+    }
+
+    /**
+     * Liefert eine Kopie der Koeffizienten, Index = Exponent
+     */
+    public double[] getCoefficients() {
+        return coefficients.clone();
+    }
+
+    /**
+     * Gibt an, ob alle Koeffizienten 0 sind
+     */
+    public boolean isZero() {
+        return coefficients.length == 1 && coefficients[0] == 0;
+    }
+
+    /**
+     * Wertet das Polynom mit dem Horner-Schema aus
+     */
+    public double evaluate(double x) {
+        double result = 0;
+        for (int i = coefficients.length - 1; i >= 0; i--) {
+            result = result * x + coefficients[i];
+        }
+        return result;
+    }
+
+    /**
+     * Differenz zweier Polynome
+     */
+    public Polynomial minus(Polynomial other) {
+        return new Polynomial(add(coefficients, other.coefficients, -1));
+    }
+
+    /**
+     * Bestimmt alle reellen Nullstellen im Intervall [from, to]
+     * Mehrfache Nullstellen werden einmal geliefert. Beim Nullpolynom ist jede
+     * Stelle eine Nullstelle; dann wird eine leere Liste geliefert.
+     *
+     * @return Aufsteigend sortierte Nullstellen, oder null, wenn das
+     *         Eigenwertverfahren nicht konvergiert ist
+     */
+    public List<Double> findRealRoots(double from, double to) {
+        double[] candidates;
+        switch (getDegree()) {
+            case 0:
+                candidates = new double[0];
+                break;
+            case 1:
+                candidates = new double[] { -coefficients[0] / coefficients[1] };
+                break;
+            case 2:
+                candidates = quadraticRoots(coefficients[2], coefficients[1], coefficients[0]);
+                break;
+            case 3:
+                candidates = cubicRoots();
+                break;
+            case 4:
+                candidates = quarticRoots();
+                break;
+            default:
+                candidates = companionRoots();
+                if (candidates == null) {
+                    return null;
+                }
+                break;
+        }
+
+        List<Double> roots = new ArrayList<>();
+        for (double candidate : candidates) {
+            double root = polish(candidate);
+            if (root >= from && root <= to && isRoot(root)) {
+                roots.add(root);
+            }
+        }
+        roots.sort(null);
+
+        // Mehrfache Nullstellen zusammenfassen
+        List<Double> distinct = new ArrayList<>();
+        for (double root : roots) {
+            int last = distinct.size() - 1;
+            if (last >= 0 && Math.abs(root - distinct.get(last)) <= 1e-9 * Math.max(1, Math.abs(root))) {
+                continue;
+            }
+            distinct.add(root);
+        }
+        return distinct;
+    }
+
+    /**
+     * Schärft eine Nullstelle mit dem Newton-Verfahren nach
+     * Schritte, die das Residuum nicht verkleinern, werden verworfen
+     */
+    private double polish(double x) {
+        double value = evaluate(x);
+        for (int iteration = 0; iteration < MAX_POLISH_ITERATIONS && value != 0; iteration++) {
+            // Horner-Schema für Wert und Ableitung in einem Durchlauf
+            double p = 0;
+            double dp = 0;
+            for (int i = coefficients.length - 1; i >= 0; i--) {
+                dp = dp * x + p;
+                p = p * x + coefficients[i];
+            }
+            if (dp == 0 || !Double.isFinite(dp)) {
+                break;
+            }
+            double next = x - p / dp;
+            double nextValue = evaluate(next);
+            if (!(Math.abs(nextValue) < Math.abs(value)) || next == x) {
+                break;
+            }
+            x = next;
+            value = nextValue;
+        }
+        return x;
+    }
+
+    /**
+     * Prüft, ob das Residuum an der Stelle x im Rahmen der Rundungsfehler des
+     * Horner-Schemas liegt
+     */
+    private boolean isRoot(double x) {
+        if (!Double.isFinite(x)) {
+            return false;
+        }
+        double scale = 0;
+        double power = 1;
+        for (double c : coefficients) {
+            scale += Math.abs(c) * power;
+            power *= Math.abs(x);
+        }
+        return Math.abs(evaluate(x)) <= RESIDUAL_EPSILON * scale;
+    }
+
+    /**
+     * Reelle Nullstellen von a·x² + b·x + c (numerisch stabile Form)
+     */
+    private static double[] quadraticRoots(double a, double b, double c) {
+        double discriminant = b * b - 4 * a * c;
+        double tolerance = DISCRIMINANT_EPSILON * Math.max(b * b, Math.abs(4 * a * c));
+        if (discriminant < -tolerance) {
+            return new double[0];
+        }
+        if (discriminant <= tolerance) {
+            return new double[] { -b / (2 * a) };
+        }
+        double q = -0.5 * (b + Math.copySign(Math.sqrt(discriminant), b));
+        if (q == 0) {
+            return new double[] { 0 };
+        }
+        return new double[] { q / a, c / q };
+    }
+
+    /**
+     * Reelle Nullstellen eines Polynoms dritten Grades (Cardano bzw.
+     * trigonometrische Lösung bei drei reellen Nullstellen)
+     */
+    private double[] cubicRoots() {
+        double a = coefficients[2] / coefficients[3];
+        double b = coefficients[1] / coefficients[3];
+        double c = coefficients[0] / coefficients[3];
+
+        double q = (a * a - 3 * b) / 9;
+        double r = (2 * a * a * a - 9 * a * b + 27 * c) / 54;
+        double shift = a / 3;
+
+        if (r * r < q * q * q) {
+            double theta = Math.acos(r / Math.sqrt(q * q * q));
+            double factor = -2 * Math.sqrt(q);
+            return new double[] {
+                    factor * Math.cos(theta / 3) - shift,
+                    factor * Math.cos((theta + 2 * Math.PI) / 3) - shift,
+                    factor * Math.cos((theta - 2 * Math.PI) / 3) - shift };
+        }
+
+        double big = -Math.copySign(Math.cbrt(Math.abs(r) + Math.sqrt(r * r - q * q * q)), r);
+        double small = big == 0 ? 0 : q / big;
+        double single = big + small - shift;
+
+        // Fast gleiche Teile: das konjugiert komplexe Paar ist eine doppelte
+        // reelle Nullstelle
+        if (Math.abs(big - small) <= IMAGINARY_EPSILON * Math.max(Math.abs(big), Math.abs(small))) {
+            return new double[] { single, -0.5 * (big + small) - shift };
+        }
+        return new double[] { single };
+    }
+
+    /**
+     * Reelle Nullstellen eines Polynoms vierten Grades (Ferrari)
+     * Die reduzierte Gleichung y⁴ + p·y² + q·y + r = 0 wird mit einer Lösung m
+     * der kubischen Resolvente in zwei quadratische Gleichungen zerlegt
+     */
+    private double[] quarticRoots() {
+        double a = coefficients[3] / coefficients[4];
+        double b = coefficients[2] / coefficients[4];
+        double c = coefficients[1] / coefficients[4];
+        double d = coefficients[0] / coefficients[4];
+
+        double shift = a / 4;
+        double p = b - 3 * a * a / 8;
+        double q = c - a * b / 2 + a * a * a / 8;
+        double r = d - a * c / 4 + a * a * b / 16 - 3 * a * a * a * a / 256;
+
+        List<Double> roots = new ArrayList<>();
+        if (Math.abs(q) <= DISCRIMINANT_EPSILON * Math.max(1, Math.max(Math.abs(p), Math.abs(r)))) {
+            // Biquadratisch: z = y²
+            for (double z : quadraticRoots(1, p, r)) {
+                if (z >= 0) {
+                    roots.add(Math.sqrt(z) - shift);
+                    roots.add(-Math.sqrt(z) - shift);
+                }
+            }
+        } else {
+            // Resolvente 8m³ + 8p·m² + (2p² - 8r)·m - q² = 0 hat eine positive Nullstelle
+            Polynomial resolvent = new Polynomial(new double[] { -q * q, 2 * p * p - 8 * r, 8 * p, 8 });
+            double m = 0;
+            for (double candidate : resolvent.cubicRoots()) {
+                m = Math.max(m, resolvent.polish(candidate));
+            }
+            if (m <= 0) {
+                return new double[0];
+            }
+            double s = Math.sqrt(2 * m);
+            for (double y : quadraticRoots(1, s, p / 2 + m - q / (2 * s))) {
+                roots.add(y - shift);
+            }
+            for (double y : quadraticRoots(1, -s, p / 2 + m + q / (2 * s))) {
+                roots.add(y - shift);
+            }
+        }
+
+        double[] result = new double[roots.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = roots.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Reelle Nullstellen als Eigenwerte der (balancierten) Begleitmatrix,
+     * berechnet mit dem QR-Verfahren für Hessenberg-Matrizen
+     *
+     * @return Die (nahezu) reellen Eigenwerte oder null ohne Konvergenz
+     */
+    private double[] companionRoots() {
+        int n = getDegree();
+
+        // Matrizen 1-basiert wie in der klassischen Formulierung des Verfahrens
+        double[][] h = new double[n + 1][n + 1];
+        for (int k = 1; k <= n; k++) {
+            h[1][k] = -coefficients[n - k] / coefficients[n];
+            if (k != n) {
+                h[k + 1][k] = 1;
+            }
+        }
+        balance(h, n);
+
+        double[] real = new double[n + 1];
+        double[] imaginary = new double[n + 1];
+        if (!hessenbergEigenvalues(h, n, real, imaginary)) {
+            return null;
+        }
+
+        List<Double> roots = new ArrayList<>();
+        for (int i = 1; i <= n; i++) {
+            if (Math.abs(imaginary[i]) <= IMAGINARY_EPSILON * Math.max(1, Math.abs(real[i]))) {
+                roots.add(real[i]);
+            }
+        }
+        double[] result = new double[roots.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = roots.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Gleicht Zeilen- und Spaltennormen der Matrix durch Ähnlichkeits-
+     * transformationen mit Zweierpotenzen an (verbessert die Genauigkeit der
+     * Eigenwerte)
+     */
+    private static void balance(double[][] a, int n) {
+        double sqrdx = RADIX * RADIX;
+        boolean done = false;
+        while (!done) {
+            done = true;
+            for (int i = 1; i <= n; i++) {
+                double r = 0;
+                double c = 0;
+                for (int j = 1; j <= n; j++) {
+                    if (j != i) {
+                        c += Math.abs(a[j][i]);
+                        r += Math.abs(a[i][j]);
+                    }
+                }
+                if (c != 0 && r != 0) {
+                    double g = r / RADIX;
+                    double f = 1;
+                    double s = c + r;
+                    while (c < g) {
+                        f *= RADIX;
+                        c *= sqrdx;
+                    }
+                    g = r * RADIX;
+                    while (c > g) {
+                        f /= RADIX;
+                        c /= sqrdx;
+                    }
+                    if ((c + r) / f < 0.95 * s) {
+                        done = false;
+                        g = 1 / f;
+                        for (int j = 1; j <= n; j++) {
+                            a[i][j] *= g;
+                        }
+                        for (int j = 1; j <= n; j++) {
+                            a[j][i] *= f;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Eigenwerte einer oberen Hessenberg-Matrix (QR-Verfahren mit doppeltem
+     * Shift nach Francis); die Matrix wird dabei überschrieben
+     *
+     * @return false, wenn das Verfahren nicht konvergiert
+     */
+    private static boolean hessenbergEigenvalues(double[][] a, int n, double[] wr, double[] wi) {
+        double anorm = 0;
+        for (int i = 1; i <= n; i++) {
+            for (int j = Math.max(i - 1, 1); j <= n; j++) {
+                anorm += Math.abs(a[i][j]);
+            }
+        }
+
+        int nn = n;
+        double t = 0;
+        double p = 0;
+        double q = 0;
+        double r = 0;
+        double x;
+        double y;
+        double z;
+        double w;
+        double s;
+        while (nn >= 1) {
+            int its = 0;
+            int l = nn;
+            do {
+                // Kleines Subdiagonalelement suchen
+                for (l = nn; l >= 2; l--) {
+                    s = Math.abs(a[l - 1][l - 1]) + Math.abs(a[l][l]);
+                    if (s == 0) {
+                        s = anorm;
+                    }
+                    if (Math.abs(a[l][l - 1]) + s == s) {
+                        a[l][l - 1] = 0;
+                        break;
+                    }
+                }
+                x = a[nn][nn];
+                if (l == nn) {
+                    // Eine Nullstelle gefunden
+                    wr[nn] = x + t;
+                    wi[nn--] = 0;
+                } else {
+                    y = a[nn - 1][nn - 1];
+                    w = a[nn][nn - 1] * a[nn - 1][nn];
+                    if (l == nn - 1) {
+                        // Zwei Nullstellen gefunden
+                        p = 0.5 * (y - x);
+                        q = p * p + w;
+                        z = Math.sqrt(Math.abs(q));
+                        x += t;
+                        if (q >= 0) {
+                            z = p + Math.copySign(z, p);
+                            wr[nn - 1] = wr[nn] = x + z;
+                            if (z != 0) {
+                                wr[nn] = x - w / z;
+                            }
+                            wi[nn - 1] = wi[nn] = 0;
+                        } else {
+                            wr[nn - 1] = wr[nn] = x + p;
+                            wi[nn - 1] = -(wi[nn] = z);
+                        }
+                        nn -= 2;
+                    } else {
+                        if (its == MAX_QR_ITERATIONS) {
+                            return false;
+                        }
+                        if (its == 10 || its == 20) {
+                            // Außergewöhnlicher Shift
+                            t += x;
+                            for (int i = 1; i <= nn; i++) {
+                                a[i][i] -= x;
+                            }
+                            s = Math.abs(a[nn][nn - 1]) + Math.abs(a[nn - 1][nn - 2]);
+                            y = x = 0.75 * s;
+                            w = -0.4375 * s * s;
+                        }
+                        ++its;
+
+                        // Zwei aufeinanderfolgende kleine Subdiagonalelemente suchen
+                        int m;
+                        for (m = nn - 2; m >= l; m--) {
+                            z = a[m][m];
+                            r = x - z;
+                            s = y - z;
+                            p = (r * s - w) / a[m + 1][m] + a[m][m + 1];
+                            q = a[m + 1][m + 1] - z - r - s;
+                            r = a[m + 2][m + 1];
+                            s = Math.abs(p) + Math.abs(q) + Math.abs(r);
+                            p /= s;
+                            q /= s;
+                            r /= s;
+                            if (m == l) {
+                                break;
+                            }
+                            double u = Math.abs(a[m][m - 1]) * (Math.abs(q) + Math.abs(r));
+                            double v = Math.abs(p) * (Math.abs(a[m - 1][m - 1]) + Math.abs(z)
+                                    + Math.abs(a[m + 1][m + 1]));
+                            if (u + v == v) {
+                                break;
+                            }
+                        }
+                        for (int i = m + 2; i <= nn; i++) {
+                            a[i][i - 2] = 0;
+                            if (i != m + 2) {
+                                a[i][i - 3] = 0;
+                            }
+                        }
+
+                        // Doppelter QR-Schritt auf den Zeilen l bis nn
+                        for (int k = m; k <= nn - 1; k++) {
+                            if (k != m) {
+                                p = a[k][k - 1];
+                                q = a[k + 1][k - 1];
+                                r = 0;
+                                if (k != nn - 1) {
+                                    r = a[k + 2][k - 1];
+                                }
+                                if ((x = Math.abs(p) + Math.abs(q) + Math.abs(r)) != 0) {
+                                    p /= x;
+                                    q /= x;
+                                    r /= x;
+                                }
+                            }
+                            if ((s = Math.copySign(Math.sqrt(p * p + q * q + r * r), p)) != 0) {
+                                if (k == m) {
+                                    if (l != m) {
+                                        a[k][k - 1] = -a[k][k - 1];
+                                    }
+                                } else {
+                                    a[k][k - 1] = -s * x;
+                                }
+                                p += s;
+                                x = p / s;
+                                y = q / s;
+                                z = r / s;
+                                q /= p;
+                                r /= p;
+                                for (int j = k; j <= nn; j++) {
+                                    p = a[k][j] + q * a[k + 1][j];
+                                    if (k != nn - 1) {
+                                        p += r * a[k + 2][j];
+                                        a[k + 2][j] -= p * z;
+                                    }
+                                    a[k + 1][j] -= p * y;
+                                    a[k][j] -= p * x;
+                                }
+                                int mmin = nn < k + 3 ? nn : k + 3;
+                                for (int i = l; i <= mmin; i++) {
+                                    p = x * a[i][k] + y * a[i][k + 1];
+                                    if (k != nn - 1) {
+                                        p += z * a[i][k + 2];
+                                        a[i][k + 2] -= p * r;
+                                    }
+                                    a[i][k + 1] -= p * q;
+                                    a[i][k] -= p;
+                                }
+                            }
+                        }
+                    }
+                }
+            } while (l < nn - 1);
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = coefficients.length - 1; i >= 0; i--) {
+            if (coefficients[i] == 0 && coefficients.length > 1) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append(" + ");
+            }
+            sb.append(coefficients[i]);
+            if (i > 0) {
+                sb.append(i == 1 ? "x" : "x^" + i);
+            }
+        }
+        return sb.length() == 0 ? "0" : sb.toString();
+    }
+}
@@ -0,0 +1,209 @@
+package parser;
+
+import java.util.Arrays;
+
+/**
+ * Registermaschine für die Auswertung einzelner Punkte
+ * Ersatz für die generierte Klasse, wenn keine Codegenerierung möglich ist
+ * (oder sie mit -Dparser.codegen=false abgeschaltet wurde)
+ *
+ * Der Ausdruck wird in ein kompaktes int[]-Programm mit je vier Einträgen pro
+ * Befehl (Opcode, Ziel, linker und rechter Operand) übersetzt. Alle Operanden
+ * sind Registernummern: Register 0 und 1 enthalten x und y, danach folgt der
+ * Konstantenpool, danach die Zwischenergebnisse. Register für
+ * Zwischenergebnisse werden nach der letzten Verwendung wiederverwendet, daher
+ * bleibt der Registersatz klein.
+ *
+ * Jeder Thread erhält einen eigenen, einmal angelegten Registersatz; eine
+ * Auswertung legt keine Objekte an.
+ */
+final class RegisterMachine implements ExpressionEvaluator {
+    // Befehlsarten (untere vier Bits des Opcodes); häufige Grundrechenarten
+    // werden direkt ausgeführt, alle anderen über den Operator
+    private static final int OP_ADD = 0;
+    private static final int OP_SUB = 1;
+    private static final int OP_MUL = 2;
+    private static final int OP_NEG = 3;
+    private static final int OP_UNARY = 4;
+    private static final int OP_BINARY = 5;
+
+    private static final int KIND_BITS = 4;
+    private static final int KIND_MASK = (1 << KIND_BITS) - 1;
+    private static final int STRIDE = 4;
+
+    private static final int REGISTER_X = 0;
+    private static final int REGISTER_Y = 1;
+
+    private static final Operator[] OPERATORS = Operator.values();
+
+    private final int[] code;
+    private final double[] constants;
+    private final int registerCount;
+    private final int resultRegister;
+
+    private final ThreadLocal<double[]> registers = ThreadLocal.withInitial(this::newRegisters);
+
+    RegisterMachine(EvaluationOrder order) {
+        int count = order.size();
+
+        // Konstantenpool direkt hinter x und y
+        int constantCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (order.kinds[i] == EvaluationOrder.CONSTANT) {
+                constantCount++;
+            }
+        }
+        constants = new double[constantCount];
+        int firstTemporary = 2 + constantCount;
+
+        // Letzte Verwendung jedes Knotens als Operand
+        int[] lastUse = new int[count];
+        for (int i = 0; i < count; i++) {
+            if (order.kinds[i] == EvaluationOrder.UNARY || order.kinds[i] == EvaluationOrder.BINARY) {
+                lastUse[order.left[i]] = i;
+            }
+            if (order.kinds[i] == EvaluationOrder.BINARY) {
+                lastUse[order.right[i]] = i;
+            }
+        }
+
+        int[] registerOf = new int[count];
+        int[] program = new int[count * STRIDE];
+        int length = 0;
+        int constantIndex = 0;
+
+        // Freie Register für Zwischenergebnisse (als Stapel)
+        int[] free = new int[count];
+        int freeCount = 0;
+        int nextTemporary = firstTemporary;
+
+        for (int i = 0; i < count; i++) {
+            switch (order.kinds[i]) {
+                case EvaluationOrder.CONSTANT:
+                    constants[constantIndex] = order.constants[i];
+                    registerOf[i] = 2 + constantIndex++;
+                    continue;
+                case EvaluationOrder.VARIABLE_X:
+                    registerOf[i] = REGISTER_X;
+                    continue;
+                case EvaluationOrder.VARIABLE_Y:
+                    registerOf[i] = REGISTER_Y;
+                    continue;
+                default:
+                    break;
+            }
+
+            boolean binary = order.kinds[i] == EvaluationOrder.BINARY;
+            int a = order.left[i];
+            int b = binary ? order.right[i] : a;
+
+            // Operanden, die hier zuletzt gelesen werden, geben ihr Register frei;
+            // das Ziel darf es sofort wiederverwenden
+            if (lastUse[a] == i && registerOf[a] >= firstTemporary) {
+                free[freeCount++] = registerOf[a];
+            }
+            if (binary && b != a && lastUse[b] == i && registerOf[b] >= firstTemporary) {
+                free[freeCount++] = registerOf[b];
+            }
+            int target = freeCount > 0 ? free[--freeCount] : nextTemporary++;
+            registerOf[i] = target;
+
+            Operator op = order.operators[i];
+            program[length] = (op.ordinal() << KIND_BITS) | kindOf(op, binary);
+            program[length + 1] = target;
+            program[length + 2] = registerOf[a];
+            program[length + 3] = registerOf[b];
+            length += STRIDE;
+        }
+
+        code = Arrays.copyOf(program, length);
+        registerCount = nextTemporary;
+        resultRegister = registerOf[count - 1];
+    }
+
+    private static int kindOf(Operator op, boolean binary) {
+        switch (op) {
+            case ADD:
+                return OP_ADD;
+            case SUB:
+                return OP_SUB;
+            case MUL:
+                return OP_MUL;
+            case NEG:
+                return OP_NEG;
+            default:
+                return binary ? OP_BINARY : OP_UNARY;
+        }
+    }
+
+    /**
+     * Legt einen Registersatz mit vorbelegtem Konstantenpool an
+     */
+    double[] newRegisters() {
+        double[] result = new double[registerCount];
+        System.arraycopy(constants, 0, result, 2, constants.length);
+        return result;
+    }
+
+    /**
+     * Liefert die Anzahl der Register (x, y, Konstanten und Zwischenergebnisse)
+     */
+    int getRegisterCount() {
+        return registerCount;
+    }
+
+    /**
+     * Liefert die Anzahl der Befehle
+     */
+    int getInstructionCount() {
+        return code.length / STRIDE;
+    }
+
+    /**
+     * Wertet den Ausdruck mit dem Registersatz des aktuellen Threads aus
+     *
+     * @throws ArithmeticException bei Definitionsbereichsfehlern
+     */
+    @Override
+    public double eval(double x, double y) {
+        return evaluate(x, y, registers.get());
+    }
+
+    /**
+     * Wertet den Ausdruck mit einem eigenen Registersatz aus
+     *
+     * @param r Registersatz aus {@link #newRegisters()}
+     */
+    double evaluate(double x, double y, double[] r) {
+        int[] code = this.code;
+        r[REGISTER_X] = x;
+        r[REGISTER_Y] = y;
+
+        for (int pc = 0; pc < code.length; pc += STRIDE) {
+            int instruction = code[pc];
+            int target = code[pc + 1];
+            double a = r[code[pc + 2]];
+            switch (instruction & KIND_MASK) {
+                case OP_ADD:
+                    r[target] = a + r[code[pc + 3]];
+                    break;
+                case OP_SUB:
+                    r[target] = a - r[code[pc + 3]];
+                    break;
+                case OP_MUL:
+                    r[target] = a * r[code[pc + 3]];
+                    break;
+                case OP_NEG:
+                    r[target] = -a;
+                    break;
+                case OP_UNARY:
+                    r[target] = OPERATORS[instruction >>> KIND_BITS].apply(a);
+                    break;
+                default:
+                    r[target] = OPERATORS[instruction >>> KIND_BITS].apply(a, r[code[pc + 3]]);
+                    break;
+            }
+        }
+        return r[resultRegister];
+    }
+}
@@ -0,0 +1,399 @@
+package parser;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Zerlegung einer Funktion f(x,y) in g(x) + h(y) oder g(x) * h(y)
+ * Für solche Funktionen genügt es, g auf der x-Achse und h auf der y-Achse
+ * auszuwerten; jeder Gitterpunkt kostet dann nur noch eine Addition bzw.
+ * Multiplikation
+ *
+ * Erkannt werden Summen, Differenzen, Negationen sowie Produkte und
+ * Quotienten mit Konstanten bzw. einvariabligen Faktoren, außerdem
+ * exp(u(x) + v(y)) = exp(u(x)) * exp(v(y)). Durch die Umformung können sich
+ * die Ergebnisse in den letzten Stellen vom ursprünglichen Ausdruck
+ * unterscheiden; Definitionsbereichsfehler bleiben erhalten, da nur Operatoren
+ * ohne Fehlerfall umgestellt werden.
+ */
+public final class SeparableForm {
+    private static final int X_MASK = 1;
+    private static final int Y_MASK = 2;
+
+    private final ExpressionNode original;
+    private final ExpressionNode xPart;
+    private final ExpressionNode yPart;
+    private final boolean product;
+    private final BatchEvaluator xEvaluator;
+    private final BatchEvaluator yEvaluator;
+
+    private SeparableForm(ExpressionNode original, ExpressionNode xPart, ExpressionNode yPart, boolean product) {
+        this.original = original;
+        this.xPart = ExpressionOptimizer.optimize(xPart);
+        this.yPart = ExpressionOptimizer.optimize(yPart);
+        this.product = product;
+        this.xEvaluator = new BatchEvaluator(this.xPart);
+        this.yEvaluator = new BatchEvaluator(this.yPart);
+    }
+
+    /**
+     * Versucht, einen Ausdruck in einen x- und einen y-Teil zu zerlegen
+     *
+     * @param root Die Wurzel des Ausdrucks
+     * @return Die Zerlegung oder null, wenn der Ausdruck nicht separierbar ist
+     *         oder nur von einer Variablen abhängt
+     */
+    public static SeparableForm detect(ExpressionNode root) {
+        Analysis analysis = new Analysis();
+        if (analysis.variables(root) != (X_MASK | Y_MASK)) {
+            return null;
+        }
+
+        Parts sum = analysis.additive(root);
+        if (sum != null && sum.x != null && sum.y != null) {
+            return new SeparableForm(root, sum.x, sum.y, false);
+        }
+        Parts factors = analysis.multiplicative(root);
+        if (factors != null && factors.x != null && factors.y != null) {
+            return new SeparableForm(root, factors.x, factors.y, true);
+        }
+        return null;
+    }
+
+    /**
+     * Liefert den Teil g(x)
+     */
+    public ExpressionNode getXPart() {
+        return xPart;
+    }
+
+    /**
+     * Liefert den Teil h(y)
+     */
+    public ExpressionNode getYPart() {
+        return yPart;
+    }
+
+    /**
+     * Gibt an, ob die Teile multipliziert (true) oder addiert (false) werden
+     */
+    public boolean isProduct() {
+        return product;
+    }
+
+    /**
+     * Wertet die Funktion auf einem Gitter aus, indem beide Teile nur auf ihrer
+     * Achse berechnet und anschließend kombiniert werden
+     */
+    void evaluateGrid(double[] xs, double[] ys, double[] outRowMajor) {
+        int rows = xs.length;
+        int columns = ys.length;
+        double[] xValues = new double[rows];
+        double[] yValues = new double[columns];
+        xEvaluator.evaluate(xs, xs, xValues, rows);
+        yEvaluator.evaluate(ys, ys, yValues, columns);
+
+        // NaN aus gültigen Teilen entsteht nur bei Unendlich * 0 bzw.
+        // Unendlich - Unendlich. Bei Produkten kann zudem ein übergelaufener
+        // oder unterlaufener Faktor das Ergebnis verfälschen, z.B. bei
+        // exp(x^2 - y^2) = exp(x^2) * exp(-y^2) für große x und y. Zeilen, in
+        // denen das nicht vorkommen kann, werden nicht einzeln geprüft
+        boolean yRegular = true;
+        double yMaxAbs = 0;
+        for (double yValue : yValues) {
+            yRegular &= product ? isNormal(yValue) : Double.isFinite(yValue);
+            yMaxAbs = Math.max(yMaxAbs, Math.abs(yValue));
+        }
+
+        for (int i = 0; i < rows; i++) {
+            double xValue = xValues[i];
+            int offset = i * columns;
+            if (product) {
+                for (int j = 0; j < columns; j++) {
+                    outRowMajor[offset + j] = xValue * yValues[j];
+                }
+            } else {
+                for (int j = 0; j < columns; j++) {
+                    outRowMajor[offset + j] = xValue + yValues[j];
+                }
+            }
+
+            boolean regular = product
+                    ? yRegular && isNormal(xValue) && Double.isFinite(Math.abs(xValue) * yMaxAbs)
+                    : yRegular && Double.isFinite(xValue);
+            if (regular || Double.isNaN(xValue)) {
+                continue;
+            }
+            for (int j = 0; j < columns; j++) {
+                double value = outRowMajor[offset + j];
+                double yValue = yValues[j];
+                if (Double.isNaN(yValue)) {
+                    continue;
+                }
+                boolean suspect = product
+                        ? !isNormal(xValue) || !isNormal(yValue) || !Double.isFinite(value)
+                        : Double.isNaN(value);
+                if (suspect) {
+                    outRowMajor[offset + j] = evaluateDirectly(xs[i], ys[j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Prüft, ob ein Faktor endlich ist und weder 0 noch subnormal
+     */
+    private static boolean isNormal(double value) {
+        return Math.abs(value) >= Double.MIN_NORMAL && Math.abs(value) <= Double.MAX_VALUE;
+    }
+
+    private double evaluateDirectly(double x, double y) {
+        try {
+            return original.evaluate(x, y);
+        } catch (ArithmeticException e) {
+            return Double.NaN;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return xPart + (product ? " * " : " + ") + yPart;
+    }
+
+    /**
+     * x- und y-Anteil einer Zerlegung; null steht für das neutrale Element
+     * (0 bei Summen, 1 bei Produkten)
+     */
+    private static final class Parts {
+        final ExpressionNode x;
+        final ExpressionNode y;
+
+        Parts(ExpressionNode x, ExpressionNode y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    /**
+     * Rekursive Zerlegung mit zwischengespeicherten Variablenmengen
+     */
+    private static final class Analysis {
+        private final Map<ExpressionNode, Integer> masks = new IdentityHashMap<>();
+
+        /**
+         * Bitmaske der Variablen eines Teilausdrucks (1 = x, 2 = y)
+         */
+        int variables(ExpressionNode node) {
+            Integer known = masks.get(node);
+            if (known != null) {
+                return known;
+            }
+            int mask;
+            if (node instanceof ExpressionNode.Constant) {
+                mask = 0;
+            } else if (node instanceof ExpressionNode.Variable) {
+                mask = ((ExpressionNode.Variable) node).getIndex() == ExpressionNode.Variable.X ? X_MASK : Y_MASK;
+            } else if (node instanceof ExpressionNode.Unary) {
+                mask = variables(((ExpressionNode.Unary) node).getOperand());
+            } else {
+                ExpressionNode.Binary binary = (ExpressionNode.Binary) node;
+                mask = variables(binary.getLeft()) | variables(binary.getRight());
+            }
+            masks.put(node, mask);
+            return mask;
+        }
+
+        /**
+         * Zerlegt einen Ausdruck in g(x) + h(y)
+         *
+         * @return Die Teile oder null, wenn keine Zerlegung gefunden wurde
+         */
+        Parts additive(ExpressionNode node) {
+            Parts single = singleVariable(node);
+            if (single != null) {
+                return single;
+            }
+
+            if (node instanceof ExpressionNode.Unary) {
+                ExpressionNode.Unary unary = (ExpressionNode.Unary) node;
+                if (unary.getOperator() != Operator.NEG) {
+                    return null;
+                }
+                Parts operand = additive(unary.getOperand());
+                return operand == null ? null : new Parts(negate(operand.x), negate(operand.y));
+            }
+
+            if (!(node instanceof ExpressionNode.Binary)) {
+                return null;
+            }
+            ExpressionNode.Binary binary = (ExpressionNode.Binary) node;
+            ExpressionNode left = binary.getLeft();
+            ExpressionNode right = binary.getRight();
+
+            switch (binary.getOperator()) {
+                case ADD:
+                case SUB: {
+                    Parts l = additive(left);
+                    Parts r = l == null ? null : additive(right);
+                    if (r == null) {
+                        return null;
+                    }
+                    Operator op = binary.getOperator();
+                    return new Parts(combineSum(op, l.x, r.x), combineSum(op, l.y, r.y));
+                }
+                case MUL:
+                    // Nur Vielfache: c * (g(x) + h(y)) = c*g(x) + c*h(y)
+                    if (left instanceof ExpressionNode.Constant) {
+                        Parts r = additive(right);
+                        return r == null ? null : new Parts(scale(left, r.x, true), scale(left, r.y, true));
+                    }
+                    if (right instanceof ExpressionNode.Constant) {
+                        Parts l = additive(left);
+                        return l == null ? null : new Parts(scale(right, l.x, false), scale(right, l.y, false));
+                    }
+                    return null;
+                case DIV:
+                    if (isSafeDivisor(right)) {
+                        Parts l = additive(left);
+                        return l == null ? null
+                                : new Parts(divide(l.x, right), divide(l.y, right));
+                    }
+                    return null;
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * Zerlegt einen Ausdruck in g(x) * h(y)
+         *
+         * @return Die Teile oder null, wenn keine Zerlegung gefunden wurde
+         */
+        Parts multiplicative(ExpressionNode node) {
+            Parts single = singleVariable(node);
+            if (single != null) {
+                return single;
+            }
+
+            if (node instanceof ExpressionNode.Unary) {
+                ExpressionNode.Unary unary = (ExpressionNode.Unary) node;
+                if (unary.getOperator() == Operator.NEG) {
+                    Parts operand = multiplicative(unary.getOperand());
+                    if (operand == null) {
+                        return null;
+                    }
+                    ExpressionNode x = operand.x != null ? operand.x : new ExpressionNode.Constant(1);
+                    return new Parts(negate(x), operand.y);
+                }
+                if (unary.getOperator() == Operator.EXP) {
+                    // exp(u(x) + v(y)) = exp(u(x)) * exp(v(y))
+                    Parts exponent = additive(unary.getOperand());
+                    if (exponent == null) {
+                        return null;
+                    }
+                    return new Parts(exp(exponent.x), exp(exponent.y));
+                }
+                return null;
+            }
+
+            if (!(node instanceof ExpressionNode.Binary)) {
+                return null;
+            }
+            ExpressionNode.Binary binary = (ExpressionNode.Binary) node;
+
+            switch (binary.getOperator()) {
+                case MUL: {
+                    Parts l = multiplicative(binary.getLeft());
+                    Parts r = l == null ? null : multiplicative(binary.getRight());
+                    if (r == null) {
+                        return null;
+                    }
+                    return new Parts(multiply(l.x, r.x), multiply(l.y, r.y));
+                }
+                case DIV: {
+                    // Der Divisor muss von höchstens einer Variablen abhängen,
+                    // damit die Prüfung auf Division durch Null gleich bleibt
+                    ExpressionNode divisor = binary.getRight();
+                    int divisorMask = variables(divisor);
+                    if (divisorMask == (X_MASK | Y_MASK)
+                            || (divisorMask == 0 && !isSafeDivisor(divisor))) {
+                        return null;
+                    }
+                    Parts l = multiplicative(binary.getLeft());
+                    if (l == null) {
+                        return null;
+                    }
+                    if (divisorMask == Y_MASK) {
+                        return new Parts(l.x, divide(orOne(l.y), divisor));
+                    }
+                    return new Parts(divide(orOne(l.x), divisor), l.y);
+                }
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * Ausdrücke mit höchstens einer Variablen; Konstanten zählen zum x-Teil
+         */
+        private Parts singleVariable(ExpressionNode node) {
+            int mask = variables(node);
+            if (mask == Y_MASK) {
+                return new Parts(null, node);
+            }
+            if (mask != (X_MASK | Y_MASK)) {
+                return new Parts(node, null);
+            }
+            return null;
+        }
+
+        private static boolean isSafeDivisor(ExpressionNode node) {
+            return node instanceof ExpressionNode.Constant
+                    && Math.abs(((ExpressionNode.Constant) node).getValue()) >= 1e-10;
+        }
+
+        private static ExpressionNode combineSum(Operator op, ExpressionNode left, ExpressionNode right) {
+            if (right == null) {
+                return left;
+            }
+            if (left == null) {
+                return op == Operator.SUB ? negate(right) : right;
+            }
+            return new ExpressionNode.Binary(op, left, right);
+        }
+
+        private static ExpressionNode scale(ExpressionNode factor, ExpressionNode part, boolean factorFirst) {
+            if (part == null) {
+                return null;
+            }
+            return factorFirst ? new ExpressionNode.Binary(Operator.MUL, factor, part)
+                    : new ExpressionNode.Binary(Operator.MUL, part, factor);
+        }
+
+        private static ExpressionNode divide(ExpressionNode part, ExpressionNode divisor) {
+            return part == null ? null : new ExpressionNode.Binary(Operator.DIV, part, divisor);
+        }
+
+        private static ExpressionNode multiply(ExpressionNode left, ExpressionNode right) {
+            if (left == null) {
+                return right;
+            }
+            if (right == null) {
+                return left;
+            }
+            return new ExpressionNode.Binary(Operator.MUL, left, right);
+        }
+
+        private static ExpressionNode negate(ExpressionNode part) {
+            return part == null ? null : new ExpressionNode.Unary(Operator.NEG, part);
+        }
+
+        private static ExpressionNode exp(ExpressionNode part) {
+            return part == null ? null : new ExpressionNode.Unary(Operator.EXP, part);
+        }
+
+        private static ExpressionNode orOne(ExpressionNode part) {
+            return part != null ? part : new ExpressionNode.Constant(1);
+        }
+    }
+}
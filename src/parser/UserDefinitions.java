@@ -0,0 +1,423 @@
+package parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Benutzerdefinierte Variablen und Funktionen, z.B. {@code a = 2.5} oder
+ * {@code g(x) = sin(a*x)}
+ * Alle Parser lösen unbekannte Bezeichner über diese Definitionen auf:
+ * Variablen werden als Konstante eingesetzt, Funktionsaufrufe durch den
+ * Funktionsrumpf mit dem Argument anstelle von x ersetzt.
+ *
+ * Die Definitionen bilden einen Abhängigkeitsgraphen (g hängt von a ab). Jede
+ * Definition trägt eine Revisionsnummer, die bei einer Änderung für sie und
+ * alle von ihr abhängigen Definitionen erhöht wird. Ein kompilierter Ausdruck
+ * merkt sich die Revisionen der Namen, die er verwendet; der
+ * {@link ExpressionCache} verwirft ihn, sobald sich eine davon geändert hat.
+ * Ausdrücke ohne Bezug zu einer geänderten Definition bleiben unverändert.
+ * Die {@link DefinitionListener} erfahren, welche Namen betroffen sind, und
+ * können gezielt nur die abhängigen Funktionen neu übersetzen.
+ *
+ * Alle Methoden sind threadsicher.
+ */
+public final class UserDefinitions {
+    // name = rumpf oder name(x) = rumpf (nach dem Normalisieren ohne Leerzeichen)
+    private static final Pattern DEFINITION_PATTERN = Pattern.compile("^([a-z]+)(\\(([a-z]+)\\))?=([^=]+)$");
+
+    // Parameter einer Funktion; im Rumpf wird er wie in jedem Funktionsausdruck
+    // als x geparst
+    private static final String PARAMETER = "x";
+
+    private static final Object lock = new Object();
+
+    // Geschützt durch lock
+    private static final Map<String, Definition> definitions = new LinkedHashMap<>();
+    // Revisionen bleiben auch nach dem Entfernen einer Definition erhalten,
+    // damit Ausdrücke mit diesem Namen als veraltet erkannt werden
+    private static final Map<String, Long> revisions = new HashMap<>();
+    private static long nextRevision = 1;
+
+    private static final List<DefinitionListener> listeners = new CopyOnWriteArrayList<>();
+
+    private UserDefinitions() {
+    }
+
+    /**
+     * Wird benachrichtigt, wenn sich Definitionen ändern
+     */
+    public interface DefinitionListener {
+        /**
+         * @param changed Die geänderten oder entfernten Namen und alle
+         *                Definitionen, die (auch indirekt) von ihnen abhängen
+         */
+        void definitionsChanged(Set<String> changed);
+    }
+
+    /**
+     * Eine Definition: Name, Rumpf und die direkt verwendeten Namen
+     */
+    private static final class Definition {
+        final String name;
+        final boolean function;
+        final String body;
+        final Set<String> references;
+
+        Definition(String name, boolean function, String body, Set<String> references) {
+            this.name = name;
+            this.function = function;
+            this.body = body;
+            this.references = references;
+        }
+
+        @Override
+        public String toString() {
+            return function ? name + "(" + PARAMETER + ") = " + body : name + " = " + body;
+        }
+    }
+
+    /**
+     * Prüft, ob ein Text die Form einer Definition hat ({@code name = ...} oder
+     * {@code name(x) = ...})
+     * Ob der Name zulässig und der Rumpf gültig ist, prüft erst
+     * {@link #define(String)}
+     */
+    public static boolean isDefinition(String text) {
+        return DEFINITION_PATTERN.matcher(normalize(text)).matches();
+    }
+
+    /**
+     * Legt eine Variable oder Funktion an oder ändert sie
+     * Variablen dürfen nicht von x abhängen; Funktionen haben genau einen
+     * Parameter x. Rümpfe dürfen andere Definitionen verwenden, aber keine
+     * zirkulären Abhängigkeiten bilden.
+     *
+     * @param text Die Definition, z.B. "a = 2.5" oder "g(x) = sin(a*x)"
+     * @return Der definierte Name
+     * @throws IllegalArgumentException bei ungültigem Namen oder zirkulärer
+     *                                  Definition
+     * @throws RuntimeException         wenn der Rumpf nicht geparst oder eine
+     *                                  Variable nicht berechnet werden kann
+     */
+    public static String define(String text) {
+        Matcher matcher = DEFINITION_PATTERN.matcher(normalize(text));
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Keine gültige Definition: " + text);
+        }
+        String name = matcher.group(1);
+        String parameter = matcher.group(3);
+        String body = matcher.group(4);
+        boolean function = parameter != null;
+
+        checkName(name);
+        if (function && !parameter.equals(PARAMETER)) {
+            throw new IllegalArgumentException("Der Parameter einer Funktion muss " + PARAMETER + " heißen: " + text);
+        }
+
+        // Den Rumpf außerhalb der Sperre parsen; er kann selbst Definitionen
+        // auflösen
+        FunctionParser parser = new FunctionParser(body);
+        CompiledExpression compiled = parser.getCompiledExpression();
+        if (!function) {
+            if (dependsOnVariable(compiled.getRoot())) {
+                throw new IllegalArgumentException("Die Variable " + name + " darf nicht von x abhängen");
+            }
+            // Wirft bei Definitionsbereichsfehlern wie 1/0
+            parser.evaluateAt(0);
+        }
+        Set<String> references = parser.getReferencedDefinitions();
+
+        Set<String> changed;
+        synchronized (lock) {
+            if (references.contains(name) || dependsOn(references, name)) {
+                throw new IllegalArgumentException("Zirkuläre Definition: " + name);
+            }
+            definitions.put(name, new Definition(name, function, parser.getExpression(), references));
+            changed = invalidate(name);
+        }
+        notifyListeners(changed);
+        return name;
+    }
+
+    /**
+     * Entfernt eine Definition
+     * Ausdrücke, die sie verwenden, werden dadurch ungültig
+     *
+     * @return true, wenn es die Definition gab
+     */
+    public static boolean remove(String name) {
+        Set<String> changed;
+        synchronized (lock) {
+            if (definitions.remove(name) == null) {
+                return false;
+            }
+            changed = invalidate(name);
+        }
+        notifyListeners(changed);
+        return true;
+    }
+
+    /**
+     * Liefert die Namen aller Definitionen in der Reihenfolge ihres Anlegens
+     */
+    public static List<String> getNames() {
+        synchronized (lock) {
+            return new ArrayList<>(definitions.keySet());
+        }
+    }
+
+    /**
+     * Liefert eine Definition als Text, z.B. "g(x) = sin(a*x)"
+     *
+     * @return Der Text oder null, wenn der Name nicht definiert ist
+     */
+    public static String getDefinition(String name) {
+        synchronized (lock) {
+            Definition definition = definitions.get(name);
+            return definition == null ? null : definition.toString();
+        }
+    }
+
+    /**
+     * Gibt an, ob der Name eine Funktion bezeichnet
+     */
+    public static boolean isFunction(String name) {
+        synchronized (lock) {
+            Definition definition = definitions.get(name);
+            return definition != null && definition.function;
+        }
+    }
+
+    /**
+     * Prüft, ob ein Ausdruck benutzerdefinierte Variablen oder Funktionen
+     * verwendet und trotzdem nicht von x abhängt (z.B. "2*a" oder "g(1)")
+     * Solche Ausdrücke werden direkt berechnet statt zum Plotten angeboten
+     */
+    public static boolean isDefinedConstant(String expression) {
+        FunctionParser parser = new FunctionParser(expression);
+        return parser.isValid() && !parser.getReferencedDefinitions().isEmpty()
+                && parser.getCompiledExpression().getRoot() instanceof ExpressionNode.Constant;
+    }
+
+    /**
+     * Liefert den aktuellen Wert einer Variablen
+     *
+     * @throws IllegalArgumentException wenn der Name keine Variable ist
+     */
+    public static double getValue(String name) {
+        Definition definition;
+        synchronized (lock) {
+            definition = definitions.get(name);
+        }
+        if (definition == null || definition.function) {
+            throw new IllegalArgumentException("Keine Variable: " + name);
+        }
+        return new FunctionParser(definition.body).evaluateAt(0);
+    }
+
+    /**
+     * Registriert einen Listener für Änderungen
+     */
+    public static void addListener(DefinitionListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Entfernt einen Listener
+     */
+    public static void removeListener(DefinitionListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Löst eine Variable für den Parser auf
+     * Die Revision des Namens wird auch dann vermerkt, wenn er (noch) nicht
+     * definiert ist, damit ein Ausdruck nach dem Anlegen neu geparst wird
+     *
+     * @param used Vermerkt die verwendeten Namen mit ihren Revisionen
+     * @return Der Wert als Konstante oder null, wenn der Name keine Variable ist
+     */
+    static ExpressionNode resolveVariable(String name, Map<String, Long> used) {
+        Definition definition = lookup(name, used);
+        if (definition == null || definition.function) {
+            return null;
+        }
+        return new ExpressionNode.Constant(new FunctionParser(definition.body).evaluateAt(0));
+    }
+
+    /**
+     * Löst einen Funktionsaufruf für den Parser auf
+     *
+     * @param argument Der Auswertungsbaum des Arguments
+     * @param used     Vermerkt die verwendeten Namen mit ihren Revisionen
+     * @return Der Rumpf mit dem Argument anstelle von x oder null, wenn der Name
+     *         keine Funktion ist
+     */
+    static ExpressionNode resolveFunction(String name, ExpressionNode argument, Map<String, Long> used) {
+        Definition definition = lookup(name, used);
+        if (definition == null || !definition.function) {
+            return null;
+        }
+        ExpressionNode body = new FunctionParser(definition.body).getCompiledExpression().getRoot();
+        return substitute(body, argument);
+    }
+
+    /**
+     * Prüft für den Parser, ob ein Name definiert ist
+     * Wie bei {@link #resolveVariable} wird die Revision vermerkt; Namen, die
+     * nicht definiert werden können, werden nicht vermerkt
+     *
+     * @param used Vermerkt die verwendeten Namen mit ihren Revisionen
+     */
+    static boolean isDefined(String name, Map<String, Long> used) {
+        if (isReserved(name)) {
+            return false;
+        }
+        return lookup(name, used) != null;
+    }
+
+    /**
+     * Prüft, ob die vermerkten Revisionen noch aktuell sind
+     */
+    static boolean isCurrent(Map<String, Long> used) {
+        if (used.isEmpty()) {
+            return true;
+        }
+        synchronized (lock) {
+            for (Map.Entry<String, Long> entry : used.entrySet()) {
+                if (!entry.getValue().equals(revisions.getOrDefault(entry.getKey(), 0L))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static Definition lookup(String name, Map<String, Long> used) {
+        synchronized (lock) {
+            used.put(name, revisions.getOrDefault(name, 0L));
+            return definitions.get(name);
+        }
+    }
+
+    /**
+     * Erhöht die Revision eines Namens und aller abhängigen Definitionen
+     * Muss unter der Sperre aufgerufen werden
+     *
+     * @return Alle betroffenen Namen
+     */
+    private static Set<String> invalidate(String name) {
+        Set<String> changed = new LinkedHashSet<>();
+        changed.add(name);
+        boolean added = true;
+        while (added) {
+            added = false;
+            for (Definition definition : definitions.values()) {
+                if (!changed.contains(definition.name)
+                        && !Collections.disjoint(definition.references, changed)) {
+                    changed.add(definition.name);
+                    added = true;
+                }
+            }
+        }
+        for (String changedName : changed) {
+            revisions.put(changedName, nextRevision++);
+        }
+        return Collections.unmodifiableSet(changed);
+    }
+
+    /**
+     * Prüft, ob einer der Namen (auch indirekt) von target abhängt
+     * Muss unter der Sperre aufgerufen werden
+     */
+    private static boolean dependsOn(Set<String> names, String target) {
+        Set<String> visited = new LinkedHashSet<>();
+        List<String> pending = new ArrayList<>(names);
+        while (!pending.isEmpty()) {
+            String name = pending.remove(pending.size() - 1);
+            if (name.equals(target)) {
+                return true;
+            }
+            Definition definition = definitions.get(name);
+            if (definition != null && visited.add(name)) {
+                pending.addAll(definition.references);
+            }
+        }
+        return false;
+    }
+
+    private static void notifyListeners(Set<String> changed) {
+        for (DefinitionListener listener : listeners) {
+            listener.definitionsChanged(changed);
+        }
+    }
+
+    private static void checkName(String name) {
+        if (isReserved(name)) {
+            // Der Parser liest x und y am Anfang eines Bezeichners als Variable
+            throw new IllegalArgumentException("Namen dürfen nicht mit x oder y beginnen: " + name);
+        }
+        if (Operator.forFunction(name, 1) != null || Operator.forFunction(name, 2) != null) {
+            throw new IllegalArgumentException("Name einer eingebauten Funktion: " + name);
+        }
+        if (AbstractExpressionParser.namedConstant(name) != null) {
+            throw new IllegalArgumentException("Name einer eingebauten Konstante: " + name);
+        }
+    }
+
+    private static boolean isReserved(String name) {
+        return name.startsWith("x") || name.startsWith("y");
+    }
+
+    private static String normalize(String text) {
+        return text.toLowerCase().replaceAll("\\s+", "");
+    }
+
+    private static boolean dependsOnVariable(ExpressionNode node) {
+        if (node instanceof ExpressionNode.Variable) {
+            return true;
+        }
+        if (node instanceof ExpressionNode.Unary) {
+            return dependsOnVariable(((ExpressionNode.Unary) node).getOperand());
+        }
+        if (node instanceof ExpressionNode.Binary) {
+            ExpressionNode.Binary binary = (ExpressionNode.Binary) node;
+            return dependsOnVariable(binary.getLeft()) || dependsOnVariable(binary.getRight());
+        }
+        return false;
+    }
+
+    /**
+     * Ersetzt x im Rumpf durch das Argument; konstante Teilbäume werden dabei
+     * wieder zusammengefasst
+     */
+    private static ExpressionNode substitute(ExpressionNode node, ExpressionNode argument) {
+        if (node instanceof ExpressionNode.Variable) {
+            return argument;
+        }
+        if (node instanceof ExpressionNode.Unary) {
+            ExpressionNode.Unary unary = (ExpressionNode.Unary) node;
+            ExpressionNode operand = substitute(unary.getOperand(), argument);
+            return operand == unary.getOperand() ? node : ExpressionOptimizer.unary(unary.getOperator(), operand);
+        }
+        if (node instanceof ExpressionNode.Binary) {
+            ExpressionNode.Binary binary = (ExpressionNode.Binary) node;
+            ExpressionNode left = substitute(binary.getLeft(), argument);
+            ExpressionNode right = substitute(binary.getRight(), argument);
+            if (left == binary.getLeft() && right == binary.getRight()) {
+                return node;
+            }
+            return ExpressionOptimizer.binary(binary.getOperator(), left, right);
+        }
+        return node;
+    }
+}
@@ -0,0 +1,50 @@
+package parser;
+
+/**
+ * Wählt zur Laufzeit die SIMD-Implementierung der Array-Operatoren aus
+ * Ist das Modul jdk.incubator.vector nicht geladen (Start ohne
+ * {@code --add-modules jdk.incubator.vector}) oder über
+ * {@code -Dparser.vector=false} abgeschaltet, werden die skalaren Schleifen
+ * in {@link Operator} verwendet
+ *
+ * Die Klassen mit Vector-API-Referenzen liegen im Quellordner src-vector und
+ * werden getrennt mit {@code --add-modules jdk.incubator.vector} übersetzt
+ * (siehe compile.bat); src selbst übersetzt ohne das Modul. Fehlen sie, wird
+ * ebenfalls skalar gerechnet.
+ */
+final class VectorSupport {
+    private static final String MODULE_NAME = "jdk.incubator.vector";
+    private static final String IMPLEMENTATION = "parser.VectorOperations";
+    private static final String APPROXIMATE_IMPLEMENTATION = "parser.ApproximateVectorOperations";
+
+    // Null, wenn keine SIMD-Implementierung verfügbar ist
+    static final ArrayOperations OPERATIONS = load(IMPLEMENTATION);
+
+    // SIMD-Näherungen für die Vorschau (siehe ApproximateOperations)
+    static final ArrayOperations APPROXIMATE_OPERATIONS = OPERATIONS != null ? load(APPROXIMATE_IMPLEMENTATION) : null;
+
+    private VectorSupport() {
+    }
+
+    /**
+     * Gibt an, ob die SIMD-Implementierung aktiv ist
+     */
+    static boolean isAvailable() {
+        return OPERATIONS != null;
+    }
+
+    private static ArrayOperations load(String implementation) {
+        if ("false".equalsIgnoreCase(System.getProperty("parser.vector"))) {
+            return null;
+        }
+        if (!ModuleLayer.boot().findModule(MODULE_NAME).isPresent()) {
+            return null;
+        }
+        try {
+            // Erst hier wird die Klasse mit den Vector-API-Referenzen geladen
+            return (ArrayOperations) Class.forName(implementation).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | SecurityException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package plugins.plotter2d;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.SwingUtilities;
+
+import parser.ChebyshevApproximation;
+import parser.CompiledExpression;
+
+/**
+ * Hält Chebyshev-Näherungen der aufwendigen Funktionen für den sichtbaren
+ * x-Bereich bereit
+ * Die Näherung wird im Hintergrund über den sichtbaren Bereich und je eine
+ * Bildbreite links und rechts davon erstellt. Solange die Ansicht in diesem
+ * Bereich bleibt, nutzen Neuzeichnen, Hover-Anzeige und Schnittpunktsuche die
+ * Näherung; verlässt sie ihn oder wird stark hineingezoomt, wird sie verworfen
+ * und neu erstellt. Bis dahin wird exakt gerechnet.
+ */
+public class FunctionApproximationCache {
+    // Ein einzelner Hintergrund-Thread, damit Neuberechnungen sich nicht stapeln
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Funktionsnäherung");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Ist die Ansicht um mehr als diesen Faktor kleiner als der abgedeckte
+    // Bereich, wird für die feinere Ansicht neu genähert
+    private static final double MAX_ZOOM = 100;
+
+    private final Runnable onUpdate;
+
+    // Einträge je kompiliertem Ausdruck; nur im Event-Dispatch-Thread verändert
+    private final Map<CompiledExpression, Entry> entries = new IdentityHashMap<>();
+
+    /**
+     * Eintrag eines Ausdrucks: aktuelle Näherung und laufende Berechnung
+     */
+    private static class Entry {
+        boolean worthwhile;
+        boolean building;
+        volatile ChebyshevApproximation approximation;
+
+        Entry(boolean worthwhile) {
+            this.worthwhile = worthwhile;
+        }
+    }
+
+    /**
+     * Erstellt den Cache
+     *
+     * @param onUpdate Wird im Event-Dispatch-Thread aufgerufen, sobald eine neue
+     *                 Näherung bereitsteht (typischerweise repaint)
+     */
+    public FunctionApproximationCache(Runnable onUpdate) {
+        this.onUpdate = onUpdate;
+    }
+
+    /**
+     * Liefert die Näherung eines Ausdrucks für den Bereich [xMin, xMax]
+     * Deckt die vorhandene Näherung den Bereich nicht ab, wird eine neue im
+     * Hintergrund angestoßen
+     *
+     * @return Die Näherung oder null, wenn sich keine lohnt oder sie noch nicht
+     *         fertig ist
+     */
+    public ChebyshevApproximation get(CompiledExpression expression, double xMin, double xMax) {
+        if (!(xMin < xMax) || Double.isInfinite(xMin) || Double.isInfinite(xMax)) {
+            return null;
+        }
+        Entry entry = entries.computeIfAbsent(expression, e -> new Entry(ChebyshevApproximation.isWorthwhile(e)));
+        if (!entry.worthwhile) {
+            return null;
+        }
+
+        ChebyshevApproximation approximation = entry.approximation;
+        if (approximation != null && approximation.covers(xMin, xMax)
+                && approximation.getTo() - approximation.getFrom() <= MAX_ZOOM * (xMax - xMin)) {
+            return approximation;
+        }
+        // Neu, Ansicht hat den Bereich verlassen oder wurde stark vergrößert:
+        // verwerfen und neu erstellen
+        entry.approximation = null;
+        schedule(expression, entry, xMin, xMax);
+        return null;
+    }
+
+    /**
+     * Entfernt die Einträge aller Ausdrücke, die nicht mehr angezeigt werden
+     */
+    public void retain(Collection<CompiledExpression> expressions) {
+        Set<CompiledExpression> current = Collections.newSetFromMap(new IdentityHashMap<>());
+        current.addAll(expressions);
+        entries.keySet().retainAll(current);
+    }
+
+    /**
+     * Verwirft alle Näherungen
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    private void schedule(CompiledExpression expression, Entry entry, double xMin, double xMax) {
+        if (entry.building) {
+            return;
+        }
+        entry.building = true;
+        double width = xMax - xMin;
+        double from = xMin - width;
+        double to = xMax + width;
+        executor.execute(() -> {
+            ChebyshevApproximation approximation = null;
+            try {
+                approximation = ChebyshevApproximation.build(expression, from, to);
+            } catch (RuntimeException e) {
+                // Ohne Näherung wird weiter exakt gerechnet
+            }
+            ChebyshevApproximation result = approximation;
+            SwingUtilities.invokeLater(() -> {
+                entry.building = false;
+                if (result == null) {
+                    // Nicht erneut versuchen, exakt rechnen
+                    entry.worthwhile = false;
+                } else if (entries.get(expression) == entry) {
+                    entry.approximation = result;
+                    onUpdate.run();
+                }
+            });
+        });
+    }
+}
@@ -4,6 +4,9 @@ import javax.swing.*;
 import javax.swing.event.MouseInputAdapter;
 
 import common.ColorChooser;
+import parser.ExpressionNode;
+import parser.FunctionParser;
+import parser.UserDefinitions;
 
 import java.awt.*;
 import java.awt.event.*;
@@ -299,8 +302,15 @@ public class FunctionInputPanel {
             }
         });
 
+        JMenuItem derivativeItem = new JMenuItem("Ableitung hinzufügen");
+        derivativeItem.addActionListener(e -> {
+            debug("Kontextmenü: Ableitung hinzufügen ausgewählt");
+            addDerivativeOfSelectedFunction();
+        });
+
         functionPopup.add(editItem);
         functionPopup.add(toggleVisibilityItem);
+        functionPopup.add(derivativeItem);
         functionPopup.addSeparator();
         functionPopup.add(removeItem);
     }
@@ -389,6 +399,56 @@ public class FunctionInputPanel {
         }
     }
 
+    /**
+     * Fügt die symbolisch berechnete Ableitung der ausgewählten Funktion als neue
+     * Funktion hinzu
+     */
+    private void addDerivativeOfSelectedFunction() {
+        int selectedIndex = functionList.getSelectedIndex();
+        if (selectedIndex < 0)
+            return;
+
+        String entry = functionListModel.getElementAt(selectedIndex);
+
+        // Entferne ggf. Sichtbarkeitsmarkierung
+        Matcher visibilityMatcher = visibilityPattern.matcher(entry);
+        if (visibilityMatcher.find()) {
+            entry = visibilityMatcher.group(2);
+        }
+
+        Matcher matcher = functionPattern.matcher(entry);
+        if (!matcher.find()) {
+            return;
+        }
+
+        String function = matcher.group(1);
+        try {
+            FunctionParser parser = new FunctionParser(function);
+            String derivative = parser.getCompiledExpression()
+                    .derivative(ExpressionNode.Variable.X).getExpression();
+            debug("Ableitung von '" + function + "': " + derivative);
+
+            // Ableitung in zufälliger Farbe, sichtbar
+            Color color = ColorChooser.generateRandomColor();
+            String colorName = ColorChooser.getColorName(color);
+            functionListModel.addElement("[x] f(x) = " + derivative + " [" + colorName + "]");
+
+            // Graph aktualisieren
+            plotter.updateGraphFromList();
+
+            // Aktualisiere Schnittpunktliste, falls sichtbar
+            if (plotter.isShowingIntersections()) {
+                plotter.updateIntersectionList();
+            }
+        } catch (Exception ex) {
+            debug("Fehler beim Ableiten der Funktion: " + ex.getMessage());
+            JOptionPane.showMessageDialog(plotter,
+                    "Die Funktion kann nicht abgeleitet werden: " + ex.getMessage(),
+                    "Ableitungsfehler",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     /**
      * Entfernt die ausgewählte Funktion
      */
@@ -518,7 +578,9 @@ public class FunctionInputPanel {
      */
     private void addFunction() {
         String func = functionField.getText().trim();
-        if (!func.isEmpty()) {
+        if (!func.isEmpty() && UserDefinitions.isDefinition(func)) {
+            addDefinition(func);
+        } else if (!func.isEmpty()) {
             debug("Füge neue Funktion hinzu: " + func);
             try {
                 // Erhalte den ausgewählten Farbnamen
@@ -572,6 +634,41 @@ public class FunctionInputPanel {
         }
     }
 
+    /**
+     * Legt eine benutzerdefinierte Variable oder Funktion an (z.B. "a = 2.5"
+     * oder "g(x) = sin(a*x)")
+     * Funktionen, die den Namen verwenden, werden über den Listener des
+     * GraphPanel neu berechnet; eine neue Funktion wird zusätzlich als
+     * f(x) = g(x) in die Liste übernommen
+     */
+    private void addDefinition(String definition) {
+        debug("Füge Definition hinzu: " + definition);
+        try {
+            String name = UserDefinitions.define(definition);
+            if (UserDefinitions.isFunction(name)) {
+                String call = name + "(x)";
+                boolean listed = false;
+                for (int i = 0; i < functionListModel.size(); i++) {
+                    if (functionListModel.get(i).contains("f(x) = " + call + " [")) {
+                        listed = true;
+                        break;
+                    }
+                }
+                if (!listed) {
+                    functionField.setText(call);
+                    addFunction();
+                }
+            }
+            functionField.setText("");
+        } catch (Exception ex) {
+            debug("Fehler bei der Definition: " + ex.getMessage());
+            JOptionPane.showMessageDialog(plotter,
+                    "Fehler in der Definition: " + ex.getMessage(),
+                    "Eingabefehler",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     /**
      * Gibt das Funktionslistenmodell zurück
      */
@@ -3,9 +3,18 @@ package plugins.plotter2d;
 import java.awt.*;
 import java.awt.geom.Path2D;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import parser.ChebyshevApproximation;
+import parser.CompiledExpression;
+import parser.ExpressionGraph;
 import parser.FunctionParser;
+import parser.Interval;
 
 /**
  * Handles the rendering of mathematical functions
@@ -15,14 +24,31 @@ public class FunctionRenderer {
     private final CoordinateTransformer transformer;
     private final List<FunctionInfo> functions = new ArrayList<>();
 
+    // Shared graph of all visible functions, rebuilt when they change
+    private ExpressionGraph graph;
+    private List<CompiledExpression> graphExpressions = new ArrayList<>();
+
+    // Fast preview with approximated functions while the user drags the view
+    private boolean preview = false;
+
+    // Chebyshev approximations of expensive functions for the visible x range
+    private final FunctionApproximationCache approximations;
+
+    // Samples per compiled expression; valid while the x values and the preview
+    // mode stay the same, so a repaint only evaluates new or changed functions
+    private final Map<CompiledExpression, double[]> sampleCache = new IdentityHashMap<>();
+    private double[] sampledXs;
+    private boolean sampledPreview;
+
     // Constants
-    private static final int MAX_PIXEL_JUMP = 100; // Maximum pixel jump between two points
+    private static final int DISCONTINUITY_BISECTIONS = 20; // Bisection steps to locate a pole or jump
     private static final float NORMAL_STROKE_WIDTH = 2.0f; // Normal line thickness
     private static final float SELECTED_STROKE_WIDTH = 4.0f; // Thickness for selected function
 
     public FunctionRenderer(GraphPanel panel, CoordinateTransformer transformer) {
         this.panel = panel;
         this.transformer = transformer;
+        this.approximations = new FunctionApproximationCache(panel::repaint);
     }
 
     /**
@@ -40,6 +66,28 @@ public class FunctionRenderer {
         functions.clear();
     }
 
+    /**
+     * Recompiles the functions that use a changed user-defined variable or
+     * function; all other functions keep their compiled expression and samples
+     *
+     * @param changed The changed names (see parser.UserDefinitions)
+     * @return true if at least one function was affected
+     */
+    public boolean updateDefinitions(Set<String> changed) {
+        boolean updated = false;
+        for (int i = 0; i < functions.size(); i++) {
+            FunctionInfo function = functions.get(i);
+            if (!Collections.disjoint(function.getFunction().getReferencedDefinitions(), changed)) {
+                FunctionInfo replacement = new FunctionInfo(new FunctionParser(function.getFunction().getExpression()),
+                        function.getColor());
+                replacement.setVisible(function.isVisible());
+                functions.set(i, replacement);
+                updated = true;
+            }
+        }
+        return updated;
+    }
+
     /**
      * Returns the list of functions
      */
@@ -87,10 +135,51 @@ public class FunctionRenderer {
         return false;
     }
 
+    /**
+     * Switches the fast preview evaluation on or off
+     * In preview mode sin, cos, exp, ln and powers are approximated (see
+     * parser.ApproximateMath); takes effect on the next repaint
+     */
+    public void setPreview(boolean preview) {
+        this.preview = preview;
+    }
+
+    /**
+     * Checks if the preview evaluation is active
+     */
+    public boolean isPreview() {
+        return preview;
+    }
+
+    /**
+     * Returns the Chebyshev approximation of a function for the visible x range
+     * Only expensive functions are approximated; the approximation is built in
+     * the background and rebuilt once the view leaves the covered range
+     *
+     * @return The approximation, or null if the function is invalid, cheap to
+     *         evaluate or its approximation is not ready yet
+     */
+    public ChebyshevApproximation getApproximation(FunctionParser function) {
+        if (!function.isValid()) {
+            return null;
+        }
+        return approximations.get(function.getCompiledExpression(), transformer.getXMin(), transformer.getXMax());
+    }
+
     /**
      * Draws all functions, with the selected ones highlighted
      */
     public void drawFunctions(Graphics2D g2d, List<Integer> selectedIndices) {
+        // One x value per pixel column
+        int drawingWidth = panel.getWidth() - 2 * GraphPanel.AXIS_MARGIN;
+        int firstScreenX = transformer.getXOffset();
+        double[] xs = new double[Math.max(drawingWidth + 1, 0)];
+        for (int column = 0; column < xs.length; column++) {
+            xs[column] = transformer.screenToWorldX(firstScreenX + column);
+        }
+        Map<FunctionInfo, ChebyshevApproximation> approximated = approximateFunctions();
+        Map<FunctionInfo, double[]> samples = sampleVisibleFunctions(xs, approximated);
+
         // First draw all non-selected functions
         for (int i = 0; i < functions.size(); i++) {
             FunctionInfo function = functions.get(i);
@@ -99,7 +188,7 @@ public class FunctionRenderer {
             }
 
             if (!selectedIndices.contains(i)) {
-                drawFunctionWithEdges(g2d, function, false);
+                drawFunctionWithEdges(g2d, function, xs, samples.get(function), approximated.get(function), false);
             }
         }
 
@@ -108,16 +197,122 @@ public class FunctionRenderer {
             if (index >= 0 && index < functions.size()) {
                 FunctionInfo function = functions.get(index);
                 if (function.isVisible()) {
-                    drawFunctionWithEdges(g2d, function, true);
+                    drawFunctionWithEdges(g2d, function, xs, samples.get(function), approximated.get(function), true);
                 }
             }
         }
     }
 
+    /**
+     * Looks up the approximations of all visible functions for the current view
+     * Functions that are no longer displayed are dropped from the cache
+     */
+    private Map<FunctionInfo, ChebyshevApproximation> approximateFunctions() {
+        Map<FunctionInfo, ChebyshevApproximation> approximated = new IdentityHashMap<>();
+        List<CompiledExpression> expressions = new ArrayList<>();
+        for (FunctionInfo function : functions) {
+            if (function.getFunction().isValid()) {
+                expressions.add(function.getFunction().getCompiledExpression());
+            }
+        }
+        approximations.retain(expressions);
+
+        for (FunctionInfo function : functions) {
+            if (function.isVisible()) {
+                ChebyshevApproximation approximation = getApproximation(function.getFunction());
+                if (approximation != null) {
+                    approximated.put(function, approximation);
+                }
+            }
+        }
+        return approximated;
+    }
+
+    /**
+     * Evaluates all visible functions at the given x values in one pass
+     * The functions share one hash-consed expression graph, so common
+     * subexpressions - including whole functions reused by a combined function
+     * from the interference dialog - are computed once per sample
+     * Functions with an approximation for the visible range are evaluated
+     * through it instead, and functions sampled at the same x values before are
+     * taken from the sample cache. Invalid functions get NaN everywhere
+     */
+    private Map<FunctionInfo, double[]> sampleVisibleFunctions(double[] xs,
+            Map<FunctionInfo, ChebyshevApproximation> approximated) {
+        if (preview != sampledPreview || !Arrays.equals(xs, sampledXs)) {
+            sampleCache.clear();
+            sampledXs = xs;
+            sampledPreview = preview;
+        }
+
+        Map<FunctionInfo, double[]> samples = new IdentityHashMap<>();
+        Map<CompiledExpression, double[]> current = new IdentityHashMap<>();
+        List<FunctionInfo> compiledFunctions = new ArrayList<>();
+        List<CompiledExpression> expressions = new ArrayList<>();
+        for (FunctionInfo function : functions) {
+            if (!function.isVisible()) {
+                continue;
+            }
+            if (function.getFunction().isValid()) {
+                CompiledExpression expression = function.getFunction().getCompiledExpression();
+                double[] values = sampleCache.get(expression);
+                ChebyshevApproximation approximation = approximated.get(function);
+                if (values == null && approximation != null) {
+                    values = new double[xs.length];
+                    approximation.evaluate(xs, values, xs.length);
+                }
+                if (values != null) {
+                    samples.put(function, values);
+                    current.put(expression, values);
+                } else {
+                    compiledFunctions.add(function);
+                    expressions.add(expression);
+                }
+            } else {
+                double[] invalid = new double[xs.length];
+                function.getFunction().evaluate(xs, invalid);
+                samples.put(function, invalid);
+            }
+        }
+        if (expressions.isEmpty()) {
+            retainSamples(current);
+            return samples;
+        }
+
+        // Compiled expressions are shared through the expression cache, so an
+        // unchanged list means the graph can be reused
+        if (graph == null || !expressions.equals(graphExpressions)) {
+            graph = new ExpressionGraph(expressions);
+            graphExpressions = expressions;
+        }
+
+        double[][] outs = new double[expressions.size()][xs.length];
+        graph.evaluate(xs, xs, outs, xs.length, preview);
+        for (int i = 0; i < compiledFunctions.size(); i++) {
+            samples.put(compiledFunctions.get(i), outs[i]);
+            current.put(expressions.get(i), outs[i]);
+        }
+        retainSamples(current);
+        return samples;
+    }
+
+    /**
+     * Keeps only the samples of the functions drawn in this pass
+     */
+    private void retainSamples(Map<CompiledExpression, double[]> current) {
+        sampleCache.clear();
+        sampleCache.putAll(current);
+    }
+
     /**
      * Draws a function and connects it correctly with the edges of the visible area
+     *
+     * @param xs            One x value per pixel column
+     * @param ys            The function values at xs
+     * @param approximation The approximation of the function, or null
      */
-    private void drawFunctionWithEdges(Graphics2D g2d, FunctionInfo functionInfo, boolean isSelected) {
+    private void drawFunctionWithEdges(Graphics2D g2d, FunctionInfo functionInfo, double[] xs, double[] ys,
+            ChebyshevApproximation approximation, boolean isSelected) {
         g2d.setColor(functionInfo.getColor());
 
         // Use thicker stroke for selected function
@@ -125,7 +320,7 @@ public class FunctionRenderer {
         g2d.setStroke(new BasicStroke(strokeWidth));
 
         // Drawing area
-        int drawingWidth = panel.getWidth() - 2 * GraphPanel.AXIS_MARGIN;
+        int firstScreenX = transformer.getXOffset();
         int drawingHeight = panel.getHeight() - 2 * GraphPanel.AXIS_MARGIN;
 
         // List of paths to draw
@@ -142,157 +337,157 @@ public class FunctionRenderer {
         int topScreenY = transformer.getYOffset();
         int bottomScreenY = transformer.getYOffset() + drawingHeight;
 
-        // Calculate point by point from left to right for each pixel
-        for (int screenX = transformer.getXOffset(); screenX <= transformer.getXOffset() + drawingWidth; screenX++) {
-            // Convert screen X to world X
-            double x = transformer.screenToWorldX(screenX);
+        // Walk the samples from left to right for each pixel
+        for (int column = 0; column < xs.length; column++) {
+            int screenX = firstScreenX + column;
+            double x = xs[column];
+            double y = ys[column];
 
-            try {
-                // Calculate Y value using the function's parser
-                double y = functionInfo.getFunction().evaluateAt(x);
-
-                // Check for valid value
-                if (Double.isNaN(y) || Double.isInfinite(y)) {
-                    // Invalid point - end current path if necessary
-                    if (currentPath != null) {
-                        paths.add(currentPath);
-                        currentPath = null;
-                    }
-                    lastX = null;
-                    lastY = null;
-                    lastScreenX = null;
-                    lastScreenY = null;
-                    continue;
+            // Check for valid value (invalid points are returned as NaN)
+            if (Double.isNaN(y) || Double.isInfinite(y)) {
+                // Invalid point - end current path if necessary
+                if (currentPath != null) {
+                    paths.add(currentPath);
+                    currentPath = null;
                 }
+                lastX = null;
+                lastY = null;
+                lastScreenX = null;
+                lastScreenY = null;
+                continue;
+            }
 
-                // Calculate screen Y
-                int screenY;
-
-                // Determine if the point is in the visible area
-                boolean inVisibleRange = (y >= transformer.getYMin() && y <= transformer.getYMax());
+            // Break the curve at poles and jumps between the previous and this sample;
+            // pieces covered by the approximation are known to be continuous
+            if (lastX != null && (approximation == null || !approximation.isContinuous(lastX, x))
+                    && isDiscontinuous(functionInfo.getFunction(), lastX, x, drawingHeight)) {
+                if (currentPath != null) {
+                    paths.add(currentPath);
+                    currentPath = null;
+                }
+                lastX = null;
+                lastY = null;
+                lastScreenX = null;
+                lastScreenY = null;
+            }
 
-                // If the point is outside the visible area,
-                // calculate the intersection with the edge
-                if (!inVisibleRange) {
-                    // Calculate the Y value for the edge
-                    double boundaryY;
-                    int boundaryScreenY;
-
-                    if (y < transformer.getYMin()) {
-                        boundaryY = transformer.getYMin();
-                        boundaryScreenY = bottomScreenY; // Bottom edge
-                    } else { // y > transformer.getYMax()
-                        boundaryY = transformer.getYMax();
-                        boundaryScreenY = topScreenY; // Top edge
-                    }
+            // Calculate screen Y
+            int screenY;
+
+            // Determine if the point is in the visible area
+            boolean inVisibleRange = (y >= transformer.getYMin() && y <= transformer.getYMax());
+
+            // If the point is outside the visible area,
+            // calculate the intersection with the edge
+            if (!inVisibleRange) {
+                // Calculate the Y value for the edge
+                double boundaryY;
+                int boundaryScreenY;
+
+                if (y < transformer.getYMin()) {
+                    boundaryY = transformer.getYMin();
+                    boundaryScreenY = bottomScreenY; // Bottom edge
+                } else { // y > transformer.getYMax()
+                    boundaryY = transformer.getYMax();
+                    boundaryScreenY = topScreenY; // Top edge
+                }
 
-                    // If we have a previous point, we can calculate the intersection
-                    if (lastX != null && lastY != null &&
-                            ((lastY >= transformer.getYMin() && lastY <= transformer.getYMax()) || // Previous point in
-                                                                                                   // range
-                                    (lastY < transformer.getYMin() && y > transformer.getYMax()) || // Transition from
-                                                                                                    // below to above
-                                    (lastY > transformer.getYMax() && y < transformer.getYMin()))) // Transition from
-                                                                                                   // above to below
-                    {
-                        // Calculate the intersection with the edge
-                        // Since we work for each pixel, the calculation is very accurate
-
-                        if (lastY >= transformer.getYMin() && lastY <= transformer.getYMax()) {
-                            // Previous point was in range - intersection with current edge
-                            if (currentPath == null) {
-                                currentPath = new Path2D.Double();
-                                currentPath.moveTo(lastScreenX, lastScreenY);
-                            }
-
-                            // Calculate the exact X position of the intersection
-                            double t = (boundaryY - lastY) / (y - lastY);
-                            double intersectX = lastX + t * (x - lastX);
-                            int intersectScreenX = transformer.worldToScreenX(intersectX);
-
-                            // Draw to the edge and end the path
-                            currentPath.lineTo(intersectScreenX, boundaryScreenY);
-                            paths.add(currentPath);
-                            currentPath = null;
-                        } else if ((lastY < transformer.getYMin() && y > transformer.getYMax()) ||
-                                (lastY > transformer.getYMax() && y < transformer.getYMin())) {
-                            // The function skips the entire visible area
-                            // Calculate both intersections and draw a line through the visible area
-
-                            // Intersection 1 - with upper or lower edge
-                            double t1 = (lastY < transformer.getYMin() ? transformer.getYMin() - lastY
-                                    : transformer.getYMax() - lastY) / (y - lastY);
-                            double intersectX1 = lastX + t1 * (x - lastX);
-                            int intersectScreenX1 = transformer.worldToScreenX(intersectX1);
-                            int intersectScreenY1 = lastY < transformer.getYMin() ? bottomScreenY : topScreenY;
-
-                            // Intersection 2 - with the opposite edge
-                            double t2 = (lastY < transformer.getYMin() ? transformer.getYMax() - lastY
-                                    : transformer.getYMin() - lastY) / (y - lastY);
-                            double intersectX2 = lastX + t2 * (x - lastX);
-                            int intersectScreenX2 = transformer.worldToScreenX(intersectX2);
-                            int intersectScreenY2 = lastY < transformer.getYMin() ? topScreenY : bottomScreenY;
-
-                            // Draw a line between the two intersections
-                            Path2D crossPath = new Path2D.Double();
-                            crossPath.moveTo(intersectScreenX1, intersectScreenY1);
-                            crossPath.lineTo(intersectScreenX2, intersectScreenY2);
-                            paths.add(crossPath);
+                // If we have a previous point, we can calculate the intersection
+                if (lastX != null && lastY != null &&
+                        ((lastY >= transformer.getYMin() && lastY <= transformer.getYMax()) || // Previous point in
+                                                                                               // range
+                                (lastY < transformer.getYMin() && y > transformer.getYMax()) || // Transition from
+                                                                                                // below to above
+                                (lastY > transformer.getYMax() && y < transformer.getYMin()))) // Transition from
+                                                                                               // above to below
+                {
+                    // Calculate the intersection with the edge
+                    // Since we work for each pixel, the calculation is very accurate
+
+                    if (lastY >= transformer.getYMin() && lastY <= transformer.getYMax()) {
+                        // Previous point was in range - intersection with current edge
+                        if (currentPath == null) {
+                            currentPath = new Path2D.Double();
+                            currentPath.moveTo(lastScreenX, lastScreenY);
                         }
-                    }
-
-                    // Update the last values
-                    lastX = x;
-                    lastY = y;
-                    lastScreenX = screenX;
-                    lastScreenY = y < transformer.getYMin() ? bottomScreenY : topScreenY;
-                } else {
-                    // The point is in the visible area
-                    screenY = transformer.worldToScreenY(y);
-
-                    // If we have a previous point that was outside,
-                    // calculate the intersection with the edge
-                    if (lastX != null && lastY != null &&
-                            (lastY < transformer.getYMin() || lastY > transformer.getYMax())) {
-                        // Calculate the edge we intersect with
-                        double boundaryY = lastY < transformer.getYMin() ? transformer.getYMin()
-                                : transformer.getYMax();
 
                         // Calculate the exact X position of the intersection
                         double t = (boundaryY - lastY) / (y - lastY);
                         double intersectX = lastX + t * (x - lastX);
                         int intersectScreenX = transformer.worldToScreenX(intersectX);
-                        int intersectScreenY = lastY < transformer.getYMin() ? bottomScreenY : topScreenY;
-
-                        // Start a new path at the intersection
-                        currentPath = new Path2D.Double();
-                        currentPath.moveTo(intersectScreenX, intersectScreenY);
-                        currentPath.lineTo(screenX, screenY);
-                    } else if (currentPath == null) {
-                        // Start a new path
-                        currentPath = new Path2D.Double();
-                        currentPath.moveTo(screenX, screenY);
-                    } else {
-                        // Add the point to the existing path
-                        currentPath.lineTo(screenX, screenY);
-                    }
 
-                    // Update the last values
-                    lastX = x;
-                    lastY = y;
-                    lastScreenX = screenX;
-                    lastScreenY = screenY;
+                        // Draw to the edge and end the path
+                        currentPath.lineTo(intersectScreenX, boundaryScreenY);
+                        paths.add(currentPath);
+                        currentPath = null;
+                    } else if ((lastY < transformer.getYMin() && y > transformer.getYMax()) ||
+                            (lastY > transformer.getYMax() && y < transformer.getYMin())) {
+                        // The function skips the entire visible area
+                        // Calculate both intersections and draw a line through the visible area
+
+                        // Intersection 1 - with upper or lower edge
+                        double t1 = (lastY < transformer.getYMin() ? transformer.getYMin() - lastY
+                                : transformer.getYMax() - lastY) / (y - lastY);
+                        double intersectX1 = lastX + t1 * (x - lastX);
+                        int intersectScreenX1 = transformer.worldToScreenX(intersectX1);
+                        int intersectScreenY1 = lastY < transformer.getYMin() ? bottomScreenY : topScreenY;
+
+                        // Intersection 2 - with the opposite edge
+                        double t2 = (lastY < transformer.getYMin() ? transformer.getYMax() - lastY
+                                : transformer.getYMin() - lastY) / (y - lastY);
+                        double intersectX2 = lastX + t2 * (x - lastX);
+                        int intersectScreenX2 = transformer.worldToScreenX(intersectX2);
+                        int intersectScreenY2 = lastY < transformer.getYMin() ? topScreenY : bottomScreenY;
+
+                        // Draw a line between the two intersections
+                        Path2D crossPath = new Path2D.Double();
+                        crossPath.moveTo(intersectScreenX1, intersectScreenY1);
+                        crossPath.lineTo(intersectScreenX2, intersectScreenY2);
+                        paths.add(crossPath);
+                    }
                 }
-            } catch (Exception e) {
-                // Error in evaluation - end the current path
-                if (currentPath != null) {
-                    paths.add(currentPath);
-                    currentPath = null;
+
+                // Update the last values
+                lastX = x;
+                lastY = y;
+                lastScreenX = screenX;
+                lastScreenY = y < transformer.getYMin() ? bottomScreenY : topScreenY;
+            } else {
+                // The point is in the visible area
+                screenY = transformer.worldToScreenY(y);
+
+                // If we have a previous point that was outside,
+                // calculate the intersection with the edge
+                if (lastX != null && lastY != null &&
+                        (lastY < transformer.getYMin() || lastY > transformer.getYMax())) {
+                    // Calculate the edge we intersect with
+                    double boundaryY = lastY < transformer.getYMin() ? transformer.getYMin()
+                            : transformer.getYMax();
+
+                    // Calculate the exact X position of the intersection
+                    double t = (boundaryY - lastY) / (y - lastY);
+                    double intersectX = lastX + t * (x - lastX);
+                    int intersectScreenX = transformer.worldToScreenX(intersectX);
+                    int intersectScreenY = lastY < transformer.getYMin() ? bottomScreenY : topScreenY;
+
+                    // Start a new path at the intersection
+                    currentPath = new Path2D.Double();
+                    currentPath.moveTo(intersectScreenX, intersectScreenY);
+                    currentPath.lineTo(screenX, screenY);
+                } else if (currentPath == null) {
+                    // Start a new path
+                    currentPath = new Path2D.Double();
+                    currentPath.moveTo(screenX, screenY);
+                } else {
+                    // Add the point to the existing path
+                    currentPath.lineTo(screenX, screenY);
                 }
-                lastX = null;
-                lastY = null;
-                lastScreenX = null;
-                lastScreenY = null;
+
+                // Update the last values
+                lastX = x;
+                lastY = y;
+                lastScreenX = screenX;
+                lastScreenY = screenY;
             }
         }
 
@@ -307,6 +502,50 @@ public class FunctionRenderer {
         }
     }
 
+    /**
+     * Checks whether the curve must not be connected between two neighbouring
+     * samples because of a pole, a jump or a gap in between
+     * Interval evaluation flags every segment on which the function might not be
+     * continuous. The flagged spot is narrowed down by bisection, and the values
+     * on both sides of it decide: removable gaps such as sin(x)/x at 0 stay
+     * connected, poles such as in tan(x) and jumps larger than a pixel break the
+     * curve.
+     */
+    private boolean isDiscontinuous(FunctionParser function, double x1, double x2, int drawingHeight) {
+        Interval enclosure = function.evaluateInterval(x1, x2);
+        if (enclosure.isContinuous()) {
+            return false;
+        }
+
+        double from = x1;
+        double to = x2;
+        for (int i = 0; i < DISCONTINUITY_BISECTIONS; i++) {
+            double middle = (from + to) / 2;
+            if (!function.evaluateInterval(from, middle).isContinuous()) {
+                to = middle;
+            } else if (!function.evaluateInterval(middle, to).isContinuous()) {
+                from = middle;
+            } else {
+                // Both halves are continuous, so the flag was only an overestimate
+                return false;
+            }
+        }
+
+        double left;
+        double right;
+        try {
+            left = function.evaluateAt(from);
+            right = function.evaluateAt(to);
+        } catch (ArithmeticException e) {
+            return true;
+        }
+        if (Double.isNaN(left) || Double.isInfinite(left) || Double.isNaN(right) || Double.isInfinite(right)) {
+            return true;
+        }
+        double pixelHeight = (transformer.getYMax() - transformer.getYMin()) / Math.max(drawingHeight, 1);
+        return Math.abs(right - left) > pixelHeight;
+    }
+
     /**
      * Class for storing function information
      */
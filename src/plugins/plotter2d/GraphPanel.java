@@ -2,7 +2,10 @@ package plugins.plotter2d;
 
 import javax.swing.*;
 
+import parser.ChebyshevApproximation;
+import parser.DualNumber;
 import parser.FunctionParser;
+import parser.UserDefinitions;
 import plugins.plotter2d.intersection.IntersectionCalculator;
 import plugins.plotter2d.intersection.IntersectionPoint;
 
@@ -78,6 +81,17 @@ public class GraphPanel extends JPanel {
         setupMouseListeners();
         setupComponentListeners();
 
+        // Ändert sich eine benutzerdefinierte Variable oder Funktion, nur die
+        // davon abhängigen Funktionen neu übersetzen und zeichnen
+        UserDefinitions.addListener(changed -> SwingUtilities.invokeLater(() -> {
+            if (functionRenderer.updateDefinitions(changed)) {
+                if (intersectionCalculator.isShowingIntersections()) {
+                    intersectionCalculator.calculateIntersections();
+                }
+                repaint();
+            }
+        }));
+
         // Initialisiere die Ansicht basierend auf der aktuellen Größe
         resetView();
     }
@@ -113,6 +127,12 @@ public class GraphPanel extends JPanel {
             public void mouseReleased(MouseEvent e) {
                 isDragging = false;
 
+                // Ziehen beendet: mit exakten Werten neu zeichnen
+                if (functionRenderer.isPreview()) {
+                    functionRenderer.setPreview(false);
+                    repaint();
+                }
+
                 // Falls dies ein Klick war (keine signifikante Ziehbewegung), wähle die
                 // Funktion aus
                 if (e.getPoint().distance(lastMousePos) < 5) {
@@ -156,6 +176,9 @@ public class GraphPanel extends JPanel {
                     int dx = e.getX() - lastMousePos.x;
                     int dy = e.getY() - lastMousePos.y;
 
+                    // Während des Ziehens genügt die schnelle Vorschau
+                    functionRenderer.setPreview(true);
+
                     // Verschiebe die Ansicht
                     transformer.pan(dx, dy);
                     lastMousePos = e.getPoint();
@@ -272,6 +295,8 @@ public class GraphPanel extends JPanel {
         // Für jede Funktion
         for (int funcIndex = 0; funcIndex < functions.size(); funcIndex++) {
             FunctionParser parser = functions.get(funcIndex).getFunction();
+            // Aufwendige Funktionen über ihre Näherung für den sichtbaren Bereich
+            ChebyshevApproximation approximation = functionRenderer.getApproximation(parser);
 
             // Suche den nächsten Punkt in einem Bereich um die Maus-X-Position
             for (double x = mouseWorldX - searchRange; x <= mouseWorldX + searchRange; x += searchStep) {
@@ -280,16 +305,31 @@ public class GraphPanel extends JPanel {
                     if (x < transformer.getXMin() || x > transformer.getXMax())
                         continue;
 
-                    double y = parser.evaluateAt(x);
+                    // Funktionswert und Steigung in einem Durchlauf
+                    DualNumber value = approximation != null ? approximation.evaluateWithDerivative(x)
+                            : parser.evaluateWithDerivative(x);
+                    double y = value.getValue();
+                    double slope = value.getDx();
 
                     // Überspringe, falls y außerhalb der Ansicht liegt oder keine gültige Zahl ist
                     if (Double.isNaN(y) || Double.isInfinite(y) ||
                             y < transformer.getYMin() || y > transformer.getYMax())
                         continue;
 
+                    // Projiziere die Maus auf die Tangente im Stützpunkt, damit auch
+                    // steile Abschnitte zwischen zwei Stützpunkten gefunden werden
+                    double candidateX = x;
+                    double candidateY = y;
+                    if (!Double.isNaN(slope) && !Double.isInfinite(slope)) {
+                        double offset = closestOffsetOnTangent(mousePos, x, y, slope);
+                        offset = Math.max(-searchStep / 2, Math.min(searchStep / 2, offset));
+                        candidateX = x + offset;
+                        candidateY = y + slope * offset;
+                    }
+
                     // Konvertiere in Bildschirmkoordinaten
-                    int screenX = transformer.worldToScreenX(x);
-                    int screenY = transformer.worldToScreenY(y);
+                    int screenX = transformer.worldToScreenX(candidateX);
+                    int screenY = transformer.worldToScreenY(candidateY);
 
                     // Berechne die Distanz zur Maus
                     double distance = mousePos.distance(screenX, screenY);
@@ -298,7 +338,7 @@ public class GraphPanel extends JPanel {
                     // nächstgelegene Punkt
                     if (distance < minDistance) {
                         minDistance = distance;
-                        closestPoint = new Point2D.Double(x, y);
+                        closestPoint = new Point2D.Double(candidateX, candidateY);
                         closestFunctionIndex = funcIndex;
                     }
                 } catch (Exception e) {
@@ -307,6 +347,41 @@ public class GraphPanel extends JPanel {
                 }
             }
         }
+
+        // Den auf der Tangente gefundenen Punkt auf die Kurve setzen
+        if (closestPoint != null) {
+            try {
+                double y = functions.get(closestFunctionIndex).getFunction().evaluateAt(closestPoint.x);
+                if (!Double.isNaN(y) && !Double.isInfinite(y)) {
+                    closestPoint.y = y;
+                }
+            } catch (Exception e) {
+                // Tangentenpunkt beibehalten
+            }
+        }
+    }
+
+    /**
+     * Berechnet, um wie viel sich x vom Stützpunkt entfernen muss, damit der
+     * Punkt auf der Tangente y + slope * dx der Maus (in Bildschirmabständen)
+     * am nächsten liegt
+     */
+    private double closestOffsetOnTangent(Point mousePos, double x, double y, double slope) {
+        double mouseWorldX = transformer.screenToWorldX(mousePos.x);
+        double mouseWorldY = transformer.screenToWorldY(mousePos.y);
+
+        // Richtung der Tangente in Pixeln pro Einheit x
+        double directionX = transformer.getXScale();
+        double directionY = transformer.getYScale() * slope;
+        double lengthSquared = directionX * directionX + directionY * directionY;
+        if (lengthSquared == 0) {
+            return 0;
+        }
+
+        // Abstand Stützpunkt -> Maus in Pixeln (y zeigt in Weltkoordinaten nach oben)
+        double deltaX = (mouseWorldX - x) * transformer.getXScale();
+        double deltaY = (mouseWorldY - y) * transformer.getYScale();
+        return (deltaX * directionX + deltaY * directionY) / lengthSquared;
     }
 
     /**
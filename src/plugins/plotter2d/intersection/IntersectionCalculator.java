@@ -94,8 +94,12 @@ public class IntersectionCalculator {
                 String expr2 = "f" + (j + 1);
 
                 // Finde Schnittpunkte im aktuellen Sichtfenster
+                // Aufwendige Funktionen werden über ihre Näherung abgetastet
                 List<Point2D.Double> points = IntersectionFinder.findIntersections(
-                        f1.getFunction(), f2.getFunction(), transformer.getXMin(), transformer.getXMax());
+                        f1.getFunction(), f2.getFunction(),
+                        functionRenderer.getApproximation(f1.getFunction()),
+                        functionRenderer.getApproximation(f2.getFunction()),
+                        transformer.getXMin(), transformer.getXMax());
 
                 // Füge die gefundenen Schnittpunkte als IntersectionPoint-Objekte zur
                 // Gesamtliste hinzu
@@ -5,7 +5,12 @@ import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.List;
 
+import parser.ChebyshevApproximation;
+import parser.CompiledExpression;
+import parser.ExpressionNode;
 import parser.FunctionParser;
+import parser.Interval;
+import parser.Polynomial;
 
 /**
  * Klasse zum Berechnen von Schnittpunkten zwischen mathematischen Funktionen
@@ -16,6 +21,7 @@ public class IntersectionFinder {
     private static final double INITIAL_STEP = 0.1; // Initiale Schrittweite bei der Suche
     private static final double PRECISION = 1e-6; // Genauigkeit für Schnittpunktberechnung
     private static final int MAX_ITERATIONS = 50; // Maximale Anzahl von Iterationen bei der Feinabstimmung
+    private static final int MIN_PRUNE_STEPS = 16; // Kleinste Teilbereichsbreite (in Schritten) für die Vorprüfung
 
     /**
      * Berechnet alle Schnittpunkte zwischen zwei Funktionen im angegebenen Bereich
@@ -28,6 +34,25 @@ public class IntersectionFinder {
      */
     public static List<Point2D.Double> findIntersections(FunctionParser f1, FunctionParser f2,
             double xMin, double xMax) {
+        return findIntersections(f1, f2, null, null, xMin, xMax);
+    }
+
+    /**
+     * Berechnet alle Schnittpunkte zwischen zwei Funktionen im angegebenen Bereich
+     * Beim Abtasten werden, soweit vorhanden, die Chebyshev-Näherungen der
+     * Funktionen verwendet; die gefundenen Schnittpunkte werden exakt verfeinert
+     *
+     * @param f1             Erste Funktion
+     * @param f2             Zweite Funktion
+     * @param approximation1 Näherung der ersten Funktion oder null
+     * @param approximation2 Näherung der zweiten Funktion oder null
+     * @param xMin           Linke Grenze des Bereichs
+     * @param xMax           Rechte Grenze des Bereichs
+     * @return Liste der gefundenen Schnittpunkte
+     */
+    public static List<Point2D.Double> findIntersections(FunctionParser f1, FunctionParser f2,
+            ChebyshevApproximation approximation1, ChebyshevApproximation approximation2, double xMin,
+            double xMax) {
         List<Point2D.Double> intersections = new ArrayList<>();
 
         // Sicherheitsprüfung
@@ -35,24 +60,51 @@ public class IntersectionFinder {
             return intersections;
         }
 
+        // Zwei Polynome: die Schnittpunkte sind direkt die Nullstellen des
+        // Differenzpolynoms, ohne den Bereich abzutasten
+        List<Point2D.Double> polynomialIntersections = findPolynomialIntersections(f1, f2, xMin, xMax);
+        if (polynomialIntersections != null) {
+            return polynomialIntersections;
+        }
+
         // Erstelle eine Differenzfunktion: f(x) = f1(x) - f2(x)
         // Schnittpunkte sind, wo diese Funktion Nullstellen hat (f1(x) = f2(x))
-        DifferenceFunction diffFunction = new DifferenceFunction(f1, f2);
+        DifferenceFunction diffFunction = new DifferenceFunction(f1, f2, approximation1, approximation2);
 
         // Suche nach Vorzeichenwechseln mit angepasster Schrittweite basierend auf dem
         // Bereich
         double range = xMax - xMin;
         double step = Math.min(INITIAL_STEP, range / 1000); // Dynamisch angepasste Schrittweite
 
+        // Teilbereiche, in denen f1 - f2 nachweislich nicht Null wird, werden
+        // übersprungen
+        List<double[]> zeroFreeRanges = new ArrayList<>();
+        findZeroFreeRanges(diffFunction, xMin, xMax, MIN_PRUNE_STEPS * step, zeroFreeRanges);
+        int rangeIndex = 0;
+
         double prevX = xMin;
-        double prevY = evaluateSafely(diffFunction, prevX);
+        double prevY = Double.NaN;
+        boolean prevEvaluated = false;
 
         for (double x = xMin + step; x <= xMax; x += step) {
-            double y = evaluateSafely(diffFunction, x);
+            while (rangeIndex < zeroFreeRanges.size() && zeroFreeRanges.get(rangeIndex)[1] < x) {
+                rangeIndex++;
+            }
+            if (rangeIndex < zeroFreeRanges.size() && zeroFreeRanges.get(rangeIndex)[0] <= prevX) {
+                // Der ganze Schritt liegt in einem nullstellenfreien Teilbereich
+                prevX = x;
+                prevEvaluated = false;
+                continue;
+            }
+            if (!prevEvaluated) {
+                prevY = scanSafely(diffFunction, prevX);
+            }
+
+            double y = scanSafely(diffFunction, x);
 
             // Prüfe auf Vorzeichenwechsel (Nullstelle der Differenzfunktion)
             if (prevY != Double.NaN && y != Double.NaN && signChanged(prevY, y)) {
-                // Verfeinere die Nullstelle mit binärer Suche
+                // Verfeinere die Nullstelle mit dem Newton-Verfahren
                 Point2D.Double intersection = refineIntersection(diffFunction, prevX, x, f1);
 
                 // Füge den Schnittpunkt zur Liste hinzu, wenn er gültig ist
@@ -66,11 +118,83 @@ public class IntersectionFinder {
 
             prevX = x;
             prevY = y;
+            prevEvaluated = true;
+        }
+
+        return intersections;
+    }
+
+    /**
+     * Berechnet die Schnittpunkte zweier Polynome aus den reellen Nullstellen
+     * ihrer Differenz
+     * Anders als beim Abtasten werden dabei auch Berührpunkte ohne
+     * Vorzeichenwechsel gefunden
+     *
+     * @return Die Schnittpunkte oder null, wenn mindestens eine der Funktionen
+     *         kein Polynom ist oder die Nullstellen nicht bestimmt werden konnten
+     */
+    private static List<Point2D.Double> findPolynomialIntersections(FunctionParser f1, FunctionParser f2,
+            double xMin, double xMax) {
+        if (!f1.isValid() || !f2.isValid()) {
+            return null;
+        }
+        Polynomial p1 = f1.getCompiledExpression().getPolynomial();
+        Polynomial p2 = f2.getCompiledExpression().getPolynomial();
+        if (p1 == null || p2 == null) {
+            return null;
+        }
+
+        List<Point2D.Double> intersections = new ArrayList<>();
+        Polynomial difference = p1.minus(p2);
+        if (difference.isZero()) {
+            return intersections; // Identische Funktionen
+        }
+        List<Double> roots = difference.findRealRoots(xMin, xMax);
+        if (roots == null) {
+            return null;
         }
 
+        for (double x : roots) {
+            try {
+                Point2D.Double intersection = new Point2D.Double(x, f1.evaluateAt(x));
+                if (!containsPoint(intersections, intersection)) {
+                    intersections.add(intersection);
+                }
+            } catch (Exception e) {
+                // Punkt überspringen
+            }
+        }
         return intersections;
     }
 
+    /**
+     * Sammelt Teilbereiche, in denen die Differenzfunktion keine Nullstelle haben
+     * kann
+     * Die Intervallauswertung liefert eine sichere Einschließung der Differenz;
+     * enthält sie die Null nicht, wird der ganze Teilbereich übernommen,
+     * ansonsten wird er bis zur Mindestbreite halbiert. Aneinandergrenzende
+     * Bereiche werden zusammengefasst, die Liste ist aufsteigend sortiert.
+     */
+    private static void findZeroFreeRanges(DifferenceFunction function, double from, double to,
+            double minWidth, List<double[]> ranges) {
+        Interval enclosure = function.evaluateInterval(from, to);
+        if (enclosure.isEmpty() || !enclosure.contains(0)) {
+            double[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+            if (last != null && last[1] == from) {
+                last[1] = to;
+            } else {
+                ranges.add(new double[] { from, to });
+            }
+            return;
+        }
+        if (to - from <= minWidth) {
+            return;
+        }
+        double middle = (from + to) / 2;
+        findZeroFreeRanges(function, from, middle, minWidth, ranges);
+        findZeroFreeRanges(function, middle, to, minWidth, ranges);
+    }
+
     /**
      * Evaluiert eine Funktion sicher und gibt NaN zurück, wenn ein Fehler auftritt
      */
@@ -82,6 +206,18 @@ public class IntersectionFinder {
         }
     }
 
+    /**
+     * Evaluiert die Differenz zum Abtasten (über die Näherungen, falls vorhanden)
+     * und gibt NaN zurück, wenn ein Fehler auftritt
+     */
+    private static double scanSafely(DifferenceFunction function, double x) {
+        try {
+            return function.scanAt(x);
+        } catch (Exception e) {
+            return Double.NaN;
+        }
+    }
+
     /**
      * Prüft, ob sich das Vorzeichen zwischen zwei Werten geändert hat
      */
@@ -90,19 +226,39 @@ public class IntersectionFinder {
     }
 
     /**
-     * Verfeinert einen gefundenen Schnittpunkt mit binärer Suche
+     * Evaluiert die Ableitung sicher und gibt NaN zurück, wenn ein Fehler auftritt
+     */
+    private static double derivativeSafely(DifferenceFunction function, double x) {
+        try {
+            return function.derivativeAt(x);
+        } catch (Exception e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Verfeinert einen gefundenen Schnittpunkt mit dem Newton-Verfahren
+     * Die exakte Ableitung der Differenzfunktion liefert quadratische Konvergenz;
+     * verlässt ein Newton-Schritt das Intervall mit dem Vorzeichenwechsel, wird
+     * stattdessen halbiert
      */
     private static Point2D.Double refineIntersection(DifferenceFunction diffFunction,
             double x1, double x2, FunctionParser originalFunction) {
         double a = x1;
         double b = x2;
+        double valueAtA = evaluateSafely(diffFunction, a);
+        double c = (a + b) / 2; // Startwert in der Intervallmitte
 
         for (int i = 0; i < MAX_ITERATIONS; i++) {
-            double c = (a + b) / 2; // Mittelpunkt
             double valueAtC = evaluateSafely(diffFunction, c);
 
             // Präzision erreicht
             if (Math.abs(b - a) < PRECISION || Math.abs(valueAtC) < PRECISION) {
+                // Ein Vorzeichenwechsel ohne kleinen Funktionswert kann auch von
+                // einer Pol- oder Sprungstelle stammen
+                if (Math.abs(valueAtC) >= PRECISION && !diffFunction.evaluateInterval(a, b).isContinuous()) {
+                    return null;
+                }
                 try {
                     double y = originalFunction.evaluateAt(c);
                     return new Point2D.Double(c, y);
@@ -111,14 +267,17 @@ public class IntersectionFinder {
                 }
             }
 
-            double valueAtA = evaluateSafely(diffFunction, a);
-
-            // Aktualisiere das Intervall für binäre Suche
+            // Aktualisiere das Intervall mit dem Vorzeichenwechsel
             if (signChanged(valueAtA, valueAtC)) {
                 b = c;
             } else {
                 a = c;
+                valueAtA = valueAtC;
             }
+
+            // Newton-Schritt, sonst Bisektion
+            double next = c - valueAtC / derivativeSafely(diffFunction, c);
+            c = (next > a && next < b) ? next : (a + b) / 2;
         }
 
         // Wenn wir hier ankommen, haben wir kein präzises Ergebnis gefunden
@@ -143,14 +302,41 @@ public class IntersectionFinder {
     private static class DifferenceFunction {
         private final FunctionParser f1;
         private final FunctionParser f2;
+        private final ChebyshevApproximation approximation1;
+        private final ChebyshevApproximation approximation2;
 
-        public DifferenceFunction(FunctionParser f1, FunctionParser f2) {
+        public DifferenceFunction(FunctionParser f1, FunctionParser f2, ChebyshevApproximation approximation1,
+                ChebyshevApproximation approximation2) {
             this.f1 = f1;
             this.f2 = f2;
+            this.approximation1 = approximation1;
+            this.approximation2 = approximation2;
         }
 
         public double evaluateAt(double x) {
             return f1.evaluateAt(x) - f2.evaluateAt(x);
         }
+
+        /**
+         * Wie {@link #evaluateAt(double)}, aber über die Näherungen, falls vorhanden
+         */
+        public double scanAt(double x) {
+            double y1 = approximation1 != null ? approximation1.evaluate(x) : f1.evaluateAt(x);
+            double y2 = approximation2 != null ? approximation2.evaluate(x) : f2.evaluateAt(x);
+            return y1 - y2;
+        }
+
+        /**
+         * Schließt die Werte der Differenz auf [from, to] ein
+         */
+        public Interval evaluateInterval(double from, double to) {
+            return f1.evaluateInterval(from, to).minus(f2.evaluateInterval(from, to));
+        }
+
+        public double derivativeAt(double x) {
+            CompiledExpression d1 = f1.getCompiledExpression().derivative(ExpressionNode.Variable.X);
+            CompiledExpression d2 = f2.getCompiledExpression().derivative(ExpressionNode.Variable.X);
+            return d1.evaluate(x, 0) - d2.evaluate(x, 0);
+        }
     }
 }
\ No newline at end of file
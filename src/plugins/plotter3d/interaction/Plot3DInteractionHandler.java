@@ -72,6 +72,9 @@ public class Plot3DInteractionHandler {
                 isDragging = false;
                 dragStart = null;
                 lastPosition = null;
+
+                // Interaktion beendet: wieder exakt rechnen
+                viewController.setPreview(false);
             }
 
             @Override
@@ -87,6 +90,9 @@ public class Plot3DInteractionHandler {
                 // Aktuelle Position des Mauszeigers (für Drehpunkt-Berechnung)
                 Point currentPosition = e.getPoint();
 
+                // Während des Ziehens genügt die schnelle Vorschau
+                viewController.setPreview(true);
+
                 // Je nachdem, ob Verschiebung oder Rotation
                 if (isPanning) {
                     handlePanning(dx, dy, currentPosition);
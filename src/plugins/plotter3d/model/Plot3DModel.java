@@ -2,9 +2,16 @@ package plugins.plotter3d.model;
 
 import java.awt.Color;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
 
+import parser.CompiledExpression;
+import parser.ExpressionGraph;
 import parser.Function3DParser;
+import parser.Interval;
 
 /**
  * Verwaltet das Datenmodell für die 3D-Darstellung, einschließlich Funktionen,
@@ -18,6 +25,18 @@ public class Plot3DModel {
     private double zMin = 0;
     private double zMax = 1;
 
+    // Gemeinsamer Ausdrucksgraph aller Funktionen; wird neu aufgebaut, wenn sich
+    // die Funktionen ändern
+    private ExpressionGraph graph;
+    private List<CompiledExpression> graphExpressions = new ArrayList<>();
+
+    // Vorschau während einer Interaktion: genäherte Funktionen statt Math.*
+    private boolean preview = false;
+
+    // Grenzen für die Verfeinerung des Wertebereichs mit Intervallarithmetik
+    private static final int MAX_BOUND_ITERATIONS = 200;
+    private static final double BOUND_TOLERANCE = 1e-3; // Relativ zum abgetasteten Wertebereich
+
     /**
      * Fügt dem Modell eine neue Funktion hinzu
      * 
@@ -32,6 +51,30 @@ public class Plot3DModel {
         return functions.size() - 1;
     }
 
+    /**
+     * Übersetzt die Funktionen neu, die eine geänderte benutzerdefinierte
+     * Variable oder Funktion verwenden
+     * Ihre Rasterpunkte werden bei der nächsten Berechnung neu bestimmt; alle
+     * anderen Funktionen behalten ihre Werte
+     *
+     * @param changed Die geänderten Namen (siehe parser.UserDefinitions)
+     * @return true, wenn mindestens eine Funktion betroffen war
+     */
+    public boolean updateDefinitions(Set<String> changed) {
+        boolean updated = false;
+        for (int i = 0; i < functions.size(); i++) {
+            Function3DInfo functionInfo = functions.get(i);
+            if (!Collections.disjoint(functionInfo.function.getReferencedDefinitions(), changed)) {
+                Function3DInfo replacement = new Function3DInfo(new Function3DParser(functionInfo.expression),
+                        functionInfo.color, functionInfo.expression);
+                replacement.setVisible(functionInfo.isVisible());
+                functions.set(i, replacement);
+                updated = true;
+            }
+        }
+        return updated;
+    }
+
     /**
      * Entfernt alle Funktionen aus dem Modell
      */
@@ -77,9 +120,36 @@ public class Plot3DModel {
         zMin = Double.POSITIVE_INFINITY;
         zMax = Double.NEGATIVE_INFINITY;
 
-        // Berechne die Werte für jede Funktion
+        // Gitterachsen
+        double xStep = (xMax - xMin) / (resolution - 1);
+        double yStep = (yMax - yMin) / (resolution - 1);
+        double[] xs = new double[resolution];
+        double[] ys = new double[resolution];
+        for (int i = 0; i < resolution; i++) {
+            xs[i] = xMin + i * xStep;
+            ys[i] = yMin + i * yStep;
+        }
+
+        // Funktionen, die schon für dieses Gitter berechnet wurden, behalten
+        // ihre Punkte; nur neue oder geänderte werden ausgewertet
+        double[] sampling = { xMin, xMax, yMin, yMax, resolution, preview ? 1 : 0 };
+        List<Function3DInfo> pending = new ArrayList<>();
         for (Function3DInfo functionInfo : functions) {
-            calculateFunctionValues(functionInfo, xMin, xMax, yMin, yMax, resolution);
+            if (functionInfo.getGridPoints() != null && Arrays.equals(functionInfo.sampling, sampling)) {
+                zMin = Math.min(zMin, functionInfo.getZMin());
+                zMax = Math.max(zMax, functionInfo.getZMax());
+            } else {
+                pending.add(functionInfo);
+            }
+        }
+
+        // Die übrigen Funktionen in einem Durchlauf über das Gitter auswerten
+        double[][] values = evaluateFunctions(pending, xs, ys);
+
+        // Berechne die Punkte für jede Funktion
+        for (int f = 0; f < pending.size(); f++) {
+            calculateFunctionValues(pending.get(f), xs, ys, values[f], xMin, xMax, yMin, yMax, resolution);
+            pending.get(f).sampling = sampling;
         }
 
         // Wenn keine Funktionen vorhanden sind oder keine validen Z-Werte berechnet
@@ -104,13 +174,48 @@ public class Plot3DModel {
     }
 
     /**
-     * Berechnet die Funktionswerte für eine spezifische Funktion
+     * Wertet die Funktionen auf dem Gitter aus
+     * Die Funktionen teilen sich einen Ausdrucksgraphen, in dem gleiche
+     * Teilausdrücke nur einmal vorkommen; eine kombinierte Funktion aus dem
+     * Interferenz-Dialog verwendet dabei die bereits berechneten Werte der
+     * Ausgangsfunktionen mit. Ungültige Funktionen erhalten überall NaN.
+     *
+     * @return Die Werte je Funktion, Index i * ys.length + j
      */
-    private void calculateFunctionValues(Function3DInfo functionInfo, double xMin, double xMax,
-            double yMin, double yMax, int resolution) {
-        double xStep = (xMax - xMin) / (resolution - 1);
-        double yStep = (yMax - yMin) / (resolution - 1);
+    private double[][] evaluateFunctions(List<Function3DInfo> functions, double[] xs, double[] ys) {
+        double[][] values = new double[functions.size()][xs.length * ys.length];
+        List<CompiledExpression> expressions = new ArrayList<>();
+        List<double[]> outputs = new ArrayList<>();
+        for (int f = 0; f < functions.size(); f++) {
+            Function3DParser function = functions.get(f).function;
+            if (function.isValid()) {
+                expressions.add(function.getCompiledExpression());
+                outputs.add(values[f]);
+            } else {
+                Arrays.fill(values[f], Double.NaN);
+            }
+        }
+        if (expressions.isEmpty()) {
+            return values;
+        }
+
+        // Kompilierte Ausdrücke kommen aus dem Ausdrucks-Cache; dieselbe Liste
+        // bedeutet daher denselben Graphen
+        if (graph == null || !expressions.equals(graphExpressions)) {
+            graph = new ExpressionGraph(expressions);
+            graphExpressions = expressions;
+        }
+        graph.evaluateGrid(xs, ys, outputs.toArray(new double[0][]), preview);
+        return values;
+    }
 
+    /**
+     * Berechnet die Rasterpunkte für eine spezifische Funktion
+     *
+     * @param values Die Funktionswerte auf dem Gitter, Index i * resolution + j
+     */
+    private void calculateFunctionValues(Function3DInfo functionInfo, double[] xs, double[] ys, double[] values,
+            double xMin, double xMax, double yMin, double yMax, int resolution) {
         // Initialisiere das Rasterpunkt-Array, falls noch nicht vorhanden
         if (functionInfo.getGridPoints() == null ||
                 functionInfo.getGridPoints().length != resolution ||
@@ -123,22 +228,32 @@ public class Plot3DModel {
         double localZMin = Double.POSITIVE_INFINITY;
         double localZMax = Double.NEGATIVE_INFINITY;
 
-        // Berechne alle Punkte für diese Funktion
+        // Gradienten für die Flächennormalen; die Vorschau verwendet die
+        // Kreuzprodukte der Dreieckskanten
+        double[] gradientX = null;
+        double[] gradientY = null;
+        if (!preview) {
+            gradientX = new double[resolution * resolution];
+            gradientY = new double[resolution * resolution];
+            functionInfo.function.evaluateGradientGrid(xs, ys, gradientX, gradientY);
+        }
+        functionInfo.setGradients(gradientX, gradientY);
+
         for (int i = 0; i < resolution; i++) {
-            double x = xMin + i * xStep;
+            double x = xs[i];
 
             for (int j = 0; j < resolution; j++) {
-                double y = yMin + j * yStep;
-
-                // Werte die Funktion mit Fehlerbehandlung aus
-                double z;
-                try {
-                    z = functionInfo.function.evaluateAt(x, y);
-                    if (Double.isNaN(z) || Double.isInfinite(z)) {
-                        z = 0; // Behandle problematische Werte
+                double y = ys[j];
+
+                // Ungültige Punkte werden als NaN geliefert
+                double z = values[i * resolution + j];
+                if (Double.isNaN(z) || Double.isInfinite(z)) {
+                    z = 0; // Behandle problematische Werte
+                    if (gradientX != null) {
+                        // Die Ableitung kann hier definiert sein, die Funktion nicht
+                        gradientX[i * resolution + j] = Double.NaN;
+                        gradientY[i * resolution + j] = Double.NaN;
                     }
-                } catch (Exception e) {
-                    z = 0; // Setze bei einem Fehler auf 0
                 }
 
                 // Erstelle den ursprünglichen Punkt
@@ -158,6 +273,23 @@ public class Plot3DModel {
             }
         }
 
+        // Extrema zwischen den Gitterpunkten: Ist die Funktion auf dem ganzen
+        // Bereich definiert und stetig, liefert die Intervallauswertung sichere
+        // Schranken, die ohne feineres Abtasten auf die echten Extrema
+        // eingeengt werden. Die Vorschau begnügt sich mit den abgetasteten
+        // Extrema
+        Interval enclosure = preview ? null : functionInfo.function.evaluateInterval(xMin, xMax, yMin, yMax);
+        if (enclosure != null && enclosure.isContinuous()) {
+            double tolerance = Math.max(localZMax - localZMin, 1e-10) * BOUND_TOLERANCE;
+            double boundMax = refineExtremum(functionInfo.function, xMin, xMax, yMin, yMax, localZMax, true,
+                    tolerance);
+            double boundMin = refineExtremum(functionInfo.function, xMin, xMax, yMin, yMax, localZMin, false,
+                    tolerance);
+            localZMax = boundMax;
+            localZMin = boundMin;
+        }
+        functionInfo.setZRange(localZMin, localZMax);
+
         // Aktualisiere globale Z-Min/Max-Werte
         if (localZMin < zMin)
             zMin = localZMin;
@@ -165,8 +297,82 @@ public class Plot3DModel {
             zMax = localZMax;
     }
 
+    /**
+     * Engt das Maximum (bzw. Minimum) einer Funktion auf einem Bereich ein
+     * (Branch-and-Bound mit Intervallarithmetik)
+     * Der Teilbereich mit der größten oberen Schranke wird jeweils halbiert; die
+     * Funktionswerte in den Mittelpunkten liefern erreichte Werte. Liegen
+     * Schranke und erreichter Wert höchstens tolerance auseinander, ist das
+     * Extremum bestimmt.
+     *
+     * @param sampled Das bereits auf dem Gitter gefundene Extremum
+     * @param maximum true für das Maximum, false für das Minimum
+     * @return Eine sichere Schranke für das Extremum, oder sampled, wenn sie sich
+     *         nicht genau genug bestimmen lässt
+     */
+    private static double refineExtremum(Function3DParser function, double xMin, double xMax, double yMin,
+            double yMax, double sampled, boolean maximum, double tolerance) {
+        // Das Minimum von f ist das Maximum von -f
+        double sign = maximum ? 1 : -1;
+        double best = sign * sampled;
+
+        // Teilbereiche {Schranke, xMin, xMax, yMin, yMax}, größte Schranke zuerst
+        PriorityQueue<double[]> boxes = new PriorityQueue<>((a, b) -> Double.compare(b[0], a[0]));
+        boxes.add(new double[] { upperBound(function, sign, xMin, xMax, yMin, yMax), xMin, xMax, yMin, yMax });
+
+        for (int iteration = 0; iteration < MAX_BOUND_ITERATIONS && !boxes.isEmpty(); iteration++) {
+            double[] box = boxes.peek();
+            if (box[0] <= best + tolerance) {
+                break;
+            }
+            boxes.poll();
+
+            // Entlang der längeren Seite halbieren
+            double[][] halves;
+            if (box[2] - box[1] >= box[4] - box[3]) {
+                double middle = (box[1] + box[2]) / 2;
+                halves = new double[][] { { box[1], middle, box[3], box[4] }, { middle, box[2], box[3], box[4] } };
+            } else {
+                double middle = (box[3] + box[4]) / 2;
+                halves = new double[][] { { box[1], box[2], box[3], middle }, { box[1], box[2], middle, box[4] } };
+            }
+
+            for (double[] half : halves) {
+                try {
+                    double value = sign * function.evaluateAt((half[0] + half[1]) / 2, (half[2] + half[3]) / 2);
+                    if (value > best) {
+                        best = value;
+                    }
+                } catch (ArithmeticException e) {
+                    // Mittelpunkt nicht auswertbar - nur die Schranke zählt
+                }
+                double bound = upperBound(function, sign, half[0], half[1], half[2], half[3]);
+                if (bound > best) {
+                    boxes.add(new double[] { bound, half[0], half[1], half[2], half[3] });
+                }
+            }
+        }
+
+        double bound = boxes.isEmpty() ? best : Math.max(best, boxes.peek()[0]);
+        if (bound - best > tolerance) {
+            return sampled;
+        }
+        return sign * bound;
+    }
+
+    /**
+     * Obere Schranke von sign * f auf einem Bereich
+     */
+    private static double upperBound(Function3DParser function, double sign, double xMin, double xMax,
+            double yMin, double yMax) {
+        Interval enclosure = function.evaluateInterval(xMin, xMax, yMin, yMax);
+        return sign > 0 ? enclosure.getHi() : -enclosure.getLo();
+    }
+
     /**
      * Berechnet den Z-Bereich über alle Funktionen neu
+     * Nutzt die beim Berechnen gespeicherten Wertebereiche der Funktionen, so
+     * dass die Gitterpunkte nicht erneut durchlaufen werden müssen
      */
     private void recalculateZRange() {
         zMin = Double.POSITIVE_INFINITY;
@@ -174,22 +380,11 @@ public class Plot3DModel {
 
         // Finde die Min-/Max-Z-Werte über alle Funktionen
         for (Function3DInfo functionInfo : functions) {
-            Plot3DPoint[][][] gridPoints = functionInfo.getGridPoints();
-            if (gridPoints != null) {
-                int resolution = gridPoints.length;
-
-                for (int i = 0; i < resolution; i++) {
-                    for (int j = 0; j < resolution; j++) {
-                        if (gridPoints[i][j][0] != null) {
-                            double z = gridPoints[i][j][0].getZ();
-
-                            if (z < zMin)
-                                zMin = z;
-                            if (z > zMax)
-                                zMax = z;
-                        }
-                    }
-                }
+            if (functionInfo.getGridPoints() != null) {
+                if (functionInfo.getZMin() < zMin)
+                    zMin = functionInfo.getZMin();
+                if (functionInfo.getZMax() > zMax)
+                    zMax = functionInfo.getZMax();
             }
         }
 
@@ -199,8 +394,22 @@ public class Plot3DModel {
         }
     }
 
+    /**
+     * Schaltet die schnelle Vorschau-Auswertung ein oder aus
+     * In der Vorschau werden sin, cos, exp, ln und Potenzen genähert (siehe
+     * parser.ApproximateMath); wirkt ab der nächsten Berechnung der
+     * Funktionswerte
+     */
+    public void setPreview(boolean preview) {
+        this.preview = preview;
+    }
+
     // Getter
 
+    public boolean isPreview() {
+        return preview;
+    }
+
     public List<Function3DInfo> getFunctions() {
         return functions;
     }
@@ -223,7 +432,16 @@ public class Plot3DModel {
         public final String expression;
         private Plot3DPoint[][][] gridPoints; // [x][y][Phase], wobei Phase 0 = original, 1 = transformiert, 2 =
                                               // projiziert
+        // Exakte partielle Ableitungen an den Gitterpunkten, Index i * Auflösung + j
+        private double[] gradientX;
+        private double[] gradientY;
+        // Wertebereich der zuletzt berechneten Punkte
+        private double zMin = Double.POSITIVE_INFINITY;
+        private double zMax = Double.NEGATIVE_INFINITY;
         private boolean visible = true; // Standardmäßig sichtbar
+        // Gitter und Modus der berechneten Punkte {xMin, xMax, yMin, yMax,
+        // Auflösung, Vorschau}; null, solange nichts berechnet wurde
+        private double[] sampling;
 
         public Function3DInfo(Function3DParser function, Color color, String expression) {
             this.function = function;
@@ -248,6 +466,44 @@ public class Plot3DModel {
             this.gridPoints = gridPoints;
         }
 
+        /**
+         * Liefert df/dx an den Gitterpunkten (NaN an ungültigen Punkten)
+         */
+        public double[] getGradientX() {
+            return gradientX;
+        }
+
+        /**
+         * Liefert df/dy an den Gitterpunkten (NaN an ungültigen Punkten)
+         */
+        public double[] getGradientY() {
+            return gradientY;
+        }
+
+        public void setGradients(double[] gradientX, double[] gradientY) {
+            this.gradientX = gradientX;
+            this.gradientY = gradientY;
+        }
+
+        /**
+         * Liefert den kleinsten z-Wert der Funktion im berechneten Bereich
+         */
+        public double getZMin() {
+            return zMin;
+        }
+
+        /**
+         * Liefert den größten z-Wert der Funktion im berechneten Bereich
+         */
+        public double getZMax() {
+            return zMax;
+        }
+
+        public void setZRange(double zMin, double zMax) {
+            this.zMin = zMin;
+            this.zMax = zMax;
+        }
+
         /**
          * Gibt an, ob die Funktion sichtbar ist
          */
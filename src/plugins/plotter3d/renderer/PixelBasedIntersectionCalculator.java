@@ -20,6 +20,7 @@ public class PixelBasedIntersectionCalculator {
     // Konstanten für die Leistungsoptimierung
     private static final double BASE_TOLERANCE = 1e-6;
     private static final int MAX_CACHE_SIZE = 50;
+    private static final int BANDS_PER_THREAD = 4; // Streifen je Thread für einen gleichmäßig ausgelasteten Pool
     private static final Color INTERSECTION_COLOR = Color.RED;
 
     // Cache für berechnete Schnittpunkte – Verwendung eines LRU-Caches zur
@@ -101,45 +102,58 @@ public class PixelBasedIntersectionCalculator {
         samplesX = Math.min(300, Math.max(50, samplesX));
         samplesY = Math.min(300, Math.max(50, samplesY));
 
-        // Ergebnisliste für alle Schnittkurven
-        List<List<Plot3DPoint>> allIntersections = Collections.synchronizedList(new ArrayList<>());
+        // Jedes Funktionspaar wird in Streifen von Rasterzeilen zerlegt, die
+        // unabhängig voneinander berechnet werden. So sind auch bei nur zwei
+        // Funktionen alle Threads des Pools beschäftigt; die Parser sind
+        // unveränderlich und jeder Streifen hat eigene Zwischenspeicher
+        int bands = Math.min(samplesX, BANDS_PER_THREAD * Runtime.getRuntime().availableProcessors());
+        double tolerance = Math.max(BASE_TOLERANCE, Math.min(pixelToWorldRatioX, pixelToWorldRatioY));
+        double xMin = view.getXMin();
+        double xMax = view.getXMax();
+        double yMin = view.getYMin();
+        double yMax = view.getYMax();
 
-        // Für jedes Paar von Funktionen
-        List<Future<?>> futures = new ArrayList<>();
+        List<List<Future<List<Plot3DPoint>>>> pairFutures = new ArrayList<>();
         for (int i = 0; i < functions.size() - 1; i++) {
-            final int fi = i;
             for (int j = i + 1; j < functions.size(); j++) {
-                final int fj = j;
+                Function3DParser function1 = functions.get(i).function;
+                Function3DParser function2 = functions.get(j).function;
 
                 // Erstelle finale Kopien der Variablen zur Verwendung in der Lambda-Funktion
                 final int finalSamplesX = samplesX;
                 final int finalSamplesY = samplesY;
-                final double finalPixelToWorldRatioX = pixelToWorldRatioX;
-                final double finalPixelToWorldRatioY = pixelToWorldRatioY;
-
-                futures.add(executor.submit(() -> {
-                    Function3DParser function1 = functions.get(fi).function;
-                    Function3DParser function2 = functions.get(fj).function;
 
-                    // Berechne die Schnittpunkte für dieses Funktionspaar
-                    List<Plot3DPoint> intersectionCurve = calculateIntersectionCurve(
-                            function1, function2,
-                            view.getXMin(), view.getXMax(), view.getYMin(), view.getYMax(),
-                            finalSamplesX, finalSamplesY, finalPixelToWorldRatioX, finalPixelToWorldRatioY);
-
-                    if (!intersectionCurve.isEmpty()) {
-                        allIntersections.add(intersectionCurve);
-                    }
-                }));
+                List<Future<List<Plot3DPoint>>> bandFutures = new ArrayList<>();
+                for (int band = 0; band < bands; band++) {
+                    int fromCell = band * samplesX / bands;
+                    int toCell = (band + 1) * samplesX / bands;
+                    bandFutures.add(executor.submit(() -> findIntersectionPoints(
+                            function1, function2, xMin, xMax, yMin, yMax,
+                            finalSamplesX, finalSamplesY, fromCell, toCell, tolerance)));
+                }
+                pairFutures.add(bandFutures);
             }
         }
 
-        // Warte, bis alle Berechnungen abgeschlossen sind
-        for (Future<?> future : futures) {
+        // Warte, bis alle Berechnungen abgeschlossen sind, und verbinde die Punkte
+        // jedes Paares zu einer Kurve
+        double stepX = (xMax - xMin) / samplesX;
+        double stepY = (yMax - yMin) / samplesY;
+        List<List<Plot3DPoint>> allIntersections = new ArrayList<>();
+        for (List<Future<List<Plot3DPoint>>> bandFutures : pairFutures) {
+            List<Plot3DPoint> intersectionPoints = new ArrayList<>();
             try {
-                future.get();
+                for (Future<List<Plot3DPoint>> future : bandFutures) {
+                    intersectionPoints.addAll(future.get());
+                }
             } catch (Exception e) {
                 System.err.println("Fehler bei der Berechnung der Schnittpunkte: " + e.getMessage());
+                continue;
+            }
+
+            List<Plot3DPoint> intersectionCurve = connectIntersectionPoints(intersectionPoints, stepX, stepY);
+            if (!intersectionCurve.isEmpty()) {
+                allIntersections.add(intersectionCurve);
             }
         }
 
@@ -152,35 +166,41 @@ public class PixelBasedIntersectionCalculator {
     }
 
     /**
-     * Berechnet die Schnittkurve zwischen zwei Funktionen mit Pixelgenauigkeit
+     * Sucht die Schnittpunkte zweier Funktionen in einem Streifen des Rasters
+     * mit Pixelgenauigkeit
+     *
+     * @param fromCell Erste Rasterzelle in x-Richtung
+     * @param toCell   Erste Rasterzelle nach dem Streifen
      */
-    private static List<Plot3DPoint> calculateIntersectionCurve(
+    private static List<Plot3DPoint> findIntersectionPoints(
             Function3DParser function1, Function3DParser function2,
             double xMin, double xMax, double yMin, double yMax,
-            int samplesX, int samplesY, double pixelToWorldRatioX, double pixelToWorldRatioY) {
-
-        // Adaptive Toleranz basierend auf Zoom-Level / Pixel-Verhältnis
-        double tolerance = Math.max(BASE_TOLERANCE, Math.min(pixelToWorldRatioX, pixelToWorldRatioY));
+            int samplesX, int samplesY, int fromCell, int toCell, double tolerance) {
 
         // Schrittweiten für das Sampling
         double stepX = (xMax - xMin) / samplesX;
         double stepY = (yMax - yMin) / samplesY;
 
-        // Raster für Differenzwerte
-        double[][] diffValues = new double[samplesX + 1][samplesY + 1];
+        // Differenzwerte an den Rasterpunkten des Streifens (inklusive der
+        // rechten Randzeile); ungültige Punkte werden NaN
+        int rows = toCell - fromCell + 1;
+        double[] xs = new double[rows];
+        double[] ys = new double[samplesY + 1];
+        for (int i = 0; i < rows; i++) {
+            xs[i] = xMin + (fromCell + i) * stepX;
+        }
+        for (int j = 0; j <= samplesY; j++) {
+            ys[j] = yMin + j * stepY;
+        }
+        double[] values1 = new double[rows * ys.length];
+        double[] values2 = new double[rows * ys.length];
+        function1.evaluateGrid(xs, ys, values1);
+        function2.evaluateGrid(xs, ys, values2);
 
-        // Berechne Differenzwerte an den Rasterpunkten
-        for (int i = 0; i <= samplesX; i++) {
-            double x = xMin + i * stepX;
+        double[][] diffValues = new double[rows][ys.length];
+        for (int i = 0; i < rows; i++) {
             for (int j = 0; j <= samplesY; j++) {
-                double y = yMin + j * stepY;
-                try {
-                    double z1 = function1.evaluateAt(x, y);
-                    double z2 = function2.evaluateAt(x, y);
-                    diffValues[i][j] = z1 - z2;
-                } catch (Exception e) {
-                    diffValues[i][j] = Double.NaN;
-                }
+                diffValues[i][j] = values1[i * ys.length + j] - values2[i * ys.length + j];
             }
         }
 
@@ -188,7 +208,7 @@ public class PixelBasedIntersectionCalculator {
         List<Plot3DPoint> intersectionPoints = new ArrayList<>();
 
         // Suche nach Nulldurchgängen in den Rasterzellen
-        for (int i = 0; i < samplesX; i++) {
+        for (int i = 0; i < rows - 1; i++) {
             for (int j = 0; j < samplesY; j++) {
                 double diff00 = diffValues[i][j];
                 double diff10 = diffValues[i + 1][j];
@@ -216,9 +236,10 @@ public class PixelBasedIntersectionCalculator {
 
                 if (hasIntersection) {
                     // Verfeinere den Schnittpunkt mittels binärer Suche
+                    int cell = fromCell + i;
                     Plot3DPoint refined = refineIntersectionPoint(
                             function1, function2,
-                            xMin + i * stepX, xMin + (i + 1) * stepX,
+                            xMin + cell * stepX, xMin + (cell + 1) * stepX,
                             yMin + j * stepY, yMin + (j + 1) * stepY,
                             tolerance);
 
@@ -229,8 +250,7 @@ public class PixelBasedIntersectionCalculator {
             }
         }
 
-        // Verbinde die Punkte zu einer Kurve
-        return connectIntersectionPoints(intersectionPoints, stepX, stepY);
+        return intersectionPoints;
     }
 
     /**
@@ -281,8 +301,8 @@ public class PixelBasedIntersectionCalculator {
                 // Vermeide Division durch Null
                 if (gradMagnitude < 1e-10) {
                     // Versuche einen anderen Punkt, falls der Gradient zu klein ist
-                    x = x1 + Math.random() * (x2 - x1);
-                    y = y1 + Math.random() * (y2 - y1);
+                    x = x1 + ThreadLocalRandom.current().nextDouble() * (x2 - x1);
+                    y = y1 + ThreadLocalRandom.current().nextDouble() * (y2 - y1);
                     continue;
                 }
 
@@ -310,8 +330,8 @@ public class PixelBasedIntersectionCalculator {
 
             } catch (Exception e) {
                 // Bei numerischen Fehlern, versuche einen leicht abweichenden Punkt
-                x = x1 + Math.random() * (x2 - x1);
-                y = y1 + Math.random() * (y2 - y1);
+                x = x1 + ThreadLocalRandom.current().nextDouble() * (x2 - x1);
+                y = y1 + ThreadLocalRandom.current().nextDouble() * (y2 - y1);
                 stepSize *= 0.5;
             }
         }
@@ -446,7 +466,7 @@ public class PixelBasedIntersectionCalculator {
             } else {
                 // Falls keine klaren Endpunkte vorhanden sind, beginne mit dem am weitesten
                 // links oder rechts liegenden Punkt
-                if (Math.random() < 0.5) {
+                if (ThreadLocalRandom.current().nextDouble() < 0.5) {
                     // Beginne von links
                     remaining.sort((p1, p2) -> Double.compare(p1.getX(), p2.getX()));
                 } else {
@@ -197,25 +197,9 @@ public class Plot3DFunctionRenderer {
                 int[] s4 = transformer.projectToScreen(p4p, displayScale, xOffset, yOffset);
 
                 // Normale für das erste Dreieck (p1, p2, p3) berechnen
-                double[] v1 = { p2.getX() - p1.getX(), p2.getY() - p1.getY(), p2.getZ() - p1.getZ() };
-                double[] v2 = { p3.getX() - p1.getX(), p3.getY() - p1.getY(), p3.getZ() - p1.getZ() };
-
-                double[] normal = {
-                        v1[1] * v2[2] - v1[2] * v2[1], // Nx = Uy*Vz - Uz*Vy
-                        v1[2] * v2[0] - v1[0] * v2[2], // Ny = Uz*Vx - Ux*Vz
-                        v1[0] * v2[1] - v1[1] * v2[0] // Nz = Ux*Vy - Uy*Vx
-                };
-
-                // Normale normalisieren
-                double normalMagnitude = Math.sqrt(
-                        normal[0] * normal[0] +
-                                normal[1] * normal[1] +
-                                normal[2] * normal[2]);
-                if (normalMagnitude > 0) {
-                    normal[0] /= normalMagnitude;
-                    normal[1] /= normalMagnitude;
-                    normal[2] /= normalMagnitude;
-                }
+                double[] normal = triangleNormal(functionInfo, resolution,
+                        i * resolution + j, (i + 1) * resolution + j, (i + 1) * resolution + j + 1,
+                        p1, p2, p3);
 
                 // Backface Culling - nur Dreiecke zeichnen, die zur Kamera zeigen
                 boolean isVisible = normal[2] >= 0;
@@ -261,25 +245,9 @@ public class Plot3DFunctionRenderer {
                     triangles.add(new Triangle(xPoints1, yPoints1, shadedColor, depth1));
 
                     // Normale für das zweite Dreieck (p1, p3, p4) berechnen
-                    double[] v3 = { p3.getX() - p1.getX(), p3.getY() - p1.getY(), p3.getZ() - p1.getZ() };
-                    double[] v4 = { p4.getX() - p1.getX(), p4.getY() - p1.getY(), p4.getZ() - p1.getZ() };
-
-                    double[] normal2 = {
-                            v3[1] * v4[2] - v3[2] * v4[1],
-                            v3[2] * v4[0] - v3[0] * v4[2],
-                            v3[0] * v4[1] - v3[1] * v4[0]
-                    };
-
-                    // Zweite Normale normalisieren
-                    double normal2Magnitude = Math.sqrt(
-                            normal2[0] * normal2[0] +
-                                    normal2[1] * normal2[1] +
-                                    normal2[2] * normal2[2]);
-                    if (normal2Magnitude > 0) {
-                        normal2[0] /= normal2Magnitude;
-                        normal2[1] /= normal2Magnitude;
-                        normal2[2] /= normal2Magnitude;
-                    }
+                    double[] normal2 = triangleNormal(functionInfo, resolution,
+                            i * resolution + j, (i + 1) * resolution + j + 1, i * resolution + j + 1,
+                            p1, p3, p4);
 
                     // Backface Culling für das zweite Dreieck
                     boolean isVisible2 = normal2[2] >= 0;
@@ -317,6 +285,52 @@ public class Plot3DFunctionRenderer {
         return triangles;
     }
 
+    /**
+     * Berechnet die normierte Normale eines Dreiecks
+     * Die Fläche z = f(x,y) hat die Normale (-df/dx, -df/dy, 1); dafür werden die
+     * exakten Gradienten an den drei Ecken gemittelt. Fehlen gültige Gradienten
+     * (z.B. an Definitionslücken), wird das Kreuzprodukt der Kanten verwendet.
+     *
+     * @param a, b, c Indizes der Ecken im Gradienten-Array
+     */
+    private static double[] triangleNormal(Plot3DModel.Function3DInfo functionInfo, int resolution,
+            int a, int b, int c, Plot3DPoint p1, Plot3DPoint p2, Plot3DPoint p3) {
+        double[] normal = null;
+
+        double[] gradientX = functionInfo.getGradientX();
+        double[] gradientY = functionInfo.getGradientY();
+        if (gradientX != null && gradientY != null && gradientX.length == resolution * resolution) {
+            double dx = (gradientX[a] + gradientX[b] + gradientX[c]) / 3.0;
+            double dy = (gradientY[a] + gradientY[b] + gradientY[c]) / 3.0;
+            if (!Double.isNaN(dx) && !Double.isInfinite(dx) && !Double.isNaN(dy) && !Double.isInfinite(dy)) {
+                normal = new double[] { -dx, -dy, 1.0 };
+            }
+        }
+
+        if (normal == null) {
+            double[] v1 = { p2.getX() - p1.getX(), p2.getY() - p1.getY(), p2.getZ() - p1.getZ() };
+            double[] v2 = { p3.getX() - p1.getX(), p3.getY() - p1.getY(), p3.getZ() - p1.getZ() };
+
+            normal = new double[] {
+                    v1[1] * v2[2] - v1[2] * v2[1], // Nx = Uy*Vz - Uz*Vy
+                    v1[2] * v2[0] - v1[0] * v2[2], // Ny = Uz*Vx - Ux*Vz
+                    v1[0] * v2[1] - v1[1] * v2[0] // Nz = Ux*Vy - Uy*Vx
+            };
+        }
+
+        // Normale normalisieren
+        double normalMagnitude = Math.sqrt(
+                normal[0] * normal[0] +
+                        normal[1] * normal[1] +
+                        normal[2] * normal[2]);
+        if (normalMagnitude > 0) {
+            normal[0] /= normalMagnitude;
+            normal[1] /= normalMagnitude;
+            normal[2] /= normalMagnitude;
+        }
+        return normal;
+    }
+
     /**
      * Sammelt Liniensegmente einer Funktion für die Drahtgitterdarstellung
      */
@@ -6,6 +6,7 @@ import java.util.concurrent.*;
 
 import plugins.plotter3d.model.Plot3DModel;
 import plugins.plotter3d.model.Plot3DPoint;
+import parser.DualNumber;
 import parser.Function3DParser;
 
 /**
@@ -25,9 +26,6 @@ public class Plot3DIntersectionCalculator {
     // Farbe für Schnittlinien
     private static final Color INTERSECTION_COLOR = Color.RED;
 
-    // Cache für Funktionsauswertungen zur Vermeidung redundanter Berechnungen
-    private static final Map<String, Double> functionValueCache = new ConcurrentHashMap<>();
-
     // Thread-Pool für parallele Berechnungen
     private static final ExecutorService executor = Executors
             .newFixedThreadPool(Runtime.getRuntime().availableProcessors());
@@ -122,37 +120,41 @@ public class Plot3DIntersectionCalculator {
     }
 
     /**
-     * Berechnet die Differenz zwischen zwei Funktionen mit Caching
+     * Berechnet die Differenz zwischen zwei Funktionen
+     * Die Parser sind unveränderlich, daher können alle Threads des Pools sie
+     * ohne Synchronisation gleichzeitig auswerten
      */
     private static double evaluateDifference(
             Function3DParser function1, Function3DParser function2,
             double x, double y) {
 
         try {
-            // Erstelle eindeutige Cache-Schlüssel für die Funktionsauswertungen
-            String key1 = function1.toString() + "_" + x + "_" + y;
-            String key2 = function2.toString() + "_" + x + "_" + y;
-
-            // Versuche Werte aus dem Cache zu lesen
-            Double z1 = functionValueCache.get(key1);
-            if (z1 == null) {
-                z1 = function1.evaluateAt(x, y);
-                functionValueCache.put(key1, z1); // Im Cache speichern
-            }
-
-            Double z2 = functionValueCache.get(key2);
-            if (z2 == null) {
-                z2 = function2.evaluateAt(x, y);
-                functionValueCache.put(key2, z2); // Im Cache speichern
-            }
-
-            return z1 - z2;
+            return function1.evaluateAt(x, y) - function2.evaluateAt(x, y);
         } catch (Exception e) {
             // Bei Fehlern (z.B. Division durch Null)
             return Double.NaN;
         }
     }
 
+    /**
+     * Berechnet die Differenz zweier Funktionen samt Gradient mit dualen Zahlen
+     *
+     * @return Differenz und partielle Ableitungen, NaN wenn eine der Funktionen
+     *         an dieser Stelle nicht definiert ist
+     */
+    private static DualNumber evaluateDifferenceWithGradient(
+            Function3DParser function1, Function3DParser function2,
+            double x, double y) {
+        try {
+            DualNumber f1 = function1.evaluateWithGradient(x, y);
+            DualNumber f2 = function2.evaluateWithGradient(x, y);
+            return new DualNumber(f1.getValue() - f2.getValue(),
+                    f1.getDx() - f2.getDx(), f1.getDy() - f2.getDy());
+        } catch (Exception e) {
+            return new DualNumber(Double.NaN, Double.NaN, Double.NaN);
+        }
+    }
+
     /**
      * Berechnet eine Schnittlinie zwischen zwei Funktionen
      * mit adaptivem Raster und optimierter Nullstellensuche
@@ -300,12 +302,22 @@ public class Plot3DIntersectionCalculator {
         double[][] diffValues = new double[stepsX + 1][stepsY + 1];
         boolean[][] hasIntersection = new boolean[stepsX][stepsY];
 
-        // Berechne alle Differenzwerte im Raster
+        // Berechne alle Differenzwerte im Raster (ungültige Punkte werden NaN)
+        double[] xs = new double[stepsX + 1];
+        double[] ys = new double[stepsY + 1];
+        for (int i = 0; i <= stepsX; i++) {
+            xs[i] = xMin + i * (xMax - xMin) / stepsX;
+        }
+        for (int j = 0; j <= stepsY; j++) {
+            ys[j] = yMin + j * (yMax - yMin) / stepsY;
+        }
+        double[] values1 = new double[xs.length * ys.length];
+        double[] values2 = new double[xs.length * ys.length];
+        function1.evaluateGrid(xs, ys, values1);
+        function2.evaluateGrid(xs, ys, values2);
         for (int i = 0; i <= stepsX; i++) {
-            double x = xMin + i * (xMax - xMin) / stepsX;
             for (int j = 0; j <= stepsY; j++) {
-                double y = yMin + j * (yMax - yMin) / stepsY;
-                diffValues[i][j] = evaluateDifference(function1, function2, x, y);
+                diffValues[i][j] = values1[i * ys.length + j] - values2[i * ys.length + j];
             }
         }
 
@@ -476,31 +488,22 @@ public class Plot3DIntersectionCalculator {
         for (int i = 0; i < MAX_ITERATIONS; i++) {
             double diff, diffDeriv;
 
-            if (isXVariable) {
-                // Suche Nullstelle in x-Richtung
-                diff = evaluateDifference(function1, function2, current, fixed);
-
-                // Numerische Ableitung bilden
-                double h = Math.max(1e-8, Math.abs(current) * 1e-8);
-                double diffPlus = evaluateDifference(function1, function2, current + h, fixed);
-                diffDeriv = (diffPlus - diff) / h;
-            } else {
-                // Suche Nullstelle in y-Richtung
-                diff = evaluateDifference(function1, function2, fixed, current);
-
-                // Numerische Ableitung bilden
-                double h = Math.max(1e-8, Math.abs(current) * 1e-8);
-                double diffPlus = evaluateDifference(function1, function2, fixed, current + h);
-                diffDeriv = (diffPlus - diff) / h;
-            }
+            double x = isXVariable ? current : fixed;
+            double y = isXVariable ? fixed : current;
+
+            // Differenz und exakte Ableitung in Suchrichtung in einem Durchlauf
+            DualNumber difference = evaluateDifferenceWithGradient(function1, function2, x, y);
+            diff = difference.getValue();
+            diffDeriv = isXVariable ? difference.getDx() : difference.getDy();
 
             // Abbruch bei sehr kleiner Differenz
             if (Math.abs(diff) < TOLERANCE) {
                 return current;
             }
 
-            // Spezialfall: Ableitung nahe Null - verhindert Division durch (fast) Null
-            if (Math.abs(diffDeriv) < 1e-10) {
+            // Spezialfall: Ableitung nahe Null oder nicht definiert - verhindert
+            // Division durch (fast) Null
+            if (Double.isNaN(diffDeriv) || Math.abs(diffDeriv) < 1e-10) {
                 // Fallback auf Bisektion
                 return (start + end) / 2;
             }
@@ -706,13 +709,6 @@ public class Plot3DIntersectionCalculator {
         }
     }
 
-    /**
-     * Leert den Cache der Funktionswerte
-     */
-    private static void clearCache() {
-        functionValueCache.clear();
-    }
-
     /**
      * Gibt die Standardfarbe für Schnittlinien zurück
      */
@@ -785,9 +781,6 @@ public class Plot3DIntersectionCalculator {
             }
         }
 
-        // Cache leeren, um Speicher freizugeben
-        clearCache();
-
         return allIntersections;
     }
 
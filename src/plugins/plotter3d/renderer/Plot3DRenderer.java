@@ -3,6 +3,7 @@ package plugins.plotter3d.renderer;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.util.List;
+import java.util.Set;
 
 import plugins.plotter3d.model.Plot3DModel;
 import plugins.plotter3d.model.Plot3DPoint;
@@ -79,6 +80,21 @@ public class Plot3DRenderer {
         functionChanged(); // Cache leeren
     }
 
+    /**
+     * Übersetzt die Funktionen neu, die eine geänderte benutzerdefinierte
+     * Variable oder Funktion verwenden; nur sie werden bei der nächsten
+     * Berechnung neu abgetastet
+     *
+     * @return true, wenn mindestens eine Funktion betroffen war
+     */
+    public boolean updateDefinitions(Set<String> changed) {
+        if (!model.updateDefinitions(changed)) {
+            return false;
+        }
+        functionChanged(); // Cache leeren
+        return true;
+    }
+
     /**
      * Entfernt alle Funktionen
      */
@@ -102,6 +118,21 @@ public class Plot3DRenderer {
         return model.getFunctions();
     }
 
+    /**
+     * Schaltet die schnelle Vorschau-Auswertung mit genäherten Funktionen ein
+     * oder aus (z.B. während der Benutzer den Plot dreht)
+     */
+    public void setPreview(boolean preview) {
+        model.setPreview(preview);
+    }
+
+    /**
+     * Gibt zurück, ob die Vorschau-Auswertung aktiv ist
+     */
+    public boolean isPreview() {
+        return model.isPreview();
+    }
+
     /**
      * Setzt den Heatmap-Modus
      */
@@ -33,28 +33,15 @@ public class Plot3DTransformer {
 
     /**
      * Berechnet den z-Wertebereich für eine Funktion
+     * Verwendet den beim Berechnen der Gitterpunkte bestimmten Wertebereich
      */
     private double calculateZRange(Plot3DModel.Function3DInfo functionInfo) {
-        double zMin = Double.POSITIVE_INFINITY;
-        double zMax = Double.NEGATIVE_INFINITY;
-
         if (functionInfo.getGridPoints() == null) {
             return 1.0; // Standardbereich, wenn keine Punkte vorhanden sind
         }
 
-        // Ermittle min/max Z-Werte über alle Gitterpunkte
-        for (int i = 0; i < functionInfo.getGridPoints().length; i++) {
-            for (int j = 0; j < functionInfo.getGridPoints()[i].length; j++) {
-                Plot3DPoint original = functionInfo.getGridPoints()[i][j][0];
-                if (original != null) {
-                    double z = original.getZ();
-                    if (z < zMin)
-                        zMin = z;
-                    if (z > zMax)
-                        zMax = z;
-                }
-            }
-        }
+        double zMin = functionInfo.getZMin();
+        double zMax = functionInfo.getZMax();
 
         // Stelle sicher, dass der Bereich gültig ist
         if (zMin == Double.POSITIVE_INFINITY || zMax == Double.NEGATIVE_INFINITY || Math.abs(zMax - zMin) < 1e-10) {
@@ -3,6 +3,7 @@ package plugins.plotter3d.ui;
 import javax.swing.*;
 
 import common.ColorChooser;
+import parser.UserDefinitions;
 import plugins.plotter3d.Plot3DPanel;
 import plugins.plotter3d.renderer.Plot3DRenderer;
 import plugins.plotter3d.view.Plot3DViewController;
@@ -57,6 +58,15 @@ public class Plot3DFunctionManager {
 
         // Doppelklick-Listener für Bearbeitung
         setupListListeners();
+
+        // Funktionen neu berechnen, deren benutzerdefinierte Variablen oder
+        // Funktionen sich geändert haben
+        UserDefinitions.addListener(changed -> SwingUtilities.invokeLater(() -> {
+            if (renderer.updateDefinitions(changed) && parentPanel != null) {
+                debug("Funktionen nach Änderung von " + changed + " neu berechnet");
+                parentPanel.renderPlot();
+            }
+        }));
     }
 
     /**
@@ -269,6 +279,23 @@ public class Plot3DFunctionManager {
             return;
         }
 
+        // Definitionen wie "a = 2" oder "g(x) = sin(a*x)" werden nicht gezeichnet,
+        // sondern für alle Funktionen bereitgestellt
+        if (UserDefinitions.isDefinition(function)) {
+            try {
+                String name = UserDefinitions.define(function);
+                debug("Definition gespeichert: " + UserDefinitions.getDefinition(name));
+            } catch (RuntimeException e) {
+                JOptionPane.showMessageDialog(
+                        functionList,
+                        "Fehler in der Definition: " + e.getMessage(),
+                        "Fehler",
+                        JOptionPane.ERROR_MESSAGE);
+                debug("Fehler in der Definition: " + e.getMessage());
+            }
+            return;
+        }
+
         // Farbauswahl verarbeiten
         Color color;
 
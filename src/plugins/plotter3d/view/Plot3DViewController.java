@@ -130,6 +130,24 @@ public class Plot3DViewController {
         return useSolidSurface;
     }
 
+    /**
+     * Aktiviert oder deaktiviert die schnelle Vorschau während einer
+     * Interaktion
+     * Beim Ausschalten wird der Plot sofort mit exakten Werten neu berechnet
+     */
+    public void setPreview(boolean preview) {
+        if (renderer == null || renderer.isPreview() == preview) {
+            return;
+        }
+        renderer.setPreview(preview);
+
+        if (!preview && parentPanel != null) {
+            parentPanel.renderPlot();
+        }
+
+        debug("Vorschau-Auswertung: " + (preview ? "aktiviert" : "deaktiviert"));
+    }
+
     /**
      * Setzt die Referenz auf das übergeordnete Panel
      */
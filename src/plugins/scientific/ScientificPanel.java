@@ -6,6 +6,7 @@ import javax.swing.*;
 import core.CalculationEngine;
 import core.GrafischerTaschenrechner;
 import parser.FunctionParser;
+import parser.UserDefinitions;
 import util.debug.DebugManager;
 
 import java.awt.*;
@@ -404,9 +405,16 @@ public class ScientificPanel extends JPanel {
         String ausdruck = displayField.getText();
         debug("Berechne wissenschaftlichen Ausdruck: " + ausdruck);
 
+        // Definition einer Variablen oder Funktion (z.B. "a = 2.5")
+        if (UserDefinitions.isDefinition(ausdruck)) {
+            defineUserDefinition(ausdruck);
+            return;
+        }
+
         // Prüfe, ob die Eingabe eine Funktion oder Konstante ist, die geplottet werden
-        // kann
-        if (checkIfFunction(ausdruck)) {
+        // kann; Ausdrücke, die nur über benutzerdefinierte Variablen konstant sind,
+        // werden direkt berechnet
+        if (checkIfFunction(ausdruck) && !UserDefinitions.isDefinedConstant(ausdruck)) {
             debug("Mögliche Funktion oder Konstante erkannt: " + ausdruck);
             askToPlotFunction(ausdruck);
             return;
@@ -456,6 +464,26 @@ public class ScientificPanel extends JPanel {
         }
     }
 
+    /**
+     * Legt eine benutzerdefinierte Variable oder Funktion an und zeigt ihren
+     * Wert bzw. ihre Definition an
+     */
+    private void defineUserDefinition(String definition) {
+        try {
+            String name = UserDefinitions.define(definition);
+            String ergebnisText = UserDefinitions.isFunction(name)
+                    ? UserDefinitions.getDefinition(name)
+                    : decimalFormat.format(UserDefinitions.getValue(name));
+            displayField.setText(ergebnisText);
+            neueZahlBegonnen = true;
+            debug("Definition gespeichert: " + definition + " -> " + ergebnisText);
+            calculator.addToHistory(definition, ergebnisText);
+        } catch (Exception e) {
+            displayField.setText("Fehler");
+            debug("Fehler bei der Definition: " + e.getMessage());
+        }
+    }
+
     /**
      * Konvertiert Winkelangaben in trigonometrischen Funktionen von Grad zu Radiant
      */
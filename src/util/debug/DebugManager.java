@@ -7,16 +7,57 @@ import common.CalculatorConstants;
 import core.Taschenrechner;
 
 import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Verwaltet die Debug-Funktionalität
  * Implementiert das Logger-Interface für einheitliche Protokollierung
+ *
+ * Nachrichten unterhalb der eingestellten Stufe werden verworfen, ohne sie zu
+ * bauen (siehe {@link Logger#debug(java.util.function.Supplier)}). Solange der
+ * Debug-Dialog sichtbar ist, werden auch Debug-Nachrichten protokolliert.
+ * Aktive Nachrichten landen in einem sperrfreien Ringpuffer und werden
+ * höchstens alle {@link #FLUSH_INTERVAL_MS} ms gesammelt im
+ * Event-Dispatch-Thread an Konsole und Debug-Ansicht angehängt. Die Ansicht
+ * behält nur die letzten {@link #CONSOLE_CAPACITY} Zeilen und zeichnet nur die
+ * sichtbaren. Mit -Dtaschenrechner.log.file=pfad werden die Zeilen zusätzlich
+ * in einem eigenen Thread in eine rotierende Datei geschrieben.
  */
 public class DebugManager implements Logger {
-    private JTextArea debugTextArea;
+    // Stufe, solange der Dialog verborgen ist; änderbar über
+    // -Dtaschenrechner.log.level=DEBUG|INFO|WARNING|ERROR
+    private static final LogLevel DEFAULT_LEVEL = LogLevel.parse(System.getProperty("taschenrechner.log.level"),
+            LogLevel.INFO);
+
+    // Plätze im Ringpuffer zwischen zwei Leerungen
+    private static final int BUFFER_CAPACITY = 8192;
+
+    // Zeilen, die die Debug-Ansicht höchstens behält
+    private static final int CONSOLE_CAPACITY = 10000;
+
+    // Mindestabstand zwischen zwei Leerungen
+    private static final int FLUSH_INTERVAL_MS = 100;
+
+    // Protokolldatei: Größe, ab der rotiert wird, und Anzahl älterer Dateien
+    private static final long LOG_FILE_MAX_BYTES = 1024 * 1024;
+    private static final int LOG_FILE_BACKUPS = 3;
+
+    private JList<String> debugList;
+    private final LogLineModel lineModel = new LogLineModel(CONSOLE_CAPACITY);
+    private int cellWidth;
     private JDialog debugDialog;
     private final Taschenrechner calculator;
 
+    private volatile LogLevel level = DEFAULT_LEVEL;
+    private volatile boolean dialogVisible = false;
+    private final LogRingBuffer buffer = new LogRingBuffer(BUFFER_CAPACITY);
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Timer flushTimer;
+    private final LogFileWriter logFile;
+
     /**
      * Erstellt einen neuen DebugManager
      * 
@@ -24,6 +65,11 @@ public class DebugManager implements Logger {
      */
     public DebugManager(Taschenrechner calculator) {
         this.calculator = calculator;
+        flushTimer = new Timer(FLUSH_INTERVAL_MS, e -> flush());
+        flushTimer.setRepeats(false);
+        String logFilePath = System.getProperty("taschenrechner.log.file");
+        logFile = logFilePath == null || logFilePath.isEmpty() ? null
+                : new LogFileWriter(Paths.get(logFilePath), LOG_FILE_MAX_BYTES, LOG_FILE_BACKUPS);
         initializeDebugPanel();
     }
 
@@ -31,10 +77,12 @@ public class DebugManager implements Logger {
      * Initialisiert das Debug-Panel
      */
     private void initializeDebugPanel() {
-        // Create debug text area
-        debugTextArea = new JTextArea(10, 40);
-        debugTextArea.setEditable(false);
-        debugTextArea.setFont(CalculatorConstants.MONOSPACE_FONT);
+        // Create debug view; with a fixed cell height only visible lines are rendered
+        debugList = new JList<>(lineModel);
+        debugList.setFont(CalculatorConstants.MONOSPACE_FONT);
+        debugList.setFixedCellHeight(debugList.getFontMetrics(CalculatorConstants.MONOSPACE_FONT).getHeight());
+        debugList.setFixedCellWidth(1);
+        debugList.setVisibleRowCount(10);
 
         // Create dialog for debug information
         createDebugDialog();
@@ -56,8 +104,8 @@ public class DebugManager implements Logger {
         JLabel titleLabel = new JLabel("Debug-Ausgaben:");
         dialogPanel.add(titleLabel, BorderLayout.NORTH);
 
-        // Scrollbare Textfläche für Debug-Informationen
-        JScrollPane debugScrollPane = new JScrollPane(debugTextArea);
+        // Scrollbare Liste für Debug-Informationen
+        JScrollPane debugScrollPane = new JScrollPane(debugList);
         debugScrollPane.setPreferredSize(new Dimension(500, 400));
         dialogPanel.add(debugScrollPane, BorderLayout.CENTER);
 
@@ -67,7 +115,9 @@ public class DebugManager implements Logger {
         // Lösch-Button für Debug-Ausgaben
         JButton clearButton = new JButton("Ausgaben löschen");
         clearButton.addActionListener(e -> {
-            debugTextArea.setText("");
+            lineModel.clear();
+            cellWidth = 1;
+            debugList.setFixedCellWidth(cellWidth);
         });
 
         // Schließen-Button
@@ -84,6 +134,42 @@ public class DebugManager implements Logger {
 
         // Dialog mittig zum Hauptfenster positionieren
         debugDialog.setLocationRelativeTo(calculator);
+
+        // Sichtbarkeit für Aufrufer außerhalb des Event-Dispatch-Threads merken
+        debugDialog.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentShown(ComponentEvent e) {
+                dialogVisible = true;
+            }
+
+            @Override
+            public void componentHidden(ComponentEvent e) {
+                dialogVisible = false;
+            }
+        });
+    }
+
+    /**
+     * Gibt an, ob Nachrichten dieser Stufe protokolliert werden
+     * Bei sichtbarem Debug-Dialog sind alle Stufen aktiv
+     */
+    @Override
+    public boolean isEnabled(LogLevel messageLevel) {
+        return dialogVisible || messageLevel.compareTo(level) >= 0;
+    }
+
+    /**
+     * Setzt die Stufe, ab der bei verborgenem Dialog protokolliert wird
+     */
+    public void setLevel(LogLevel level) {
+        this.level = level;
+    }
+
+    /**
+     * Liefert die Stufe, ab der bei verborgenem Dialog protokolliert wird
+     */
+    public LogLevel getLevel() {
+        return level;
     }
 
     /**
@@ -91,7 +177,7 @@ public class DebugManager implements Logger {
      */
     @Override
     public void debug(String message) {
-        log("[DEBUG] " + message);
+        log(LogLevel.DEBUG, message);
     }
 
     /**
@@ -99,7 +185,7 @@ public class DebugManager implements Logger {
      */
     @Override
     public void info(String message) {
-        log("[INFO] " + message);
+        log(LogLevel.INFO, message);
     }
 
     /**
@@ -107,7 +193,7 @@ public class DebugManager implements Logger {
      */
     @Override
     public void warning(String message) {
-        log("[WARNUNG] " + message);
+        log(LogLevel.WARNING, message);
     }
 
     /**
@@ -115,7 +201,7 @@ public class DebugManager implements Logger {
      */
     @Override
     public void error(String message) {
-        log("[FEHLER] " + message);
+        log(LogLevel.ERROR, message);
     }
 
     /**
@@ -123,26 +209,81 @@ public class DebugManager implements Logger {
      */
     @Override
     public void error(String message, Exception e) {
-        log("[FEHLER] " + message);
+        if (!isEnabled(LogLevel.ERROR)) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder(message);
         if (e != null) {
-            log("  Exception: " + e.getClass().getName() + ": " + e.getMessage());
+            sb.append("\n  Exception: ").append(e.getClass().getName()).append(": ").append(e.getMessage());
 
             // Stacktrace (begrenzt)
             StackTraceElement[] stack = e.getStackTrace();
             for (int i = 0; i < Math.min(3, stack.length); i++) {
-                log("    at " + stack[i].toString());
+                sb.append("\n    at ").append(stack[i]);
             }
         }
+        log(LogLevel.ERROR, sb.toString());
     }
 
     /**
      * Interne Methode zum Protokollieren einer Nachricht
+     * Legt die Nachricht im Ringpuffer ab und plant höchstens eine Leerung im
+     * Event-Dispatch-Thread; sie folgt frühestens nach {@link #FLUSH_INTERVAL_MS}
+     * ms, so dass alle bis dahin eintreffenden Nachrichten mitgenommen werden
+     */
+    private void log(LogLevel messageLevel, String message) {
+        if (!isEnabled(messageLevel)) {
+            return;
+        }
+        buffer.offer(messageLevel.getPrefix() + " " + message);
+        if (flushScheduled.compareAndSet(false, true)) {
+            flushTimer.start();
+        }
+    }
+
+    /**
+     * Hängt alle gepufferten Nachrichten in einem Schritt an Konsole,
+     * Protokolldatei und Debug-Ansicht an (nur im Event-Dispatch-Thread)
      */
-    private void log(String message) {
-        System.out.println(message);
-        debugTextArea.append(message + "\n");
-        // Zum Ende scrollen
-        debugTextArea.setCaretPosition(debugTextArea.getDocument().getLength());
+    private void flush() {
+        // Vor dem Leeren zurücksetzen, damit danach abgelegte Nachrichten eine
+        // neue Leerung planen
+        flushScheduled.set(false);
+        StringBuilder sb = new StringBuilder();
+        long dropped = buffer.takeDropped();
+        if (dropped > 0) {
+            sb.append(LogLevel.WARNING.getPrefix()).append(' ').append(dropped)
+                    .append(" Nachrichten verworfen (Puffer voll)\n");
+        }
+        buffer.drainTo(sb);
+        if (sb.length() == 0) {
+            return;
+        }
+        System.out.print(sb);
+        if (logFile != null && !logFile.write(sb.toString())) {
+            System.err.println(LogLevel.WARNING.getPrefix() + " Protokolldatei kommt nicht nach, Zeilen verworfen");
+        }
+
+        // Nur mitscrollen, wenn das Ende vorher sichtbar war
+        int lastIndex = lineModel.getSize() - 1;
+        boolean atEnd = lastIndex < 0 || debugList.getLastVisibleIndex() >= lastIndex;
+        lineModel.append(sb);
+        updateCellWidth();
+        if (atEnd && lineModel.getSize() > 0) {
+            debugList.ensureIndexIsVisible(lineModel.getSize() - 1);
+        }
+    }
+
+    /**
+     * Verbreitert die Zeilen der Ansicht auf die längste Zeile, damit waagrecht
+     * gescrollt werden kann; die Schrift ist nichtproportional
+     */
+    private void updateCellWidth() {
+        int width = lineModel.getLongestLine() * debugList.getFontMetrics(debugList.getFont()).charWidth('m') + 8;
+        if (width > cellWidth) {
+            cellWidth = width;
+            debugList.setFixedCellWidth(cellWidth);
+        }
     }
 
     /**
@@ -180,9 +321,9 @@ public class DebugManager implements Logger {
     }
 
     /**
-     * Gibt das Debug-TextArea zurück
+     * Gibt die Liste der Debug-Ansicht zurück
      */
-    public JTextArea getDebugTextArea() {
-        return debugTextArea;
+    public JList<String> getDebugList() {
+        return debugList;
     }
 }
@@ -0,0 +1,134 @@
+package util.debug;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Schreibt Protokollzeilen in einem eigenen Thread in eine Datei
+ * Die Datei wird rotiert, sobald sie die Höchstgröße erreicht: aus
+ * debug.log wird debug.log.1, aus debug.log.1 wird debug.log.2 usw.; die
+ * älteste Datei entfällt. Der aufrufende Thread wartet nie auf die Platte; ist
+ * die Warteschlange voll, wird der Block verworfen.
+ */
+final class LogFileWriter {
+    // Höchstzahl der Blöcke, die auf das Schreiben warten
+    private static final int QUEUE_CAPACITY = 256;
+
+    private final Path file;
+    private final long maxBytes;
+    private final int backups;
+    private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    private Writer writer;
+    private long written;
+
+    /**
+     * Erstellt den Schreiber und startet seinen Thread
+     *
+     * @param file     Die Protokolldatei
+     * @param maxBytes Größe, ab der rotiert wird
+     * @param backups  Anzahl der aufbewahrten älteren Dateien
+     */
+    LogFileWriter(Path file, long maxBytes, int backups) {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.backups = backups;
+        Thread thread = new Thread(this::run, "Protokolldatei");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Übergibt einen Block von Zeilen zum Schreiben
+     *
+     * @return false, wenn die Warteschlange voll war
+     */
+    boolean write(String lines) {
+        return queue.offer(lines);
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                String lines = queue.take();
+                try {
+                    writeBlock(lines);
+                    // Erst leeren, wenn nichts mehr wartet
+                    if (queue.isEmpty()) {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    // Datei nicht beschreibbar: Block verwerfen, beim nächsten
+                    // Mal neu öffnen
+                    System.err.println("Protokolldatei " + file + " nicht beschreibbar: " + e.getMessage());
+                    closeQuietly();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeQuietly();
+        }
+    }
+
+    private void writeBlock(String lines) throws IOException {
+        if (writer == null) {
+            open();
+        }
+        long bytes = lines.getBytes(StandardCharsets.UTF_8).length;
+        if (written > 0 && written + bytes > maxBytes) {
+            rotate();
+        }
+        writer.write(lines);
+        written += bytes;
+    }
+
+    private void open() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        written = Files.exists(file) ? Files.size(file) : 0;
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void rotate() throws IOException {
+        closeQuietly();
+        if (backups > 0) {
+            Files.deleteIfExists(backup(backups));
+            for (int i = backups - 1; i >= 1; i--) {
+                Path source = backup(i);
+                if (Files.exists(source)) {
+                    Files.move(source, backup(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(file, backup(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.deleteIfExists(file);
+        }
+        open();
+    }
+
+    private Path backup(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void closeQuietly() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                // Nichts mehr zu retten
+            }
+            writer = null;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package util.debug;
+
+/**
+ * Stufen der Protokollierung, aufsteigend nach Wichtigkeit
+ */
+public enum LogLevel {
+    DEBUG("[DEBUG]"),
+    INFO("[INFO]"),
+    WARNING("[WARNUNG]"),
+    ERROR("[FEHLER]");
+
+    private final String prefix;
+
+    LogLevel(String prefix) {
+        this.prefix = prefix;
+    }
+
+    /**
+     * Liefert das Präfix, mit dem Nachrichten dieser Stufe ausgegeben werden
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Sucht eine Stufe über ihren Namen (DEBUG, INFO, WARNING, ERROR)
+     *
+     * @return Die Stufe oder defaultLevel, wenn der Name unbekannt ist
+     */
+    public static LogLevel parse(String name, LogLevel defaultLevel) {
+        if (name != null) {
+            for (LogLevel level : values()) {
+                if (level.name().equalsIgnoreCase(name.trim())) {
+                    return level;
+                }
+            }
+        }
+        return defaultLevel;
+    }
+}
@@ -0,0 +1,104 @@
+package util.debug;
+
+import java.util.Arrays;
+
+import javax.swing.AbstractListModel;
+
+/**
+ * Listenmodell der Debug-Konsole mit fester Kapazität
+ * Die Zeilen liegen in einem Ring; ist er voll, verdrängen neue Zeilen die
+ * ältesten. Zusammen mit einer festen Zeilenhöhe zeichnet die JList nur die
+ * sichtbaren Zeilen, unabhängig davon, wie viele gespeichert sind.
+ * Nur im Event-Dispatch-Thread zu verwenden.
+ */
+final class LogLineModel extends AbstractListModel<String> {
+    private final String[] lines;
+    // Index der ältesten Zeile im Ring
+    private int start;
+    private int size;
+    // Länge der längsten gespeicherten Zeile seit dem letzten Leeren
+    private int longestLine;
+
+    /**
+     * @param capacity Höchstzahl der gespeicherten Zeilen
+     */
+    LogLineModel(int capacity) {
+        lines = new String[Math.max(capacity, 1)];
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public String getElementAt(int index) {
+        return lines[(start + index) % lines.length];
+    }
+
+    /**
+     * Liefert die Anzahl Zeichen der längsten Zeile, für die Breite der Ansicht
+     */
+    int getLongestLine() {
+        return longestLine;
+    }
+
+    /**
+     * Hängt die Zeilen eines Textes an, verdrängt bei Bedarf die ältesten
+     *
+     * @param text Zeilen, getrennt durch Zeilenumbrüche; ein abschließender
+     *             Umbruch erzeugt keine leere Zeile
+     */
+    void append(CharSequence text) {
+        int capacity = lines.length;
+        int added = 0;
+        int lineStart = 0;
+        int length = text.length();
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && text.charAt(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            String line = text.subSequence(lineStart, lineEnd).toString();
+            lines[(start + size + added) % capacity] = line;
+            longestLine = Math.max(longestLine, line.length());
+            added++;
+            lineStart = lineEnd + 1;
+        }
+        if (added == 0) {
+            return;
+        }
+
+        // Verdrängte Zeilen als entfernt melden, danach die neuen als angefügt
+        int overflow = Math.max(size + added - capacity, 0);
+        int evicted = Math.min(overflow, size);
+        if (evicted > 0) {
+            size -= evicted;
+            start = (start + evicted) % capacity;
+            fireIntervalRemoved(this, 0, evicted - 1);
+        }
+        // Mehr neue Zeilen als Plätze: nur die letzten bleiben erhalten
+        int skipped = overflow - evicted;
+        if (skipped > 0) {
+            start = (start + skipped) % capacity;
+            added -= skipped;
+        }
+        int first = size;
+        size += added;
+        fireIntervalAdded(this, first, size - 1);
+    }
+
+    /**
+     * Entfernt alle Zeilen
+     */
+    void clear() {
+        int oldSize = size;
+        Arrays.fill(lines, null);
+        start = 0;
+        size = 0;
+        longestLine = 0;
+        if (oldSize > 0) {
+            fireIntervalRemoved(this, 0, oldSize - 1);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package util.debug;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sperrfreier Ringpuffer für Protokollzeilen
+ * Beliebig viele Threads schreiben, genau einer (der Event-Dispatch-Thread)
+ * liest. Schreiber reservieren einen Platz per compareAndSet und warten nie;
+ * ist der Puffer voll, wird die Zeile verworfen und gezählt.
+ */
+final class LogRingBuffer {
+    private final int mask;
+    private final AtomicReferenceArray<String> slots;
+
+    // Nächster zu reservierender Platz (alle Schreiber)
+    private final AtomicLong tail = new AtomicLong();
+    // Nächster zu lesender Platz (nur der Leser schreibt)
+    private volatile long head;
+
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * @param capacity Anzahl der Plätze, wird auf eine Zweierpotenz aufgerundet
+     */
+    LogRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        mask = size - 1;
+        slots = new AtomicReferenceArray<>(size);
+    }
+
+    /**
+     * Legt eine Zeile ab
+     *
+     * @return false, wenn der Puffer voll war und die Zeile verworfen wurde
+     */
+    boolean offer(String line) {
+        while (true) {
+            long position = tail.get();
+            if (position - head > mask) {
+                dropped.increment();
+                return false;
+            }
+            if (tail.compareAndSet(position, position + 1)) {
+                slots.set((int) position & mask, line);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Entnimmt alle fertig geschriebenen Zeilen (nur vom Leser aufzurufen)
+     * Eine reservierte, aber noch nicht geschriebene Zeile beendet den
+     * Durchlauf; sie wird beim nächsten Mal entnommen
+     *
+     * @param out Nimmt die Zeilen auf, jeweils mit Zeilenumbruch
+     * @return Anzahl der entnommenen Zeilen
+     */
+    int drainTo(StringBuilder out) {
+        long position = head;
+        int count = 0;
+        while (true) {
+            int index = (int) position & mask;
+            String line = slots.get(index);
+            if (line == null) {
+                break;
+            }
+            slots.set(index, null);
+            out.append(line).append('\n');
+            position++;
+            count++;
+        }
+        head = position;
+        return count;
+    }
+
+    /**
+     * Liefert die Anzahl der seit dem letzten Aufruf verworfenen Zeilen und
+     * setzt den Zähler zurück
+     */
+    long takeDropped() {
+        return dropped.sumThenReset();
+    }
+}
@@ -1,11 +1,49 @@
 
 package util.debug;
 
+import java.util.function.Supplier;
+
 /**
  * Interface für das Logging-System
  * Ermöglicht einheitliches Logging in allen Komponenten
+ *
+ * Die Varianten mit Supplier bauen die Nachricht erst, wenn die Stufe aktiv
+ * ist; für Aufrufe in häufig durchlaufenem Code (Tastendruck, Auswertung)
+ * sollten sie bevorzugt werden.
  */
 public interface Logger {
+    /**
+     * Gibt an, ob Nachrichten dieser Stufe protokolliert werden
+     *
+     * @param level Die Stufe
+     */
+    default boolean isEnabled(LogLevel level) {
+        return true;
+    }
+
+    /**
+     * Protokolliert eine Debug-Nachricht, die nur bei aktiver Stufe gebaut
+     * wird
+     *
+     * @param message Liefert die Nachricht
+     */
+    default void debug(Supplier<String> message) {
+        if (isEnabled(LogLevel.DEBUG)) {
+            debug(message.get());
+        }
+    }
+
+    /**
+     * Protokolliert eine Info-Nachricht, die nur bei aktiver Stufe gebaut wird
+     *
+     * @param message Liefert die Nachricht
+     */
+    default void info(Supplier<String> message) {
+        if (isEnabled(LogLevel.INFO)) {
+            info(message.get());
+        }
+    }
+
     /**
      * Protokolliert eine Debug-Nachricht
      * 
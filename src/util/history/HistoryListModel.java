@@ -0,0 +1,118 @@
+package util.history;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.swing.AbstractListModel;
+
+/**
+ * Listenmodell des Verlaufs, das Einträge seitenweise bei Bedarf liest
+ * Gelesene Seiten werden in einem kleinen LRU-Cache gehalten; zusammen mit
+ * einer festen Zellengröße der JList werden nur die sichtbaren Einträge von
+ * der Platte geholt. Ein Filter zeigt nur die Treffer einer Suche.
+ * Nur im Event-Dispatch-Thread zu verwenden.
+ */
+final class HistoryListModel extends AbstractListModel<String> {
+    private static final int PAGE_SIZE = 256;
+    private static final int MAX_PAGES = 32;
+
+    private final HistoryLog log;
+
+    // Seitennummer -> Einträge, am längsten ungenutzte zuerst
+    private final Map<Integer, String[]> pages = new LinkedHashMap<Integer, String[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String[]> eldest) {
+            return size() > MAX_PAGES;
+        }
+    };
+
+    // Aktive Suche; matches enthält die Positionen der Treffer
+    private String query;
+    private boolean prefix;
+    private int[] matches;
+    private int matchCount;
+
+    HistoryListModel(HistoryLog log) {
+        this.log = log;
+    }
+
+    @Override
+    public int getSize() {
+        return matches == null ? log.size() : matchCount;
+    }
+
+    @Override
+    public String getElementAt(int index) {
+        int position = matches == null ? index : matches[index];
+        int page = position / PAGE_SIZE;
+        String[] entries = pages.get(page);
+        if (entries == null) {
+            entries = log.get(page * PAGE_SIZE, PAGE_SIZE);
+            pages.put(page, entries);
+        }
+        return entries[position - page * PAGE_SIZE];
+    }
+
+    /**
+     * Zeigt nur die Einträge, die zur Suche passen
+     *
+     * @param query  Der gesuchte Text; leer oder null zeigt alle Einträge
+     * @param prefix Ob die Einträge mit dem Text beginnen müssen
+     */
+    void setFilter(String query, boolean prefix) {
+        int oldSize = getSize();
+        if (query == null || query.isEmpty()) {
+            this.query = null;
+            matches = null;
+        } else {
+            this.query = query;
+            this.prefix = prefix;
+            matches = log.search(query, prefix);
+            matchCount = matches.length;
+        }
+        fireChanged(oldSize);
+    }
+
+    /**
+     * Meldet einen angehängten Eintrag
+     *
+     * @param position Seine Position im Verlauf
+     */
+    void added(int position) {
+        // Die Seite des Eintrags war unvollständig gelesen
+        pages.remove(position / PAGE_SIZE);
+        if (matches == null) {
+            fireIntervalAdded(this, position, position);
+        } else if (log.matches(position, query, prefix)) {
+            if (matchCount == matches.length) {
+                matches = Arrays.copyOf(matches, Math.max(16, matchCount * 2));
+            }
+            matches[matchCount++] = position;
+            fireIntervalAdded(this, matchCount - 1, matchCount - 1);
+        }
+    }
+
+    /**
+     * Meldet, dass der Verlauf geleert wurde
+     */
+    void cleared() {
+        int oldSize = getSize();
+        pages.clear();
+        if (matches != null) {
+            matches = new int[0];
+            matchCount = 0;
+        }
+        fireChanged(oldSize);
+    }
+
+    private void fireChanged(int oldSize) {
+        if (oldSize > 0) {
+            fireIntervalRemoved(this, 0, oldSize - 1);
+        }
+        int newSize = getSize();
+        if (newSize > 0) {
+            fireIntervalAdded(this, 0, newSize - 1);
+        }
+    }
+}
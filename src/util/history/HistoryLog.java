@@ -0,0 +1,404 @@
+package util.history;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Dauerhafter Berechnungsverlauf auf der Platte
+ * Die Einträge stehen zeilenweise (UTF-8) in verlauf.txt, an die nur angehängt
+ * wird. verlauf.idx enthält nach einem Kopf die Anfangsposition jedes
+ * Eintrags als long, so dass jeder Eintrag ohne Suchen gelesen werden kann.
+ * Beide Dateien werden über Speicherabbildungen gelesen; im Speicher liegt
+ * nur, was gerade angezeigt oder gesucht wird.
+ *
+ * Der Kopf hält die Anzahl gelöschter Einträge: Löschen verschiebt nur den
+ * Anfang, gekürzt werden die Dateien erst beim nächsten Öffnen. Nach einem
+ * Absturz werden ein halb geschriebener Eintrag verworfen und fehlende
+ * Indexeinträge aus den Daten ergänzt.
+ *
+ * Nicht threadsicher; nur im Event-Dispatch-Thread verwenden.
+ */
+final class HistoryLog implements Closeable {
+    static final String DATA_FILE = "verlauf.txt";
+    static final String INDEX_FILE = "verlauf.idx";
+
+    // Kopf des Index: Anzahl gelöschter Einträge
+    private static final int HEADER_BYTES = 8;
+
+    private final MappedFile data;
+    private final MappedFile index;
+    private final FileLock lock;
+
+    // Gelöschte Einträge am Anfang und Anzahl aller Einträge im Index
+    private int first;
+    private int count;
+
+    // Wird bei der ersten Suche aufgebaut, danach fortgeschrieben
+    private HistorySearchIndex searchIndex;
+    private byte[] scratch = new byte[256];
+
+    private HistoryLog(MappedFile data, MappedFile index, FileLock lock) {
+        this.data = data;
+        this.index = index;
+        this.lock = lock;
+    }
+
+    /**
+     * Öffnet den Verlauf in einem Verzeichnis, legt ihn bei Bedarf an
+     *
+     * @throws IOException wenn die Dateien nicht lesbar sind oder eine andere
+     *                     Instanz den Verlauf verwendet
+     */
+    static HistoryLog open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        MappedFile index = new MappedFile(directory.resolve(INDEX_FILE));
+        MappedFile data = null;
+        try {
+            FileLock lock;
+            try {
+                lock = index.channel().tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock == null) {
+                throw new IOException("Verlauf wird von einer anderen Instanz verwendet: " + directory);
+            }
+            data = new MappedFile(directory.resolve(DATA_FILE));
+            HistoryLog log = new HistoryLog(data, index, lock);
+            log.recover();
+            return log;
+        } catch (IOException | RuntimeException e) {
+            if (data != null) {
+                data.close();
+            }
+            index.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Liefert die Anzahl der sichtbaren Einträge
+     */
+    int size() {
+        return count - first;
+    }
+
+    /**
+     * Liefert einen Eintrag
+     *
+     * @param position 0 bis size() - 1, ältester zuerst
+     */
+    String get(int position) {
+        int entry = entry(position);
+        int length = read(entry);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Liefert mehrere aufeinanderfolgende Einträge
+     *
+     * @param position Der erste Eintrag
+     * @param length   Anzahl, wird am Ende abgeschnitten
+     */
+    String[] get(int position, int length) {
+        int entry = entry(position);
+        length = Math.min(length, count - entry);
+        if (length <= 0) {
+            return new String[0];
+        }
+        String[] entries = new String[length];
+        long start = offset(entry);
+        long end = end(entry + length - 1);
+        byte[] bytes = new byte[(int) (end - start)];
+        data.read(start, bytes, 0, bytes.length);
+        for (int i = 0; i < length; i++) {
+            int from = (int) (offset(entry + i) - start);
+            int to = (int) (end(entry + i) - start) - 1;
+            entries[i] = new String(bytes, from, to - from, StandardCharsets.UTF_8);
+        }
+        return entries;
+    }
+
+    /**
+     * Hängt einen Eintrag an; Zeilenumbrüche werden durch Leerzeichen ersetzt
+     *
+     * @return Die Position des neuen Eintrags
+     */
+    int append(String text) throws IOException {
+        if (count == Integer.MAX_VALUE) {
+            throw new IOException("Verlauf ist voll");
+        }
+        byte[] bytes = (text.replace('\r', ' ').replace('\n', ' ') + "\n").getBytes(StandardCharsets.UTF_8);
+        long offset = data.size();
+        // Erst die Daten, dann den Index: nach einem Absturz dazwischen wird
+        // der Index beim Öffnen ergänzt
+        data.append(ByteBuffer.wrap(bytes));
+        index.append(ByteBuffer.allocate(Long.BYTES).putLong(0, offset));
+        if (searchIndex != null) {
+            searchIndex.add(count, bytes, bytes.length - 1);
+        }
+        count++;
+        return size() - 1;
+    }
+
+    /**
+     * Verbirgt alle Einträge; die Dateien werden beim nächsten Öffnen geleert
+     */
+    void clear() throws IOException {
+        first = count;
+        writeHeader();
+        searchIndex = null;
+    }
+
+    /**
+     * Sucht Einträge, Groß- und Kleinschreibung wird bei ASCII-Buchstaben
+     * nicht unterschieden
+     *
+     * @param query  Der gesuchte Text
+     * @param prefix Ob der Eintrag mit dem Text beginnen muss
+     * @return Die aufsteigenden Positionen der passenden Einträge
+     */
+    int[] search(String query, boolean prefix) {
+        byte[] pattern = pattern(query, prefix);
+        if (searchIndex == null) {
+            buildSearchIndex();
+        }
+        int[] candidates = searchIndex.candidates(pattern);
+        int total = candidates != null ? candidates.length : size();
+        int[] result = new int[total];
+        int found = 0;
+        for (int i = 0; i < total; i++) {
+            int entry = candidates != null ? candidates[i] : first + i;
+            if (entry >= first && matches(entry, pattern)) {
+                result[found++] = entry - first;
+            }
+        }
+        return Arrays.copyOf(result, found);
+    }
+
+    /**
+     * Prüft, ob ein Eintrag zu einer Suche passt
+     */
+    boolean matches(int position, String query, boolean prefix) {
+        return matches(entry(position), pattern(query, prefix));
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            lock.release();
+        } finally {
+            data.close();
+            index.close();
+        }
+    }
+
+    /**
+     * Bringt Index und Daten nach dem Öffnen in Einklang; liest nur über die
+     * Kanäle, damit die Dateien noch gekürzt werden können
+     */
+    private void recover() throws IOException {
+        if (index.size() < HEADER_BYTES) {
+            index.truncate(0);
+            index.append(ByteBuffer.allocate(HEADER_BYTES));
+        }
+        long firstEntries = readLong(index.channel(), 0);
+        long entries = (index.size() - HEADER_BYTES) / Long.BYTES;
+        long dataSize = data.size();
+
+        // Indexeinträge hinter dem Datenende verwerfen
+        while (entries > 0 && readLong(index.channel(), position(entries - 1)) >= dataSize) {
+            entries--;
+        }
+        // Ende des letzten Eintrags suchen; fehlt sein Zeilenumbruch, wurde er
+        // nicht fertig geschrieben
+        long end = 0;
+        if (entries > 0) {
+            long start = readLong(index.channel(), position(entries - 1));
+            long newline = indexOfNewline(start, dataSize);
+            if (newline < 0) {
+                entries--;
+                end = start;
+            } else {
+                end = newline + 1;
+            }
+        }
+        index.truncate(position(entries));
+
+        // Vollständige Einträge ohne Indexeintrag nachtragen
+        ByteBuffer offsets = ByteBuffer.allocate(64 * Long.BYTES);
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long position = end;
+        while (position < dataSize) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), dataSize - position));
+            int read = data.channel().read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) != '\n') {
+                    continue;
+                }
+                if (!offsets.hasRemaining()) {
+                    offsets.flip();
+                    index.append(offsets);
+                    offsets.clear();
+                }
+                offsets.putLong(end);
+                entries++;
+                end = position + i + 1;
+            }
+            position += read;
+        }
+        offsets.flip();
+        index.append(offsets);
+        // Halb geschriebenen Rest abschneiden
+        if (dataSize > end) {
+            data.truncate(end);
+        }
+
+        if (entries > Integer.MAX_VALUE) {
+            throw new IOException("Verlauf hat zu viele Einträge: " + entries);
+        }
+        count = (int) entries;
+        first = (int) Math.max(0, Math.min(firstEntries, entries));
+        if (first == count && count > 0) {
+            // Alles gelöscht: jetzt, vor dem ersten Abbilden, wirklich leeren
+            data.truncate(0);
+            index.truncate(HEADER_BYTES);
+            first = 0;
+            count = 0;
+        }
+        writeHeader();
+    }
+
+    private void buildSearchIndex() {
+        searchIndex = new HistorySearchIndex();
+        for (int entry = first; entry < count; entry++) {
+            int length = read(entry);
+            searchIndex.add(entry, scratch, length);
+        }
+    }
+
+    /**
+     * Wandelt eine Suche in das kleingeschriebene Muster für den Index
+     */
+    private static byte[] pattern(String query, boolean prefix) {
+        byte[] bytes = ((prefix ? "\n" : "") + query).getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) HistorySearchIndex.lower(bytes[i]);
+        }
+        return bytes;
+    }
+
+    /**
+     * Prüft, ob das Muster im Eintrag vorkommt; ein führender Zeilenumbruch
+     * steht für den Anfang des Eintrags
+     */
+    private boolean matches(int entry, byte[] pattern) {
+        int length = read(entry);
+        boolean prefix = pattern.length > 0 && pattern[0] == '\n';
+        int from = prefix ? 1 : 0;
+        int patternLength = pattern.length - from;
+        if (patternLength > length) {
+            return false;
+        }
+        int last = prefix ? 0 : length - patternLength;
+        for (int start = 0; start <= last; start++) {
+            int i = 0;
+            while (i < patternLength
+                    && HistorySearchIndex.lower(scratch[start + i]) == (pattern[from + i] & 0xFF)) {
+                i++;
+            }
+            if (i == patternLength) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Liest einen Eintrag ohne Zeilenumbruch nach scratch
+     *
+     * @return Die Länge in Bytes
+     */
+    private int read(int entry) {
+        long start = offset(entry);
+        int length = (int) (end(entry) - start) - 1;
+        if (length > scratch.length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        data.read(start, scratch, 0, length);
+        return length;
+    }
+
+    private int entry(int position) {
+        if (position < 0 || position >= size()) {
+            throw new IndexOutOfBoundsException("Verlaufseintrag " + position + ", Anzahl " + size());
+        }
+        return first + position;
+    }
+
+    private long offset(int entry) {
+        return index.getLong(position(entry));
+    }
+
+    /**
+     * Liefert die Position hinter dem Zeilenumbruch eines Eintrags
+     */
+    private long end(int entry) {
+        return entry + 1 < count ? offset(entry + 1) : data.size();
+    }
+
+    private void writeHeader() throws IOException {
+        index.write(0, ByteBuffer.allocate(HEADER_BYTES).putLong(0, first));
+    }
+
+    private static long position(long entry) {
+        return HEADER_BYTES + entry * Long.BYTES;
+    }
+
+    private static long readLong(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unerwartetes Dateiende im Verlaufsindex");
+            }
+        }
+        return buffer.getLong(0);
+    }
+
+    /**
+     * Sucht den nächsten Zeilenumbruch in den Daten über den Kanal
+     *
+     * @return Seine Position oder -1
+     */
+    private long indexOfNewline(long from, long limit) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long position = from;
+        while (position < limit) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), limit - position));
+            int read = data.channel().read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i;
+                }
+            }
+            position += read;
+        }
+        return -1;
+    }
+}
@@ -1,35 +1,80 @@
 package util.history;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 
 import core.Taschenrechner;
 
 import java.awt.*;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * Verwaltet den Berechnungsverlauf
+ * Der Verlauf wird in einem Verzeichnis auf der Platte fortgeschrieben und
+ * bleibt über Neustarts erhalten ({@link HistoryLog}); standardmäßig
+ * ~/.taschenrechner, änderbar über -Dtaschenrechner.history.dir=pfad.
+ * Die Liste liest nur die sichtbaren Einträge ({@link HistoryListModel}).
  */
 public class HistoryManager {
+    // Längster Eintrag, für den die Liste ohne Abschneiden Platz bietet
+    private static final String PROTOTYPE_ENTRY = "sin(x)^2 + cos(x)^2 * sqrt(2) - log(10) = 123.456789012";
+
     private JList<String> historyList;
-    private DefaultListModel<String> historyModel;
+    private HistoryListModel historyModel;
+    private HistoryLog historyLog;
+    private JTextField searchField;
+    private JCheckBox prefixCheckBox;
     private JDialog historyDialog;
-    private ArrayList<String> calculationHistory = new ArrayList<>();
     private final Taschenrechner calculator;
 
     public HistoryManager(Taschenrechner calculator) {
         this.calculator = calculator;
+        openHistoryLog();
         initializeHistoryPanel();
     }
 
+    /**
+     * Öffnet den Verlauf auf der Platte
+     * Ist das Verzeichnis nicht nutzbar oder von einer anderen Instanz
+     * belegt, wird ein Verlauf in einem temporären Verzeichnis angelegt, der
+     * beim Beenden verloren geht
+     */
+    private void openHistoryLog() {
+        Path directory = Paths.get(System.getProperty("taschenrechner.history.dir",
+                Paths.get(System.getProperty("user.home"), ".taschenrechner").toString()));
+        try {
+            historyLog = HistoryLog.open(directory);
+            calculator.debug(() -> "Verlauf geladen: " + historyLog.size() + " Einträge aus " + directory);
+            return;
+        } catch (IOException | RuntimeException e) {
+            calculator.debug("Verlauf nicht dauerhaft verfügbar: " + e.getMessage());
+        }
+        try {
+            Path temporary = Files.createTempDirectory("taschenrechner-verlauf");
+            temporary.toFile().deleteOnExit();
+            temporary.resolve(HistoryLog.DATA_FILE).toFile().deleteOnExit();
+            temporary.resolve(HistoryLog.INDEX_FILE).toFile().deleteOnExit();
+            historyLog = HistoryLog.open(temporary);
+        } catch (IOException e) {
+            throw new IllegalStateException("Verlauf kann nicht angelegt werden", e);
+        }
+    }
+
     /**
      * Initialisiert die Komponenten des Verlaufs-Panels
      */
     private void initializeHistoryPanel() {
         // Initialisiere das Verlaufsmodell und die Verlaufs-Liste
-        historyModel = new DefaultListModel<>();
+        historyModel = new HistoryListModel(historyLog);
         historyList = new JList<>(historyModel);
         historyList.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        // Feste Zellengröße: die Liste muss nicht jeden Eintrag lesen, um
+        // ihre Größe zu bestimmen
+        historyList.setPrototypeCellValue(PROTOTYPE_ENTRY);
         historyList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         historyList.addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting() && historyList.getSelectedIndex() != -1) {
@@ -59,9 +104,33 @@ public class HistoryManager {
         JPanel dialogPanel = new JPanel(new BorderLayout(5, 5));
         dialogPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
-        // Überschrift
+        // Überschrift und Suche
+        JPanel headerPanel = new JPanel(new BorderLayout(5, 5));
         JLabel titleLabel = new JLabel("Berechnungsverlauf:");
-        dialogPanel.add(titleLabel, BorderLayout.NORTH);
+        headerPanel.add(titleLabel, BorderLayout.NORTH);
+        headerPanel.add(new JLabel("Suchen:"), BorderLayout.WEST);
+        searchField = new JTextField();
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                applyFilter();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                applyFilter();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                applyFilter();
+            }
+        });
+        headerPanel.add(searchField, BorderLayout.CENTER);
+        prefixCheckBox = new JCheckBox("Nur Anfang");
+        prefixCheckBox.addActionListener(e -> applyFilter());
+        headerPanel.add(prefixCheckBox, BorderLayout.EAST);
+        dialogPanel.add(headerPanel, BorderLayout.NORTH);
 
         // Scrollbare Liste mit allen Berechnungen
         JScrollPane historyScrollPane = new JScrollPane(historyList);
@@ -74,9 +143,13 @@ public class HistoryManager {
         // Lösch-Button für den Verlauf
         JButton clearHistoryButton = new JButton("Verlauf löschen");
         clearHistoryButton.addActionListener(e -> {
-            historyModel.clear();
-            calculationHistory.clear();
-            calculator.debug("Berechnungsverlauf gelöscht");
+            try {
+                historyLog.clear();
+                calculator.debug("Berechnungsverlauf gelöscht");
+            } catch (IOException ex) {
+                calculator.debug("Verlauf konnte nicht gelöscht werden: " + ex.getMessage());
+            }
+            historyModel.cleared();
         });
 
         // Schließen-Button
@@ -95,18 +168,33 @@ public class HistoryManager {
         historyDialog.setLocationRelativeTo(calculator);
     }
 
+    /**
+     * Zeigt nur die Einträge, die zum Suchtext passen
+     */
+    private void applyFilter() {
+        historyList.clearSelection();
+        historyModel.setFilter(searchField.getText(), prefixCheckBox.isSelected());
+        calculator.debug(() -> "Verlauf gefiltert: " + historyModel.getSize() + " Treffer");
+    }
+
     /**
      * Fügt eine Berechnung zum Verlauf hinzu
      */
     public void addToHistory(String calculation, String result) {
         String historyEntry = calculation + " = " + result;
-        calculationHistory.add(historyEntry);
-        historyModel.addElement(historyEntry);
+        try {
+            historyModel.added(historyLog.append(historyEntry));
+        } catch (IOException e) {
+            calculator.debug("Verlaufseintrag konnte nicht gespeichert werden: " + e.getMessage());
+            return;
+        }
 
         // Scrolle zum neuesten Eintrag
-        historyList.ensureIndexIsVisible(historyModel.getSize() - 1);
+        if (historyModel.getSize() > 0) {
+            historyList.ensureIndexIsVisible(historyModel.getSize() - 1);
+        }
 
-        calculator.debug("Zur History hinzugefügt: " + historyEntry);
+        calculator.debug(() -> "Zur History hinzugefügt: " + historyEntry);
     }
 
     /**
@@ -0,0 +1,186 @@
+package util.history;
+
+import java.util.Arrays;
+
+/**
+ * Trigramm-Index über die Einträge des Verlaufs
+ * Zu jeder Folge von drei Bytes (ASCII-Buchstaben klein geschrieben) wird
+ * vermerkt, in welchen Einträgen sie vorkommt. Jedem Eintrag wird ein
+ * Zeilenumbruch vorangestellt, so dass sich auch Präfixe suchen lassen.
+ * Die Eintragsnummern liegen als Abstände zur vorigen Nummer in
+ * variabel langer Kodierung vor, meist ein Byte je Vorkommen.
+ *
+ * Der Index liefert nur Kandidaten; ob sie wirklich passen, prüft der
+ * Aufrufer am Eintrag selbst.
+ */
+final class HistorySearchIndex {
+    // Markiert belegte Plätze der Hashtabelle (Trigramme haben 24 Bit)
+    private static final int USED = 1 << 24;
+
+    private int[] keys = new int[1024];
+    private int[] slots = new int[1024];
+    private int used;
+
+    // Je Trigramm: kodierte Nummern, deren Bytes, Anzahl und letzte Nummer
+    private byte[][] postings = new byte[512][];
+    private int[] postingBytes = new int[512];
+    private int[] postingCounts = new int[512];
+    private int[] lastEntries = new int[512];
+
+    /**
+     * Nimmt einen Eintrag auf; Nummern müssen aufsteigend hinzugefügt werden
+     *
+     * @param entry  Die Nummer des Eintrags
+     * @param text   Die UTF-8-Bytes des Eintrags
+     * @param length Anzahl der gültigen Bytes in text
+     */
+    void add(int entry, byte[] text, int length) {
+        int trigram = lower('\n');
+        for (int i = 0; i < length; i++) {
+            trigram = ((trigram << 8) | lower(text[i])) & 0xFFFFFF;
+            if (i >= 1) {
+                addPosting(slot(trigram, true), entry);
+            }
+        }
+    }
+
+    /**
+     * Liefert die Einträge, die alle Trigramme des Musters enthalten können
+     *
+     * @param pattern Kleingeschriebenes Muster, bei Präfixsuche mit
+     *                vorangestelltem Zeilenumbruch
+     * @return Aufsteigende Eintragsnummern oder null, wenn das Muster zu kurz
+     *         ist und alle Einträge in Frage kommen
+     */
+    int[] candidates(byte[] pattern) {
+        if (pattern.length < 3) {
+            return null;
+        }
+        // Die Liste des seltensten Trigramms ist die kürzeste
+        int best = -1;
+        int trigram = ((pattern[0] & 0xFF) << 8) | (pattern[1] & 0xFF);
+        for (int i = 2; i < pattern.length; i++) {
+            trigram = ((trigram << 8) | (pattern[i] & 0xFF)) & 0xFFFFFF;
+            int slot = slot(trigram, false);
+            if (slot < 0) {
+                return new int[0];
+            }
+            if (best < 0 || postingCounts[slot] < postingCounts[best]) {
+                best = slot;
+            }
+        }
+        return decode(best);
+    }
+
+    /**
+     * Wandelt ASCII-Großbuchstaben in Kleinbuchstaben um
+     */
+    static int lower(int b) {
+        b &= 0xFF;
+        return b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+    }
+
+    private int[] decode(int slot) {
+        int[] entries = new int[postingCounts[slot]];
+        byte[] data = postings[slot];
+        int position = 0;
+        int entry = 0;
+        for (int i = 0; i < entries.length; i++) {
+            int delta = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = data[position++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            entry += delta;
+            entries[i] = entry;
+        }
+        return entries;
+    }
+
+    private void addPosting(int slot, int entry) {
+        int count = postingCounts[slot];
+        if (count > 0 && lastEntries[slot] == entry) {
+            // Trigramm kommt im Eintrag mehrfach vor
+            return;
+        }
+        // Die erste Nummer wird als Abstand zu 0 gespeichert
+        int delta = count == 0 ? entry : entry - lastEntries[slot];
+        byte[] data = postings[slot];
+        int position = postingBytes[slot];
+        if (data == null) {
+            data = new byte[8];
+        } else if (position + 5 > data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        while ((delta & ~0x7F) != 0) {
+            data[position++] = (byte) ((delta & 0x7F) | 0x80);
+            delta >>>= 7;
+        }
+        data[position++] = (byte) delta;
+        postings[slot] = data;
+        postingBytes[slot] = position;
+        postingCounts[slot] = count + 1;
+        lastEntries[slot] = entry;
+    }
+
+    /**
+     * Sucht den Platz eines Trigramms in der Hashtabelle
+     *
+     * @param create Ob ein fehlendes Trigramm angelegt wird
+     * @return Der Index in postings oder -1
+     */
+    private int slot(int trigram, boolean create) {
+        int key = trigram | USED;
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+        while (keys[index] != 0) {
+            if (keys[index] == key) {
+                return slots[index];
+            }
+            index = (index + 1) & mask;
+        }
+        if (!create) {
+            return -1;
+        }
+        int slot = used++;
+        if (slot == postings.length) {
+            int capacity = slot * 2;
+            postings = Arrays.copyOf(postings, capacity);
+            postingBytes = Arrays.copyOf(postingBytes, capacity);
+            postingCounts = Arrays.copyOf(postingCounts, capacity);
+            lastEntries = Arrays.copyOf(lastEntries, capacity);
+        }
+        keys[index] = key;
+        slots[index] = slot;
+        if (used * 2 > keys.length) {
+            rehash();
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        int[] oldKeys = keys;
+        int[] oldSlots = slots;
+        keys = new int[oldKeys.length * 2];
+        slots = new int[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int index = hash(oldKeys[i]) & mask;
+                while (keys[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                slots[index] = oldSlots[i];
+            }
+        }
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
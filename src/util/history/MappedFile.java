@@ -0,0 +1,147 @@
+package util.history;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Datei, an die nur angehängt wird und die über Speicherabbildungen gelesen
+ * wird
+ * Geschrieben wird über den Kanal, gelesen über Abschnitte von je 1 GiB, die
+ * erst beim ersten Zugriff abgebildet werden. Wächst die Datei, wird nur der
+ * letzte, unvollständige Abschnitt neu abgebildet.
+ * Kürzen ist nur erlaubt, solange noch nichts abgebildet ist (unter Windows
+ * lassen sich abgebildete Dateien nicht kürzen).
+ */
+final class MappedFile implements Closeable {
+    private static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private long size;
+
+    /**
+     * Öffnet die Datei, legt sie bei Bedarf an
+     */
+    MappedFile(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        size = channel.size();
+    }
+
+    /**
+     * Liefert den Kanal, z.B. zum Sperren oder für Lesezugriffe vor dem
+     * Abbilden
+     */
+    FileChannel channel() {
+        return channel;
+    }
+
+    /**
+     * Liefert die aktuelle Größe in Bytes
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Hängt den Inhalt des Puffers an das Dateiende an
+     */
+    void append(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            size += channel.write(source, size);
+        }
+    }
+
+    /**
+     * Überschreibt einen Bereich innerhalb der Datei
+     */
+    void write(long position, ByteBuffer source) throws IOException {
+        if (position + source.remaining() > size) {
+            throw new IllegalArgumentException("Schreiben hinter das Dateiende: " + position);
+        }
+        while (source.hasRemaining()) {
+            position += channel.write(source, position);
+        }
+    }
+
+    /**
+     * Kürzt die Datei (nur vor dem ersten Lesezugriff)
+     */
+    void truncate(long newSize) throws IOException {
+        if (!segments.isEmpty()) {
+            throw new IllegalStateException("Abgebildete Datei kann nicht gekürzt werden");
+        }
+        channel.truncate(newSize);
+        size = Math.min(size, newSize);
+    }
+
+    /**
+     * Liest ein Byte
+     */
+    byte get(long position) {
+        return segment(position).get((int) (position & SEGMENT_MASK));
+    }
+
+    /**
+     * Liest einen long; die Position muss durch 8 teilbar sein, damit er nicht
+     * über eine Abschnittsgrenze reicht
+     */
+    long getLong(long position) {
+        return segment(position).getLong((int) (position & SEGMENT_MASK));
+    }
+
+    /**
+     * Liest length Bytes ab position nach target
+     */
+    void read(long position, byte[] target, int offset, int length) {
+        while (length > 0) {
+            MappedByteBuffer segment = segment(position);
+            int index = (int) (position & SEGMENT_MASK);
+            int count = Math.min(length, segment.limit() - index);
+            segment.get(index, target, offset, count);
+            position += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        segments.clear();
+        channel.close();
+    }
+
+    /**
+     * Liefert den Abschnitt, der die Position enthält, und bildet ihn bei
+     * Bedarf (neu) ab
+     */
+    private MappedByteBuffer segment(long position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + ", Größe " + size);
+        }
+        int number = (int) (position >>> SEGMENT_BITS);
+        MappedByteBuffer segment = number < segments.size() ? segments.get(number) : null;
+        if (segment == null || (position & SEGMENT_MASK) >= segment.limit()) {
+            long start = (long) number << SEGMENT_BITS;
+            try {
+                segment = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_MASK + 1, size - start));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            while (segments.size() <= number) {
+                segments.add(null);
+            }
+            segments.set(number, segment);
+        }
+        return segment;
+    }
+}